@@ -0,0 +1,87 @@
+package com.atparui.rms.aop.tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import reactor.core.publisher.Mono;
+
+/**
+ * Overhead of {@link TracingInterceptor} compared to a plain call of the same bean.
+ * <p>
+ * Run with {@code -prof gc} to check that unsampled calls allocate nothing beyond the proxy's own invocation object.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracingInterceptorBenchmark {
+
+    @Param({ "0.0", "0.01", "1.0" })
+    public double sampleRate;
+
+    private Service plain;
+
+    private Service traced;
+
+    @Setup
+    public void setup() {
+        plain = new Service();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ProxyFactory proxyFactory = new ProxyFactory(new Service());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(
+            new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forClassAnnotation(Traced.class),
+                new TracingInterceptor(() -> meterRegistry, sampleRate)
+            )
+        );
+        traced = (Service) proxyFactory.getProxy();
+    }
+
+    @Benchmark
+    public int plainCall() {
+        return plain.compute(42);
+    }
+
+    @Benchmark
+    public int tracedCall() {
+        return traced.compute(42);
+    }
+
+    @Benchmark
+    public Integer plainMono() {
+        return plain.find(42).block();
+    }
+
+    @Benchmark
+    public Integer tracedMono() {
+        return traced.find(42).block();
+    }
+
+    @Traced
+    public static class Service {
+
+        public int compute(int value) {
+            return value * 31 + 7;
+        }
+
+        public Mono<Integer> find(int value) {
+            return Mono.just(value * 31 + 7);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.atparui.rms.config;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.service.TenantService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Cost of {@link DynamicOAuth2ConfigService#getClientRegistration(ServerWebExchange)} per request, once the
+ * registrations of the tenants are cached.
+ * <p>
+ * The tenants are served by a stubbed {@link TenantService} and the OIDC discovery by a stubbed IdP.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamicOAuth2ConfigServiceBenchmark {
+
+    @Param({ "1", "1000" })
+    public int tenants;
+
+    @Param({ "web", "mobile" })
+    public String clientType;
+
+    private DynamicOAuth2ConfigService dynamicOAuth2ConfigService;
+
+    private ServerWebExchange[] exchanges;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        TenantService tenantService = mock(TenantService.class);
+        when(tenantService.findTenant(anyString())).thenAnswer(invocation ->
+            Mono.just(TenantResolverBenchmark.tenant(invocation.getArgument(0)))
+        );
+        WebClient.Builder identityProvider = WebClient.builder()
+            .exchangeFunction(request ->
+                Mono.just(
+                    ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body("{\"issuer\":\"" + request.url().toString().replace("/.well-known/openid-configuration", "") + "\"}")
+                        .build()
+                )
+            );
+        dynamicOAuth2ConfigService = new DynamicOAuth2ConfigService(
+            TenantResolverBenchmark.tenantResolver(tenantService, new SimpleMeterRegistry()),
+            identityProvider,
+            new ApplicationProperties(),
+            "https://auth.example.com"
+        );
+        exchanges = new ServerWebExchange[tenants];
+        for (int i = 0; i < tenants; i++) {
+            exchanges[i] = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/oauth2/authorization/oidc")
+                    .header("Host", "localhost:8080")
+                    .header("X-Tenant-ID", "tenant-" + i)
+                    .header(HttpHeaders.USER_AGENT, "mobile".equals(clientType) ? "RMS/1.0 (Android 14)" : "Mozilla/5.0 (X11; Linux x86_64)")
+            );
+            // Steady state, with the registrations cached
+            dynamicOAuth2ConfigService.getClientRegistration(exchanges[i]).block();
+        }
+    }
+
+    @Benchmark
+    public ClientRegistration getClientRegistration() {
+        next = (next + 1) % exchanges.length;
+        return dynamicOAuth2ConfigService.getClientRegistration(exchanges[next]).block();
+    }
+}
@@ -0,0 +1,118 @@
+package com.atparui.rms.config;
+
+import com.atparui.rms.service.UserChangedEvent;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.jwt.Jwt;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Cost of {@link SecurityConfiguration#enrich} for each bearer token: tokens with the identity claims, tokens whose
+ * user info is cached, and tokens whose user info is read from the IdP.
+ * <p>
+ * The user info endpoint is served in-process, so the lookup measures the client side of the call over loopback.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtEnrichBenchmark {
+
+    @Param({ "1", "1000" })
+    public int users;
+
+    private HttpServer identityProvider;
+
+    private String userInfoUri;
+
+    private SecurityConfiguration securityConfiguration;
+
+    private Jwt[] completeTokens;
+
+    private Jwt[] tokens;
+
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        identityProvider = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        identityProvider.createContext("/userinfo", exchange -> {
+            byte[] body = "{\"sub\":\"user\",\"preferred_username\":\"user\",\"name\":\"Jane Doe\",\"email\":\"jane@example.com\"}".getBytes(
+                StandardCharsets.UTF_8
+            );
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        identityProvider.start();
+        userInfoUri = "http://localhost:" + identityProvider.getAddress().getPort() + "/userinfo";
+        securityConfiguration = new SecurityConfiguration(null, new JHipsterProperties(), null, null, null);
+        completeTokens = new Jwt[users];
+        tokens = new Jwt[users];
+        for (int i = 0; i < users; i++) {
+            completeTokens[i] = token("user-" + i).claim("given_name", "Jane").claim("family_name", "Doe").build();
+            tokens[i] = token("user-" + i).build();
+            // Steady state, with the user info cached
+            securityConfiguration.enrich(userInfoUri, tokens[i].getTokenValue(), tokens[i]).block();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        identityProvider.stop(0);
+    }
+
+    @Benchmark
+    public Jwt identityClaims() {
+        next = (next + 1) % users;
+        return securityConfiguration.enrich(userInfoUri, completeTokens[next].getTokenValue(), completeTokens[next]).block();
+    }
+
+    @Benchmark
+    public Jwt cachedUserInfo() {
+        next = (next + 1) % users;
+        return securityConfiguration.enrich(userInfoUri, tokens[next].getTokenValue(), tokens[next]).block();
+    }
+
+    @Benchmark
+    public Jwt userInfoLookup() {
+        next = (next + 1) % users;
+        securityConfiguration.onUserChanged(new UserChangedEvent(tokens[next].getSubject()));
+        return securityConfiguration.enrich(userInfoUri, tokens[next].getTokenValue(), tokens[next]).block();
+    }
+
+    private static Jwt.Builder token(String subject) {
+        Instant now = Instant.now();
+        return Jwt.withTokenValue("token-" + subject)
+            .header("alg", "RS256")
+            .subject(subject)
+            .audience(List.of("web_app"))
+            .issuedAt(now)
+            .expiresAt(now.plusSeconds(3600))
+            .claim("preferred_username", subject)
+            .claim("groups", List.of("ROLE_USER"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.atparui.rms.config;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.domain.Tenant;
+import com.atparui.rms.service.TenantService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Cost of {@link TenantResolver#resolveTenant} per request, once the subdomains of the tenants are cached.
+ * <p>
+ * The tenants are served by a stubbed {@link TenantService}, so only the resolution and its metrics are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TenantResolverBenchmark {
+
+    @Param({ "subdomain", "header", "admin" })
+    public String source;
+
+    @Param({ "1", "1000" })
+    public int tenants;
+
+    private TenantResolver tenantResolver;
+
+    private ServerWebExchange[] exchanges;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        TenantService tenantService = mock(TenantService.class);
+        when(tenantService.findBySubdomain(anyString())).thenAnswer(invocation -> Mono.just(tenant(invocation.getArgument(0))));
+        tenantResolver = tenantResolver(tenantService, new SimpleMeterRegistry());
+        exchanges = new ServerWebExchange[tenants];
+        for (int i = 0; i < tenants; i++) {
+            exchanges[i] = exchange("tenant-" + i);
+            // Steady state, with the subdomains cached
+            tenantResolver.resolveTenant(exchanges[i]).block();
+        }
+    }
+
+    @Benchmark
+    public String resolveTenant() {
+        next = (next + 1) % exchanges.length;
+        return tenantResolver.resolveTenant(exchanges[next]).block();
+    }
+
+    private ServerWebExchange exchange(String tenantId) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/account");
+        switch (source) {
+            case "subdomain" -> request.header("Host", tenantId + ".atparui.com");
+            case "header" -> request.header("Host", "localhost:8080").header("X-Tenant-ID", tenantId);
+            default -> request.header("Host", "admin.atparui.com");
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    static Tenant tenant(String tenantId) {
+        Tenant tenant = new Tenant();
+        tenant.setTenantId(tenantId);
+        tenant.setSubdomain(tenantId);
+        tenant.setClientId(tenantId + "-web");
+        return tenant;
+    }
+
+    /**
+     * @param tenantService the tenants
+     * @param meterRegistry the registry of the resolution metrics
+     * @return a resolver configured like the defaults of the application
+     */
+    static TenantResolver tenantResolver(TenantService tenantService, MeterRegistry meterRegistry) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        TenantResolver tenantResolver = new TenantResolver();
+        ReflectionTestUtils.setField(tenantResolver, "tenantConfigProperties", new TenantConfigProperties());
+        ReflectionTestUtils.setField(tenantResolver, "tenantService", tenantService);
+        ReflectionTestUtils.setField(tenantResolver, "gatewayAdminConfig", new GatewayAdminConfig());
+        ReflectionTestUtils.setField(tenantResolver, "defaultTenant", "gateway");
+        ReflectionTestUtils.setField(tenantResolver, "defaultClientId", "gateway-web");
+        ReflectionTestUtils.setField(tenantResolver, "defaultClientSecret", "secret");
+        ReflectionTestUtils.setField(tenantResolver, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(
+            tenantResolver,
+            "tenantMeterTags",
+            new TenantMeterTags(new ApplicationProperties(), beanFactory.getBeanProvider(MeterRegistry.class))
+        );
+        tenantResolver.registerCacheMetrics();
+        return tenantResolver;
+    }
+}
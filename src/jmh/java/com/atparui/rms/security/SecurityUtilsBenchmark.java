@@ -0,0 +1,52 @@
+package com.atparui.rms.security;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Cost of {@link SecurityUtils#extractAuthorityFromClaims} for each layout of the roles in the claims, as issued by
+ * the supported IdPs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityUtilsBenchmark {
+
+    private static final List<String> ROLES = List.of("ROLE_ADMIN", "ROLE_USER", "offline_access", "uma_authorization", "default-roles");
+
+    @Param({ "groups", "realm_access", "resource_access" })
+    public String layout;
+
+    private Map<String, Object> claims;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> roles = Map.of("roles", ROLES);
+        claims = switch (layout) {
+            case "groups" -> Map.of("sub", "user", "groups", ROLES);
+            case "realm_access" -> Map.of("sub", "user", "realm_access", roles);
+            default -> Map.of("sub", "user", "resource_access", Map.of("web_app", roles));
+        };
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> extractAuthorityFromClaims() {
+        return SecurityUtils.extractAuthorityFromClaims(claims);
+    }
+}
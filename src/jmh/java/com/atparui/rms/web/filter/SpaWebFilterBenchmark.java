@@ -0,0 +1,50 @@
+package com.atparui.rms.web.filter;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Cost of the path matching of {@link SpaWebFilter}, which every request goes through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpaWebFilterBenchmark {
+
+    @Param({ "/api/account", "/services/order/api/orders", "/content/main.js", "/admin/user-management" })
+    public String path;
+
+    private final SpaWebFilter spaWebFilter = new SpaWebFilter();
+
+    private final WebFilterChain chain = exchange -> Mono.empty();
+
+    private ServerWebExchange exchange;
+
+    @Setup
+    public void setup() {
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+
+    @Benchmark
+    public Void filter() {
+        return spaWebFilter.filter(exchange, chain).block();
+    }
+}
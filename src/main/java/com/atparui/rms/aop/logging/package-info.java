@@ -1,4 +0,0 @@
-/**
- * Logging aspect.
- */
-package com.atparui.rms.aop.logging;
@@ -0,0 +1,23 @@
+package com.atparui.rms.aop.tracing;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Opt a method, or all the public methods of a bean, into tracing by the {@link TracingInterceptor}.
+ * <p>
+ * Methods returning a {@code Mono} or a {@code Flux} are timed from subscription to completion, error or cancellation,
+ * other methods from invocation to return.
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Traced {
+    /**
+     * Name of the traced operation, defaults to {@code ClassName.methodName}.
+     */
+    String value() default "";
+}
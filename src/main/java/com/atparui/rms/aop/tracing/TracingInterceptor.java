@@ -0,0 +1,176 @@
+package com.atparui.rms.aop.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Times and logs the executions of {@link Traced} methods, replacing the JHipster logging aspect.
+ * <p>
+ * Only a sample of the calls is traced: the others go straight to the target and allocate nothing here. Reactive
+ * methods are timed over the subscription lifecycle rather than over the assembly of the publisher, which is all a
+ * plain around advice would see.
+ * <p>
+ * Arguments and results are never logged, as rendering them is the main cost of the former aspect.
+ */
+public class TracingInterceptor implements MethodInterceptor {
+
+    static final String METRIC_NAME = "method.traced";
+
+    static final String OUTCOME_SUCCESS = "success";
+    static final String OUTCOME_ERROR = "error";
+    static final String OUTCOME_CANCEL = "cancel";
+
+    private final Supplier<MeterRegistry> meterRegistry;
+
+    private final double sampleRate;
+
+    private final Map<Method, TracedMethod> methods = new ConcurrentHashMap<>();
+
+    // Kept in a field: a method reference would be allocated on every lookup
+    private final Function<Method, TracedMethod> describe = this::describe;
+
+    /**
+     * @param meterRegistry supplies the registry on first use, so that the advisor can be created before it.
+     * @param sampleRate the fraction of the calls to trace, between 0 and 1.
+     */
+    public TracingInterceptor(Supplier<MeterRegistry> meterRegistry, double sampleRate) {
+        this.meterRegistry = meterRegistry;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (!sampled()) {
+            return invocation.proceed();
+        }
+        TracedMethod traced = methods.computeIfAbsent(invocation.getMethod(), describe);
+        traced.enter();
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            traced.exit(start, OUTCOME_ERROR, e);
+            throw e;
+        }
+        if (result instanceof Mono<?> mono) {
+            return Mono.defer(() -> {
+                TracedMethod.Exit exit = traced.subscribed();
+                return mono
+                    .doOnError(e -> exit.record(OUTCOME_ERROR, e))
+                    .doOnSuccess(value -> exit.record(OUTCOME_SUCCESS, null))
+                    .doOnCancel(() -> exit.record(OUTCOME_CANCEL, null));
+            });
+        }
+        if (result instanceof Flux<?> flux) {
+            return Flux.defer(() -> {
+                TracedMethod.Exit exit = traced.subscribed();
+                return flux
+                    .doOnError(e -> exit.record(OUTCOME_ERROR, e))
+                    .doOnComplete(() -> exit.record(OUTCOME_SUCCESS, null))
+                    .doOnCancel(() -> exit.record(OUTCOME_CANCEL, null));
+            });
+        }
+        traced.exit(start, OUTCOME_SUCCESS, null);
+        return result;
+    }
+
+    private boolean sampled() {
+        return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private TracedMethod describe(Method method) {
+        Class<?> type = method.getDeclaringClass();
+        Traced traced = AnnotatedElementUtils.findMergedAnnotation(method, Traced.class);
+        if (traced == null) {
+            traced = AnnotatedElementUtils.findMergedAnnotation(type, Traced.class);
+        }
+        String name = traced != null && !traced.value().isEmpty() ? traced.value() : type.getSimpleName() + "." + method.getName();
+        return new TracedMethod(name, LoggerFactory.getLogger(type));
+    }
+
+    /**
+     * Meters and logger of a traced method, created on its first sampled call.
+     */
+    private class TracedMethod {
+
+        private final String name;
+
+        private final Logger log;
+
+        private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+        TracedMethod(String name, Logger log) {
+            this.name = name;
+            this.log = log;
+        }
+
+        void enter() {
+            if (log.isDebugEnabled()) {
+                log.debug("Enter: {}()", name);
+            }
+        }
+
+        void exit(long startNanos, String outcome, Throwable error) {
+            long duration = System.nanoTime() - startNanos;
+            timer(outcome).record(duration, TimeUnit.NANOSECONDS);
+            if (error != null) {
+                log.error("Exception in {}() with cause = {}", name, error.getCause() != null ? String.valueOf(error.getCause()) : "NULL");
+            } else if (log.isDebugEnabled()) {
+                log.debug("Exit: {}() with outcome {} in {} µs", name, outcome, TimeUnit.NANOSECONDS.toMicros(duration));
+            }
+        }
+
+        Exit subscribed() {
+            return new Exit(System.nanoTime());
+        }
+
+        private Timer timer(String outcome) {
+            Timer timer = timers.get(outcome);
+            if (timer == null) {
+                timer = timers.computeIfAbsent(outcome, o ->
+                    Timer.builder(METRIC_NAME)
+                        .description("Sampled executions of @Traced methods")
+                        .tag("method", name)
+                        .tag("outcome", o)
+                        .register(meterRegistry.get())
+                );
+            }
+            return timer;
+        }
+
+        /**
+         * Exit of one subscription to a reactive result, recorded only once: a {@link Mono} succeeds on its value,
+         * and can still be cancelled afterwards, e.g. by a {@code take(1)} downstream.
+         */
+        private class Exit extends AtomicBoolean {
+
+            private final long startNanos;
+
+            Exit(long startNanos) {
+                this.startNanos = startNanos;
+            }
+
+            void record(String outcome, Throwable error) {
+                if (compareAndSet(false, true)) {
+                    exit(startNanos, outcome, error);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Annotation-driven, sampled tracing of method executions.
+ */
+package com.atparui.rms.aop.tracing;
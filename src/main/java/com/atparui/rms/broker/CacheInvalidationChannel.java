@@ -0,0 +1,179 @@
+package com.atparui.rms.broker;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.service.DriverChangedEvent;
+import com.atparui.rms.service.TenantChangedEvent;
+import com.atparui.rms.service.UserChangedEvent;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Broadcasts the tenant, driver and user changes to the other gateway nodes, for their local caches to forget them.
+ * <p>
+ * The local {@link TenantChangedEvent}s, {@link DriverChangedEvent}s and {@link UserChangedEvent}s are sent to the
+ * {@code gateway-cache-invalidation} topic, keyed by tenant, driver or user so that the changes of each stay in order.
+ * Every node consumes the whole topic and publishes the changes of the other nodes as {@code remote} events, to which
+ * the caches listen like to the local ones. Repeated changes within {@code application.cache-invalidation.window} are
+ * sent, and applied, once.
+ */
+@Component
+public class CacheInvalidationChannel implements Consumer<Message<CacheInvalidationChannel.CacheInvalidation>> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CacheInvalidationChannel.class);
+
+    public static final String BINDING_NAME = "cacheInvalidationChannel-out-0";
+
+    static final String ORIGIN_HEADER = "X-Gateway-Node";
+
+    private final StreamBridge streamBridge;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String node = UUID.randomUUID().toString();
+    private final Coalescer outgoing;
+    private final Coalescer incoming;
+
+    public CacheInvalidationChannel(
+        StreamBridge streamBridge,
+        ApplicationEventPublisher eventPublisher,
+        ApplicationProperties applicationProperties
+    ) {
+        this.streamBridge = streamBridge;
+        this.eventPublisher = eventPublisher;
+        Duration window = applicationProperties.getCacheInvalidation().getWindow();
+        this.outgoing = new Coalescer(window, this::send);
+        this.incoming = new Coalescer(window, this::apply);
+    }
+
+    @EventListener
+    public void onTenantChanged(TenantChangedEvent event) {
+        if (!event.remote()) {
+            outgoing.add(new CacheInvalidation(Type.TENANT, event.tenantId()));
+        }
+    }
+
+    @EventListener
+    public void onDriverChanged(DriverChangedEvent event) {
+        if (!event.remote()) {
+            outgoing.add(new CacheInvalidation(Type.DRIVER, event.filePath()));
+        }
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (!event.remote()) {
+            outgoing.add(new CacheInvalidation(Type.USER, event.userId()));
+        }
+    }
+
+    @Override
+    public void accept(Message<CacheInvalidation> message) {
+        Object origin = message.getHeaders().get(ORIGIN_HEADER);
+        if (origin instanceof byte[] bytes) {
+            origin = new String(bytes, StandardCharsets.UTF_8);
+        }
+        // Already applied when it was sent
+        if (!node.equals(origin) && message.getPayload().id() != null) {
+            incoming.add(message.getPayload());
+        }
+    }
+
+    private void send(Set<CacheInvalidation> changes) {
+        for (CacheInvalidation change : changes) {
+            try {
+                Message<CacheInvalidation> message = MessageBuilder.withPayload(change)
+                    .setHeader(KafkaHeaders.KEY, change.id().getBytes(StandardCharsets.UTF_8))
+                    .setHeader(ORIGIN_HEADER, node)
+                    .build();
+                if (!streamBridge.send(BINDING_NAME, message)) {
+                    LOG.warn("Failed to broadcast the change of {} {}", change.type(), change.id());
+                }
+            } catch (RuntimeException e) {
+                // The other nodes converge when their caches expire
+                LOG.warn("Failed to broadcast the change of {} {}: {}", change.type(), change.id(), e.getMessage());
+            }
+        }
+    }
+
+    private void apply(Set<CacheInvalidation> changes) {
+        for (CacheInvalidation change : changes) {
+            LOG.debug("Applying the change of {} {} from another gateway node", change.type(), change.id());
+            try {
+                eventPublisher.publishEvent(
+                    switch (change.type()) {
+                        case TENANT -> new TenantChangedEvent(change.id(), true);
+                        case DRIVER -> new DriverChangedEvent(change.id(), true);
+                        case USER -> new UserChangedEvent(change.id(), true);
+                    }
+                );
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to apply the change of {} {}: {}", change.type(), change.id(), e.getMessage());
+            }
+        }
+    }
+
+    public enum Type {
+        TENANT,
+        DRIVER,
+        USER,
+    }
+
+    /**
+     * A change sent to the other gateway nodes.
+     *
+     * @param type what changed.
+     * @param id the tenant ID, driver file path or user ID.
+     */
+    public record CacheInvalidation(Type type, String id) {}
+
+    /**
+     * Collects the changes during a window, without duplicates, and hands them over together.
+     */
+    private static final class Coalescer {
+
+        private final long windowNanos;
+        private final Consumer<Set<CacheInvalidation>> flush;
+
+        // Guarded by this
+        private Set<CacheInvalidation> pending = new LinkedHashSet<>();
+
+        private Coalescer(Duration window, Consumer<Set<CacheInvalidation>> flush) {
+            this.windowNanos = window.toNanos();
+            this.flush = flush;
+        }
+
+        private void add(CacheInvalidation change) {
+            boolean first;
+            synchronized (this) {
+                first = pending.isEmpty();
+                pending.add(change);
+            }
+            if (first) {
+                // Sending may block while the broker is unreachable
+                Schedulers.boundedElastic().schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void flush() {
+            Set<CacheInvalidation> changes;
+            synchronized (this) {
+                changes = pending;
+                pending = new LinkedHashSet<>();
+            }
+            flush.accept(changes);
+        }
+    }
+}
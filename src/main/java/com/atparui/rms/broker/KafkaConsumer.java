@@ -1,26 +1,214 @@
 package com.atparui.rms.broker;
 
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.config.ApplicationProperties.KafkaSse.Overflow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Sinks;
 
+/**
+ * Fans the Kafka records out to the {@code /api/rms-kafka/consume} subscribers.
+ * <p>
+ * Each subscriber reads the records of its tenant and topic through its own buffer of
+ * {@code application.kafka-sse.buffer-size} records, so a slow client only loses its own records (or is
+ * disconnected) and never holds back the consumer or the other clients. The last {@code replay-size} records are
+ * replayed to new subscribers, after their {@code Last-Event-ID} when they reconnect.
+ */
 @Component
-public class KafkaConsumer implements Consumer<String> {
+public class KafkaConsumer implements Consumer<Message<String>> {
 
     private static final Logger LOG = LoggerFactory.getLogger(KafkaConsumer.class);
 
-    private Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+    public static final String TENANT_HEADER = "X-Tenant-ID";
 
-    public Flux<String> getFlux() {
-        return this.sink.asFlux();
+    static final String DROPPED_METRIC = "kafka.sse.dropped";
+
+    private final Sinks.Many<KafkaEvent> sink;
+    private final int bufferSize;
+    private final Overflow overflow;
+    private final Duration heartbeatInterval;
+    private final Counter dropped;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong subscriptionIds = new AtomicLong();
+    private final Map<Long, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    public KafkaConsumer(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.KafkaSse properties = applicationProperties.getKafkaSse();
+        this.sink = properties.getReplaySize() > 0
+            ? Sinks.many().replay().limit(properties.getReplaySize())
+            : Sinks.many().multicast().directBestEffort();
+        this.bufferSize = Math.max(properties.getBufferSize(), 1);
+        this.overflow = properties.getOverflow();
+        this.heartbeatInterval = properties.getHeartbeatInterval();
+        this.dropped = Counter.builder(DROPPED_METRIC)
+            .description("Kafka records dropped for the SSE subscribers that do not keep up")
+            .register(meterRegistry);
+        Gauge.builder("kafka.sse.subscribers", subscriptions, Map::size)
+            .description("Clients streaming the Kafka records")
+            .register(meterRegistry);
+        Gauge.builder("kafka.sse.lag", this, KafkaConsumer::totalLag)
+            .description("Kafka records buffered for the SSE subscribers")
+            .register(meterRegistry);
     }
 
     @Override
-    public void accept(String input) {
-        LOG.debug("Got message from kafka stream: {}", input);
-        sink.emitNext(input, Sinks.EmitFailureHandler.FAIL_FAST);
+    public void accept(Message<String> message) {
+        LOG.debug("Got message from kafka stream: {}", message.getPayload());
+        KafkaEvent event = new KafkaEvent(
+            sequence.incrementAndGet(),
+            header(message, TENANT_HEADER),
+            header(message, KafkaHeaders.RECEIVED_TOPIC),
+            message.getPayload()
+        );
+        // Only contended by concurrent consumer threads, as the subscribers buffer on their own
+        sink.emitNext(event, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+    }
+
+    /**
+     * Stream the records to a new subscriber.
+     *
+     * @param tenant the tenant of the records, or {@code null} for the records without tenant only.
+     * @param topic the topic of the records, or {@code null} for all topics.
+     * @param lastEventId the id of the last record the subscriber received, or {@code null}.
+     * @param overflow what to do when the subscriber does not keep up, or {@code null} for the configured policy.
+     * @return the records, interleaved with heartbeat comments.
+     */
+    public Flux<ServerSentEvent<String>> subscribe(String tenant, String topic, Long lastEventId, Overflow overflow) {
+        // Ids from before a restart cannot be resumed from
+        long after = lastEventId != null && lastEventId <= sequence.get() ? lastEventId : 0;
+        return Flux.defer(() -> {
+            Subscription subscription = new Subscription(
+                subscriptionIds.incrementAndGet(),
+                tenant,
+                topic,
+                overflow != null ? overflow : this.overflow,
+                Instant.now()
+            );
+            subscriptions.put(subscription.id, subscription);
+            Sinks.Empty<Void> disconnected = Sinks.empty();
+            Flux<ServerSentEvent<String>> events = sink
+                .asFlux()
+                .filter(event -> event.id() > after && event.matches(tenant, topic))
+                .doOnNext(event -> subscription.received.incrementAndGet())
+                .onBackpressureBuffer(
+                    bufferSize,
+                    event -> {
+                        subscription.dropped.incrementAndGet();
+                        dropped.increment();
+                    },
+                    strategy(subscription.overflow)
+                )
+                .onErrorResume(Exceptions::isOverflow, e -> {
+                    LOG.debug("Disconnecting Kafka SSE subscriber {} that does not keep up", subscription.id);
+                    return Flux.empty();
+                })
+                .doOnNext(event -> subscription.delivered.incrementAndGet())
+                .map(event -> ServerSentEvent.builder(event.payload()).id(Long.toString(event.id())).build())
+                .doFinally(signal -> disconnected.tryEmitEmpty());
+            Flux<ServerSentEvent<String>> heartbeats = Flux.interval(heartbeatInterval)
+                .onBackpressureDrop()
+                .map(tick -> ServerSentEvent.<String>builder().comment("heartbeat").build())
+                .takeUntilOther(disconnected.asMono());
+            // Prefetch of 1 so that the records wait in the buffer of the subscriber only
+            return Flux.merge(1, events, heartbeats).doFinally(signal -> subscriptions.remove(subscription.id));
+        });
+    }
+
+    /**
+     * Get the current subscribers with their counts of records.
+     *
+     * @return the subscribers, oldest first.
+     */
+    public List<SubscriptionInfo> getSubscriptions() {
+        return subscriptions.values().stream().sorted(Comparator.comparingLong(s -> s.id)).map(Subscription::info).toList();
+    }
+
+    private double totalLag() {
+        return subscriptions.values().stream().mapToLong(Subscription::lag).sum();
+    }
+
+    private static BufferOverflowStrategy strategy(Overflow overflow) {
+        return switch (overflow) {
+            case DROP_OLDEST -> BufferOverflowStrategy.DROP_OLDEST;
+            case DROP_NEWEST -> BufferOverflowStrategy.DROP_LATEST;
+            case DISCONNECT -> BufferOverflowStrategy.ERROR;
+        };
+    }
+
+    private static String header(Message<?> message, String name) {
+        Object value = message.getHeaders().get(name);
+        if (value instanceof byte[] bytes) {
+            // Kafka headers that are not mapped to a type
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value != null ? value.toString() : null;
+    }
+
+    record KafkaEvent(long id, String tenant, String topic, String payload) {
+        boolean matches(String tenant, String topic) {
+            // Records without tenant are broadcast to every tenant
+            return (this.tenant == null || this.tenant.equals(tenant)) && (topic == null || topic.equals(this.topic));
+        }
+    }
+
+    public record SubscriptionInfo(
+        long id,
+        String tenant,
+        String topic,
+        Overflow overflow,
+        Instant connectedAt,
+        long received,
+        long delivered,
+        long dropped,
+        long lag
+    ) {}
+
+    private static final class Subscription {
+
+        private final long id;
+        private final String tenant;
+        private final String topic;
+        private final Overflow overflow;
+        private final Instant connectedAt;
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+
+        private Subscription(long id, String tenant, String topic, Overflow overflow, Instant connectedAt) {
+            this.id = id;
+            this.tenant = tenant;
+            this.topic = topic;
+            this.overflow = overflow;
+            this.connectedAt = connectedAt;
+        }
+
+        private long lag() {
+            // Records waiting in the buffer of the subscriber
+            return Math.max(received.get() - delivered.get() - dropped.get(), 0);
+        }
+
+        private SubscriptionInfo info() {
+            return new SubscriptionInfo(id, tenant, topic, overflow, connectedAt, received.get(), delivered.get(), dropped.get(), lag());
+        }
     }
 }
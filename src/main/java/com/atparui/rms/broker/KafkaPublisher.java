@@ -0,0 +1,337 @@
+package com.atparui.rms.broker;
+
+import com.atparui.rms.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Publishes messages to Kafka in batches, off the request threads.
+ * <p>
+ * Messages are grouped per tenant and key, and a batch is sent once it holds {@code application.kafka-publish.batch-size}
+ * messages or after {@code linger}. The batches of a tenant and key are always sent by the same thread, in order. The
+ * sends do not wait for the broker: the binder reports the acks on the {@value #ACK_CHANNEL} channel and the failures on
+ * the error channel of the binding, and each message is matched by its {@value #PUBLISH_ID_HEADER} header. The returned
+ * {@link Mono}s complete once the messages are acked, fail if they are not within {@code ack-timeout}, and fail with
+ * {@link BufferFullException} when more than {@code buffer-size} messages are waiting, so that callers slow down instead
+ * of filling the heap.
+ */
+@Component
+public class KafkaPublisher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KafkaPublisher.class);
+
+    public static final String BINDING_NAME = "binding-out-0";
+
+    static final String ACK_CHANNEL = "kafkaPublishAcks";
+
+    static final String ERROR_CHANNEL = BINDING_NAME + ".errors";
+
+    static final String PUBLISH_ID_HEADER = "X-Publish-Id";
+
+    static final String LATENCY_METRIC = "kafka.publish.latency";
+
+    static final String BATCH_SIZE_METRIC = "kafka.publish.batch.size";
+
+    static final String REJECTED_METRIC = "kafka.publish.rejected";
+
+    private final StreamBridge streamBridge;
+    private final int bufferSize;
+    private final int batchSize;
+    private final Duration linger;
+    private final boolean awaitAcks;
+    private final Duration ackTimeout;
+    private final Timer latency;
+    private final DistributionSummary batchSizes;
+    private final Counter rejected;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong nextPublishId = new AtomicLong();
+    // Sent messages waiting for their ack, by publish ID
+    private final Map<Long, Entry> unacked = new ConcurrentHashMap<>();
+    private final Map<BatchKey, Batch> batches = new ConcurrentHashMap<>();
+    private final Scheduler scheduler;
+    private final Scheduler.Worker[] workers;
+
+    public KafkaPublisher(StreamBridge streamBridge, MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
+        ApplicationProperties.KafkaPublish properties = applicationProperties.getKafkaPublish();
+        this.streamBridge = streamBridge;
+        this.bufferSize = properties.getBufferSize();
+        this.batchSize = Math.max(properties.getBatchSize(), 1);
+        this.linger = properties.getLinger();
+        this.awaitAcks = properties.isAwaitAcks();
+        this.ackTimeout = properties.getAckTimeout();
+        this.latency = Timer.builder(LATENCY_METRIC)
+            .description("Time from publishing a message to its ack")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder(BATCH_SIZE_METRIC).description("Messages sent per batch").register(meterRegistry);
+        this.rejected = Counter.builder(REJECTED_METRIC)
+            .description("Messages rejected because the publish buffer was full")
+            .register(meterRegistry);
+        int concurrency = Math.max(properties.getConcurrency(), 1);
+        // Sending blocks while the producer buffer is full or the metadata of the topic is fetched
+        this.scheduler = Schedulers.newBoundedElastic(concurrency, Integer.MAX_VALUE, "kafka-publisher");
+        this.workers = new Scheduler.Worker[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            workers[i] = scheduler.createWorker();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Send what is left before the binder stops
+        batches.keySet().forEach(key -> {
+            Batch batch = batches.remove(key);
+            if (batch != null) {
+                send(key, batch);
+            }
+        });
+        scheduler.dispose();
+    }
+
+    /**
+     * Publish messages.
+     *
+     * @param tenant the tenant of the messages, sent in the {@code X-Tenant-ID} header, or {@code null}.
+     * @param key the key of the messages, or {@code null}.
+     * @param payloads the messages.
+     * @return a {@link Mono} completing once all the messages are acked.
+     */
+    public Mono<Void> publish(String tenant, String key, List<String> payloads) {
+        return Mono.defer(() -> {
+            if (payloads.isEmpty()) {
+                return Mono.empty();
+            }
+            if (!reserve(payloads.size())) {
+                rejected.increment(payloads.size());
+                return Mono.error(new BufferFullException());
+            }
+            Request request = new Request(payloads.size());
+            BatchKey batchKey = new BatchKey(tenant, key);
+            for (String payload : payloads) {
+                long publishId = nextPublishId.incrementAndGet();
+                request.publishIds.add(publishId);
+                add(batchKey, new Entry(publishId, payload, request));
+            }
+            return request.acked
+                .asMono()
+                .timeout(ackTimeout)
+                // Late acks are ignored
+                .doFinally(signal -> request.publishIds.forEach(unacked::remove));
+        });
+    }
+
+    /**
+     * Complete the message acked by the broker.
+     *
+     * @param message the sent message, with the record metadata.
+     */
+    @ServiceActivator(inputChannel = ACK_CHANNEL)
+    public void onAck(Message<?> message) {
+        Entry entry = remove(message);
+        if (entry != null) {
+            latency.record(System.nanoTime() - entry.request.startNanos, TimeUnit.NANOSECONDS);
+            entry.request.ack();
+        }
+    }
+
+    /**
+     * Fail the message that could not be sent.
+     *
+     * @param error the error, with the failed message.
+     */
+    @ServiceActivator(inputChannel = ERROR_CHANNEL)
+    public void onSendFailure(ErrorMessage error) {
+        if (error.getPayload() instanceof MessagingException exception && exception.getFailedMessage() != null) {
+            Entry entry = remove(exception.getFailedMessage());
+            if (entry != null) {
+                LOG.warn("Failed to publish a message to Kafka: {}", exception.getMessage());
+                entry.request.fail(exception);
+            }
+        }
+    }
+
+    private Entry remove(Message<?> message) {
+        Object publishId = message.getHeaders().get(PUBLISH_ID_HEADER);
+        if (publishId instanceof byte[] bytes) {
+            publishId = new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (publishId instanceof Number number) {
+            return unacked.remove(number.longValue());
+        }
+        if (publishId instanceof String value) {
+            try {
+                return unacked.remove(Long.parseLong(value));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Publish a stream of messages, reading more of them as the previous ones are acked.
+     *
+     * @param tenant the tenant of the messages, or {@code null}.
+     * @param key the key of the messages, or {@code null}.
+     * @param payloads the messages, blank ones are skipped.
+     * @return the number of messages published.
+     */
+    public Mono<Long> publishAll(String tenant, String key, Flux<String> payloads) {
+        return payloads
+            .filter(StringUtils::hasText)
+            .buffer(batchSize)
+            // Two batches in flight, so that the next one is buffered while the previous one is acked
+            .flatMapSequential(chunk -> publish(tenant, key, chunk).thenReturn((long) chunk.size()), 2)
+            .reduce(0L, Long::sum);
+    }
+
+    private boolean reserve(int count) {
+        int current;
+        do {
+            current = pending.get();
+            if (current + count > bufferSize) {
+                return false;
+            }
+        } while (!pending.compareAndSet(current, current + count));
+        return true;
+    }
+
+    private void add(BatchKey key, Entry entry) {
+        Batch[] full = new Batch[1];
+        batches.compute(key, (k, batch) -> {
+            if (batch == null) {
+                batch = new Batch();
+                Batch lingering = batch;
+                worker(key).schedule(() -> flush(key, lingering), linger.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            batch.entries.add(entry);
+            if (batch.entries.size() >= batchSize) {
+                full[0] = batch;
+                return null;
+            }
+            return batch;
+        });
+        if (full[0] != null) {
+            worker(key).schedule(() -> send(key, full[0]));
+        }
+    }
+
+    private void flush(BatchKey key, Batch batch) {
+        // Unless it was already sent full
+        if (batches.remove(key, batch)) {
+            send(key, batch);
+        }
+    }
+
+    private void send(BatchKey key, Batch batch) {
+        batchSizes.record(batch.entries.size());
+        for (Entry entry : batch.entries) {
+            pending.decrementAndGet();
+            MessageBuilder<String> message = MessageBuilder.withPayload(entry.payload).setHeader(PUBLISH_ID_HEADER, entry.publishId);
+            if (key.tenant() != null) {
+                message.setHeader(KafkaConsumer.TENANT_HEADER, key.tenant());
+            }
+            if (key.key() != null) {
+                // The binder serializes the keys as bytes
+                message.setHeader(KafkaHeaders.KEY, key.key().getBytes(StandardCharsets.UTF_8));
+            }
+            if (awaitAcks) {
+                // Before sending, the ack may come first
+                unacked.put(entry.publishId, entry);
+            }
+            try {
+                if (!streamBridge.send(BINDING_NAME, message.build())) {
+                    unacked.remove(entry.publishId);
+                    entry.request.fail(new IllegalStateException("Kafka did not accept the message"));
+                } else if (!awaitAcks) {
+                    latency.record(System.nanoTime() - entry.request.startNanos, TimeUnit.NANOSECONDS);
+                    entry.request.ack();
+                }
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to publish a message to Kafka: {}", e.getMessage());
+                unacked.remove(entry.publishId);
+                entry.request.fail(e);
+            }
+        }
+    }
+
+    private Scheduler.Worker worker(BatchKey key) {
+        return workers[Math.floorMod(key.hashCode(), workers.length)];
+    }
+
+    /**
+     * Thrown when too many messages are waiting to be sent.
+     */
+    public static class BufferFullException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public BufferFullException() {
+            super("Kafka publish buffer is full");
+        }
+    }
+
+    private record BatchKey(String tenant, String key) {}
+
+    private record Entry(long publishId, String payload, Request request) {}
+
+    private static final class Batch {
+
+        // Only modified within the compute of its key
+        private final List<Entry> entries = new ArrayList<>();
+    }
+
+    private static final class Request {
+
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger remaining;
+        private final Sinks.Empty<Void> acked = Sinks.empty();
+        private final Queue<Long> publishIds = new ConcurrentLinkedQueue<>();
+
+        private Request(int count) {
+            this.remaining = new AtomicInteger(count);
+        }
+
+        private void ack() {
+            if (remaining.decrementAndGet() == 0) {
+                acked.tryEmitEmpty();
+            }
+        }
+
+        private void fail(Throwable error) {
+            remaining.set(-1);
+            acked.tryEmitError(error);
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.atparui.rms.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 /**
  * Properties specific to Rms.
@@ -10,9 +14,1084 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
+
+    private final Gateway gateway = new Gateway();
+
+    private final Metrics metrics = new Metrics();
+
+    private final Tracing tracing = new Tracing();
+
+    private final Drivers drivers = new Drivers();
+
+    private final TenantDatabase tenantDatabase = new TenantDatabase();
+
+    private final ConnectionProbe connectionProbe = new ConnectionProbe();
+
+    private final Session session = new Session();
+
+    private final TokenRefresh tokenRefresh = new TokenRefresh();
+
+    private final ClientRegistrations clientRegistrations = new ClientRegistrations();
+
+    private final Profiling profiling = new Profiling();
+
+    private final EventLoopWatchdog eventLoopWatchdog = new EventLoopWatchdog();
+
+    private final KafkaSse kafkaSse = new KafkaSse();
+
+    private final KafkaPublish kafkaPublish = new KafkaPublish();
+
+    private final CacheInvalidation cacheInvalidation = new CacheInvalidation();
+
+    private final UserIndex userIndex = new UserIndex();
+
+    private final UserSearch userSearch = new UserSearch();
+
     // jhipster-needle-application-properties-property
 
+    public Gateway getGateway() {
+        return gateway;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public Tracing getTracing() {
+        return tracing;
+    }
+
+    public Drivers getDrivers() {
+        return drivers;
+    }
+
+    public TenantDatabase getTenantDatabase() {
+        return tenantDatabase;
+    }
+
+    public ConnectionProbe getConnectionProbe() {
+        return connectionProbe;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public TokenRefresh getTokenRefresh() {
+        return tokenRefresh;
+    }
+
+    public ClientRegistrations getClientRegistrations() {
+        return clientRegistrations;
+    }
+
+    public Profiling getProfiling() {
+        return profiling;
+    }
+
+    public EventLoopWatchdog getEventLoopWatchdog() {
+        return eventLoopWatchdog;
+    }
+
+    public KafkaSse getKafkaSse() {
+        return kafkaSse;
+    }
+
+    public KafkaPublish getKafkaPublish() {
+        return kafkaPublish;
+    }
+
+    public CacheInvalidation getCacheInvalidation() {
+        return cacheInvalidation;
+    }
+
+    public UserIndex getUserIndex() {
+        return userIndex;
+    }
+
+    public UserSearch getUserSearch() {
+        return userSearch;
+    }
+
     // jhipster-needle-application-properties-property-getter
 
+    public static class Gateway {
+
+        private final LoadBalancer loadBalancer = new LoadBalancer();
+
+        public LoadBalancer getLoadBalancer() {
+            return loadBalancer;
+        }
+
+        /**
+         * Settings of the latency-aware load balancer used for {@code lb://} routes.
+         */
+        public static class LoadBalancer {
+
+            private boolean enabled = true;
+
+            // Time constant of the latency EWMA: older samples lose ~63% of their weight after this long
+            private Duration decay = Duration.ofSeconds(10);
+
+            // Newly discovered instances ramp up linearly from slowStartMinWeight to full weight over this window
+            private Duration slowStart = Duration.ofSeconds(60);
+
+            private double slowStartMinWeight = 0.1;
+
+            // Failed calls are recorded as this multiple of the current latency estimate
+            private double failurePenalty = 5.0;
+
+            private boolean tenantStickiness = false;
+
+            // A tenant's preferred instance is kept while its cost is at most this multiple of the best candidate
+            private double stickinessTolerance = 1.5;
+
+            // Statistics of instances that have not been selected for this long are dropped
+            private Duration statsIdleTimeout = Duration.ofMinutes(10);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public Duration getDecay() {
+                return decay;
+            }
+
+            public void setDecay(Duration decay) {
+                this.decay = decay;
+            }
+
+            public Duration getSlowStart() {
+                return slowStart;
+            }
+
+            public void setSlowStart(Duration slowStart) {
+                this.slowStart = slowStart;
+            }
+
+            public double getSlowStartMinWeight() {
+                return slowStartMinWeight;
+            }
+
+            public void setSlowStartMinWeight(double slowStartMinWeight) {
+                this.slowStartMinWeight = slowStartMinWeight;
+            }
+
+            public double getFailurePenalty() {
+                return failurePenalty;
+            }
+
+            public void setFailurePenalty(double failurePenalty) {
+                this.failurePenalty = failurePenalty;
+            }
+
+            public boolean isTenantStickiness() {
+                return tenantStickiness;
+            }
+
+            public void setTenantStickiness(boolean tenantStickiness) {
+                this.tenantStickiness = tenantStickiness;
+            }
+
+            public double getStickinessTolerance() {
+                return stickinessTolerance;
+            }
+
+            public void setStickinessTolerance(double stickinessTolerance) {
+                this.stickinessTolerance = stickinessTolerance;
+            }
+
+            public Duration getStatsIdleTimeout() {
+                return statsIdleTimeout;
+            }
+
+            public void setStatsIdleTimeout(Duration statsIdleTimeout) {
+                this.statsIdleTimeout = statsIdleTimeout;
+            }
+        }
+    }
+
+    public static class Metrics {
+
+        private final Tenant tenant = new Tenant();
+
+        private final Snapshot snapshot = new Snapshot();
+
+        public Tenant getTenant() {
+            return tenant;
+        }
+
+        public Snapshot getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * Settings of the metrics snapshot served to the admin dashboard.
+         */
+        public static class Snapshot {
+
+            private Duration refreshInterval = Duration.ofSeconds(5);
+
+            // Refreshes stop when nobody requested or streamed the snapshot for this long
+            private Duration idleTimeout = Duration.ofMinutes(1);
+
+            public Duration getRefreshInterval() {
+                return refreshInterval;
+            }
+
+            public void setRefreshInterval(Duration refreshInterval) {
+                this.refreshInterval = refreshInterval;
+            }
+
+            public Duration getIdleTimeout() {
+                return idleTimeout;
+            }
+
+            public void setIdleTimeout(Duration idleTimeout) {
+                this.idleTimeout = idleTimeout;
+            }
+        }
+
+        /**
+         * Settings of the tenant-tagged metrics.
+         */
+        public static class Tenant {
+
+            // Only the busiest tenants get their own tag value, the others are reported under the "other" tag value
+            private int maxTaggedTenants = 100;
+
+            // Upper bound of the number of distinct tenants whose activity is counted for the ranking
+            private int maxTrackedTenants = 10_000;
+
+            // Period of the recomputation of the busiest tenants
+            private Duration rankingInterval = Duration.ofMinutes(1);
+
+            // Histogram buckets of tenant-tagged timers, replacing the full percentile histogram
+            private List<Duration> serviceLevelObjectives = new ArrayList<>(
+                List.of(
+                    Duration.ofMillis(50),
+                    Duration.ofMillis(100),
+                    Duration.ofMillis(250),
+                    Duration.ofMillis(500),
+                    Duration.ofSeconds(1),
+                    Duration.ofMillis(2500),
+                    Duration.ofSeconds(5),
+                    Duration.ofSeconds(10)
+                )
+            );
+
+            public int getMaxTaggedTenants() {
+                return maxTaggedTenants;
+            }
+
+            public void setMaxTaggedTenants(int maxTaggedTenants) {
+                this.maxTaggedTenants = maxTaggedTenants;
+            }
+
+            public int getMaxTrackedTenants() {
+                return maxTrackedTenants;
+            }
+
+            public void setMaxTrackedTenants(int maxTrackedTenants) {
+                this.maxTrackedTenants = maxTrackedTenants;
+            }
+
+            public Duration getRankingInterval() {
+                return rankingInterval;
+            }
+
+            public void setRankingInterval(Duration rankingInterval) {
+                this.rankingInterval = rankingInterval;
+            }
+
+            public List<Duration> getServiceLevelObjectives() {
+                return serviceLevelObjectives;
+            }
+
+            public void setServiceLevelObjectives(List<Duration> serviceLevelObjectives) {
+                this.serviceLevelObjectives = serviceLevelObjectives;
+            }
+        }
+    }
+
+    /**
+     * Settings of the tracing of {@code @Traced} methods.
+     */
+    public static class Tracing {
+
+        private boolean enabled = false;
+
+        // Fraction of the calls that are timed and logged, between 0 and 1
+        private double sampleRate = 0.01;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+    }
+
+    /**
+     * Settings of the uploaded database drivers.
+     */
+    public static class Drivers {
+
+        // Driver JARs kept loaded in their own classloader, the least recently used ones are closed beyond that
+        private int maxLoaded = 16;
+
+        public int getMaxLoaded() {
+            return maxLoaded;
+        }
+
+        public void setMaxLoaded(int maxLoaded) {
+            this.maxLoaded = maxLoaded;
+        }
+    }
+
+    /**
+     * Settings of the reactive connections to the tenant databases.
+     */
+    public static class TenantDatabase {
+
+        private final Pool pool = new Pool();
+
+        private final Health health = new Health();
+
+        public Pool getPool() {
+            return pool;
+        }
+
+        public Health getHealth() {
+            return health;
+        }
+
+        /**
+         * Settings of the monitoring of the tenant databases.
+         */
+        public static class Health {
+
+            private boolean enabled = true;
+
+            // Period of the lookup of the databases due for a probe
+            private Duration tick = Duration.ofSeconds(5);
+
+            // Time between two probes of a healthy database, randomized by the jitter
+            private Duration interval = Duration.ofSeconds(30);
+
+            // Upper bound of the exponential backoff of a failing database
+            private Duration maxBackoff = Duration.ofMinutes(10);
+
+            private double jitter = 0.2;
+
+            private int maxConcurrency = 8;
+
+            private Duration timeout = Duration.ofSeconds(5);
+
+            // Consecutive failures after which connections to the tenant database fail fast
+            private int failFastThreshold = 2;
+
+            // Period of the reload of the IDs of the monitored tenants
+            private Duration tenantsRefresh = Duration.ofMinutes(1);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public Duration getTick() {
+                return tick;
+            }
+
+            public void setTick(Duration tick) {
+                this.tick = tick;
+            }
+
+            public Duration getInterval() {
+                return interval;
+            }
+
+            public void setInterval(Duration interval) {
+                this.interval = interval;
+            }
+
+            public Duration getMaxBackoff() {
+                return maxBackoff;
+            }
+
+            public void setMaxBackoff(Duration maxBackoff) {
+                this.maxBackoff = maxBackoff;
+            }
+
+            public double getJitter() {
+                return jitter;
+            }
+
+            public void setJitter(double jitter) {
+                this.jitter = jitter;
+            }
+
+            public int getMaxConcurrency() {
+                return maxConcurrency;
+            }
+
+            public void setMaxConcurrency(int maxConcurrency) {
+                this.maxConcurrency = maxConcurrency;
+            }
+
+            public Duration getTimeout() {
+                return timeout;
+            }
+
+            public void setTimeout(Duration timeout) {
+                this.timeout = timeout;
+            }
+
+            public int getFailFastThreshold() {
+                return failFastThreshold;
+            }
+
+            public void setFailFastThreshold(int failFastThreshold) {
+                this.failFastThreshold = failFastThreshold;
+            }
+
+            public Duration getTenantsRefresh() {
+                return tenantsRefresh;
+            }
+
+            public void setTenantsRefresh(Duration tenantsRefresh) {
+                this.tenantsRefresh = tenantsRefresh;
+            }
+        }
+
+        /**
+         * Settings of the connection pool of each tenant.
+         */
+        public static class Pool {
+
+            private int initialSize = 0;
+
+            private int maxSize = 20;
+
+            private Duration maxIdleTime = Duration.ofMinutes(10);
+
+            // Time to wait for a connection, either idle or created, before failing
+            private Duration maxAcquireTime = Duration.ofSeconds(30);
+
+            private Duration maxCreateConnectionTime = Duration.ofSeconds(10);
+
+            public int getInitialSize() {
+                return initialSize;
+            }
+
+            public void setInitialSize(int initialSize) {
+                this.initialSize = initialSize;
+            }
+
+            public int getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(int maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public Duration getMaxIdleTime() {
+                return maxIdleTime;
+            }
+
+            public void setMaxIdleTime(Duration maxIdleTime) {
+                this.maxIdleTime = maxIdleTime;
+            }
+
+            public Duration getMaxAcquireTime() {
+                return maxAcquireTime;
+            }
+
+            public void setMaxAcquireTime(Duration maxAcquireTime) {
+                this.maxAcquireTime = maxAcquireTime;
+            }
+
+            public Duration getMaxCreateConnectionTime() {
+                return maxCreateConnectionTime;
+            }
+
+            public void setMaxCreateConnectionTime(Duration maxCreateConnectionTime) {
+                this.maxCreateConnectionTime = maxCreateConnectionTime;
+            }
+        }
+    }
+
+    /**
+     * Settings of the database connection probes, used by the connection tests.
+     */
+    public static class ConnectionProbe {
+
+        // Probes run concurrently, JDBC connections being blocking
+        private int threads = 16;
+
+        private int maxPerHost = 2;
+
+        private Duration timeout = Duration.ofSeconds(5);
+
+        // Results are reused for identical probes within that time
+        private Duration cacheTtl = Duration.ofSeconds(30);
+
+        private int cacheSize = 1_000;
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getMaxPerHost() {
+            return maxPerHost;
+        }
+
+        public void setMaxPerHost(int maxPerHost) {
+            this.maxPerHost = maxPerHost;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public Duration getCacheTtl() {
+            return cacheTtl;
+        }
+
+        public void setCacheTtl(Duration cacheTtl) {
+            this.cacheTtl = cacheTtl;
+        }
+
+        public int getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+    }
+    /**
+     * Settings of the web sessions, which hold the OAuth2 login and the authorized clients.
+     */
+    public static class Session {
+
+        public enum Store {
+            // Bounded store in the gateway memory, the gateway instances need sticky sessions
+            LOCAL,
+            // Shared by the gateway instances, in the master database
+            DATABASE,
+        }
+
+        private Store store = Store.LOCAL;
+
+        // Serialized sessions kept by the local store, the least recently used ones are evicted beyond that
+        private DataSize maxMemory = DataSize.ofMegabytes(64);
+
+        private int maxSessionsPerPrincipal = 5;
+
+        // Last access times of unchanged sessions are written at most that often
+        private Duration touchInterval = Duration.ofMinutes(1);
+
+        private Duration cleanupInterval = Duration.ofMinutes(5);
+
+        public Store getStore() {
+            return store;
+        }
+
+        public void setStore(Store store) {
+            this.store = store;
+        }
+
+        public DataSize getMaxMemory() {
+            return maxMemory;
+        }
+
+        public void setMaxMemory(DataSize maxMemory) {
+            this.maxMemory = maxMemory;
+        }
+
+        public int getMaxSessionsPerPrincipal() {
+            return maxSessionsPerPrincipal;
+        }
+
+        public void setMaxSessionsPerPrincipal(int maxSessionsPerPrincipal) {
+            this.maxSessionsPerPrincipal = maxSessionsPerPrincipal;
+        }
+
+        public Duration getTouchInterval() {
+            return touchInterval;
+        }
+
+        public void setTouchInterval(Duration touchInterval) {
+            this.touchInterval = touchInterval;
+        }
+
+        public Duration getCleanupInterval() {
+            return cleanupInterval;
+        }
+
+        public void setCleanupInterval(Duration cleanupInterval) {
+            this.cleanupInterval = cleanupInterval;
+        }
+    }
+    /**
+     * Settings of the refresh of the OAuth2 access tokens of the web sessions.
+     */
+    public static class TokenRefresh {
+
+        // Access tokens are refreshed before requests when they expire within that time
+        private Duration clockSkew = Duration.ofSeconds(60);
+
+        // Access tokens expiring within that time beyond the clock skew are refreshed in the background
+        private Duration refreshAhead = Duration.ofSeconds(60);
+
+        public Duration getClockSkew() {
+            return clockSkew;
+        }
+
+        public void setClockSkew(Duration clockSkew) {
+            this.clockSkew = clockSkew;
+        }
+
+        public Duration getRefreshAhead() {
+            return refreshAhead;
+        }
+
+        public void setRefreshAhead(Duration refreshAhead) {
+            this.refreshAhead = refreshAhead;
+        }
+    }
+    /**
+     * Settings of the OAuth2 client registrations of the tenants.
+     */
+    public static class ClientRegistrations {
+
+        // Registrations are rebuilt in the background that long after they were built, besides on tenant changes
+        private Duration refreshInterval = Duration.ofMinutes(10);
+
+        private int maxSize = 10_000;
+
+        // OIDC discovery metadata of the realms is fetched again after that time
+        private Duration discoveryTtl = Duration.ofHours(1);
+
+        private Duration discoveryTimeout = Duration.ofSeconds(5);
+
+        // Unknown tenants and failed discoveries are remembered that long, not to look them up on every request
+        private Duration negativeTtl = Duration.ofSeconds(30);
+
+        public Duration getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getDiscoveryTtl() {
+            return discoveryTtl;
+        }
+
+        public void setDiscoveryTtl(Duration discoveryTtl) {
+            this.discoveryTtl = discoveryTtl;
+        }
+
+        public Duration getDiscoveryTimeout() {
+            return discoveryTimeout;
+        }
+
+        public void setDiscoveryTimeout(Duration discoveryTimeout) {
+            this.discoveryTimeout = discoveryTimeout;
+        }
+
+        public Duration getNegativeTtl() {
+            return negativeTtl;
+        }
+
+        public void setNegativeTtl(Duration negativeTtl) {
+            this.negativeTtl = negativeTtl;
+        }
+    }
+    public static class Profiling {
+
+        // Keep a rolling JFR recording with the default (low overhead) settings
+        private boolean continuous = true;
+
+        private Duration maxAge = Duration.ofMinutes(30);
+
+        private DataSize maxSize = DataSize.ofMegabytes(250);
+
+        // Targeted recordings stop after that time at most
+        private Duration maxDuration = Duration.ofMinutes(10);
+
+        // Allocation sites and blocking stacks reported by the summaries
+        private int topSites = 20;
+
+        public boolean isContinuous() {
+            return continuous;
+        }
+
+        public void setContinuous(boolean continuous) {
+            this.continuous = continuous;
+        }
+
+        public Duration getMaxAge() {
+            return maxAge;
+        }
+
+        public void setMaxAge(Duration maxAge) {
+            this.maxAge = maxAge;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getMaxDuration() {
+            return maxDuration;
+        }
+
+        public void setMaxDuration(Duration maxDuration) {
+            this.maxDuration = maxDuration;
+        }
+
+        public int getTopSites() {
+            return topSites;
+        }
+
+        public void setTopSites(int topSites) {
+            this.topSites = topSites;
+        }
+    }
+
+    public static class EventLoopWatchdog {
+
+        private boolean enabled = true;
+
+        // Every event loop is sent an empty task that often, while its previous one has run
+        private Duration interval = Duration.ofMillis(50);
+
+        // An event loop that has not run its empty task after that time is blocked
+        private Duration threshold = Duration.ofMillis(100);
+
+        // A blocking stack is logged at most once in that time, the other occurrences are counted
+        private Duration reportInterval = Duration.ofMinutes(1);
+
+        private int stackDepth = 32;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public Duration getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(Duration threshold) {
+            this.threshold = threshold;
+        }
+
+        public Duration getReportInterval() {
+            return reportInterval;
+        }
+
+        public void setReportInterval(Duration reportInterval) {
+            this.reportInterval = reportInterval;
+        }
+
+        public int getStackDepth() {
+            return stackDepth;
+        }
+
+        public void setStackDepth(int stackDepth) {
+            this.stackDepth = stackDepth;
+        }
+    }
+
+    public static class KafkaSse {
+
+        /**
+         * What happens to the records of a subscriber whose buffer is full.
+         */
+        public enum Overflow {
+            DROP_OLDEST,
+            DROP_NEWEST,
+            DISCONNECT,
+        }
+
+        // Records buffered for each subscriber that does not keep up
+        private int bufferSize = 256;
+
+        private Overflow overflow = Overflow.DROP_OLDEST;
+
+        private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+        // Last records replayed to new subscribers, or after their Last-Event-ID
+        private int replaySize = 100;
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public Overflow getOverflow() {
+            return overflow;
+        }
+
+        public void setOverflow(Overflow overflow) {
+            this.overflow = overflow;
+        }
+
+        public Duration getHeartbeatInterval() {
+            return heartbeatInterval;
+        }
+
+        public void setHeartbeatInterval(Duration heartbeatInterval) {
+            this.heartbeatInterval = heartbeatInterval;
+        }
+
+        public int getReplaySize() {
+            return replaySize;
+        }
+
+        public void setReplaySize(int replaySize) {
+            this.replaySize = replaySize;
+        }
+    }
+
+    public static class KafkaPublish {
+
+        // Messages waiting to be sent before the publishers get 429 responses
+        private int bufferSize = 10_000;
+
+        // Messages of a tenant and key sent together
+        private int batchSize = 100;
+
+        // Time a batch waits for more messages before it is sent
+        private Duration linger = Duration.ofMillis(10);
+
+        // Threads sending the batches, the messages of a tenant and key are always sent by the same one
+        private int concurrency = 4;
+
+        // Whether the publish responses wait for the broker acks, reported on the record metadata channel
+        private boolean awaitAcks = true;
+
+        // Time to wait for the acks of the messages before their publish fails
+        private Duration ackTimeout = Duration.ofSeconds(30);
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getLinger() {
+            return linger;
+        }
+
+        public void setLinger(Duration linger) {
+            this.linger = linger;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public boolean isAwaitAcks() {
+            return awaitAcks;
+        }
+
+        public void setAwaitAcks(boolean awaitAcks) {
+            this.awaitAcks = awaitAcks;
+        }
+
+        public Duration getAckTimeout() {
+            return ackTimeout;
+        }
+
+        public void setAckTimeout(Duration ackTimeout) {
+            this.ackTimeout = ackTimeout;
+        }
+    }
+
+    public static class CacheInvalidation {
+
+        // Changes within that window are sent, and applied from the other nodes, once
+        private Duration window = Duration.ofMillis(20);
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+    }
+
+    public static class UserIndex {
+
+        // Users written per bulk request, by the incremental indexing and by the full reindex, at least 1
+        private int batchSize = 500;
+
+        // Time a changed user waits for more changes before it is indexed
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        private int maxRetries = 3;
+
+        private Duration retryBackoff = Duration.ofSeconds(1);
+
+        // Users whose indexing failed after the retries, kept to be retried later
+        private int deadLetterSize = 10_000;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+
+        public Duration getRetryBackoff() {
+            return retryBackoff;
+        }
+
+        public void setRetryBackoff(Duration retryBackoff) {
+            this.retryBackoff = retryBackoff;
+        }
+
+        public int getDeadLetterSize() {
+            return deadLetterSize;
+        }
+
+        public void setDeadLetterSize(int deadLetterSize) {
+            this.deadLetterSize = deadLetterSize;
+        }
+    }
+
+    public static class UserSearch {
+
+        private int defaultSize = 20;
+
+        private int maxSize = 100;
+
+        // Results of the same searches, mostly type-ahead prefixes, reused that long
+        private Duration cacheTtl = Duration.ofSeconds(30);
+
+        private long cacheSize = 10_000;
+
+        public int getDefaultSize() {
+            return defaultSize;
+        }
+
+        public void setDefaultSize(int defaultSize) {
+            this.defaultSize = defaultSize;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getCacheTtl() {
+            return cacheTtl;
+        }
+
+        public void setCacheTtl(Duration cacheTtl) {
+            this.cacheTtl = cacheTtl;
+        }
+
+        public long getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(long cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+    }
+
     // jhipster-needle-application-properties-property-class
 }
@@ -1,5 +1,6 @@
 package com.atparui.rms.config;
 
+import com.atparui.rms.service.TenantDatabaseHealthMonitor;
 import com.atparui.rms.service.TenantService;
 import io.r2dbc.spi.ConnectionFactory;
 import org.springframework.context.annotation.Bean;
@@ -7,6 +8,7 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.FilterType;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.data.r2dbc.config.AbstractR2dbcConfiguration;
 import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
 import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
@@ -26,23 +28,29 @@ public class DatabaseBasedMultiTenantConfig extends AbstractR2dbcConfiguration {
 
     private final TenantService tenantService;
 
-    public DatabaseBasedMultiTenantConfig(TenantService tenantService) {
+    private final TenantDatabaseHealthMonitor tenantDatabaseHealthMonitor;
+
+    public DatabaseBasedMultiTenantConfig(TenantService tenantService, TenantDatabaseHealthMonitor tenantDatabaseHealthMonitor) {
         this.tenantService = tenantService;
+        this.tenantDatabaseHealthMonitor = tenantDatabaseHealthMonitor;
     }
 
     @Bean
     @Primary
     @Override
     public ConnectionFactory connectionFactory() {
-        return new TenantRoutingConnectionFactory(tenantService);
+        return new TenantRoutingConnectionFactory(tenantService, tenantDatabaseHealthMonitor);
     }
 
     private static class TenantRoutingConnectionFactory extends AbstractRoutingConnectionFactory {
 
         private final TenantService tenantService;
 
-        public TenantRoutingConnectionFactory(TenantService tenantService) {
+        private final TenantDatabaseHealthMonitor tenantDatabaseHealthMonitor;
+
+        public TenantRoutingConnectionFactory(TenantService tenantService, TenantDatabaseHealthMonitor tenantDatabaseHealthMonitor) {
             this.tenantService = tenantService;
+            this.tenantDatabaseHealthMonitor = tenantDatabaseHealthMonitor;
         }
 
         @Override
@@ -54,7 +62,13 @@ public class DatabaseBasedMultiTenantConfig extends AbstractR2dbcConfiguration {
         protected Mono<ConnectionFactory> determineTargetConnectionFactory() {
             return determineCurrentLookupKey()
                 .cast(String.class)
-                .flatMap(tenantService::getConnectionFactory)
+                .flatMap(tenantId -> {
+                    // Fail fast rather than waiting for the connect timeout of a database known to be down
+                    if (tenantDatabaseHealthMonitor.isUnavailable(tenantId)) {
+                        return Mono.error(new DataAccessResourceFailureException("Database of tenant " + tenantId + " is unavailable"));
+                    }
+                    return tenantService.getConnectionFactory(tenantId);
+                })
                 .switchIfEmpty(Mono.error(new IllegalStateException("No tenant context found")));
         }
     }
@@ -1,46 +1,160 @@
 package com.atparui.rms.config;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import com.atparui.rms.service.TenantChangedEvent;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import java.time.Duration;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
+/**
+ * Client registrations of the tenants, one per tenant and client type.
+ * <p>
+ * Registrations are built on first use and kept: a request only looks its registration up. They are rebuilt when
+ * their tenant changes, and in the background every {@code application.client-registrations.refresh-interval}. The
+ * endpoints come from the OIDC discovery metadata of the realm, fetched once per realm.
+ * <p>
+ * Only known tenants get a registration. Unknown tenant IDs, e.g. from forged {@code X-Tenant-ID} headers, and failed
+ * discoveries are remembered for {@code negative-ttl}, so that they neither fill the caches nor call the identity
+ * provider on every request.
+ */
 @Service
 public class DynamicOAuth2ConfigService {
 
-    @Autowired
-    private TenantResolver tenantResolver;
+    private static final Logger log = LoggerFactory.getLogger(DynamicOAuth2ConfigService.class);
 
-    @Value("${multitenancy.keycloak.base-url:https://auth.atparui.com}")
-    private String baseKeycloakUrl;
+    private static final ParameterizedTypeReference<Map<String, Object>> METADATA_TYPE = new ParameterizedTypeReference<>() {};
+
+    private final TenantResolver tenantResolver;
+
+    private final WebClient webClient;
+
+    private final String baseKeycloakUrl;
+
+    private final Duration discoveryTimeout;
+
+    private final AsyncLoadingCache<RegistrationKey, ClientRegistration> registrations;
+
+    // Keyed by realm URL
+    private final AsyncLoadingCache<String, Map<String, Object>> providerMetadata;
+
+    // Tenant IDs without a known tenant
+    private final Cache<String, Boolean> unknownTenants;
+
+    public DynamicOAuth2ConfigService(
+        TenantResolver tenantResolver,
+        WebClient.Builder webClientBuilder,
+        ApplicationProperties applicationProperties,
+        @Value("${multitenancy.keycloak.base-url:https://auth.atparui.com}") String baseKeycloakUrl
+    ) {
+        ApplicationProperties.ClientRegistrations properties = applicationProperties.getClientRegistrations();
+        this.tenantResolver = tenantResolver;
+        this.webClient = webClientBuilder.build();
+        this.baseKeycloakUrl = baseKeycloakUrl;
+        this.discoveryTimeout = properties.getDiscoveryTimeout();
+        this.registrations = Caffeine.newBuilder()
+            .maximumSize(properties.getMaxSize())
+            .refreshAfterWrite(properties.getRefreshInterval())
+            .buildAsync((key, executor) -> build(key).toFuture());
+        this.providerMetadata = Caffeine.newBuilder()
+            .maximumSize(properties.getMaxSize())
+            .expireAfter(new DiscoveryExpiry(properties.getDiscoveryTtl(), properties.getNegativeTtl()))
+            .buildAsync((realmUrl, executor) -> discover(realmUrl).toFuture());
+        this.unknownTenants = Caffeine.newBuilder().maximumSize(properties.getMaxSize()).expireAfterWrite(properties.getNegativeTtl()).build();
+    }
 
     public Mono<ClientRegistration> getClientRegistration(ServerWebExchange exchange) {
         String clientType = detectClientType(exchange);
 
+        return tenantResolver.resolveTenant(exchange).flatMap(tenantId -> getClientRegistration(tenantId, clientType));
+    }
+
+    /**
+     * @param tenantId the tenant ID
+     * @param clientType the client type, {@code web} or {@code mobile}
+     * @return the client registration of the tenant for that client type
+     */
+    public Mono<ClientRegistration> getClientRegistration(String tenantId, String clientType) {
+        if (unknownTenants.getIfPresent(tenantId) != null) {
+            return Mono.empty();
+        }
+        return Mono.fromFuture(registrations.get(new RegistrationKey(tenantId, clientType)), true);
+    }
+
+    @EventListener
+    public void onTenantChanged(TenantChangedEvent event) {
+        unknownTenants.invalidate(event.tenantId());
+        registrations.synchronous().asMap().keySet().removeIf(key -> key.tenantId().equals(event.tenantId()));
+    }
+
+    private Mono<ClientRegistration> build(RegistrationKey key) {
+        // Completes empty for an unknown tenant, which the cache then does not keep
         return tenantResolver
-            .resolveTenant(exchange)
-            .flatMap(tenantId ->
-                Mono.zip(tenantResolver.getClientId(tenantId, clientType), getClientSecret(tenantId, clientType)).map(tuple -> {
-                    String clientId = tuple.getT1();
-                    String clientSecret = tuple.getT2();
-                    String realmUrl = baseKeycloakUrl + "/realms/" + tenantId;
-                    return ClientRegistration.withRegistrationId("oidc")
-                        .clientId(clientId)
-                        .clientSecret(clientSecret)
-                        .scope("openid", "profile", "email", "offline_access")
-                        .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
-                        .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
-                        .authorizationUri(realmUrl + "/protocol/openid-connect/auth")
-                        .tokenUri(realmUrl + "/protocol/openid-connect/token")
-                        .userInfoUri(realmUrl + "/protocol/openid-connect/userinfo")
-                        .jwkSetUri(realmUrl + "/protocol/openid-connect/certs")
-                        .issuerUri(realmUrl)
-                        .build();
-                })
-            );
+            .isKnownTenant(key.tenantId())
+            .flatMap(known -> {
+                if (known) {
+                    return build(key, baseKeycloakUrl + "/realms/" + key.tenantId());
+                }
+                log.debug("No client registration for unknown tenant {}", key.tenantId());
+                unknownTenants.put(key.tenantId(), Boolean.TRUE);
+                return Mono.empty();
+            });
+    }
+
+    private Mono<ClientRegistration> build(RegistrationKey key, String realmUrl) {
+        return Mono.zip(
+            tenantResolver.getClientId(key.tenantId(), key.clientType()),
+            getClientSecret(key.tenantId(), key.clientType()),
+            Mono.fromFuture(providerMetadata.get(realmUrl), true)
+        ).map(tuple -> {
+            Map<String, Object> metadata = tuple.getT3();
+            ClientRegistration.Builder builder = ClientRegistration.withRegistrationId("oidc")
+                .clientId(tuple.getT1())
+                .clientSecret(tuple.getT2())
+                .scope("openid", "profile", "email", "offline_access")
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+                .authorizationUri(endpoint(metadata, "authorization_endpoint", realmUrl + "/protocol/openid-connect/auth"))
+                .tokenUri(endpoint(metadata, "token_endpoint", realmUrl + "/protocol/openid-connect/token"))
+                .userInfoUri(endpoint(metadata, "userinfo_endpoint", realmUrl + "/protocol/openid-connect/userinfo"))
+                .jwkSetUri(endpoint(metadata, "jwks_uri", realmUrl + "/protocol/openid-connect/certs"))
+                .issuerUri(endpoint(metadata, "issuer", realmUrl));
+            if (!metadata.isEmpty()) {
+                builder.providerConfigurationMetadata(metadata);
+            }
+            return builder.build();
+        });
+    }
+
+    private Mono<Map<String, Object>> discover(String realmUrl) {
+        return webClient
+            .get()
+            .uri(realmUrl + "/.well-known/openid-configuration")
+            .retrieve()
+            .bodyToMono(METADATA_TYPE)
+            .timeout(discoveryTimeout)
+            .onErrorResume(e -> {
+                // Kept as empty metadata for a shorter time than a successful discovery
+                log.warn("Failed to discover the OIDC configuration of {}, using the default endpoints: {}", realmUrl, e.getMessage());
+                return Mono.just(Map.of());
+            });
+    }
+
+    private static String endpoint(Map<String, Object> metadata, String name, String defaultUri) {
+        Object uri = metadata.get(name);
+        return uri instanceof String value ? value : defaultUri;
     }
 
     private String detectClientType(ServerWebExchange exchange) {
@@ -57,4 +171,27 @@ public class DynamicOAuth2ConfigService {
         }
         return tenantResolver.getClientSecret(tenantId);
     }
+
+    private record RegistrationKey(String tenantId, String clientType) {}
+
+    /**
+     * Expires the discovered metadata after the discovery TTL, and the empty metadata of failed discoveries after the
+     * negative TTL.
+     */
+    private record DiscoveryExpiry(Duration discoveryTtl, Duration negativeTtl) implements Expiry<String, Map<String, Object>> {
+        @Override
+        public long expireAfterCreate(String realmUrl, Map<String, Object> metadata, long currentTime) {
+            return (metadata.isEmpty() ? negativeTtl : discoveryTtl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String realmUrl, Map<String, Object> metadata, long currentTime, long currentDuration) {
+            return expireAfterCreate(realmUrl, metadata, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String realmUrl, Map<String, Object> metadata, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
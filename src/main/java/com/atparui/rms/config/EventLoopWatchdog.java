@@ -0,0 +1,207 @@
+package com.atparui.rms.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.client.ReactorResourceFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Detects the tasks blocking the Netty event loops of the gateway.
+ * <p>
+ * Every {@code application.event-loop-watchdog.interval}, each event loop is sent an empty task once its previous
+ * one has run. The time these tasks wait is recorded by the {@code gateway.event-loop.delay} timer. An event loop
+ * that has not run its task after {@code threshold} is blocked: the stack of its thread is captured, counted by
+ * {@code gateway.event-loop.blocked}, and logged at most once per {@code report-interval} for the same blocking
+ * frame, so the watchdog can stay on in production.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.event-loop-watchdog", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class EventLoopWatchdog {
+
+    private static final Logger log = LoggerFactory.getLogger(EventLoopWatchdog.class);
+
+    static final String DELAY_METRIC = "gateway.event-loop.delay";
+
+    static final String BLOCKED_METRIC = "gateway.event-loop.blocked";
+
+    // Frames of these packages are skipped to find the frame blocking the event loop
+    private static final String[] FRAMEWORK_PACKAGES = {
+        "java.",
+        "javax.",
+        "jdk.",
+        "sun.",
+        "io.netty.",
+        "reactor.",
+        "org.springframework.",
+        "io.micrometer.",
+    };
+
+    private final Supplier<EventLoopGroup> eventLoopGroup;
+    private final Timer delay;
+    private final Counter blocked;
+    private final long intervalNanos;
+    private final long thresholdNanos;
+    private final long reportIntervalNanos;
+    private final int stackDepth;
+
+    // Only used by the watchdog thread
+    private final Map<EventExecutor, Probe> probes = new HashMap<>();
+    private final Map<String, Report> reports = new HashMap<>();
+
+    private ScheduledExecutorService watchdog;
+
+    @Autowired
+    public EventLoopWatchdog(
+        ReactorResourceFactory reactorResourceFactory,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        // Same event loops as the server, created on first use
+        this(() -> reactorResourceFactory.getLoopResources().onServer(true), meterRegistry, applicationProperties);
+    }
+
+    EventLoopWatchdog(Supplier<EventLoopGroup> eventLoopGroup, MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
+        ApplicationProperties.EventLoopWatchdog properties = applicationProperties.getEventLoopWatchdog();
+        this.eventLoopGroup = eventLoopGroup;
+        this.delay = Timer.builder(DELAY_METRIC)
+            .description("Time tasks wait to run on the event loops")
+            .publishPercentiles(0.99)
+            .register(meterRegistry);
+        this.blocked = Counter.builder(BLOCKED_METRIC)
+            .description("Times an event loop was blocked for longer than the threshold")
+            .register(meterRegistry);
+        this.intervalNanos = properties.getInterval().toNanos();
+        this.thresholdNanos = properties.getThreshold().toNanos();
+        this.reportIntervalNanos = properties.getReportInterval().toNanos();
+        this.stackDepth = properties.getStackDepth();
+    }
+
+    @PostConstruct
+    public void start() {
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-loop-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleWithFixedDelay(this::check, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+    }
+
+    void check() {
+        try {
+            long now = System.nanoTime();
+            for (EventExecutor executor : eventLoopGroup.get()) {
+                check(executor, now);
+            }
+        } catch (RuntimeException e) {
+            // Keep the watchdog scheduled
+            log.debug("Failed to check the event loops: {}", e.getMessage());
+        }
+    }
+
+    private void check(EventExecutor executor, long now) {
+        Probe probe = probes.get(executor);
+        if (probe == null || probe.ran) {
+            Probe next = new Probe(now, probe != null ? probe.thread : null);
+            probes.put(executor, next);
+            try {
+                executor.execute(next);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                probes.remove(executor);
+            }
+        } else if (!probe.reported && now - probe.submittedNanos > thresholdNanos) {
+            probe.reported = true;
+            blocked.increment();
+            report(probe.thread, now - probe.submittedNanos, now);
+        }
+    }
+
+    private void report(Thread thread, long blockedNanos, long now) {
+        if (thread == null) {
+            // Blocked before running its first probe
+            log.warn("Event loop blocked for more than {} ms", TimeUnit.NANOSECONDS.toMillis(blockedNanos));
+            return;
+        }
+        StackTraceElement[] stackTrace = thread.getStackTrace();
+        String frame = Arrays.stream(stackTrace)
+            .filter(element -> Arrays.stream(FRAMEWORK_PACKAGES).noneMatch(element.getClassName()::startsWith))
+            .findFirst()
+            .or(() -> Arrays.stream(stackTrace).findFirst())
+            .map(StackTraceElement::toString)
+            .orElse("unknown");
+        if (reports.size() > 1000) {
+            reports.clear();
+        }
+        Report report = reports.computeIfAbsent(frame, key -> new Report());
+        if (report.loggedNanos != 0 && now - report.loggedNanos < reportIntervalNanos) {
+            report.suppressed++;
+            return;
+        }
+        log.warn(
+            "Event loop thread {} blocked for more than {} ms in {} ({} similar reports suppressed):\n\t{}",
+            thread.getName(),
+            TimeUnit.NANOSECONDS.toMillis(blockedNanos),
+            frame,
+            report.suppressed,
+            Arrays.stream(stackTrace).limit(stackDepth).map(StackTraceElement::toString).collect(Collectors.joining("\n\tat ", "at ", ""))
+        );
+        report.loggedNanos = now;
+        report.suppressed = 0;
+    }
+
+    private final class Probe implements Runnable {
+
+        private final long submittedNanos;
+
+        private volatile Thread thread;
+
+        private volatile boolean ran;
+
+        // Only used by the watchdog thread
+        private boolean reported;
+
+        private Probe(long submittedNanos, Thread thread) {
+            this.submittedNanos = submittedNanos;
+            this.thread = thread;
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            ran = true;
+            delay.record(System.nanoTime() - submittedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static final class Report {
+
+        private long loggedNanos;
+
+        private int suppressed;
+    }
+}
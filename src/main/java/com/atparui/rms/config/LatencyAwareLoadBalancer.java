@@ -0,0 +1,205 @@
+package com.atparui.rms.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+/**
+ * Load balancer that picks service instances by observed latency and load instead of round-robin.
+ * <p>
+ * Selection uses the "power of two choices": two random candidates are compared and the cheaper one wins,
+ * where the cost of an instance is its latency EWMA multiplied by its in-flight count plus one, divided by its weight.
+ * The weight comes from the optional {@code weight} instance metadata (to account for node size) and is ramped up
+ * linearly for instances discovered less than {@code slow-start} ago.
+ * <p>
+ * When tenant stickiness is enabled, each tenant has a preferred instance (rendezvous hashing on the tenant key),
+ * which is used as long as it is not much more expensive than the best candidate, to improve cache locality
+ * in downstream services.
+ */
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LatencyAwareLoadBalancer.class);
+
+    static final String WEIGHT_METADATA_KEY = "weight";
+
+    private static final String TENANT_HEADER = "X-Tenant-ID";
+
+    // Cost floor so that instances without samples (or with sub-millisecond latency) still compare by load
+    private static final double MIN_LATENCY_NANOS = 1_000_000.0;
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+
+    private final String serviceId;
+
+    private final LoadBalancerInstanceStats instanceStats;
+
+    private final ApplicationProperties.Gateway.LoadBalancer properties;
+
+    public LatencyAwareLoadBalancer(
+        ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+        String serviceId,
+        LoadBalancerInstanceStats instanceStats,
+        ApplicationProperties.Gateway.LoadBalancer properties
+    ) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.serviceId = serviceId;
+        this.instanceStats = instanceStats;
+        this.properties = properties;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> processInstanceResponse(supplier, instances, request));
+    }
+
+    private Response<ServiceInstance> processInstanceResponse(
+        ServiceInstanceListSupplier supplier,
+        List<ServiceInstance> instances,
+        Request request
+    ) {
+        Response<ServiceInstance> response = getInstanceResponse(instances, resolveTenant(request));
+        if (supplier instanceof SelectedInstanceCallback callback && response.hasServer()) {
+            callback.selectedServiceInstance(response.getServer());
+        }
+        return response;
+    }
+
+    Response<ServiceInstance> getInstanceResponse(List<ServiceInstance> instances, String tenant) {
+        if (instances.isEmpty()) {
+            LOG.warn("No servers available for service: {}", serviceId);
+            instanceStats.recordDecision(serviceId, "none");
+            return new EmptyResponse();
+        }
+        long now = System.nanoTime();
+        if (instances.size() == 1) {
+            return select(instances.get(0), now, "single");
+        }
+
+        // Instances without samples are costed at the average of the sampled ones rather than as "free"
+        double defaultLatency = averageLatency(instances);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        double costA = cost(a, now, defaultLatency);
+        double costB = cost(b, now, defaultLatency);
+        ServiceInstance best = costA <= costB ? a : b;
+        double bestCost = Math.min(costA, costB);
+
+        if (properties.isTenantStickiness() && tenant != null) {
+            ServiceInstance preferred = preferredInstance(instances, tenant);
+            if (preferred == best || cost(preferred, now, defaultLatency) <= bestCost * properties.getStickinessTolerance()) {
+                return select(preferred, now, "sticky");
+            }
+            return select(best, now, "sticky-overflow");
+        }
+        return select(best, now, "p2c");
+    }
+
+    private Response<ServiceInstance> select(ServiceInstance instance, long now, String decision) {
+        instanceStats.get(instance).markSelected(now);
+        instanceStats.recordDecision(serviceId, decision);
+        return new DefaultResponse(instance);
+    }
+
+    private double averageLatency(List<ServiceInstance> instances) {
+        double sum = 0;
+        int count = 0;
+        for (ServiceInstance instance : instances) {
+            LoadBalancerInstanceStats.InstanceStats stats = instanceStats.get(instance);
+            if (stats.hasSamples()) {
+                sum += stats.ewmaNanos();
+                count++;
+            }
+        }
+        return count == 0 ? MIN_LATENCY_NANOS : sum / count;
+    }
+
+    double cost(ServiceInstance instance, long now, double defaultLatency) {
+        LoadBalancerInstanceStats.InstanceStats stats = instanceStats.get(instance);
+        double latency = stats.hasSamples() ? stats.ewmaNanos() : defaultLatency;
+        double weight = weight(instance, stats, now);
+        stats.updateWeight(weight);
+        return (Math.max(latency, MIN_LATENCY_NANOS) * (stats.getInFlight() + 1)) / weight;
+    }
+
+    private double weight(ServiceInstance instance, LoadBalancerInstanceStats.InstanceStats stats, long now) {
+        double weight = metadataWeight(instance);
+        long slowStartNanos = properties.getSlowStart().toNanos();
+        long age = now - stats.getFirstSeenNanos();
+        if (slowStartNanos > 0 && age < slowStartNanos) {
+            weight *= Math.max(properties.getSlowStartMinWeight(), (double) age / slowStartNanos);
+        }
+        return weight;
+    }
+
+    private static double metadataWeight(ServiceInstance instance) {
+        String weight = instance.getMetadata() != null ? instance.getMetadata().get(WEIGHT_METADATA_KEY) : null;
+        if (weight == null) {
+            return 1.0;
+        }
+        try {
+            double value = Double.parseDouble(weight);
+            return value > 0 ? value : 1.0;
+        } catch (NumberFormatException e) {
+            return 1.0;
+        }
+    }
+
+    /**
+     * Rendezvous (highest random weight) hashing: every tenant gets a stable preferred instance,
+     * and only the tenants of an instance that goes away are moved.
+     */
+    private static ServiceInstance preferredInstance(List<ServiceInstance> instances, String tenant) {
+        ServiceInstance preferred = null;
+        long bestHash = Long.MIN_VALUE;
+        for (ServiceInstance instance : instances) {
+            CRC32 crc = new CRC32();
+            crc.update(tenant.getBytes(StandardCharsets.UTF_8));
+            crc.update('|');
+            crc.update((instance.getHost() + ':' + instance.getPort()).getBytes(StandardCharsets.UTF_8));
+            long hash = crc.getValue();
+            if (preferred == null || hash > bestHash) {
+                preferred = instance;
+                bestHash = hash;
+            }
+        }
+        return preferred;
+    }
+
+    private static String resolveTenant(Request request) {
+        if (request != null && request.getContext() instanceof RequestDataContext context && context.getClientRequest() != null) {
+            if (context.getClientRequest().getAttributes() != null) {
+                Object tenant = context.getClientRequest().getAttributes().get(TenantContext.TENANT_KEY);
+                if (tenant != null) {
+                    return tenant.toString();
+                }
+            }
+            if (context.getClientRequest().getHeaders() != null) {
+                return context.getClientRequest().getHeaders().getFirst(TENANT_HEADER);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.atparui.rms.config;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Configuration of the per-service load balancer child contexts, registered by {@link LoadBalancerConfiguration}.
+ * <p>
+ * A top-level class without {@code @Configuration}: component scanning skips it and, unlike a nested class of a
+ * configuration, it is not imported into the main context, so its load balancer only exists in the child contexts
+ * created by {@link LoadBalancerClientFactory}, one per service name.
+ */
+public class LatencyAwareLoadBalancerClientConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> reactorServiceInstanceLoadBalancer(
+        Environment environment,
+        LoadBalancerClientFactory loadBalancerClientFactory,
+        LoadBalancerInstanceStats loadBalancerInstanceStats,
+        ApplicationProperties applicationProperties
+    ) {
+        String name = LoadBalancerClientFactory.getName(environment);
+        return new LatencyAwareLoadBalancer(
+            loadBalancerClientFactory.getLazyProvider(name, ServiceInstanceListSupplier.class),
+            name,
+            loadBalancerInstanceStats,
+            applicationProperties.getGateway().getLoadBalancer()
+        );
+    }
+}
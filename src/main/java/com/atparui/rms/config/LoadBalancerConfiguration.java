@@ -0,0 +1,16 @@
+package com.atparui.rms.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replaces the default round-robin load balancer of discovered services ({@code lb://} routes)
+ * with the {@link LatencyAwareLoadBalancer}, created per service by {@link LatencyAwareLoadBalancerClientConfiguration}.
+ * <p>
+ * Can be switched back to round-robin with {@code application.gateway.load-balancer.enabled=false}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.gateway.load-balancer", name = "enabled", havingValue = "true", matchIfMissing = true)
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerClientConfiguration.class)
+public class LoadBalancerConfiguration {}
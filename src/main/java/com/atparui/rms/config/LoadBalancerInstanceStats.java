@@ -0,0 +1,254 @@
+package com.atparui.rms.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-instance latency and in-flight statistics used by {@link LatencyAwareLoadBalancer}.
+ * <p>
+ * Registered as a {@link LoadBalancerLifecycle} in the main context, so the gateway's
+ * {@code ReactiveLoadBalancerClientFilter} reports the start and completion of every routed call,
+ * whatever load balancer child context the service uses.
+ */
+@Component
+public class LoadBalancerInstanceStats implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadBalancerInstanceStats.class);
+
+    static final String METRIC_PREFIX = "gateway.loadbalancer";
+
+    private final Map<String, InstanceStats> stats = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> decisionCounters = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final ApplicationProperties.Gateway.LoadBalancer properties;
+
+    public LoadBalancerInstanceStats(MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
+        this.meterRegistry = meterRegistry;
+        this.properties = applicationProperties.getGateway().getLoadBalancer();
+    }
+
+    /**
+     * Get (or start tracking) the statistics of a service instance.
+     *
+     * @param instance the service instance.
+     * @return the statistics of the instance.
+     */
+    public InstanceStats get(ServiceInstance instance) {
+        return stats.computeIfAbsent(key(instance), k -> register(instance));
+    }
+
+    /**
+     * Record the strategy that picked an instance.
+     *
+     * @param serviceId the service id.
+     * @param decision the strategy, e.g. {@code p2c}, {@code sticky} or {@code single}.
+     */
+    public void recordDecision(String serviceId, String decision) {
+        decisionCounters
+            .computeIfAbsent(serviceId + '|' + decision, k ->
+                Counter.builder(METRIC_PREFIX + ".decisions")
+                    .description("Load balancer instance selections by strategy")
+                    .tag("service", serviceId)
+                    .tag("decision", decision)
+                    .register(meterRegistry)
+            )
+            .increment();
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return (
+            RequestDataContext.class.isAssignableFrom(requestContextClass) &&
+            ResponseData.class.isAssignableFrom(responseClass) &&
+            ServiceInstance.class.isAssignableFrom(serverTypeClass)
+        );
+    }
+
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+        // Nothing to do until an instance has been chosen
+    }
+
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        if (request.getContext() instanceof TimedRequestContext timedContext && timedContext.getRequestStartTime() == 0) {
+            timedContext.setRequestStartTime(System.nanoTime());
+        }
+        get(lbResponse.getServer()).inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        InstanceStats instanceStats = get(lbResponse.getServer());
+        instanceStats.inFlight.updateAndGet(current -> Math.max(0, current - 1));
+
+        Object context = completionContext.getLoadBalancerRequest() != null ? completionContext.getLoadBalancerRequest().getContext() : null;
+        if (!(context instanceof TimedRequestContext timedContext) || timedContext.getRequestStartTime() == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long latency = now - timedContext.getRequestStartTime();
+        boolean failed =
+            completionContext.status() == CompletionContext.Status.FAILED ||
+            (completionContext.getClientResponse() != null &&
+                completionContext.getClientResponse().getHttpStatus() != null &&
+                completionContext.getClientResponse().getHttpStatus().is5xxServerError());
+        if (failed) {
+            // Make failing instances look slow so they get drained instead of chosen for their fast errors
+            latency = (long) (Math.max(latency, instanceStats.ewmaNanos()) * properties.getFailurePenalty());
+        }
+        instanceStats.record(latency, now, properties.getDecay().toNanos());
+    }
+
+    /**
+     * Drop the statistics (and meters) of instances that have not been used for a while,
+     * e.g. because they were deregistered.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleInstances() {
+        long idleNanos = properties.getStatsIdleTimeout().toNanos();
+        long now = System.nanoTime();
+        stats
+            .entrySet()
+            .removeIf(entry -> {
+                InstanceStats instanceStats = entry.getValue();
+                if (instanceStats.inFlight.get() == 0 && now - instanceStats.lastSelectedNanos > idleNanos) {
+                    LOG.debug("Evicting load balancer statistics of idle instance {}", entry.getKey());
+                    instanceStats.meters.forEach(meterRegistry::remove);
+                    return true;
+                }
+                return false;
+            });
+    }
+
+    private InstanceStats register(ServiceInstance instance) {
+        InstanceStats instanceStats = new InstanceStats(System.nanoTime());
+        String serviceId = instance.getServiceId();
+        String instanceId = instance.getInstanceId() != null ? instance.getInstanceId() : instance.getHost() + ":" + instance.getPort();
+        instanceStats.meters.add(
+            Gauge.builder(METRIC_PREFIX + ".instance.latency", instanceStats, s -> s.ewmaNanos() / 1_000_000.0)
+                .description("Decayed peak EWMA of the response latency of a service instance")
+                .baseUnit("milliseconds")
+                .tag("service", serviceId)
+                .tag("instance", instanceId)
+                .register(meterRegistry)
+        );
+        instanceStats.meters.add(
+            Gauge.builder(METRIC_PREFIX + ".instance.inflight", instanceStats, s -> s.inFlight.get())
+                .description("Requests currently in flight to a service instance")
+                .tag("service", serviceId)
+                .tag("instance", instanceId)
+                .register(meterRegistry)
+        );
+        instanceStats.meters.add(
+            Gauge.builder(METRIC_PREFIX + ".instance.weight", instanceStats, s -> s.lastWeight)
+                .description("Effective weight (metadata weight and slow-start ramp) of a service instance")
+                .tag("service", serviceId)
+                .tag("instance", instanceId)
+                .register(meterRegistry)
+        );
+        return instanceStats;
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getServiceId() + '|' + instance.getHost() + ':' + instance.getPort();
+    }
+
+    /**
+     * Mutable statistics of a single service instance.
+     */
+    public static final class InstanceStats {
+
+        private final long firstSeenNanos;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final List<Meter> meters = new ArrayList<>(3);
+
+        private double ewma;
+
+        private long lastUpdateNanos;
+
+        private volatile long lastSelectedNanos;
+
+        private volatile double lastWeight = 1.0;
+
+        InstanceStats(long firstSeenNanos) {
+            this.firstSeenNanos = firstSeenNanos;
+            this.lastSelectedNanos = firstSeenNanos;
+        }
+
+        /**
+         * Add a latency sample using a "peak EWMA": a slower sample is taken as-is, faster samples are
+         * blended in with a weight that depends on the time elapsed since the previous sample.
+         */
+        synchronized void record(long latencyNanos, long nowNanos, long decayNanos) {
+            if (lastUpdateNanos == 0 || latencyNanos > ewma) {
+                ewma = latencyNanos;
+            } else {
+                double elapsed = Math.max(0, nowNanos - lastUpdateNanos);
+                double w = Math.exp(-elapsed / decayNanos);
+                ewma = ewma * w + latencyNanos * (1 - w);
+            }
+            lastUpdateNanos = nowNanos;
+        }
+
+        /**
+         * @return the latency estimate in nanoseconds, or {@code 0} when no call has completed yet.
+         */
+        public synchronized double ewmaNanos() {
+            return ewma;
+        }
+
+        public boolean hasSamples() {
+            synchronized (this) {
+                return lastUpdateNanos != 0;
+            }
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        public long getFirstSeenNanos() {
+            return firstSeenNanos;
+        }
+
+        void markSelected(long nowNanos) {
+            lastSelectedNanos = nowNanos;
+        }
+
+        void updateWeight(double weight) {
+            lastWeight = weight;
+        }
+    }
+}
@@ -1,17 +1,34 @@
 package com.atparui.rms.config;
 
-import com.atparui.rms.aop.logging.LoggingAspect;
+import com.atparui.rms.aop.tracing.Traced;
+import com.atparui.rms.aop.tracing.TracingInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.*;
-import org.springframework.core.env.Environment;
-import tech.jhipster.config.JHipsterConstants;
 
+/**
+ * Tracing of {@link Traced} methods.
+ * <p>
+ * When {@code application.tracing.enabled} is false, no advisor is registered and the annotated beans are not even
+ * proxied.
+ */
 @Configuration
 @EnableAspectJAutoProxy
 public class LoggingAspectConfiguration {
 
     @Bean
-    @Profile(JHipsterConstants.SPRING_PROFILE_DEVELOPMENT)
-    public LoggingAspect loggingAspect(Environment env) {
-        return new LoggingAspect(env);
+    @ConditionalOnProperty(prefix = "application.tracing", name = "enabled", havingValue = "true")
+    public Advisor tracingAdvisor(ObjectProvider<MeterRegistry> meterRegistry, ApplicationProperties applicationProperties) {
+        ComposablePointcut pointcut = new ComposablePointcut(AnnotationMatchingPointcut.forClassAnnotation(Traced.class)).union(
+            AnnotationMatchingPointcut.forMethodAnnotation(Traced.class)
+        );
+        // The registry is resolved lazily: advisors are instantiated before most beans, including the meter registry
+        TracingInterceptor interceptor = new TracingInterceptor(meterRegistry::getObject, applicationProperties.getTracing().getSampleRate());
+        return new DefaultPointcutAdvisor(pointcut, interceptor);
     }
 }
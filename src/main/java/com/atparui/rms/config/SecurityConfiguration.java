@@ -7,6 +7,7 @@ import static org.springframework.security.web.server.util.matcher.ServerWebExch
 import com.atparui.rms.security.AuthoritiesConstants;
 import com.atparui.rms.security.SecurityUtils;
 import com.atparui.rms.security.oauth2.AudienceValidator;
+import com.atparui.rms.service.UserChangedEvent;
 import com.atparui.rms.web.filter.TenantFilter;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
@@ -23,6 +24,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.http.HttpHeaders;
@@ -108,6 +110,11 @@ public class SecurityConfiguration {
         this.corsConfigurationSource = corsConfigurationSource;
     }
 
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        users.invalidate(event.userId());
+    }
+
     @Bean
     public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http) {
         http
@@ -745,7 +752,7 @@ public class SecurityConfiguration {
                 LOG.info("Token length: {}", token != null ? token.length() : 0);
                 return jwtDecoder
                     .decode(token)
-                    .flatMap(jwt -> enrich(token, jwt))
+                    .flatMap(jwt -> enrich(userInfoUri, token, jwt))
                     .doOnNext(jwt -> {
                         LOG.info("✓ JWT decoded successfully for subject: {}", jwt.getSubject());
                         LOG.info("✓ JWT will be used for authentication");
@@ -755,48 +762,56 @@ public class SecurityConfiguration {
                         LOG.error("This will cause 401 Unauthorized - token validation failed");
                     });
             }
-
-            private Mono<Jwt> enrich(String token, Jwt jwt) {
-                // Only look up user information if identity claims are missing
-                if (jwt.hasClaim("given_name") && jwt.hasClaim("family_name")) {
-                    return Mono.just(jwt);
-                }
-                // Get user info from `users` cache if present
-                return Optional.ofNullable(users.getIfPresent(jwt.getSubject())).orElseGet(() -> // Retrieve user info from OAuth provider if not already loaded
-                    WebClient.create()
-                        .get()
-                        .uri(userInfoUri)
-                        .headers(headers -> headers.setBearerAuth(token))
-                        .retrieve()
-                        .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
-                        .map(userInfo ->
-                            Jwt.withTokenValue(jwt.getTokenValue())
-                                .subject(jwt.getSubject())
-                                .audience(jwt.getAudience())
-                                .headers(headers -> headers.putAll(jwt.getHeaders()))
-                                .claims(claims -> {
-                                    String username = userInfo.get("preferred_username").toString();
-                                    // special handling for Auth0
-                                    if (userInfo.get("sub").toString().contains("|") && username.contains("@")) {
-                                        userInfo.put("email", username);
-                                    }
-                                    // Allow full name in a name claim - happens with Auth0
-                                    if (userInfo.get("name") != null) {
-                                        String[] name = userInfo.get("name").toString().split("\\s+");
-                                        if (name.length > 0) {
-                                            userInfo.put("given_name", name[0]);
-                                            userInfo.put("family_name", String.join(" ", Arrays.copyOfRange(name, 1, name.length)));
-                                        }
-                                    }
-                                    claims.putAll(userInfo);
-                                })
-                                .claims(claims -> claims.putAll(jwt.getClaims()))
-                                .build()
-                        )
-                        // Put user info into the `users` cache
-                        .doOnNext(newJwt -> users.put(jwt.getSubject(), Mono.just(newJwt)))
-                );
-            }
         };
     }
+
+    /**
+     * Add the identity claims missing from an access token, from the user info endpoint of the IdP.
+     *
+     * @param userInfoUri the user info endpoint.
+     * @param token the access token.
+     * @param jwt the decoded access token.
+     * @return the token with the identity claims, cached per subject.
+     */
+    Mono<Jwt> enrich(String userInfoUri, String token, Jwt jwt) {
+        // Only look up user information if identity claims are missing
+        if (jwt.hasClaim("given_name") && jwt.hasClaim("family_name")) {
+            return Mono.just(jwt);
+        }
+        // Get user info from `users` cache if present
+        return Optional.ofNullable(users.getIfPresent(jwt.getSubject())).orElseGet(() -> // Retrieve user info from OAuth provider if not already loaded
+            WebClient.create()
+                .get()
+                .uri(userInfoUri)
+                .headers(headers -> headers.setBearerAuth(token))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .map(userInfo ->
+                    Jwt.withTokenValue(jwt.getTokenValue())
+                        .subject(jwt.getSubject())
+                        .audience(jwt.getAudience())
+                        .headers(headers -> headers.putAll(jwt.getHeaders()))
+                        .claims(claims -> {
+                            String username = userInfo.get("preferred_username").toString();
+                            // special handling for Auth0
+                            if (userInfo.get("sub").toString().contains("|") && username.contains("@")) {
+                                userInfo.put("email", username);
+                            }
+                            // Allow full name in a name claim - happens with Auth0
+                            if (userInfo.get("name") != null) {
+                                String[] name = userInfo.get("name").toString().split("\\s+");
+                                if (name.length > 0) {
+                                    userInfo.put("given_name", name[0]);
+                                    userInfo.put("family_name", String.join(" ", Arrays.copyOfRange(name, 1, name.length)));
+                                }
+                            }
+                            claims.putAll(userInfo);
+                        })
+                        .claims(claims -> claims.putAll(jwt.getClaims()))
+                        .build()
+                )
+                // Put user info into the `users` cache
+                .doOnNext(newJwt -> users.put(jwt.getSubject(), Mono.just(newJwt)))
+        );
+    }
 }
@@ -0,0 +1,108 @@
+package com.atparui.rms.config;
+
+import com.atparui.rms.web.session.DatabaseSessionBackend;
+import com.atparui.rms.web.session.LocalSessionBackend;
+import com.atparui.rms.web.session.SerializedWebSessionStore;
+import com.atparui.rms.web.session.SessionBackend;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
+import org.springframework.security.oauth2.client.web.DefaultReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.web.server.ServerOAuth2AuthorizedClientRepository;
+import org.springframework.security.oauth2.client.web.server.WebSessionServerOAuth2AuthorizedClientRepository;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import org.springframework.web.server.session.DefaultWebSessionManager;
+import org.springframework.web.server.session.WebSessionIdResolver;
+import org.springframework.web.server.session.WebSessionManager;
+
+/**
+ * Storage of the web sessions and of the OAuth2 authorized clients.
+ * <p>
+ * Sessions are kept serialized by a {@link SessionBackend}, chosen with {@code application.session.store}. The
+ * authorized clients (the access and refresh tokens of the logged in users) are kept in the sessions, instead of the
+ * default in-memory service that is never purged.
+ */
+@Configuration
+public class SessionConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.session", name = "store", havingValue = "local", matchIfMissing = true)
+    public LocalSessionBackend localSessionBackend(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.Session properties = applicationProperties.getSession();
+        LocalSessionBackend backend = new LocalSessionBackend(properties.getMaxMemory().toBytes(), properties.getMaxSessionsPerPrincipal());
+        Gauge.builder("gateway.sessions", backend, LocalSessionBackend::size)
+            .description("Web sessions kept by the gateway instance")
+            .register(meterRegistry);
+        Gauge.builder("gateway.sessions.memory", backend, LocalSessionBackend::memory)
+            .description("Estimated size of the web sessions kept by the gateway instance")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        return backend;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.session", name = "store", havingValue = "database")
+    public DatabaseSessionBackend databaseSessionBackend(
+        @Qualifier("masterR2dbcTemplate") R2dbcEntityTemplate masterTemplate,
+        ApplicationProperties applicationProperties
+    ) {
+        return new DatabaseSessionBackend(masterTemplate.getDatabaseClient(), applicationProperties.getSession().getMaxSessionsPerPrincipal());
+    }
+
+    @Bean(WebHttpHandlerBuilder.WEB_SESSION_MANAGER_BEAN_NAME)
+    public WebSessionManager webSessionManager(
+        SessionBackend sessionBackend,
+        ServerProperties serverProperties,
+        ApplicationProperties applicationProperties,
+        ObjectProvider<WebSessionIdResolver> webSessionIdResolver
+    ) {
+        DefaultWebSessionManager webSessionManager = new DefaultWebSessionManager();
+        webSessionManager.setSessionStore(
+            new SerializedWebSessionStore(
+                sessionBackend,
+                serverProperties.getReactive().getSession().getTimeout(),
+                applicationProperties.getSession().getTouchInterval()
+            )
+        );
+        webSessionIdResolver.ifAvailable(webSessionManager::setSessionIdResolver);
+        return webSessionManager;
+    }
+
+    @Bean
+    public ServerOAuth2AuthorizedClientRepository authorizedClientRepository() {
+        return new WebSessionServerOAuth2AuthorizedClientRepository();
+    }
+
+    /**
+     * The authorized client manager of the token relay, refreshing access tokens within
+     * {@code application.token-refresh.clock-skew} of their expiry.
+     */
+    @Bean
+    public ReactiveOAuth2AuthorizedClientManager authorizedClientManager(
+        ReactiveClientRegistrationRepository clientRegistrationRepository,
+        ServerOAuth2AuthorizedClientRepository authorizedClientRepository,
+        ApplicationProperties applicationProperties
+    ) {
+        DefaultReactiveOAuth2AuthorizedClientManager authorizedClientManager = new DefaultReactiveOAuth2AuthorizedClientManager(
+            clientRegistrationRepository,
+            authorizedClientRepository
+        );
+        authorizedClientManager.setAuthorizedClientProvider(
+            ReactiveOAuth2AuthorizedClientProviderBuilder.builder()
+                .authorizationCode()
+                .refreshToken(refreshToken -> refreshToken.clockSkew(applicationProperties.getTokenRefresh().getClockSkew()))
+                .clientCredentials()
+                .build()
+        );
+        return authorizedClientManager;
+    }
+}
@@ -2,6 +2,12 @@ package com.atparui.rms.config;
 
 public class TenantContext {
 
+    /**
+     * Key under which {@code TenantFilter} publishes the resolved tenant, both in the Reactor context
+     * and as a {@link org.springframework.web.server.ServerWebExchange} attribute.
+     */
+    public static final String TENANT_KEY = "tenantKey";
+
     private static final ThreadLocal<String> CURRENT_TENANT = new ThreadLocal<>();
 
     public static void setCurrentTenant(String tenantKey) {
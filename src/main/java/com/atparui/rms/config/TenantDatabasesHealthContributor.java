@@ -0,0 +1,70 @@
+package com.atparui.rms.config;
+
+import com.atparui.rms.service.TenantDatabaseHealthMonitor;
+import com.atparui.rms.service.TenantDatabaseHealthMonitor.TenantDatabaseHealth;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import org.springframework.boot.actuate.health.CompositeReactiveHealthContributor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.NamedContributor;
+import org.springframework.boot.actuate.health.ReactiveHealthContributor;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Health of the tenant databases ({@code tenantDatabases}), one contributor per tenant.
+ * <p>
+ * Reports the state of the {@link TenantDatabaseHealthMonitor} without probing. A database that is down is
+ * {@code UNREACHABLE}, which is ordered after {@code UP} in {@code management.endpoint.health.status.order}: a tenant
+ * database must not take the gateway out of service discovery.
+ */
+@Component
+public class TenantDatabasesHealthContributor implements CompositeReactiveHealthContributor {
+
+    public static final Status UNREACHABLE = new Status("UNREACHABLE", "The tenant database failed its last probes");
+
+    private final TenantDatabaseHealthMonitor tenantDatabaseHealthMonitor;
+
+    public TenantDatabasesHealthContributor(TenantDatabaseHealthMonitor tenantDatabaseHealthMonitor) {
+        this.tenantDatabaseHealthMonitor = tenantDatabaseHealthMonitor;
+    }
+
+    @Override
+    public ReactiveHealthContributor getContributor(String tenantId) {
+        return tenantDatabaseHealthMonitor.getHealth(tenantId) != null ? indicator(tenantId) : null;
+    }
+
+    @Override
+    public Iterator<NamedContributor<ReactiveHealthContributor>> iterator() {
+        Map<String, TenantDatabaseHealth> health = new TreeMap<>(tenantDatabaseHealthMonitor.getHealth());
+        return health.keySet().stream().map(tenantId -> NamedContributor.of(tenantId, (ReactiveHealthContributor) indicator(tenantId))).iterator();
+    }
+
+    private ReactiveHealthIndicator indicator(String tenantId) {
+        return () -> Mono.fromSupplier(() -> toHealth(tenantDatabaseHealthMonitor.getHealth(tenantId)));
+    }
+
+    static Health toHealth(TenantDatabaseHealth health) {
+        if (health == null) {
+            return Health.unknown().build();
+        }
+        Health.Builder builder = switch (health.status()) {
+            case UP -> Health.up();
+            case DOWN -> Health.status(UNREACHABLE).withDetail("consecutiveFailures", health.consecutiveFailures());
+            case UNKNOWN -> Health.unknown();
+        };
+        if (health.lastCheck() != null) {
+            builder.withDetail("lastCheck", health.lastCheck().toString());
+        }
+        if (health.latency() != null) {
+            builder.withDetail("latencyMs", health.latency().toMillis());
+        }
+        if (health.error() != null) {
+            builder.withDetail("error", health.error());
+        }
+        return builder.withDetail("nextCheck", health.nextCheck().toString()).build();
+    }
+}
@@ -0,0 +1,59 @@
+package com.atparui.rms.config;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Guardrails for meters carrying a {@value TenantMeterTags#TAG} tag.
+ * <ul>
+ *     <li>tag values that are not one of the top-K tenants are rewritten to {@value TenantMeterTags#OTHER},
+ *     whatever code registered the meter;</li>
+ *     <li>the full percentile histogram enabled by {@code management.metrics.distribution.percentiles-histogram.all}
+ *     is replaced by a handful of service level objective buckets, and client side percentiles are dropped:
+ *     per-tenant distributions are aggregated in memory into these buckets, which keeps the Prometheus scrape small.</li>
+ * </ul>
+ */
+public class TenantMeterFilter implements MeterFilter {
+
+    private final TenantMeterTags tenantMeterTags;
+
+    private final double[] serviceLevelObjectives;
+
+    public TenantMeterFilter(TenantMeterTags tenantMeterTags, List<Duration> serviceLevelObjectives) {
+        this.tenantMeterTags = tenantMeterTags;
+        this.serviceLevelObjectives = serviceLevelObjectives.stream().mapToDouble(Duration::toNanos).toArray();
+    }
+
+    @Override
+    public Meter.Id map(Meter.Id id) {
+        String value = id.getTag(TenantMeterTags.TAG);
+        if (value == null || tenantMeterTags.isTagged(value)) {
+            return id;
+        }
+        List<Tag> tags = new ArrayList<>();
+        for (Tag tag : id.getTagsAsIterable()) {
+            tags.add(TenantMeterTags.TAG.equals(tag.getKey()) ? Tag.of(TenantMeterTags.TAG, TenantMeterTags.OTHER) : tag);
+        }
+        return id.replaceTags(tags);
+    }
+
+    @Override
+    public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+        if (id.getTag(TenantMeterTags.TAG) == null) {
+            return config;
+        }
+        // Service level objectives are expressed in nanoseconds for timers, in base units for distribution summaries
+        double[] buckets = id.getType() == Meter.Type.TIMER ? serviceLevelObjectives : null;
+        return DistributionStatisticConfig.builder()
+            .percentilesHistogram(false)
+            .percentiles(new double[0])
+            .serviceLevelObjectives(buckets)
+            .build()
+            .merge(config);
+    }
+}
@@ -0,0 +1,193 @@
+package com.atparui.rms.config;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps tenant keys to metric tag values without letting the number of time series grow with the tenant table.
+ * <p>
+ * Only the {@code application.metrics.tenant.max-tagged-tenants} busiest tenants get their own tag value, all
+ * others are reported as {@value #OTHER}. Activity is counted in memory and the ranking is recomputed periodically:
+ * the meters of tenants that drop out of the top-K are removed, so their traffic is aggregated under
+ * {@value #OTHER} from then on.
+ * <p>
+ * Hot paths keep their meters in a {@link #meterCache()} rather than building and registering them on every request:
+ * the entries of the demoted tenants are dropped along with their meters.
+ */
+@Component
+public class TenantMeterTags implements SchedulingConfigurer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TenantMeterTags.class);
+
+    public static final String TAG = "tenant";
+
+    public static final String OTHER = "other";
+
+    public static final String NONE = "none";
+
+    // Weight of the previous score when ranking, so that the ranking follows shifts of traffic within a few intervals
+    private static final double SCORE_DECAY = 0.5;
+
+    // Activity of the current ranking interval
+    private final Map<String, LongAdder> activity = new ConcurrentHashMap<>();
+
+    // Decayed activity of the previous intervals, only touched by rank()
+    private final Map<String, Double> scores = new HashMap<>();
+
+    private volatile Set<String> tagged = ConcurrentHashMap.newKeySet();
+
+    // Meters cached by tag value, see meterCache()
+    private final List<Map<String, ?>> meterCaches = new CopyOnWriteArrayList<>();
+
+    // Until the first ranking, tenants are admitted on first sight
+    private volatile boolean ranked;
+
+    private final ApplicationProperties.Metrics.Tenant properties;
+
+    // Resolved lazily: meter filters using this class are applied while the registry is being created
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public TenantMeterTags(ApplicationProperties applicationProperties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = applicationProperties.getMetrics().getTenant();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Count a request of a tenant for the top-K ranking.
+     *
+     * @param tenantKey the tenant key, may be {@code null}.
+     */
+    public void recordActivity(String tenantKey) {
+        if (tenantKey == null || tenantKey.isEmpty()) {
+            return;
+        }
+        LongAdder counter = activity.get(tenantKey);
+        if (counter == null) {
+            if (activity.size() >= properties.getMaxTrackedTenants()) {
+                // Protect the ranking itself against unbounded tenant keys (e.g. forged X-Tenant-ID headers)
+                return;
+            }
+            counter = activity.computeIfAbsent(tenantKey, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Get the tag value to use for a tenant.
+     *
+     * @param tenantKey the tenant key, may be {@code null}.
+     * @return the tenant key, {@value #OTHER} if it is not one of the busiest tenants, or {@value #NONE} without tenant.
+     */
+    public String tag(String tenantKey) {
+        if (tenantKey == null || tenantKey.isEmpty()) {
+            return NONE;
+        }
+        Set<String> current = tagged;
+        if (current.contains(tenantKey)) {
+            return tenantKey;
+        }
+        if (!ranked && current.size() < properties.getMaxTaggedTenants()) {
+            // Best effort: concurrent first sightings may overshoot the limit by a few entries
+            current.add(tenantKey);
+            return tenantKey;
+        }
+        return OTHER;
+    }
+
+    /**
+     * Whether a tag value is an allowed value of the {@value #TAG} tag.
+     *
+     * @param value the tag value.
+     * @return {@code true} for tagged tenants, {@value #OTHER} and {@value #NONE}.
+     */
+    public boolean isTagged(String value) {
+        return OTHER.equals(value) || NONE.equals(value) || tagged.contains(value);
+    }
+
+    /**
+     * Create a cache of meters by {@value #TAG} tag value, from which the entries of the tenants that drop out of the
+     * top-K are removed.
+     *
+     * @param <T> the type of the cached meters.
+     * @return an empty cache.
+     */
+    public <T> Map<String, T> meterCache() {
+        Map<String, T> cache = new ConcurrentHashMap<>();
+        meterCaches.add(cache);
+        return cache;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(this::rank, properties.getRankingInterval());
+    }
+
+    /**
+     * Recompute the top-K tenants from the activity counted since the last ranking, every
+     * {@code application.metrics.tenant.ranking-interval}.
+     */
+    public synchronized void rank() {
+        Map<String, Double> next = new HashMap<>();
+        scores.forEach((tenant, score) -> {
+            double decayed = score * SCORE_DECAY;
+            if (decayed >= 1) {
+                next.put(tenant, decayed);
+            }
+        });
+        activity.forEach((tenant, counter) -> next.merge(tenant, (double) counter.sumThenReset(), Double::sum));
+        activity.values().removeIf(counter -> counter.sum() == 0);
+        scores.clear();
+        scores.putAll(next);
+
+        List<Map.Entry<String, Double>> ranking = new ArrayList<>(scores.entrySet());
+        ranking.sort(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()));
+        Set<String> top = ConcurrentHashMap.newKeySet();
+        for (Map.Entry<String, Double> entry : ranking) {
+            if (top.size() >= properties.getMaxTaggedTenants()) {
+                break;
+            }
+            top.add(entry.getKey());
+        }
+
+        Set<String> demoted = new HashSet<>(tagged);
+        demoted.removeAll(top);
+        tagged = top;
+        ranked = true;
+        if (!demoted.isEmpty()) {
+            meterCaches.forEach(cache -> cache.keySet().removeAll(demoted));
+            removeMeters(demoted);
+        }
+    }
+
+    private void removeMeters(Set<String> demoted) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+        int removed = 0;
+        for (Meter meter : registry.getMeters()) {
+            String value = meter.getId().getTag(TAG);
+            if (value != null && demoted.contains(value)) {
+                registry.remove(meter);
+                removed++;
+            }
+        }
+        LOG.debug("Moved {} tenants out of the tagged top-{}, removed {} meters", demoted.size(), properties.getMaxTaggedTenants(), removed);
+    }
+}
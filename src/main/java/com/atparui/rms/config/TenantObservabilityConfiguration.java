@@ -0,0 +1,81 @@
+package com.atparui.rms.config;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.cloud.gateway.filter.headers.observation.DefaultGatewayObservationConvention;
+import org.springframework.cloud.gateway.filter.headers.observation.GatewayContext;
+import org.springframework.cloud.gateway.filter.headers.observation.GatewayObservationConvention;
+import org.springframework.cloud.gateway.support.tagsprovider.GatewayTagsProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.reactive.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.reactive.observation.ServerRequestObservationContext;
+import org.springframework.http.server.reactive.observation.ServerRequestObservationConvention;
+
+/**
+ * Propagates the tenant resolved by the {@link TenantResolver} to the gateway metrics and proxied request observations.
+ * <p>
+ * Metric tags go through {@link TenantMeterTags} to keep their cardinality bounded, the raw tenant key is only
+ * added as a high cardinality key value (span attribute).
+ */
+@Configuration
+public class TenantObservabilityConfiguration {
+
+    /**
+     * Bounds the {@code tenant} tag of all meters to the top-K tenants, and trims their distribution statistics.
+     * <p>
+     * Applied after the {@code management.metrics.distribution} properties filter, so that it can override them.
+     */
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public MeterFilter tenantMeterFilter(TenantMeterTags tenantMeterTags, ApplicationProperties applicationProperties) {
+        return new TenantMeterFilter(tenantMeterTags, applicationProperties.getMetrics().getTenant().getServiceLevelObjectives());
+    }
+
+    /**
+     * Adds a bounded {@code tenant} tag to the {@code http.server.requests} meters.
+     */
+    @Bean
+    public ServerRequestObservationConvention tenantServerRequestObservationConvention(TenantMeterTags tenantMeterTags) {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                String tenantKey = (String) context.getAttributes().get(TenantContext.TENANT_KEY);
+                return super.getLowCardinalityKeyValues(context).and(KeyValue.of(TenantMeterTags.TAG, tenantMeterTags.tag(tenantKey)));
+            }
+        };
+    }
+
+    /**
+     * Adds a bounded {@code tenant} tag to the {@code spring.cloud.gateway.requests} meters.
+     */
+    @Bean
+    public GatewayTagsProvider tenantGatewayTagsProvider(TenantMeterTags tenantMeterTags) {
+        return exchange -> Tags.of(TenantMeterTags.TAG, tenantMeterTags.tag(exchange.getAttribute(TenantContext.TENANT_KEY)));
+    }
+
+    /**
+     * Adds the tenant to the observation of each request proxied to a downstream service.
+     */
+    @Bean
+    public GatewayObservationConvention tenantGatewayObservationConvention(TenantMeterTags tenantMeterTags) {
+        return new DefaultGatewayObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(GatewayContext context) {
+                String tenantKey = context.getServerWebExchange().getAttribute(TenantContext.TENANT_KEY);
+                return super.getLowCardinalityKeyValues(context).and(KeyValue.of(TenantMeterTags.TAG, tenantMeterTags.tag(tenantKey)));
+            }
+
+            @Override
+            public KeyValues getHighCardinalityKeyValues(GatewayContext context) {
+                String tenantKey = context.getServerWebExchange().getAttribute(TenantContext.TENANT_KEY);
+                KeyValues keyValues = super.getHighCardinalityKeyValues(context);
+                return tenantKey == null ? keyValues : keyValues.and(KeyValue.of("tenant.key", tenantKey));
+            }
+        };
+    }
+}
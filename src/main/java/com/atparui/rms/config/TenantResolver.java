@@ -1,8 +1,21 @@
 package com.atparui.rms.config;
 
+import com.atparui.rms.service.TenantChangedEvent;
 import com.atparui.rms.service.TenantService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
@@ -10,6 +23,16 @@ import reactor.core.publisher.Mono;
 @Component
 public class TenantResolver {
 
+    static final String SOURCE_ADMIN_HOST = "admin-host";
+    static final String SOURCE_SUBDOMAIN = "subdomain";
+    static final String SOURCE_DOMAIN = "domain";
+    static final String SOURCE_HEADER = "header";
+    static final String SOURCE_DEFAULT = "default";
+
+    static final String CACHE_HIT = "hit";
+    static final String CACHE_MISS = "miss";
+    static final String CACHE_NONE = "none";
+
     @Autowired
     private TenantConfigProperties tenantConfigProperties;
 
@@ -28,12 +51,48 @@ public class TenantResolver {
     @Value("${tenant.client-secret:M5nP8qR2sT6uV9wX1yZ3aC4dE7fG0h}")
     private String defaultClientSecret;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TenantMeterTags tenantMeterTags;
+
+    // Subdomain -> tenant id of active tenants. Kept short-lived so that deactivated tenants stop resolving quickly.
+    private final Cache<String, String> subdomainCache = Caffeine.newBuilder()
+        .maximumSize(10_000)
+        .expireAfterWrite(Duration.ofMinutes(1))
+        .recordStats()
+        .build();
+
+    // Subdomains without an active tenant, cached briefly so that random hosts do not hit the database on every request
+    private final Cache<String, Boolean> unknownSubdomainCache = Caffeine.newBuilder()
+        .maximumSize(10_000)
+        .expireAfterWrite(Duration.ofSeconds(10))
+        .build();
+
+    // Bounded by the sources, cache outcomes and fallbacks
+    private final Map<ResolutionKey, Timer> resolutionTimers = new ConcurrentHashMap<>();
+
+    // By tenant tag value, then by source
+    private Map<String, Map<String, Counter>> resolutionCounters;
+
+    @PostConstruct
+    public void registerCacheMetrics() {
+        CaffeineCacheMetrics.monitor(meterRegistry, subdomainCache, "tenantSubdomain");
+        resolutionCounters = tenantMeterTags.meterCache();
+    }
+
     public Mono<String> resolveTenant(ServerWebExchange exchange) {
+        long start = System.nanoTime();
+        return resolve(exchange).doOnNext(resolution -> record(resolution, System.nanoTime() - start)).map(Resolution::tenant);
+    }
+
+    private Mono<Resolution> resolve(ServerWebExchange exchange) {
         String host = exchange.getRequest().getHeaders().getFirst("Host");
 
         // Check for gateway admin access
         if (host != null && (host.contains("admin.") || host.contains("gateway."))) {
-            return Mono.just("gateway");
+            return Mono.just(new Resolution("gateway", SOURCE_ADMIN_HOST, CACHE_NONE, false));
         }
 
         if (host != null) {
@@ -42,24 +101,84 @@ public class TenantResolver {
             // Extract subdomain from host
             String subdomain = extractSubdomain(host);
             if (subdomain != null) {
-                // Look up tenant by subdomain in database
-                return tenantService.findBySubdomain(subdomain).map(tenant -> tenant.getTenantId()).switchIfEmpty(Mono.just(defaultTenant));
+                // Look up tenant by subdomain, in the local cache first and then in the database
+                String cached = subdomainCache.getIfPresent(subdomain);
+                if (cached != null) {
+                    return Mono.just(new Resolution(cached, SOURCE_SUBDOMAIN, CACHE_HIT, false));
+                }
+                if (unknownSubdomainCache.getIfPresent(subdomain) != null) {
+                    return Mono.just(new Resolution(defaultTenant, SOURCE_SUBDOMAIN, CACHE_HIT, true));
+                }
+                return tenantService
+                    .findBySubdomain(subdomain)
+                    .map(tenant -> {
+                        subdomainCache.put(subdomain, tenant.getTenantId());
+                        return new Resolution(tenant.getTenantId(), SOURCE_SUBDOMAIN, CACHE_MISS, false);
+                    })
+                    .switchIfEmpty(
+                        Mono.fromSupplier(() -> {
+                            unknownSubdomainCache.put(subdomain, Boolean.TRUE);
+                            return new Resolution(defaultTenant, SOURCE_SUBDOMAIN, CACHE_MISS, true);
+                        })
+                    );
             }
 
             // Check if it's a direct domain mapping
             if (host.contains(".") && !host.contains("localhost")) {
                 String domain = host.substring(0, host.lastIndexOf("."));
-                return Mono.just(domain + "-realm");
+                return Mono.just(new Resolution(domain + "-realm", SOURCE_DOMAIN, CACHE_NONE, false));
             }
         }
 
         // Header fallback for mobile apps
         String tenantHeader = exchange.getRequest().getHeaders().getFirst("X-Tenant-ID");
         if (tenantHeader != null) {
-            return Mono.just(tenantHeader);
+            return Mono.just(new Resolution(tenantHeader, SOURCE_HEADER, CACHE_NONE, false));
         }
 
-        return Mono.just(defaultTenant); // default
+        return Mono.just(new Resolution(defaultTenant, SOURCE_DEFAULT, CACHE_NONE, true)); // default
+    }
+
+    private void record(Resolution resolution, long durationNanos) {
+        resolutionTimers
+            .computeIfAbsent(new ResolutionKey(resolution.source(), resolution.cache(), resolution.fallback()), this::resolutionTimer)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+        String tenant = tenantMeterTags.tag(resolution.tenant());
+        resolutionCounters
+            .computeIfAbsent(tenant, key -> new ConcurrentHashMap<>())
+            .computeIfAbsent(resolution.source(), source -> resolutionCounter(tenant, source))
+            .increment();
+    }
+
+    private Timer resolutionTimer(ResolutionKey resolution) {
+        return Timer.builder("tenant.resolution")
+            .description("Time spent resolving the tenant of a request")
+            .tag("source", resolution.source())
+            .tag("cache", resolution.cache())
+            .tag("fallback", String.valueOf(resolution.fallback()))
+            .register(meterRegistry);
+    }
+
+    private Counter resolutionCounter(String tenant, String source) {
+        return Counter.builder("tenant.resolutions")
+            .description("Resolved tenants by resolution source")
+            .tag("source", source)
+            .tag(TenantMeterTags.TAG, tenant)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Forget the cached subdomain mappings, e.g. after a tenant has been updated.
+     */
+    public void clearCache() {
+        subdomainCache.invalidateAll();
+        unknownSubdomainCache.invalidateAll();
+    }
+
+    @EventListener
+    public void onTenantChanged(TenantChangedEvent event) {
+        // Keyed by subdomain, which the tenant may have changed
+        clearCache();
     }
 
     private String extractSubdomain(String host) {
@@ -72,6 +191,20 @@ public class TenantResolver {
         return null;
     }
 
+    /**
+     * Whether a resolved tenant ID is a known tenant: the gateway, a configured tenant or an active tenant of the
+     * database. Headers and hosts can carry any tenant ID.
+     *
+     * @param tenantId the tenant ID
+     * @return true if the tenant is known
+     */
+    public Mono<Boolean> isKnownTenant(String tenantId) {
+        if ("gateway".equals(tenantId) || tenantConfigProperties.getTenantConfig(tenantId) != null) {
+            return Mono.just(true);
+        }
+        return tenantService.findTenant(tenantId).hasElement();
+    }
+
     public Mono<String> getClientId(String tenantId, String clientType) {
         // Handle gateway admin realm
         if ("gateway".equals(tenantId)) {
@@ -113,4 +246,8 @@ public class TenantResolver {
             .map(tenant -> tenant.getClientSecret() != null ? tenant.getClientSecret() : defaultClientSecret)
             .switchIfEmpty(Mono.just(defaultClientSecret));
     }
+
+    private record Resolution(String tenant, String source, String cache, boolean fallback) {}
+
+    private record ResolutionKey(String source, String cache, boolean fallback) {}
 }
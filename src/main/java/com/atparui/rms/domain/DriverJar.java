@@ -45,6 +45,10 @@ public class DriverJar {
     @Column("md5_hash")
     private String md5Hash; // MD5 hash for integrity check
 
+    @Size(max = 64)
+    @Column("sha256_hash")
+    private String sha256Hash; // SHA-256 hash, also the content address of the stored file
+
     @Size(max = 1000)
     @Column("description")
     private String description;
@@ -141,6 +145,14 @@ public class DriverJar {
         this.md5Hash = md5Hash;
     }
 
+    public String getSha256Hash() {
+        return sha256Hash;
+    }
+
+    public void setSha256Hash(String sha256Hash) {
+        this.sha256Hash = sha256Hash;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -33,6 +33,11 @@ public class User extends AbstractAuditingEntity<String> implements Serializable
     @NotNull
     @Pattern(regexp = Constants.LOGIN_REGEX)
     @Size(min = 1, max = 50)
+    // Same as the dynamic mapping, the keyword sorts the searches and matches the type-ahead prefixes
+    @org.springframework.data.elasticsearch.annotations.MultiField(
+        mainField = @org.springframework.data.elasticsearch.annotations.Field(type = FieldType.Text),
+        otherFields = { @org.springframework.data.elasticsearch.annotations.InnerField(suffix = "keyword", type = FieldType.Keyword) }
+    )
     private String login;
 
     @Size(max = 50)
@@ -55,6 +55,10 @@ public class DatabaseDriverRepository {
             .one();
     }
 
+    public Mono<Long> countByFilePath(String filePath) {
+        return masterTemplate.count(Query.query(Criteria.where("file_path").is(filePath)), DriverJar.class);
+    }
+
     public Mono<DriverJar> save(DriverJar driver) {
         if (driver.getId() == null) {
             return masterTemplate.insert(driver);
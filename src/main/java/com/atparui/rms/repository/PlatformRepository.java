@@ -2,6 +2,7 @@ package com.atparui.rms.repository;
 
 import com.atparui.rms.domain.Platform;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.data.relational.core.query.Criteria;
 import org.springframework.data.relational.core.query.Query;
@@ -30,6 +31,39 @@ public class PlatformRepository {
         return masterTemplate.select(Platform.class).matching(Query.query(Criteria.where("active").is(true))).all();
     }
 
+    /**
+     * Find the platforms ordered by ID, with only the columns of {@link com.atparui.rms.service.dto.PlatformDTO}.
+     *
+     * @param afterId the ID after which to start, or {@code null} to start with the first platform
+     * @param active the active status of the platforms, or {@code null} for all platforms
+     * @param limit the maximum number of platforms, or {@code 0} for all platforms
+     * @return the platforms
+     */
+    public Flux<Platform> findSummaries(Long afterId, Boolean active, int limit) {
+        Criteria criteria = Criteria.empty();
+        if (afterId != null) {
+            criteria = criteria.and("id").greaterThan(afterId);
+        }
+        if (active != null) {
+            criteria = criteria.and("active").is(active);
+        }
+        Query query = Query.query(criteria)
+            .columns(
+                "id",
+                "name",
+                "prefix",
+                "description",
+                "subdomain",
+                "webapp_github_repo",
+                "mobile_github_repo",
+                "active",
+                "created_date",
+                "last_modified_date"
+            )
+            .sort(Sort.by("id"));
+        return masterTemplate.select(Platform.class).matching(limit > 0 ? query.limit(limit) : query).all();
+    }
+
     public Mono<Platform> findByPrefix(String prefix) {
         return masterTemplate.selectOne(Query.query(Criteria.where("prefix").is(prefix)), Platform.class);
     }
@@ -2,6 +2,7 @@ package com.atparui.rms.repository;
 
 import com.atparui.rms.domain.Tenant;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.data.relational.core.query.Criteria;
 import org.springframework.data.relational.core.query.Query;
@@ -43,6 +44,78 @@ public class TenantRepository {
         return masterTemplate.select(Tenant.class).all();
     }
 
+    /**
+     * Find the IDs of the active tenants other than the gateway that have a database of their own, reading only the
+     * tenant ID column.
+     *
+     * @return the tenant IDs
+     */
+    public Flux<String> findActiveTenantIdsWithDatabase() {
+        Criteria criteria = Criteria.where("tenant_id")
+            .not("gateway")
+            .and("active")
+            .isTrue()
+            .and(Criteria.where("database_url").isNotNull().or("database_host").isNotNull());
+        return masterTemplate
+            .select(Tenant.class)
+            .matching(Query.query(criteria).columns("tenant_id"))
+            .all()
+            .map(Tenant::getTenantId);
+    }
+
+    /**
+     * Find the tenants other than the gateway, ordered by ID, with only the columns of
+     * {@link com.atparui.rms.service.dto.TenantSummaryDTO}.
+     *
+     * @param afterId the ID after which to start, or {@code null} to start with the first tenant
+     * @param active the active status of the tenants, or {@code null} for all tenants
+     * @param search text contained in the name, ID or subdomain of the tenants, or {@code null} for all tenants
+     * @param limit the maximum number of tenants, or {@code 0} for all tenants
+     * @return the tenants
+     */
+    public Flux<Tenant> findSummaries(Long afterId, Boolean active, String search, int limit) {
+        Criteria criteria = Criteria.where("tenant_id").not("gateway");
+        if (afterId != null) {
+            criteria = criteria.and("id").greaterThan(afterId);
+        }
+        if (active != null) {
+            criteria = criteria.and("active").is(active);
+        }
+        if (search != null && !search.isBlank()) {
+            String pattern = "%" + escapeLike(search.trim()) + "%";
+            criteria = criteria.and(
+                Criteria.where("name")
+                    .like(pattern)
+                    .ignoreCase(true)
+                    .or("tenant_id")
+                    .like(pattern)
+                    .ignoreCase(true)
+                    .or("subdomain")
+                    .like(pattern)
+                    .ignoreCase(true)
+            );
+        }
+        Query query = Query.query(criteria)
+            .columns(
+                "id",
+                "tenant_key",
+                "tenant_id",
+                "name",
+                "subdomain",
+                "realm_name",
+                "platform_id",
+                "database_vendor_code",
+                "database_ownership_type",
+                "driver_type",
+                "is_template",
+                "active",
+                "created_date",
+                "last_modified_date"
+            )
+            .sort(Sort.by("id"));
+        return masterTemplate.select(Tenant.class).matching(limit > 0 ? query.limit(limit) : query).all();
+    }
+
     public Mono<Tenant> findById(Long id) {
         return masterTemplate.selectOne(Query.query(Criteria.where("id").is(id)), Tenant.class);
     }
@@ -78,4 +151,8 @@ public class TenantRepository {
     public Mono<Tenant> findByTenantKey(String tenantKey) {
         return masterTemplate.select(Tenant.class).matching(Query.query(Criteria.where("tenant_key").is(tenantKey))).one();
     }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 }
@@ -30,6 +30,8 @@ public interface UserRepository extends R2dbcRepository<User, String>, UserRepos
 
     Flux<User> findAllByIdNotNullAndActivatedIsTrue(Pageable pageable);
 
+    Flux<User> findAllByIdGreaterThan(String id, Pageable pageable);
+
     Mono<Long> count();
 
     @Query("INSERT INTO jhi_user_authority VALUES(:userId, :authority)")
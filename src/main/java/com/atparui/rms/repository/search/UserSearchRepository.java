@@ -1,10 +1,19 @@
 package com.atparui.rms.repository.search;
 
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import co.elastic.clients.elasticsearch._types.query_dsl.PrefixQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch._types.query_dsl.QueryStringQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.SimpleQueryStringQuery;
 import com.atparui.rms.domain.User;
+import java.util.List;
+import java.util.Locale;
 import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
 import org.springframework.data.elasticsearch.client.elc.ReactiveElasticsearchTemplate;
 import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
 import org.springframework.data.elasticsearch.repository.ReactiveElasticsearchRepository;
 import reactor.core.publisher.Flux;
 
@@ -15,10 +24,24 @@ public interface UserSearchRepository extends ReactiveElasticsearchRepository<Us
 
 interface UserSearchRepositoryInternal {
     Flux<User> search(String query);
+
+    /**
+     * Search the users by login, reading only their public fields.
+     *
+     * @param query the words of the logins, or the start of the logins with {@code prefix}.
+     * @param prefix whether to match the start of the logins, for type-ahead.
+     * @param afterLogin the last login of the previous page, or {@code null} for the first page.
+     * @param limit the maximum number of users.
+     * @return the users with only their ID and login, ordered by login.
+     */
+    Flux<User> searchLogins(String query, boolean prefix, String afterLogin, int limit);
 }
 
 class UserSearchRepositoryInternalImpl implements UserSearchRepositoryInternal {
 
+    // Keyword sub-field of the login, to sort the pages and match prefixes
+    private static final String LOGIN_KEYWORD = "login.keyword";
+
     private final ReactiveElasticsearchTemplate reactiveElasticsearchTemplate;
 
     UserSearchRepositoryInternalImpl(ReactiveElasticsearchTemplate reactiveElasticsearchTemplate) {
@@ -30,4 +53,22 @@ class UserSearchRepositoryInternalImpl implements UserSearchRepositoryInternal {
         NativeQuery nativeQuery = new NativeQuery(QueryStringQuery.of(qs -> qs.query(query))._toQuery());
         return reactiveElasticsearchTemplate.search(nativeQuery, User.class).map(SearchHit::getContent);
     }
+
+    @Override
+    public Flux<User> searchLogins(String query, boolean prefix, String afterLogin, int limit) {
+        Query match = prefix
+            ? PrefixQuery.of(p -> p.field(LOGIN_KEYWORD).value(query.toLowerCase(Locale.ROOT)))._toQuery()
+            // Unlike query_string, never fails on the syntax and only searches the given field
+            : SimpleQueryStringQuery.of(q -> q.query(query).fields("login").defaultOperator(Operator.And))._toQuery();
+        NativeQueryBuilder builder = NativeQuery.builder()
+            .withQuery(match)
+            .withSort(sort -> sort.field(field -> field.field(LOGIN_KEYWORD).order(SortOrder.Asc)))
+            .withSourceFilter(new FetchSourceFilterBuilder().withIncludes("id", "login").build())
+            .withTrackTotalHits(false)
+            .withMaxResults(limit);
+        if (afterLogin != null) {
+            builder.withSearchAfter(List.of(afterLogin));
+        }
+        return reactiveElasticsearchTemplate.search(builder.build(), User.class).map(SearchHit::getContent);
+    }
 }
@@ -6,6 +6,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -21,6 +23,8 @@ import reactor.core.publisher.Mono;
  */
 public final class SecurityUtils {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SecurityUtils.class);
+
     public static final String CLAIMS_NAMESPACE = "https://www.jhipster.tech/";
 
     private SecurityUtils() {}
@@ -105,12 +109,10 @@ public final class SecurityUtils {
     }
 
     public static List<GrantedAuthority> extractAuthorityFromClaims(Map<String, Object> claims) {
-        // Add debug logging
-        System.out.println("DEBUG: JWT Claims: " + claims);
         Collection<String> roles = getRolesFromClaims(claims);
-        System.out.println("DEBUG: Extracted roles: " + roles);
         List<GrantedAuthority> authorities = mapRolesToGrantedAuthorities(roles);
-        System.out.println("DEBUG: Mapped authorities: " + authorities);
+        // Called on every authenticated request
+        LOG.debug("Mapped the JWT roles {} to the authorities {}", roles, authorities);
         return authorities;
     }
 
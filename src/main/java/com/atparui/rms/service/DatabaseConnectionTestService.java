@@ -1,21 +1,54 @@
 package com.atparui.rms.service;
 
+import com.atparui.rms.aop.tracing.Traced;
+import com.atparui.rms.config.ApplicationProperties;
 import com.atparui.rms.domain.DatabaseVendor;
 import com.atparui.rms.domain.DriverJar;
 import com.atparui.rms.repository.DatabaseDriverRepository;
 import com.atparui.rms.repository.DatabaseVendorRepository;
 import com.atparui.rms.service.dto.DatabaseConnectionTestDTO;
 import com.atparui.rms.service.dto.DatabaseConnectionTestResult;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
 
+/**
+ * Tests database connections.
+ * <p>
+ * JDBC connections are blocking: probes run on a bounded pool of their own, with at most
+ * {@code application.connection-probe.max-per-host} probes of the same host at a time, so that a batch validation
+ * neither ties up the event loop nor floods a database server. Results are reused for identical probes for a short
+ * time, concurrent identical probes sharing the same execution.
+ */
 @Service
+@Traced
 public class DatabaseConnectionTestService {
 
     private static final Logger log = LoggerFactory.getLogger(DatabaseConnectionTestService.class);
@@ -23,15 +56,43 @@ public class DatabaseConnectionTestService {
     private final DatabaseVendorRepository databaseVendorRepository;
     private final DatabaseDriverRepository databaseDriverRepository;
     private final DynamicDriverLoaderService dynamicDriverLoaderService;
+    private final int maxPerHost;
+    private final Duration timeout;
+    private final Scheduler probeScheduler;
+
+    // Keyed by host name
+    private final Cache<String, HostLane> lanes;
+
+    private final AsyncCache<ProbeKey, DatabaseConnectionTestResult> results;
 
     public DatabaseConnectionTestService(
         DatabaseVendorRepository databaseVendorRepository,
         DatabaseDriverRepository databaseDriverRepository,
-        DynamicDriverLoaderService dynamicDriverLoaderService
+        DynamicDriverLoaderService dynamicDriverLoaderService,
+        ApplicationProperties applicationProperties
     ) {
         this.databaseVendorRepository = databaseVendorRepository;
         this.databaseDriverRepository = databaseDriverRepository;
         this.dynamicDriverLoaderService = dynamicDriverLoaderService;
+        ApplicationProperties.ConnectionProbe properties = applicationProperties.getConnectionProbe();
+        this.maxPerHost = Math.max(1, properties.getMaxPerHost());
+        this.timeout = properties.getTimeout();
+        this.probeScheduler = Schedulers.newBoundedElastic(Math.max(1, properties.getThreads()), Integer.MAX_VALUE, "db-probe");
+        this.lanes = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .<String, HostLane>removalListener((host, lane, cause) -> {
+                if (lane != null && cause != RemovalCause.REPLACED) {
+                    lane.close();
+                }
+            })
+            .build();
+        this.results = Caffeine.newBuilder().expireAfterWrite(properties.getCacheTtl()).maximumSize(properties.getCacheSize()).buildAsync();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.invalidateAll();
+        probeScheduler.dispose();
     }
 
     /**
@@ -41,6 +102,25 @@ public class DatabaseConnectionTestService {
      * @return Mono containing test result
      */
     public Mono<DatabaseConnectionTestResult> testConnection(DatabaseConnectionTestDTO testDTO) {
+        ProbeKey key = ProbeKey.of(testDTO);
+        // Cancelling a caller must not cancel the probe shared with the other ones
+        return Mono.fromFuture(results.get(key, (k, executor) -> probe(testDTO).toFuture()), true).map(result ->
+            forTenant(result, testDTO.getTenantId())
+        );
+    }
+
+    /**
+     * Test many database connections concurrently.
+     *
+     * @param testDTOs the connection test DTOs
+     * @return the test results, in completion order
+     */
+    public Flux<DatabaseConnectionTestResult> testConnections(Flux<DatabaseConnectionTestDTO> testDTOs) {
+        return testDTOs.flatMap(this::testConnection);
+    }
+
+    private Mono<DatabaseConnectionTestResult> probe(DatabaseConnectionTestDTO testDTO) {
+        String target = target(testDTO);
         return databaseVendorRepository
             .findByVendorCodeAndActiveTrue(testDTO.getVendorCode())
             .flatMap(vendor -> {
@@ -48,204 +128,111 @@ public class DatabaseConnectionTestService {
                 if (testDTO.getDriverId() != null) {
                     return databaseDriverRepository
                         .findById(testDTO.getDriverId())
-                        .flatMap(driver -> {
-                            try {
-                                return Mono.just(testJdbcConnectionWithDriver(vendor, testDTO, driver));
-                            } catch (Exception e) {
-                                log.error("Error testing database connection with custom driver", e);
-                                return Mono.just(
-                                    new DatabaseConnectionTestResult(false, "Connection test failed: " + e.getMessage(), e.getMessage())
-                                );
-                            }
-                        })
-                        .switchIfEmpty(
-                            Mono.just(new DatabaseConnectionTestResult(false, "Driver not found with ID: " + testDTO.getDriverId()))
-                        );
-                } else {
-                    // Use default vendor driver
-                    try {
-                        return Mono.just(testJdbcConnection(vendor, testDTO));
-                    } catch (Exception e) {
-                        log.error("Error testing database connection", e);
-                        return Mono.just(
-                            new DatabaseConnectionTestResult(false, "Connection test failed: " + e.getMessage(), e.getMessage())
-                        );
-                    }
+                        // The probe is a JDBC connection: an R2DBC driver JAR is tested with the vendor driver
+                        .flatMap(driver -> runOnLane(vendor, testDTO, "R2DBC".equalsIgnoreCase(driver.getDriverType()) ? null : driver))
+                        .switchIfEmpty(Mono.fromSupplier(() -> failure(target, "Driver not found with ID: " + testDTO.getDriverId(), null)));
                 }
+                return runOnLane(vendor, testDTO, null);
             })
-            .switchIfEmpty(
-                Mono.just(new DatabaseConnectionTestResult(false, "Database vendor not found or inactive: " + testDTO.getVendorCode()))
-            );
+            .switchIfEmpty(Mono.fromSupplier(() -> failure(target, "Database vendor not found or inactive: " + testDTO.getVendorCode(), null)))
+            .onErrorResume(e -> {
+                log.error("Error testing database connection to {}", target, e);
+                return Mono.just(failure(target, "Connection test failed: " + e.getMessage(), e.getMessage()));
+            });
+    }
+
+    private Mono<DatabaseConnectionTestResult> runOnLane(DatabaseVendor vendor, DatabaseConnectionTestDTO testDTO, DriverJar driver) {
+        String host = testDTO.getHost().toLowerCase(Locale.ROOT);
+        Mono<DatabaseConnectionTestResult> probe = Mono.fromCallable(() -> runProbe(vendor, testDTO, driver)).subscribeOn(probeScheduler);
+        return Mono.defer(() -> lanes.get(host, key -> new HostLane(maxPerHost)).submit(probe))
+            // The lane expired between its lookup and the submission: submit to the new lane of the host
+            .retryWhen(Retry.max(1).filter(LaneClosedException.class::isInstance));
     }
 
     /**
-     * Test JDBC connection using a specific uploaded driver.
+     * Probe a database, timing the TCP connection, the driver handshake with authentication and the first query.
      *
      * @param vendor the database vendor
      * @param testDTO the connection test DTO
-     * @param driver the database driver to use
+     * @param driver the uploaded driver to use, or {@code null} for the vendor driver
      * @return DatabaseConnectionTestResult
      */
-    private DatabaseConnectionTestResult testJdbcConnectionWithDriver(
-        DatabaseVendor vendor,
-        DatabaseConnectionTestDTO testDTO,
-        DriverJar driver
-    ) throws Exception {
-        long startTime = System.currentTimeMillis();
-        java.sql.Connection connection = null;
-
-        try {
-            // Build JDBC URL from template
-            String jdbcUrl = buildJdbcUrl(vendor, testDTO);
-            log.debug("Testing connection to: {} using driver: {}", jdbcUrl.replace(testDTO.getPassword(), "***"), driver.getFileName());
-
-            // Load driver dynamically
-            java.sql.Driver driverInstance = dynamicDriverLoaderService.loadJdbcDriver(driver);
-
-            // Create connection with timeout
-            java.util.Properties props = new java.util.Properties();
-            props.setProperty("user", testDTO.getUsername());
-            props.setProperty("password", testDTO.getPassword());
-            props.setProperty("connectTimeout", "5000"); // 5 second timeout
-
-            connection = driverInstance.connect(jdbcUrl, props);
-            if (connection == null) {
-                // Some drivers don't accept URL, try DriverManager with loaded driver
-                connection = java.sql.DriverManager.getConnection(jdbcUrl, props);
-            }
-
-            // Test connection with a simple query
-            boolean isValid = connection.isValid(5); // 5 second timeout
-
-            long connectionTime = System.currentTimeMillis() - startTime;
+    private DatabaseConnectionTestResult runProbe(DatabaseVendor vendor, DatabaseConnectionTestDTO testDTO, DriverJar driver) {
+        long startTime = System.nanoTime();
+        String target = target(testDTO);
+        DatabaseConnectionTestResult result = new DatabaseConnectionTestResult();
+        result.setTarget(target);
 
-            if (isValid) {
-                log.info(
-                    "Database connection test successful for vendor: {} using driver: {} in {}ms",
-                    vendor.getVendorCode(),
-                    driver.getFileName(),
-                    connectionTime
-                );
-                DatabaseConnectionTestResult result = new DatabaseConnectionTestResult(
-                    true,
-                    "Connection successful using " +
-                    driver.getFileName() +
-                    ". Connected to " +
-                    vendor.getDisplayName() +
-                    " in " +
-                    connectionTime +
-                    "ms"
-                );
-                result.setConnectionTimeMs(connectionTime);
-                return result;
-            } else {
-                return new DatabaseConnectionTestResult(false, "Connection is not valid");
-            }
-        } catch (java.sql.SQLException e) {
-            long connectionTime = System.currentTimeMillis() - startTime;
-            log.error(
-                "Database connection test failed for vendor: {} using driver: {} after {}ms",
-                vendor.getVendorCode(),
-                driver.getFileName(),
-                connectionTime,
-                e
-            );
-            String errorMessage = "Connection failed: " + e.getMessage();
-            if (e.getSQLState() != null) {
-                errorMessage += " (SQL State: " + e.getSQLState() + ")";
-            }
-            DatabaseConnectionTestResult result = new DatabaseConnectionTestResult(false, errorMessage, e.getMessage());
-            result.setConnectionTimeMs(connectionTime);
+        // Reachability first: an unreachable host fails within the timeout, whatever the driver does
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(testDTO.getHost(), testDTO.getPort()), (int) timeout.toMillis());
+        } catch (IOException e) {
+            log.info("Database host unreachable for vendor: {} at {}: {}", vendor.getVendorCode(), target, e.getMessage());
+            result.setMessage("Connection failed: " + target + " is unreachable (" + e.getMessage() + ")");
+            result.setErrorDetails(e.getMessage());
+            result.setConnectionTimeMs(elapsedMillis(startTime));
             return result;
-        } catch (Exception e) {
-            long connectionTime = System.currentTimeMillis() - startTime;
-            log.error("Unexpected error during connection test with custom driver", e);
-            DatabaseConnectionTestResult result = new DatabaseConnectionTestResult(
-                false,
-                "Unexpected error: " + e.getMessage(),
-                e.getMessage()
-            );
-            result.setConnectionTimeMs(connectionTime);
-            return result;
-        } finally {
-            if (connection != null) {
-                try {
-                    connection.close();
-                } catch (java.sql.SQLException e) {
-                    log.warn("Error closing test connection", e);
-                }
-            }
         }
-    }
+        result.setConnectTimeMs(elapsedMillis(startTime));
 
-    /**
-     * Test JDBC connection for the given vendor and connection details.
-     *
-     * @param vendor the database vendor
-     * @param testDTO the connection test DTO
-     * @return DatabaseConnectionTestResult
-     */
-    private DatabaseConnectionTestResult testJdbcConnection(DatabaseVendor vendor, DatabaseConnectionTestDTO testDTO) {
-        long startTime = System.currentTimeMillis();
         Connection connection = null;
-
+        DynamicDriverLoaderService.DriverLease lease = null;
         try {
             // Build JDBC URL from template
             String jdbcUrl = buildJdbcUrl(vendor, testDTO);
             log.debug("Testing connection to: {}", jdbcUrl.replace(testDTO.getPassword(), "***"));
 
-            // Load driver class if specified
-            if (vendor.getDriverClassName() != null && !vendor.getDriverClassName().isEmpty()) {
-                try {
-                    Class.forName(vendor.getDriverClassName());
-                } catch (ClassNotFoundException e) {
-                    log.warn("Driver class not found: {}, attempting connection anyway", vendor.getDriverClassName());
-                }
-            }
-
-            // Create connection with timeout
             Properties props = new Properties();
             props.setProperty("user", testDTO.getUsername());
             props.setProperty("password", testDTO.getPassword());
-            props.setProperty("connectTimeout", "5000"); // 5 second timeout
-
-            connection = DriverManager.getConnection(jdbcUrl, props);
+            props.setProperty("connectTimeout", String.valueOf(timeout.toMillis()));
 
-            // Test connection with a simple query
-            boolean isValid = connection.isValid(5); // 5 second timeout
+            long authStart = System.nanoTime();
+            if (driver != null) {
+                // Load driver dynamically, its classloader stays open until the connection is closed
+                lease = dynamicDriverLoaderService.acquire(driver);
+                java.sql.Driver driverInstance = dynamicDriverLoaderService.newJdbcDriver(lease, driver);
+                connection = driverInstance.connect(jdbcUrl, props);
+                if (connection == null) {
+                    // Some drivers don't accept URL, try DriverManager with loaded driver
+                    connection = DriverManager.getConnection(jdbcUrl, props);
+                }
+            } else {
+                loadVendorDriver(vendor);
+                connection = DriverManager.getConnection(jdbcUrl, props);
+            }
+            result.setAuthTimeMs(elapsedMillis(authStart));
 
-            long connectionTime = System.currentTimeMillis() - startTime;
+            long queryStart = System.nanoTime();
+            boolean isValid = connection.isValid((int) Math.max(1, timeout.toSeconds()));
+            result.setQueryTimeMs(elapsedMillis(queryStart));
 
+            long connectionTime = elapsedMillis(startTime);
+            result.setConnectionTimeMs(connectionTime);
             if (isValid) {
-                log.info("Database connection test successful for vendor: {} in {}ms", vendor.getVendorCode(), connectionTime);
-                DatabaseConnectionTestResult result = new DatabaseConnectionTestResult(
-                    true,
-                    "Connection successful. Connected to " + vendor.getDisplayName() + " in " + connectionTime + "ms"
-                );
-                result.setConnectionTimeMs(connectionTime);
-                return result;
+                String using = driver != null ? " using " + driver.getFileName() : "";
+                log.info("Database connection test successful for vendor: {}{} in {}ms", vendor.getVendorCode(), using, connectionTime);
+                result.setSuccess(true);
+                result.setMessage("Connection successful" + using + ". Connected to " + vendor.getDisplayName() + " in " + connectionTime + "ms");
             } else {
-                return new DatabaseConnectionTestResult(false, "Connection is not valid");
+                result.setMessage("Connection is not valid");
             }
+            return result;
         } catch (SQLException e) {
-            long connectionTime = System.currentTimeMillis() - startTime;
-            log.error("Database connection test failed for vendor: {} after {}ms", vendor.getVendorCode(), connectionTime, e);
+            result.setConnectionTimeMs(elapsedMillis(startTime));
+            log.error("Database connection test failed for vendor: {} at {} after {}ms", vendor.getVendorCode(), target, result.getConnectionTimeMs(), e);
             String errorMessage = "Connection failed: " + e.getMessage();
             if (e.getSQLState() != null) {
                 errorMessage += " (SQL State: " + e.getSQLState() + ")";
             }
-            DatabaseConnectionTestResult result = new DatabaseConnectionTestResult(false, errorMessage, e.getMessage());
-            result.setConnectionTimeMs(connectionTime);
+            result.setMessage(errorMessage);
+            result.setErrorDetails(e.getMessage());
             return result;
         } catch (Exception e) {
-            long connectionTime = System.currentTimeMillis() - startTime;
+            result.setConnectionTimeMs(elapsedMillis(startTime));
             log.error("Unexpected error during connection test", e);
-            DatabaseConnectionTestResult result = new DatabaseConnectionTestResult(
-                false,
-                "Unexpected error: " + e.getMessage(),
-                e.getMessage()
-            );
-            result.setConnectionTimeMs(connectionTime);
+            result.setMessage("Unexpected error: " + e.getMessage());
+            result.setErrorDetails(e.getMessage());
             return result;
         } finally {
             if (connection != null) {
@@ -255,9 +242,51 @@ public class DatabaseConnectionTestService {
                     log.warn("Error closing test connection", e);
                 }
             }
+            if (lease != null) {
+                lease.close();
+            }
         }
     }
 
+    private static void loadVendorDriver(DatabaseVendor vendor) {
+        if (vendor.getDriverClassName() != null && !vendor.getDriverClassName().isEmpty()) {
+            try {
+                Class.forName(vendor.getDriverClassName());
+            } catch (ClassNotFoundException e) {
+                log.warn("Driver class not found: {}, attempting connection anyway", vendor.getDriverClassName());
+            }
+        }
+    }
+
+    private static DatabaseConnectionTestResult failure(String target, String message, String errorDetails) {
+        DatabaseConnectionTestResult result = new DatabaseConnectionTestResult(false, message, errorDetails);
+        result.setTarget(target);
+        return result;
+    }
+
+    private static DatabaseConnectionTestResult forTenant(DatabaseConnectionTestResult result, String tenantId) {
+        if (tenantId == null) {
+            return result;
+        }
+        // Cached results are shared: copy before setting the tenant
+        DatabaseConnectionTestResult copy = new DatabaseConnectionTestResult(result.isSuccess(), result.getMessage(), result.getErrorDetails());
+        copy.setConnectionTimeMs(result.getConnectionTimeMs());
+        copy.setTarget(result.getTarget());
+        copy.setConnectTimeMs(result.getConnectTimeMs());
+        copy.setAuthTimeMs(result.getAuthTimeMs());
+        copy.setQueryTimeMs(result.getQueryTimeMs());
+        copy.setTenantId(tenantId);
+        return copy;
+    }
+
+    private static String target(DatabaseConnectionTestDTO testDTO) {
+        return testDTO.getHost() + ":" + testDTO.getPort() + "/" + testDTO.getDatabaseName();
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
     /**
      * Build JDBC URL from vendor template and connection details.
      *
@@ -298,4 +327,91 @@ public class DatabaseConnectionTestService {
 
         return url;
     }
+
+    /**
+     * Identity of a probe. The password is hashed, to keep it out of the cache.
+     */
+    record ProbeKey(
+        String vendorCode,
+        Long driverId,
+        String host,
+        Integer port,
+        String databaseName,
+        String schemaName,
+        String username,
+        String passwordHash
+    ) {
+        static ProbeKey of(DatabaseConnectionTestDTO testDTO) {
+            return new ProbeKey(
+                testDTO.getVendorCode(),
+                testDTO.getDriverId(),
+                testDTO.getHost(),
+                testDTO.getPort(),
+                testDTO.getDatabaseName(),
+                testDTO.getSchemaName(),
+                testDTO.getUsername(),
+                sha256(testDTO.getPassword())
+            );
+        }
+
+        private static String sha256(String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 algorithm not available", e);
+            }
+        }
+    }
+
+    /**
+     * Runs the probes of a host, at most {@code maxConcurrency} at a time, the others waiting in line.
+     */
+    static final class HostLane {
+
+        // Several callers may submit at once: the unicast sink is not serialized but backed by a multi-producer queue
+        private final Sinks.Many<Mono<Void>> queue = Sinks.unsafe()
+            .many()
+            .unicast()
+            .onBackpressureBuffer(Queues.<Mono<Void>>unboundedMultiproducer().get());
+
+        HostLane(int maxConcurrency) {
+            queue.asFlux().flatMap(task -> task, maxConcurrency).subscribe();
+        }
+
+        <T> Mono<T> submit(Mono<T> probe) {
+            return Mono.create(sink -> {
+                AtomicBoolean cancelled = new AtomicBoolean();
+                sink.onCancel(() -> cancelled.set(true));
+                Mono<Void> task = Mono.defer(() -> {
+                    if (cancelled.get()) {
+                        return Mono.empty();
+                    }
+                    return probe.doOnSuccess(sink::success).doOnError(sink::error).onErrorResume(e -> Mono.empty()).then();
+                });
+                if (queue.tryEmitNext(task).isFailure()) {
+                    sink.error(new LaneClosedException());
+                }
+            });
+        }
+
+        void close() {
+            // The probes already submitted still run
+            queue.tryEmitComplete();
+        }
+    }
+
+    /**
+     * Signals a probe submitted to a lane that was closed, e.g. after it expired.
+     */
+    static final class LaneClosedException extends IllegalStateException {
+
+        private static final long serialVersionUID = 1L;
+
+        LaneClosedException() {
+            super("Probe lane is closed");
+        }
+    }
 }
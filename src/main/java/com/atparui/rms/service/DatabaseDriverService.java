@@ -7,9 +7,12 @@ import java.io.IOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.http.codec.multipart.FilePart;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 @Service
 public class DatabaseDriverService {
@@ -19,15 +22,18 @@ public class DatabaseDriverService {
     private final DatabaseDriverRepository driverRepository;
     private final DriverStorageService driverStorageService;
     private final DatabaseVendorVersionRepository versionRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public DatabaseDriverService(
         DatabaseDriverRepository driverRepository,
         DriverStorageService driverStorageService,
-        DatabaseVendorVersionRepository versionRepository
+        DatabaseVendorVersionRepository versionRepository,
+        ApplicationEventPublisher eventPublisher
     ) {
         this.driverRepository = driverRepository;
         this.driverStorageService = driverStorageService;
         this.versionRepository = versionRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     public Flux<DriverJar> findAll() {
@@ -56,35 +62,37 @@ public class DatabaseDriverService {
      * @param versionId the version ID
      * @param driverType the driver type (JDBC or R2DBC)
      * @param driverClassName the driver class name
+     * @param description the description, optional
      * @param file the JAR file
      * @param uploadedBy the user who uploaded
      * @return Mono containing saved DriverJar
      */
-    public Mono<DriverJar> uploadDriver(Long versionId, String driverType, String driverClassName, MultipartFile file, String uploadedBy) {
+    public Mono<DriverJar> uploadDriver(
+        Long versionId,
+        String driverType,
+        String driverClassName,
+        String description,
+        FilePart file,
+        String uploadedBy
+    ) {
         return versionRepository
             .findById(versionId)
             .switchIfEmpty(Mono.error(new RuntimeException("Database version not found")))
-            .flatMap(version -> {
-                try {
-                    // Calculate MD5 hash
-                    String md5Hash = driverStorageService.calculateMd5Hash(file);
-
-                    // Store file - we need to get database info to build path
-                    // For now, use version ID in path
-                    String filePath = driverStorageService.storeDriver("version_" + versionId, version.getVersion(), driverType, file);
-
-                    // Get file size
-                    long fileSize = driverStorageService.getFileSize(filePath);
-
+            // Hash and store the file in a single pass, identical JARs share the same stored file. The driver is saved
+            // before the stored file can be deleted by a concurrent delete of the last driver referencing it.
+            .flatMap(version ->
+                driverStorageService.storeDriver(file, stored -> {
                     // Create driver entity
                     DriverJar driver = new DriverJar();
                     driver.setVersionId(versionId);
                     driver.setDriverType(driverType.toUpperCase());
-                    driver.setFilePath(filePath);
-                    driver.setFileName(file.getOriginalFilename());
-                    driver.setFileSize(fileSize);
+                    driver.setFilePath(stored.filePath());
+                    driver.setFileName(file.filename());
+                    driver.setFileSize(stored.size());
                     driver.setDriverClassName(driverClassName);
-                    driver.setMd5Hash(md5Hash);
+                    driver.setMd5Hash(stored.md5());
+                    driver.setSha256Hash(stored.sha256());
+                    driver.setDescription(description);
                     driver.setUploadedBy(uploadedBy);
                     driver.setActive(true);
 
@@ -99,11 +107,18 @@ public class DatabaseDriverService {
                             }
                             return driverRepository.save(driver);
                         });
-                } catch (IOException e) {
-                    log.error("Error uploading driver file", e);
-                    return Mono.error(new RuntimeException("Failed to upload driver file: " + e.getMessage(), e));
-                }
-            });
+                })
+            );
+    }
+
+    /**
+     * Get the stored file of a driver.
+     *
+     * @param driver the driver
+     * @return Mono containing the file, or an error if it is missing
+     */
+    public Mono<Resource> loadDriverFile(DriverJar driver) {
+        return Mono.fromCallable(() -> driverStorageService.loadDriverAsResource(driver.getFilePath())).subscribeOn(Schedulers.boundedElastic());
     }
 
     public Mono<DriverJar> save(DriverJar driver) {
@@ -115,14 +130,28 @@ public class DatabaseDriverService {
             .findById(id)
             .switchIfEmpty(Mono.error(new RuntimeException("Driver not found with ID: " + id)))
             .flatMap(driver -> {
-                try {
-                    // Delete file
-                    driverStorageService.deleteDriver(driver.getFilePath());
-                } catch (IOException e) {
-                    log.warn("Failed to delete driver file: {}", driver.getFilePath(), e);
-                }
                 log.info("Deleting database driver: {} (ID: {})", driver.getFileName(), id);
-                return driverRepository.deleteById(id);
+                return driverRepository
+                    .deleteById(id)
+                    // Stored files are shared by all the drivers with the same content: counted and deleted under the
+                    // lock of the file, for a concurrent upload of the same content to store it again
+                    .then(
+                        driverStorageService.withFileLock(
+                            driver.getFilePath(),
+                            driverRepository
+                                .countByFilePath(driver.getFilePath())
+                                .filter(references -> references == 0)
+                                .publishOn(Schedulers.boundedElastic())
+                                .doOnNext(references -> {
+                                    eventPublisher.publishEvent(new DriverChangedEvent(driver.getFilePath()));
+                                    try {
+                                        driverStorageService.deleteDriver(driver.getFilePath());
+                                    } catch (IOException e) {
+                                        log.warn("Failed to delete driver file: {}", driver.getFilePath(), e);
+                                    }
+                                })
+                        )
+                    );
             })
             .then();
     }
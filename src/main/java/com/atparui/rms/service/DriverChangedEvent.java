@@ -0,0 +1,13 @@
+package com.atparui.rms.service;
+
+/**
+ * Published when a driver JAR is replaced or deleted, for the loaded driver runtimes to be released.
+ *
+ * @param filePath the stored file path of the driver.
+ * @param remote whether the driver was changed by another gateway node.
+ */
+public record DriverChangedEvent(String filePath, boolean remote) {
+    public DriverChangedEvent(String filePath) {
+        this(filePath, false);
+    }
+}
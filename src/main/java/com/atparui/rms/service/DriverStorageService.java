@@ -1,67 +1,267 @@
 package com.atparui.rms.service;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
 @Service
 public class DriverStorageService {
 
     private static final Logger log = LoggerFactory.getLogger(DriverStorageService.class);
 
+    // Content-addressed layout: blobs/sha256/{first two hex digits}/{sha256}.jar
+    private static final String BLOB_DIRECTORY = "blobs/sha256";
+
+    private static final String TEMP_DIRECTORY = "tmp";
+
     @Value("${database.driver.storage.path:./drivers}")
     private String storageBasePath;
 
+    private final MeterRegistry meterRegistry;
+
+    // Completes when the last operation on a stored file is done, keyed by file path
+    private final Map<String, Mono<Void>> fileLocks = new ConcurrentHashMap<>();
+
+    public DriverStorageService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     /**
-     * Store driver JAR file.
+     * Store an uploaded driver JAR file.
+     * <p>
+     * The upload is hashed and written to a temporary file in a single non-blocking pass, then moved to its content
+     * address: uploading the same JAR again, e.g. for another version, reuses the stored file.
      *
-     * @param vendorCode the vendor code
-     * @param version the version
-     * @param driverType the driver type (JDBC or R2DBC)
-     * @param file the uploaded file
-     * @return relative path to stored file
+     * @param file the uploaded file part
+     * @return the stored driver
      */
-    public String storeDriver(String vendorCode, String version, String driverType, MultipartFile file) throws IOException {
-        // Create directory structure: drivers/{vendor}/{version}/{type}/
-        Path vendorDir = Path.of(storageBasePath, vendorCode.toLowerCase());
-        Path versionDir = vendorDir.resolve(version);
-        Path typeDir = versionDir.resolve(driverType.toLowerCase());
-
-        // Create directories if they don't exist
-        Files.createDirectories(typeDir);
-
-        // Generate filename: {vendor}-{version}-{type}.jar
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        } else {
-            extension = ".jar";
+    public Mono<StoredDriver> storeDriver(FilePart file) {
+        return storeDriver(file, Mono::just);
+    }
+
+    /**
+     * Store an uploaded driver JAR file and reference it, e.g. by saving the driver pointing to it.
+     * <p>
+     * The file is moved to its content address and referenced while holding the {@link #withFileLock lock} of that
+     * address: a file being deleted as no longer referenced is stored again, and is not deleted before the reference
+     * is saved.
+     *
+     * @param file the uploaded file part
+     * @param reference references the stored driver
+     * @param <T> the type of the reference
+     * @return the reference
+     */
+    public <T> Mono<T> storeDriver(FilePart file, Function<StoredDriver, Mono<T>> reference) {
+        long start = System.nanoTime();
+        return Mono.fromCallable(this::createTempFile)
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(tempFile ->
+                write(file, tempFile)
+                    .flatMap(written ->
+                        withFileLock(
+                            contentAddress(written.sha256()),
+                            Mono.fromCallable(() -> moveToContentAddress(tempFile, written))
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .flatMap(stored ->
+                                    reference
+                                        .apply(stored)
+                                        // Still under the lock: no other upload of the same content can reference it yet
+                                        .onErrorResume(e -> deleteUnreferenced(stored).then(Mono.error(e)))
+                                        .doOnSuccess(referenced -> {
+                                            recordUpload(start, stored.size(), stored.deduplicated() ? "deduplicated" : "stored");
+                                            log.info(
+                                                "Stored driver JAR: {} -> {} ({} bytes{})",
+                                                file.filename(),
+                                                stored.filePath(),
+                                                stored.size(),
+                                                stored.deduplicated() ? ", deduplicated" : ""
+                                            );
+                                        })
+                                )
+                        )
+                    )
+                    .doOnError(e -> recordUpload(start, 0, "error"))
+                    .doOnError(e -> deleteQuietly(tempFile))
+                    .doOnCancel(() -> deleteQuietly(tempFile))
+            );
+    }
+
+    /**
+     * Run an operation on a stored file once the operations started before on the same file are done.
+     * <p>
+     * Stored files are shared by the drivers with the same content: checking that a file is no longer referenced and
+     * deleting it must not interleave with the storing and referencing of the same content. The lock only covers this
+     * node, which owns its storage directory.
+     *
+     * @param filePath the relative file path
+     * @param operation the operation
+     * @param <T> the type of the result of the operation
+     * @return the result of the operation
+     */
+    public <T> Mono<T> withFileLock(String filePath, Mono<T> operation) {
+        return Mono.defer(() -> {
+            Sinks.Empty<Void> released = Sinks.empty();
+            Mono<Void> lock = released.asMono();
+            Mono<Void> previous = fileLocks.put(filePath, lock);
+            return (previous != null ? previous : Mono.<Void>empty()).then(operation).doFinally(signal -> {
+                fileLocks.remove(filePath, lock);
+                released.tryEmitEmpty();
+            });
+        });
+    }
+
+    /**
+     * Write the content of a file part to a file, hashing it on the way.
+     */
+    private Mono<Written> write(FilePart file, Path target) {
+        return Mono.using(
+            () -> AsynchronousFileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING),
+            channel -> {
+                MessageDigest sha256 = digest("SHA-256");
+                MessageDigest md5 = digest("MD5");
+                AtomicLong size = new AtomicLong();
+                return DataBufferUtils.write(
+                    file
+                        .content()
+                        .doOnNext(buffer -> {
+                            // The iterated byte buffers have their own position: the data buffer stays readable for the write
+                            try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                                while (iterator.hasNext()) {
+                                    ByteBuffer byteBuffer = iterator.next();
+                                    sha256.update(byteBuffer.duplicate());
+                                    md5.update(byteBuffer);
+                                }
+                            }
+                            size.addAndGet(buffer.readableByteCount());
+                        }),
+                    channel
+                )
+                    .map(DataBufferUtils::release)
+                    .then(Mono.fromSupplier(() -> new Written(hex(sha256), hex(md5), size.get())));
+            },
+            channel -> {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close upload file {}", target, e);
+                }
+            }
+        );
+    }
+
+    private Path createTempFile() throws IOException {
+        Path tempDir = Path.of(storageBasePath, TEMP_DIRECTORY);
+        Files.createDirectories(tempDir);
+        return Files.createFile(tempDir.resolve("upload-" + UUID.randomUUID() + ".part"));
+    }
+
+    private static String contentAddress(String sha256) {
+        return BLOB_DIRECTORY + "/" + sha256.substring(0, 2) + "/" + sha256 + ".jar";
+    }
+
+    private StoredDriver moveToContentAddress(Path tempFile, Written written) {
+        String relativePath = contentAddress(written.sha256());
+        Path target = Path.of(storageBasePath, relativePath);
+        try {
+            Files.createDirectories(target.getParent());
+            if (Files.exists(target)) {
+                Files.delete(tempFile);
+                return new StoredDriver(relativePath, written.sha256(), written.md5(), written.size(), true);
+            }
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Concurrent upload of the same content
+                Files.delete(tempFile);
+                return new StoredDriver(relativePath, written.sha256(), written.md5(), written.size(), true);
+            }
+            return new StoredDriver(relativePath, written.sha256(), written.md5(), written.size(), false);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store driver file: " + e.getMessage(), e);
         }
+    }
+
+    /**
+     * Delete a file stored by an upload whose reference failed, unless it was stored before.
+     */
+    private Mono<Void> deleteUnreferenced(StoredDriver stored) {
+        if (stored.deduplicated()) {
+            return Mono.empty();
+        }
+        return Mono.<Void>fromRunnable(() -> {
+            try {
+                deleteDriver(stored.filePath());
+            } catch (IOException e) {
+                log.warn("Failed to delete unreferenced driver file {}", stored.filePath(), e);
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private void recordUpload(long startNanos, long size, String result) {
+        long duration = System.nanoTime() - startNanos;
+        Timer.builder("driver.upload").description("Driver JAR upload latency").tag("result", result).register(meterRegistry).record(
+            duration,
+            TimeUnit.NANOSECONDS
+        );
+        if (size > 0) {
+            DistributionSummary.builder("driver.upload.size").description("Driver JAR upload size").baseUnit("bytes").register(meterRegistry).record(
+                size
+            );
+            DistributionSummary.builder("driver.upload.throughput")
+                .description("Driver JAR upload throughput")
+                .baseUnit("bytes/second")
+                .register(meterRegistry)
+                .record(size * 1e9 / Math.max(duration, 1));
+        }
+    }
 
-        String filename = String.format("%s-%s-%s%s", vendorCode.toLowerCase(), version, driverType.toLowerCase(), extension);
-        Path targetFile = typeDir.resolve(filename);
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary upload file {}", file, e);
+        }
+    }
 
-        // Save file
-        try (InputStream inputStream = file.getInputStream()) {
-            Files.copy(inputStream, targetFile, StandardCopyOption.REPLACE_EXISTING);
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " algorithm not available", e);
         }
+    }
 
-        // Return relative path from storage base
-        Path relativePath = Path.of(storageBasePath).relativize(targetFile);
-        log.info("Stored driver JAR: {} -> {}", originalFilename, relativePath);
-        return relativePath.toString().replace("\\", "/"); // Normalize path separators
+    private static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
     }
 
     /**
@@ -72,7 +272,8 @@ public class DriverStorageService {
      */
     public Resource loadDriverAsResource(String filePath) throws IOException {
         Path file = Path.of(storageBasePath, filePath);
-        Resource resource = new UrlResource(file.toUri());
+        // A file system resource lets the response be written with zero-copy file transfers
+        Resource resource = new FileSystemResource(file);
 
         if (resource.exists() && resource.isReadable()) {
             return resource;
@@ -91,33 +292,6 @@ public class DriverStorageService {
         return Path.of(storageBasePath, filePath);
     }
 
-    /**
-     * Calculate MD5 hash of file.
-     *
-     * @param file the file
-     * @return MD5 hash string
-     */
-    public String calculateMd5Hash(MultipartFile file) throws IOException {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            try (InputStream inputStream = file.getInputStream()) {
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    md.update(buffer, 0, bytesRead);
-                }
-            }
-            byte[] hashBytes = md.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashBytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new IOException("MD5 algorithm not available", e);
-        }
-    }
-
     /**
      * Delete driver file.
      *
@@ -141,4 +315,17 @@ public class DriverStorageService {
         Path file = Path.of(storageBasePath, filePath);
         return Files.size(file);
     }
+
+    private record Written(String sha256, String md5, long size) {}
+
+    /**
+     * A stored driver JAR.
+     *
+     * @param filePath the path of the file, relative to the storage directory.
+     * @param sha256 the SHA-256 of the content, hex encoded.
+     * @param md5 the MD5 of the content, hex encoded.
+     * @param size the size in bytes.
+     * @param deduplicated whether the same content was already stored.
+     */
+    public record StoredDriver(String filePath, String sha256, String md5, long size, boolean deduplicated) {}
 }
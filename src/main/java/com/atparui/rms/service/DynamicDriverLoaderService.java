@@ -1,114 +1,453 @@
 package com.atparui.rms.service;
 
+import com.atparui.rms.config.ApplicationProperties;
 import com.atparui.rms.domain.DriverJar;
-import java.io.File;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+/**
+ * Registry of the runtimes of the uploaded driver JARs.
+ * <p>
+ * Each stored JAR is loaded once, in its own classloader, whatever the number of drivers referencing it. Runtimes are
+ * used through {@link DriverLease}s: the least recently used runtimes beyond {@code application.drivers.max-loaded}
+ * are evicted, and an evicted runtime closes its classloader once its last lease is released, so that its classes can
+ * be unloaded.
+ */
 @Service
 public class DynamicDriverLoaderService {
 
     private static final Logger log = LoggerFactory.getLogger(DynamicDriverLoaderService.class);
 
+    static final String JDBC_DRIVER_SERVICE = "META-INF/services/java.sql.Driver";
+
+    static final String R2DBC_PROVIDER_SERVICE = "META-INF/services/io.r2dbc.spi.ConnectionFactoryProvider";
+
     private final DriverStorageService driverStorageService;
-    private final Map<String, ClassLoader> driverClassLoaders = new ConcurrentHashMap<>();
-    private final Map<String, Class<?>> loadedDriverClasses = new ConcurrentHashMap<>();
 
-    public DynamicDriverLoaderService(DriverStorageService driverStorageService) {
+    private final MeterRegistry meterRegistry;
+
+    private final int maxLoaded;
+
+    // Tags the meters of each runtime: a JAR reloaded while its retired runtime is still leased has the same file name
+    private final AtomicLong generations = new AtomicLong();
+
+    // Keyed by file path, in access order: iteration starts with the least recently used runtime
+    private final LinkedHashMap<String, DriverRuntime> runtimes = new LinkedHashMap<>(16, 0.75f, true);
+
+    public DynamicDriverLoaderService(
+        DriverStorageService driverStorageService,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
         this.driverStorageService = driverStorageService;
+        this.meterRegistry = meterRegistry;
+        this.maxLoaded = Math.max(1, applicationProperties.getDrivers().getMaxLoaded());
+        Gauge.builder("driver.classloader.loaded", this, DynamicDriverLoaderService::loadedCount)
+            .description("Driver JARs loaded in their own classloader")
+            .register(meterRegistry);
     }
 
     /**
-     * Load driver class from JAR file.
+     * Acquire the runtime of a driver JAR, loading it if needed.
+     * <p>
+     * The lease must be closed when the classes of the driver are no longer used.
      *
      * @param driver the database driver entity
-     * @return the driver class
+     * @return a lease on the runtime of the driver JAR
      */
-    public Class<?> loadDriverClass(DriverJar driver) throws ClassNotFoundException, IOException {
-        String cacheKey = driver.getId() + "_" + driver.getDriverClassName();
-
-        // Check cache
-        if (loadedDriverClasses.containsKey(cacheKey)) {
-            log.debug("Using cached driver class: {}", driver.getDriverClassName());
-            return loadedDriverClasses.get(cacheKey);
+    public DriverLease acquire(DriverJar driver) throws IOException {
+        String filePath = driver.getFilePath();
+        synchronized (runtimes) {
+            DriverRuntime runtime = runtimes.get(filePath);
+            if (runtime != null) {
+                runtime.retain();
+                return new DriverLease(runtime);
+            }
         }
 
-        // Get file path
-        Path driverPath = driverStorageService.getDriverPath(driver.getFilePath());
-        File driverFile = driverPath.toFile();
-
-        if (!driverFile.exists()) {
-            throw new IOException("Driver file not found: " + driver.getFilePath());
+        // Indexing the JAR is file I/O: done outside of the lock, a concurrent load of the same JAR is discarded
+        DriverRuntime loaded = load(filePath);
+        DriverRuntime runtime;
+        List<DriverRuntime> evicted;
+        synchronized (runtimes) {
+            runtime = runtimes.get(filePath);
+            if (runtime == null) {
+                runtime = loaded;
+                runtimes.put(filePath, runtime);
+                runtime.registerMeters();
+                loaded = null;
+            }
+            runtime.retain();
+            evicted = evictLeastRecentlyUsed();
         }
-
-        // Create URL for the JAR file
-        URL jarUrl = driverFile.toURI().toURL();
-        log.debug("Loading driver from: {}", jarUrl);
-
-        // Create or get classloader for this driver
-        ClassLoader classLoader = driverClassLoaders.computeIfAbsent(driver.getFilePath(), path ->
-            new URLClassLoader(new URL[] { jarUrl }, Thread.currentThread().getContextClassLoader())
-        );
-
-        // Load the driver class
-        String driverClassName = driver.getDriverClassName();
-        if (driverClassName == null || driverClassName.isEmpty()) {
-            throw new IllegalArgumentException("Driver class name is required");
+        if (loaded != null) {
+            loaded.retire();
         }
-
-        Class<?> driverClass = classLoader.loadClass(driverClassName);
-        loadedDriverClasses.put(cacheKey, driverClass);
-
-        log.info("Successfully loaded driver class: {} from {}", driverClassName, driver.getFileName());
-        return driverClass;
+        evicted.forEach(DriverRuntime::retire);
+        return new DriverLease(runtime);
     }
 
     /**
-     * Load and register JDBC driver.
+     * Load and instantiate the JDBC driver of a driver entity.
+     * <p>
+     * The driver class is the one of the entity or, if not set, the first {@code java.sql.Driver} declared by the JAR.
      *
+     * @param lease the lease on the runtime of the driver JAR
      * @param driver the database driver entity
-     * @return the loaded driver instance
+     * @return the driver instance, usable as long as the lease is not closed
      */
-    public java.sql.Driver loadJdbcDriver(DriverJar driver) throws Exception {
-        Class<?> driverClass = loadDriverClass(driver);
+    public java.sql.Driver newJdbcDriver(DriverLease lease, DriverJar driver) throws ReflectiveOperationException {
+        String driverClassName = driver.getDriverClassName();
+        if (driverClassName == null || driverClassName.isEmpty()) {
+            List<String> declared = lease.runtime().getJdbcDrivers();
+            if (declared.isEmpty()) {
+                throw new IllegalArgumentException("Driver class name is required: " + driver.getFileName() + " declares no JDBC driver");
+            }
+            driverClassName = declared.get(0);
+        }
+
+        Class<?> driverClass = lease.runtime().loadClass(driverClassName);
 
         // Verify it's a JDBC Driver
         if (!java.sql.Driver.class.isAssignableFrom(driverClass)) {
-            throw new ClassCastException("Class " + driver.getDriverClassName() + " is not a JDBC Driver");
+            throw new ClassCastException("Class " + driverClassName + " is not a JDBC Driver");
         }
 
-        // Instantiate the driver
         java.sql.Driver driverInstance = (java.sql.Driver) driverClass.getDeclaredConstructor().newInstance();
-
-        log.info("Successfully loaded and instantiated JDBC driver: {}", driver.getDriverClassName());
+        log.debug("Instantiated JDBC driver: {} from {}", driverClassName, driver.getFileName());
         return driverInstance;
     }
 
     /**
-     * Clear cached classloader for a driver (useful when driver is updated).
+     * Evict the runtime of a driver JAR (useful when driver is updated or deleted).
+     * <p>
+     * Its classloader is closed once the leases in progress are released.
      *
      * @param filePath the driver file path
      */
     public void clearDriverCache(String filePath) {
-        driverClassLoaders.remove(filePath);
-        // Remove all entries for this driver
-        loadedDriverClasses.entrySet().removeIf(entry -> entry.getKey().startsWith(filePath));
-        log.debug("Cleared cache for driver: {}", filePath);
+        DriverRuntime runtime;
+        synchronized (runtimes) {
+            runtime = runtimes.remove(filePath);
+        }
+        if (runtime != null) {
+            runtime.retire();
+            log.debug("Cleared cache for driver: {}", filePath);
+        }
+    }
+
+    @EventListener
+    public void onDriverChanged(DriverChangedEvent event) {
+        clearDriverCache(event.filePath());
     }
 
     /**
-     * Clear all cached drivers.
+     * Evict all the driver runtimes.
      */
+    @PreDestroy
     public void clearAllCache() {
-        driverClassLoaders.clear();
-        loadedDriverClasses.clear();
+        List<DriverRuntime> evicted;
+        synchronized (runtimes) {
+            evicted = new ArrayList<>(runtimes.values());
+            runtimes.clear();
+        }
+        evicted.forEach(DriverRuntime::retire);
         log.info("Cleared all driver caches");
     }
+
+    private int loadedCount() {
+        synchronized (runtimes) {
+            return runtimes.size();
+        }
+    }
+
+    private List<DriverRuntime> evictLeastRecentlyUsed() {
+        List<DriverRuntime> evicted = new ArrayList<>();
+        Iterator<DriverRuntime> iterator = runtimes.values().iterator();
+        while (runtimes.size() > maxLoaded && iterator.hasNext()) {
+            DriverRuntime runtime = iterator.next();
+            iterator.remove();
+            evicted.add(runtime);
+            log.debug("Evicting driver runtime: {}", runtime.getFilePath());
+        }
+        return evicted;
+    }
+
+    private DriverRuntime load(String filePath) throws IOException {
+        Path driverPath = driverStorageService.getDriverPath(filePath);
+        if (!Files.isRegularFile(driverPath)) {
+            throw new IOException("Driver file not found: " + filePath);
+        }
+
+        JarFile jarFile = new JarFile(driverPath.toFile());
+        try {
+            List<String> jdbcDrivers = readServiceEntries(jarFile, JDBC_DRIVER_SERVICE);
+            List<String> connectionFactoryProviders = readServiceEntries(jarFile, R2DBC_PROVIDER_SERVICE);
+            DriverClassLoader classLoader = new DriverClassLoader(driverPath.toUri().toURL(), jarFile);
+            log.info(
+                "Loaded driver JAR: {} (JDBC drivers: {}, R2DBC providers: {})",
+                filePath,
+                jdbcDrivers,
+                connectionFactoryProviders
+            );
+            return new DriverRuntime(filePath, classLoader, jdbcDrivers, connectionFactoryProviders);
+        } catch (IOException | RuntimeException e) {
+            jarFile.close();
+            throw e;
+        }
+    }
+
+    static List<String> readServiceEntries(JarFile jarFile, String service) throws IOException {
+        JarEntry entry = jarFile.getJarEntry(service);
+        if (entry == null) {
+            return List.of();
+        }
+        List<String> providers = new ArrayList<>();
+        try (
+            InputStream in = jarFile.getInputStream(entry);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))
+        ) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                String provider = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (!provider.isEmpty() && !providers.contains(provider)) {
+                    providers.add(provider);
+                }
+            }
+        }
+        return List.copyOf(providers);
+    }
+
+    /**
+     * A lease on a driver runtime, keeping its classloader open until closed.
+     */
+    public static final class DriverLease implements AutoCloseable {
+
+        private final DriverRuntime runtime;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        DriverLease(DriverRuntime runtime) {
+            this.runtime = runtime;
+        }
+
+        public DriverRuntime runtime() {
+            return runtime;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                runtime.release();
+            }
+        }
+    }
+
+    /**
+     * A driver JAR loaded in its own classloader, with the services it declares.
+     */
+    public final class DriverRuntime {
+
+        private final String filePath;
+
+        private final DriverClassLoader classLoader;
+
+        private final List<String> jdbcDrivers;
+
+        private final List<String> connectionFactoryProviders;
+
+        private final List<Meter> meters = new ArrayList<>();
+
+        private int leases;
+
+        private boolean retired;
+
+        private boolean closed;
+
+        DriverRuntime(String filePath, DriverClassLoader classLoader, List<String> jdbcDrivers, List<String> connectionFactoryProviders) {
+            this.filePath = filePath;
+            this.classLoader = classLoader;
+            this.jdbcDrivers = jdbcDrivers;
+            this.connectionFactoryProviders = connectionFactoryProviders;
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        public ClassLoader getClassLoader() {
+            return classLoader;
+        }
+
+        /**
+         * @return the classes declared as {@code java.sql.Driver} services by the JAR.
+         */
+        public List<String> getJdbcDrivers() {
+            return jdbcDrivers;
+        }
+
+        /**
+         * @return the classes declared as R2DBC {@code ConnectionFactoryProvider} services by the JAR.
+         */
+        public List<String> getConnectionFactoryProviders() {
+            return connectionFactoryProviders;
+        }
+
+        public Class<?> loadClass(String name) throws ClassNotFoundException {
+            return classLoader.loadClass(name);
+        }
+
+        /**
+         * @return the number of classes defined from the JAR.
+         */
+        public long getLoadedClasses() {
+            return classLoader.definedClasses.sum();
+        }
+
+        /**
+         * Estimate the metaspace used by the classes defined from the JAR.
+         * <p>
+         * The JVM does not expose metaspace usage per classloader outside of diagnostic commands: the size of the class
+         * files defined is used instead, which tracks it closely enough to spot the heavy drivers.
+         *
+         * @return the estimated metaspace usage, in bytes.
+         */
+        public long getEstimatedMetaspace() {
+            return classLoader.definedBytes.sum();
+        }
+
+        void registerMeters() {
+            String jar = Path.of(filePath).getFileName().toString();
+            String generation = String.valueOf(generations.incrementAndGet());
+            meters.add(
+                Gauge.builder("driver.classloader.classes", this, DriverRuntime::getLoadedClasses)
+                    .description("Classes defined from a driver JAR")
+                    .tag("jar", jar)
+                    .tag("generation", generation)
+                    .register(meterRegistry)
+            );
+            meters.add(
+                Gauge.builder("driver.classloader.metaspace", this, DriverRuntime::getEstimatedMetaspace)
+                    .description("Estimated metaspace used by the classes of a driver JAR")
+                    .baseUnit("bytes")
+                    .tag("jar", jar)
+                    .tag("generation", generation)
+                    .register(meterRegistry)
+            );
+            meters.add(
+                Gauge.builder("driver.classloader.leases", this, DriverRuntime::getLeases)
+                    .description("Leases in progress on a driver JAR")
+                    .tag("jar", jar)
+                    .tag("generation", generation)
+                    .register(meterRegistry)
+            );
+        }
+
+        synchronized int getLeases() {
+            return leases;
+        }
+
+        synchronized boolean isClosed() {
+            return closed;
+        }
+
+        synchronized void retain() {
+            leases++;
+        }
+
+        synchronized void release() {
+            leases--;
+            if (leases == 0 && retired) {
+                close();
+            }
+        }
+
+        synchronized void retire() {
+            retired = true;
+            if (leases == 0) {
+                close();
+            }
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            meters.forEach(meterRegistry::remove);
+            try {
+                classLoader.close();
+            } catch (IOException e) {
+                log.warn("Failed to close classloader of driver: {}", filePath, e);
+            }
+            log.info("Closed driver runtime: {} ({} classes, {} bytes)", filePath, getLoadedClasses(), getEstimatedMetaspace());
+        }
+    }
+
+    /**
+     * Classloader of a driver JAR, accounting for the classes it defines.
+     */
+    static final class DriverClassLoader extends URLClassLoader {
+
+        static {
+            ClassLoader.registerAsParallelCapable();
+        }
+
+        private final JarFile jarFile;
+
+        private final LongAdder definedClasses = new LongAdder();
+
+        private final LongAdder definedBytes = new LongAdder();
+
+        DriverClassLoader(URL jarUrl, JarFile jarFile) {
+            super(new URL[] { jarUrl }, Thread.currentThread().getContextClassLoader());
+            this.jarFile = jarFile;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            // Only called for the classes defined here, the parent ones are found by delegation
+            Class<?> type = super.findClass(name);
+            definedClasses.increment();
+            JarEntry entry = jarFile.getJarEntry(name.replace('.', '/') + ".class");
+            if (entry != null && entry.getSize() > 0) {
+                definedBytes.add(entry.getSize());
+            }
+            return type;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                jarFile.close();
+            }
+        }
+    }
 }
@@ -0,0 +1,353 @@
+package com.atparui.rms.service;
+
+import com.atparui.rms.config.ApplicationProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * JDK Flight Recorder recordings of the gateway, served by {@code /management/profiling}.
+ * <p>
+ * A continuous recording with the default settings, which are meant for production, keeps the last
+ * {@code application.profiling.max-age} of events so they can be dumped after a problem. Targeted recordings enable
+ * lower thresholds for one {@link Kind} of events, one recording per kind at a time. Recordings are summarized into
+ * their top allocation sites and blocking stacks, telling apart the event loop threads and the tenant provisioning
+ * code.
+ */
+@Service
+public class FlightRecorderService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FlightRecorderService.class);
+
+    private static final String CONTINUOUS_RECORDING = "gateway-continuous";
+
+    private static final int STACK_DEPTH = 8;
+
+    private static final Duration THRESHOLD = Duration.ofMillis(10);
+
+    private static final Set<String> EVENT_LOOP_PREFIXES = Set.of("reactor-http-nio", "reactor-http-epoll");
+
+    // Events in these classes are tagged as provisioning, whatever their thread
+    private static final Set<String> PROVISIONING_CLASSES = Set.of(
+        TenantService.class.getName(),
+        DatabaseProvisioningService.class.getName(),
+        TenantLiquibaseService.class.getName(),
+        KeycloakRealmService.class.getName(),
+        DatabaseDataInitializationService.class.getName()
+    );
+
+    /**
+     * Targeted recordings.
+     */
+    public enum Kind {
+        // Sampled allocations
+        ALLOCATION,
+        // Monitor enters and waits, and thread parks
+        LOCKS,
+        // Blocking socket reads and writes
+        SOCKET_IO,
+    }
+
+    private final ApplicationProperties.Profiling properties;
+
+    private final Map<Kind, Recording> recordings = new ConcurrentHashMap<>();
+
+    private volatile Recording continuous;
+
+    public FlightRecorderService(ApplicationProperties applicationProperties) {
+        this.properties = applicationProperties.getProfiling();
+    }
+
+    @PostConstruct
+    public void startContinuousRecording() {
+        if (!properties.isContinuous() || !FlightRecorder.isAvailable()) {
+            return;
+        }
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName(CONTINUOUS_RECORDING);
+            recording.setToDisk(true);
+            recording.setMaxAge(properties.getMaxAge());
+            recording.setMaxSize(properties.getMaxSize().toBytes());
+            recording.start();
+            continuous = recording;
+            LOG.info("Started continuous flight recording, keeping the last {}", properties.getMaxAge());
+        } catch (IOException | ParseException | RuntimeException e) {
+            LOG.warn("Failed to start continuous flight recording: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void closeRecordings() {
+        recordings.values().forEach(Recording::close);
+        recordings.clear();
+        if (continuous != null) {
+            continuous.close();
+        }
+    }
+
+    /**
+     * Write the events of the last {@code last} to a temporary file, which the caller deletes.
+     *
+     * @param last the time before now to dump.
+     * @return the file, in JFR format.
+     */
+    public Mono<Path> dumpLast(Duration last) {
+        return Mono.fromCallable(() -> {
+            Instant since = Instant.now().minus(last);
+            Path snapshotFile = Files.createTempFile("gateway-snapshot-", ".jfr");
+            try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+                snapshot.dump(snapshotFile);
+                Path file = Files.createTempFile("gateway-", ".jfr");
+                try (RecordingFile recordingFile = new RecordingFile(snapshotFile)) {
+                    recordingFile.write(file, event -> !event.getEndTime().isBefore(since));
+                }
+                return file;
+            } finally {
+                Files.deleteIfExists(snapshotFile);
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Start a targeted recording, stopping by itself after {@code duration}.
+     *
+     * @param kind the kind of events to record.
+     * @param duration the duration of the recording, at most {@code application.profiling.max-duration}.
+     * @return the recording.
+     * @throws IllegalStateException if a recording of that kind is running.
+     */
+    public synchronized RecordingInfo start(Kind kind, Duration duration) {
+        Recording previous = recordings.get(kind);
+        if (previous != null && previous.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("A " + kind + " recording is already running");
+        }
+        Recording recording = new Recording();
+        recording.setName("gateway-" + kind.name().toLowerCase(Locale.ROOT));
+        recording.setToDisk(true);
+        recording.setDuration(duration.compareTo(properties.getMaxDuration()) > 0 ? properties.getMaxDuration() : duration);
+        switch (kind) {
+            case ALLOCATION -> recording.enable("jdk.ObjectAllocationSample").with("throttle", "300/s").withStackTrace();
+            case LOCKS -> {
+                recording.enable("jdk.JavaMonitorEnter").withThreshold(THRESHOLD).withStackTrace();
+                recording.enable("jdk.JavaMonitorWait").withThreshold(THRESHOLD).withStackTrace();
+                recording.enable("jdk.ThreadPark").withThreshold(THRESHOLD).withStackTrace();
+            }
+            case SOCKET_IO -> {
+                recording.enable("jdk.SocketRead").withThreshold(THRESHOLD).withStackTrace();
+                recording.enable("jdk.SocketWrite").withThreshold(THRESHOLD).withStackTrace();
+            }
+        }
+        recording.start();
+        recordings.put(kind, recording);
+        if (previous != null) {
+            previous.close();
+        }
+        LOG.info("Started {} flight recording for {}", kind, recording.getDuration());
+        return RecordingInfo.of(kind, recording);
+    }
+
+    /**
+     * @return the targeted recordings, running or stopped.
+     */
+    public List<RecordingInfo> recordings() {
+        return recordings.entrySet().stream().map(entry -> RecordingInfo.of(entry.getKey(), entry.getValue())).toList();
+    }
+
+    public Optional<RecordingInfo> recording(Kind kind) {
+        return Optional.ofNullable(recordings.get(kind)).map(recording -> RecordingInfo.of(kind, recording));
+    }
+
+    /**
+     * Write a targeted recording to a temporary file, which the caller deletes. A running recording keeps running.
+     *
+     * @param kind the kind of the recording.
+     * @return the file, in JFR format, or empty if there is no recording of that kind.
+     */
+    public Mono<Path> dump(Kind kind) {
+        return Mono.justOrEmpty(recordings.get(kind))
+            .publishOn(Schedulers.boundedElastic())
+            .map(recording -> {
+                try {
+                    Path file = Files.createTempFile("gateway-" + kind.name().toLowerCase(Locale.ROOT) + "-", ".jfr");
+                    if (recording.getState() == RecordingState.RUNNING) {
+                        try (Recording copy = recording.copy(false)) {
+                            copy.dump(file);
+                        }
+                    } else {
+                        recording.dump(file);
+                    }
+                    return file;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+    }
+
+    /**
+     * Close a targeted recording, stopping it if it is running.
+     *
+     * @param kind the kind of the recording.
+     * @return whether there was a recording of that kind.
+     */
+    public synchronized boolean close(Kind kind) {
+        Recording recording = recordings.remove(kind);
+        if (recording != null) {
+            recording.close();
+        }
+        return recording != null;
+    }
+
+    /**
+     * Summarize a recording into its top allocation sites, by sampled allocated size, and its top blocking
+     * stacks, by total blocked time.
+     *
+     * @param file the recording file.
+     * @return the summary.
+     */
+    public Mono<Summary> summarize(Path file) {
+        return Mono.fromCallable(() -> summary(file, properties.getTopSites())).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    static Summary summary(Path file, int topSites) throws IOException {
+        Map<SiteKey, long[]> allocations = new HashMap<>();
+        Map<SiteKey, long[]> blocking = new HashMap<>();
+        Instant start = null;
+        Instant end = null;
+        long events = 0;
+        try (RecordingFile recordingFile = new RecordingFile(file)) {
+            while (recordingFile.hasMoreEvents()) {
+                RecordedEvent event = recordingFile.readEvent();
+                String eventName = event.getEventType().getName();
+                boolean allocation = "jdk.ObjectAllocationSample".equals(eventName);
+                String detail = allocation ? className(event, "objectClass") : blockingDetail(event, eventName);
+                if (detail == null) {
+                    continue;
+                }
+                events++;
+                start = start == null || event.getStartTime().isBefore(start) ? event.getStartTime() : start;
+                end = end == null || event.getEndTime().isAfter(end) ? event.getEndTime() : end;
+                SiteKey key = SiteKey.of(event, detail);
+                long[] totals = (allocation ? allocations : blocking).computeIfAbsent(key, k -> new long[2]);
+                totals[0]++;
+                totals[1] += allocation ? event.getLong("weight") : event.getDuration().toNanos();
+            }
+        }
+        return new Summary(start, end, events, top(allocations, topSites), top(blocking, topSites));
+    }
+
+    private static String blockingDetail(RecordedEvent event, String eventName) {
+        return switch (eventName) {
+            case "jdk.JavaMonitorEnter", "jdk.JavaMonitorWait" -> className(event, "monitorClass");
+            case "jdk.ThreadPark" -> Optional.ofNullable(className(event, "parkedClass")).orElse("park");
+            case "jdk.SocketRead", "jdk.SocketWrite" -> event.getString("host") + ':' + event.getInt("port");
+            default -> null;
+        };
+    }
+
+    private static String className(RecordedEvent event, String field) {
+        if (!event.hasField(field)) {
+            return null;
+        }
+        RecordedClass recordedClass = event.getClass(field);
+        return recordedClass != null ? recordedClass.getName() : "unknown";
+    }
+
+    private static List<Site> top(Map<SiteKey, long[]> sites, int topSites) {
+        return sites
+            .entrySet()
+            .stream()
+            .sorted(Comparator.comparingLong((Map.Entry<SiteKey, long[]> site) -> site.getValue()[1]).reversed())
+            .limit(topSites)
+            .map(site -> site.getKey().toSite(site.getValue()[0], site.getValue()[1]))
+            .toList();
+    }
+
+    private record SiteKey(String event, String detail, String threads, boolean provisioning, List<String> stackTrace) {
+        static SiteKey of(RecordedEvent event, String detail) {
+            RecordedThread thread = event.getThread();
+            String threadName = thread != null && thread.getJavaName() != null ? thread.getJavaName() : "";
+            String threads = EVENT_LOOP_PREFIXES.stream().anyMatch(threadName::startsWith) ? "event-loop" : "other";
+            RecordedStackTrace stackTrace = event.getStackTrace();
+            List<RecordedFrame> frames = stackTrace != null ? stackTrace.getFrames() : List.of();
+            boolean provisioning = frames.stream().anyMatch(frame -> PROVISIONING_CLASSES.contains(frame.getMethod().getType().getName()));
+            List<String> stack = frames
+                .stream()
+                .limit(STACK_DEPTH)
+                .map(frame -> frame.getMethod().getType().getName() + '.' + frame.getMethod().getName() + ':' + frame.getLineNumber())
+                .toList();
+            return new SiteKey(event.getEventType().getName(), detail, threads, provisioning, stack);
+        }
+
+        Site toSite(long count, long total) {
+            return new Site(event, detail, threads, provisioning, stackTrace, count, total);
+        }
+    }
+
+    public record RecordingInfo(long id, Kind kind, String name, String state, Instant startTime, Duration duration, long size) {
+        static RecordingInfo of(Kind kind, Recording recording) {
+            return new RecordingInfo(
+                recording.getId(),
+                kind,
+                recording.getName(),
+                recording.getState().name(),
+                recording.getStartTime(),
+                recording.getDuration(),
+                recording.getSize()
+            );
+        }
+    }
+
+    /**
+     * @param allocationSites the top allocation sites, by sampled allocated bytes.
+     * @param blockingStacks the top blocking stacks, by blocked nanoseconds.
+     */
+    public record Summary(Instant start, Instant end, long events, List<Site> allocationSites, List<Site> blockingStacks) {}
+
+    /**
+     * An allocation site or blocking stack.
+     *
+     * @param detail the allocated class, monitor class, parked class or remote address.
+     * @param threads {@code event-loop} for the event loop threads, {@code other} otherwise.
+     * @param provisioning whether the stack goes through the tenant provisioning code.
+     * @param total the sampled allocated bytes, or the blocked nanoseconds.
+     */
+    public record Site(
+        String event,
+        String detail,
+        String threads,
+        boolean provisioning,
+        List<String> stackTrace,
+        long count,
+        long total
+    ) {}
+}
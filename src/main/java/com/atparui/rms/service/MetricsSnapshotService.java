@@ -0,0 +1,356 @@
+package com.atparui.rms.service;
+
+import com.atparui.rms.config.ApplicationProperties;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Statistic;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Maintains the snapshot served by {@code GET /management/jhimetrics}.
+ * <p>
+ * The meters used by the dashboard are indexed by name as they are added to or removed from the registry, so a
+ * refresh only reads those meters instead of scanning the whole registry once per section. The snapshot is
+ * recomputed on a fixed interval while someone is looking at it, and every refresh publishes the changed values
+ * for streaming clients.
+ */
+@Service
+public class MetricsSnapshotService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetricsSnapshotService.class);
+
+    private static final Set<String> INDEXED_METERS = Set.of(
+        "jvm.memory.used",
+        "jvm.memory.committed",
+        "jvm.memory.init",
+        "jvm.memory.max",
+        "process.uptime",
+        "process.cpu.usage",
+        "process.files.open",
+        "process.files.max",
+        "jvm.gc.pause",
+        "http.server.requests",
+        "cache",
+        "jdbc.connections"
+    );
+
+    private final Map<String, Set<Meter>> index = new ConcurrentHashMap<>();
+
+    private final ApplicationProperties.Metrics.Snapshot properties;
+
+    // Every refresh is published, the latest one is replayed to new subscribers
+    private final Sinks.Many<Version> versions = Sinks.many().replay().latest();
+
+    private volatile Version current = new Version(0, emptySnapshot(), Map.of(), 0);
+
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    public MetricsSnapshotService(MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
+        this.properties = applicationProperties.getMetrics().getSnapshot();
+        meterRegistry.config().onMeterAdded(this::add).onMeterRemoved(this::remove);
+        meterRegistry.getMeters().forEach(this::add);
+    }
+
+    /**
+     * Get the current metrics snapshot, recomputing it first if it has not been refreshed recently.
+     *
+     * @return the metrics, in the format expected by the metrics dashboard.
+     */
+    public Map<String, Object> getSnapshot() {
+        lastAccessNanos = System.nanoTime();
+        Version version = current;
+        if (version.number() == 0 || System.nanoTime() - version.createdNanos() > properties.getRefreshInterval().toNanos() * 2) {
+            // Refreshes are paused while nobody is looking, catch up
+            refresh();
+        }
+        return current.snapshot();
+    }
+
+    /**
+     * Stream the metrics: the full snapshot first, then only the values that changed at every refresh.
+     * <p>
+     * A delta is a partial snapshot to deep-merge into the previous one, removed entries are {@code null}.
+     * A full snapshot is sent again whenever the subscriber missed a refresh.
+     *
+     * @return the stream of snapshots and deltas.
+     */
+    public Flux<Update> stream() {
+        return Flux.defer(() -> {
+            long[] lastVersion = { -1 };
+            return versions
+                .asFlux()
+                .startWith(current)
+                .onBackpressureLatest()
+                .filter(version -> version.number() > lastVersion[0])
+                .map(version -> {
+                    boolean full = version.number() != lastVersion[0] + 1;
+                    lastVersion[0] = version.number();
+                    return full ? new Update(version.number(), true, version.snapshot()) : new Update(version.number(), false, version.delta());
+                })
+                .filter(update -> update.full() || !update.values().isEmpty());
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${application.metrics.snapshot.refresh-interval:PT5S}")
+    public void scheduledRefresh() {
+        boolean idle = System.nanoTime() - lastAccessNanos > properties.getIdleTimeout().toNanos();
+        if (idle && versions.currentSubscriberCount() == 0) {
+            return;
+        }
+        refresh();
+    }
+
+    synchronized void refresh() {
+        Map<String, Object> snapshot;
+        try {
+            snapshot = computeSnapshot();
+        } catch (Exception e) {
+            // Keep serving the previous snapshot
+            LOG.error("Error getting metrics", e);
+            return;
+        }
+        Version previous = current;
+        current = new Version(previous.number() + 1, snapshot, diff(previous.snapshot(), snapshot), System.nanoTime());
+        versions.tryEmitNext(current);
+    }
+
+    private void add(Meter meter) {
+        String name = meter.getId().getName();
+        if (INDEXED_METERS.contains(name)) {
+            index.computeIfAbsent(name, k -> ConcurrentHashMap.newKeySet()).add(meter);
+        }
+    }
+
+    private void remove(Meter meter) {
+        Set<Meter> meters = index.get(meter.getId().getName());
+        if (meters != null) {
+            meters.remove(meter);
+        }
+    }
+
+    private Collection<Meter> meters(String name) {
+        return index.getOrDefault(name, Collections.emptySet());
+    }
+
+    private Map<String, Object> computeSnapshot() {
+        Map<String, Object> metrics = new HashMap<>();
+
+        // JVM Metrics
+        Map<String, Object> jvm = new HashMap<>();
+        jvm.put("memory", getJvmMemoryMetrics());
+        metrics.put("jvm", jvm);
+
+        // Process Metrics
+        metrics.put("processMetrics", getProcessMetrics());
+
+        // Garbage Collector Metrics
+        metrics.put("garbageCollector", getGarbageCollectorMetrics());
+
+        // HTTP Server Requests and Services/Endpoints Metrics, from a single pass over the meters
+        Map<String, Object> services = new HashMap<>();
+        metrics.put("http.server.requests", getHttpServerRequestsMetrics(services));
+        metrics.put("services", services);
+
+        // Cache Metrics
+        metrics.put("cache", getGroupedMetrics("cache", "name", "result"));
+
+        // Database Metrics
+        metrics.put("databases", getGroupedMetrics("jdbc.connections", "pool", "state"));
+
+        return metrics;
+    }
+
+    private Map<String, Object> getJvmMemoryMetrics() {
+        Map<String, Object> memory = new HashMap<>();
+        memory.put("heap", getMemoryArea("heap"));
+        memory.put("nonheap", getMemoryArea("nonheap"));
+        return memory;
+    }
+
+    private Map<String, Object> getMemoryArea(String area) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("committed", getMetricValue("jvm.memory.committed", "area", area));
+        values.put("init", getMetricValue("jvm.memory.init", "area", area));
+        values.put("max", getMetricValue("jvm.memory.max", "area", area));
+        values.put("used", getMetricValue("jvm.memory.used", "area", area));
+        return values;
+    }
+
+    private Map<String, Object> getProcessMetrics() {
+        Map<String, Object> process = new HashMap<>();
+        process.put("uptime", getMetricValue("process.uptime", null, null));
+        process.put("cpuUsage", getMetricValue("process.cpu.usage", null, null));
+        process.put("openFileDescriptors", getMetricValue("process.files.open", null, null));
+        process.put("maxFileDescriptors", getMetricValue("process.files.max", null, null));
+        return process;
+    }
+
+    private Map<String, Object> getGarbageCollectorMetrics() {
+        Map<String, Object> gc = new HashMap<>();
+        for (Meter meter : meters("jvm.gc.pause")) {
+            String action = meter.getId().getTag("action");
+            if (action != null && !gc.containsKey(action)) {
+                Map<String, Object> gcStats = new HashMap<>();
+                gcStats.put("count", getStatistic(meter, Statistic.COUNT));
+                gcStats.put("totalTime", getStatistic(meter, Statistic.TOTAL_TIME));
+                gc.put(action, gcStats);
+            }
+        }
+        return gc;
+    }
+
+    private Map<String, Object> getHttpServerRequestsMetrics(Map<String, Object> services) {
+        // Group by status code and aggregate values
+        Map<String, Map<String, Double>> statusMap = new HashMap<>();
+        Map<String, Map<String, Object>> endpoints = new HashMap<>();
+
+        for (Meter meter : meters("http.server.requests")) {
+            String uri = meter.getId().getTag("uri");
+            if (uri != null && !uri.equals("UNKNOWN") && !endpoints.containsKey(uri)) {
+                endpoints.computeIfAbsent(uri, k -> new HashMap<>()).put("count", getStatistic(meter, Statistic.COUNT));
+            }
+
+            String status = meter.getId().getTag("status");
+            if (status == null || status.isEmpty()) {
+                continue;
+            }
+            Map<String, Double> statusMetrics = statusMap.computeIfAbsent(status, k -> new HashMap<>());
+            for (Measurement measurement : meter.measure()) {
+                double value = measurement.getValue();
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    continue;
+                }
+                if (measurement.getStatistic() == Statistic.COUNT) {
+                    statusMetrics.merge("count", value, Double::sum);
+                } else if (measurement.getStatistic() == Statistic.TOTAL_TIME) {
+                    statusMetrics.merge("totalTime", value, Double::sum);
+                } else if (measurement.getStatistic() == Statistic.MAX) {
+                    // For MAX, we want the maximum value, not sum
+                    statusMetrics.merge("max", value, Math::max);
+                }
+            }
+        }
+        services.put("endpoints", endpoints);
+
+        // Convert to expected format - ensure all required properties exist
+        Map<String, Object> httpMetrics = new HashMap<>();
+        for (Map.Entry<String, Map<String, Double>> entry : statusMap.entrySet()) {
+            Map<String, Object> statusMetrics = new HashMap<>();
+            Map<String, Double> values = entry.getValue();
+            statusMetrics.put("count", values.getOrDefault("count", 0.0));
+            statusMetrics.put("totalTime", values.getOrDefault("totalTime", 0.0));
+            if (values.containsKey("max")) {
+                statusMetrics.put("max", values.get("max"));
+            }
+            httpMetrics.put(entry.getKey(), statusMetrics);
+        }
+        return httpMetrics;
+    }
+
+    private Map<String, Object> getGroupedMetrics(String name, String groupTag, String valueTag) {
+        Map<String, Object> groups = new HashMap<>();
+        for (Meter meter : meters(name)) {
+            String group = meter.getId().getTag(groupTag);
+            String key = meter.getId().getTag(valueTag);
+            if (group != null && key != null) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> values = (Map<String, Object>) groups.computeIfAbsent(group, k -> new HashMap<>());
+                values.put(key, getFirstValue(meter));
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Get the first non-zero value of the meters with a name and, optionally, a tag.
+     */
+    private Double getMetricValue(String name, String tagKey, String tagValue) {
+        for (Meter meter : meters(name)) {
+            if (tagKey == null || tagValue.equals(meter.getId().getTag(tagKey))) {
+                double value = getFirstValue(meter);
+                if (value != 0.0) {
+                    return value;
+                }
+            }
+        }
+        return 0.0;
+    }
+
+    private static double getFirstValue(Meter meter) {
+        for (Measurement measurement : meter.measure()) {
+            return measurement.getValue();
+        }
+        return 0.0;
+    }
+
+    private static double getStatistic(Meter meter, Statistic statistic) {
+        for (Measurement measurement : meter.measure()) {
+            if (measurement.getStatistic() == statistic) {
+                return measurement.getValue();
+            }
+        }
+        return 0.0;
+    }
+
+    /**
+     * Compute the entries of {@code next} that differ from {@code previous}, recursively.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> diff(Map<String, Object> previous, Map<String, Object> next) {
+        Map<String, Object> delta = new HashMap<>();
+        for (Map.Entry<String, Object> entry : next.entrySet()) {
+            Object before = previous.get(entry.getKey());
+            Object after = entry.getValue();
+            if (before instanceof Map && after instanceof Map) {
+                Map<String, Object> nested = diff((Map<String, Object>) before, (Map<String, Object>) after);
+                if (!nested.isEmpty()) {
+                    delta.put(entry.getKey(), nested);
+                }
+            } else if (!Objects.equals(before, after)) {
+                delta.put(entry.getKey(), after);
+            }
+        }
+        Set<String> removed = new LinkedHashSet<>(previous.keySet());
+        removed.removeAll(next.keySet());
+        removed.forEach(key -> delta.put(key, null));
+        return delta;
+    }
+
+    private static Map<String, Object> emptySnapshot() {
+        // Empty metrics structure, to prevent frontend errors before the first refresh
+        Map<String, Object> emptyMetrics = new HashMap<>();
+        emptyMetrics.put("jvm", new HashMap<>());
+        emptyMetrics.put("processMetrics", new HashMap<>());
+        emptyMetrics.put("garbageCollector", new HashMap<>());
+        emptyMetrics.put("http.server.requests", new HashMap<>());
+        emptyMetrics.put("services", new HashMap<>());
+        emptyMetrics.put("cache", new HashMap<>());
+        emptyMetrics.put("databases", new HashMap<>());
+        return emptyMetrics;
+    }
+
+    private record Version(long number, Map<String, Object> snapshot, Map<String, Object> delta, long createdNanos) {}
+
+    /**
+     * An element of the metrics stream.
+     *
+     * @param version the number of the refresh that produced it.
+     * @param full whether {@code values} is a full snapshot or a delta.
+     * @param values the metrics.
+     */
+    public record Update(long version, boolean full, Map<String, Object> values) {}
+}
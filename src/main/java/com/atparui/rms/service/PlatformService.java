@@ -2,6 +2,7 @@ package com.atparui.rms.service;
 
 import com.atparui.rms.domain.Platform;
 import com.atparui.rms.repository.PlatformRepository;
+import com.atparui.rms.service.dto.PlatformDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -27,6 +28,16 @@ public class PlatformService {
         return platformRepository.findAllActive();
     }
 
+    /**
+     * @param afterId the ID after which to start, or {@code null} to start with the first platform
+     * @param active the active status of the platforms, or {@code null} for all platforms
+     * @param limit the maximum number of platforms, or {@code 0} for all platforms
+     * @return the platforms ordered by ID, without their database credentials
+     */
+    public Flux<PlatformDTO> findSummaries(Long afterId, Boolean active, int limit) {
+        return platformRepository.findSummaries(afterId, active, limit).map(PlatformDTO::new);
+    }
+
     public Mono<Platform> findById(Long id) {
         return platformRepository.findById(id);
     }
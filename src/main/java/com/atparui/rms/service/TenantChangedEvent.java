@@ -0,0 +1,13 @@
+package com.atparui.rms.service;
+
+/**
+ * Published when a tenant is created, updated or deleted, for the caches derived from tenants to forget it.
+ *
+ * @param tenantId the tenant ID.
+ * @param remote whether the tenant was changed by another gateway node.
+ */
+public record TenantChangedEvent(String tenantId, boolean remote) {
+    public TenantChangedEvent(String tenantId) {
+        this(tenantId, false);
+    }
+}
@@ -0,0 +1,326 @@
+package com.atparui.rms.service;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.config.TenantMeterTags;
+import com.atparui.rms.domain.DatabaseVendor;
+import com.atparui.rms.domain.DriverJar;
+import com.atparui.rms.domain.Tenant;
+import com.atparui.rms.repository.DatabaseVendorRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.ConnectionFactoryProvider;
+import io.r2dbc.spi.Option;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Pooled R2DBC connection factories of the tenant databases.
+ * <p>
+ * Factories are discovered through the R2DBC {@link ConnectionFactoryProvider}s: the ones of the classpath or, when
+ * the tenant uses an uploaded R2DBC driver, the ones declared by its JAR, which stays loaded as long as the pool is.
+ * <p>
+ * The pools are measured by {@code tenant.r2dbc.pool.*} gauges per {@value TenantMeterTags#TAG} tag value, summing
+ * the pools of the tenants that share it, rather than by one set of gauges per pool.
+ */
+@Service
+public class TenantConnectionFactoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(TenantConnectionFactoryService.class);
+
+    static final Option<String> SCHEMA = Option.valueOf("schema");
+
+    private final DatabaseVendorRepository databaseVendorRepository;
+    private final DatabaseDriverService databaseDriverService;
+    private final DynamicDriverLoaderService dynamicDriverLoaderService;
+    private final ApplicationProperties.TenantDatabase.Pool poolProperties;
+    private final TenantMeterTags tenantMeterTags;
+    private final MeterRegistry meterRegistry;
+
+    // Registered once per tenant tag value
+    private final Map<String, Boolean> poolGauges;
+
+    // Both keyed by tenant ID, evicted when the tenant is updated
+    private final Map<String, ConnectionFactoryOptions> optionsCache = new ConcurrentHashMap<>();
+    private final Map<String, TenantConnectionFactory> connectionFactories = new ConcurrentHashMap<>();
+
+    public TenantConnectionFactoryService(
+        DatabaseVendorRepository databaseVendorRepository,
+        DatabaseDriverService databaseDriverService,
+        DynamicDriverLoaderService dynamicDriverLoaderService,
+        TenantMeterTags tenantMeterTags,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        this.databaseVendorRepository = databaseVendorRepository;
+        this.databaseDriverService = databaseDriverService;
+        this.dynamicDriverLoaderService = dynamicDriverLoaderService;
+        this.tenantMeterTags = tenantMeterTags;
+        this.meterRegistry = meterRegistry;
+        this.poolProperties = applicationProperties.getTenantDatabase().getPool();
+        this.poolGauges = tenantMeterTags.meterCache();
+    }
+
+    /**
+     * Get the pooled connection factory of a tenant, if already created.
+     *
+     * @param tenantId the tenant ID
+     * @return the connection factory, or {@code null}
+     */
+    public ConnectionFactory getCachedConnectionFactory(String tenantId) {
+        TenantConnectionFactory connectionFactory = connectionFactories.get(tenantId);
+        if (connectionFactory == null) {
+            return null;
+        }
+        // The tag value of a tenant changes with its activity: the gauges of the current one must exist
+        poolGauges.computeIfAbsent(tenantMeterTags.tag(tenantId), this::registerPoolGauges);
+        return connectionFactory.pool();
+    }
+
+    /**
+     * Get the pooled connection factory of a tenant, creating it if needed.
+     *
+     * @param tenant the tenant
+     * @return the connection factory
+     */
+    public Mono<ConnectionFactory> getConnectionFactory(Tenant tenant) {
+        ConnectionFactory cached = getCachedConnectionFactory(tenant.getTenantId());
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return Mono.zip(findVendor(tenant), findR2dbcDriver(tenant))
+            // Loading a driver JAR is file I/O
+            .publishOn(Schedulers.boundedElastic())
+            .map(resolved -> {
+                TenantConnectionFactory created = create(tenant, resolved.getT1().orElse(null), resolved.getT2().orElse(null));
+                TenantConnectionFactory existing = connectionFactories.putIfAbsent(tenant.getTenantId(), created);
+                if (existing != null) {
+                    created.dispose();
+                    return existing.pool();
+                }
+                poolGauges.computeIfAbsent(tenantMeterTags.tag(tenant.getTenantId()), this::registerPoolGauges);
+                return created.pool();
+            });
+    }
+
+    /**
+     * Get the connection options of a tenant.
+     * <p>
+     * The URL is rendered from the R2DBC URL template of the tenant's vendor when the tenant has connection details,
+     * or else derived from the tenant's database URL. It is parsed once per tenant.
+     *
+     * @param tenant the tenant
+     * @param vendor the database vendor of the tenant, if any
+     * @return the connection options
+     */
+    public ConnectionFactoryOptions getOptions(Tenant tenant, DatabaseVendor vendor) {
+        return optionsCache.computeIfAbsent(tenant.getTenantId(), key -> buildOptions(tenant, vendor));
+    }
+
+    /**
+     * Dispose the connection factory of a tenant.
+     *
+     * @param tenantId the tenant ID
+     */
+    public void evict(String tenantId) {
+        optionsCache.remove(tenantId);
+        TenantConnectionFactory connectionFactory = connectionFactories.remove(tenantId);
+        if (connectionFactory != null) {
+            connectionFactory.dispose();
+            log.debug("Disposed connection factory of tenant: {}", tenantId);
+        }
+    }
+
+    @EventListener
+    public void onTenantChanged(TenantChangedEvent event) {
+        evict(event.tenantId());
+    }
+
+    @PreDestroy
+    public void evictAll() {
+        new ArrayList<>(connectionFactories.keySet()).forEach(this::evict);
+    }
+
+    private Boolean registerPoolGauges(String tag) {
+        poolGauge("tenant.r2dbc.pool.acquired", "Connections acquired from the tenant pools", tag, PoolMetrics::acquiredSize);
+        poolGauge("tenant.r2dbc.pool.allocated", "Connections allocated by the tenant pools", tag, PoolMetrics::allocatedSize);
+        poolGauge("tenant.r2dbc.pool.idle", "Idle connections of the tenant pools", tag, PoolMetrics::idleSize);
+        poolGauge("tenant.r2dbc.pool.pending", "Acquisitions waiting for a tenant pool connection", tag, PoolMetrics::pendingAcquireSize);
+        return Boolean.TRUE;
+    }
+
+    private void poolGauge(String name, String description, String tag, ToIntFunction<PoolMetrics> metric) {
+        Gauge.builder(name, this, service -> service.sumPoolMetric(tag, metric))
+            .description(description)
+            .tag(TenantMeterTags.TAG, tag)
+            .register(meterRegistry);
+    }
+
+    private double sumPoolMetric(String tag, ToIntFunction<PoolMetrics> metric) {
+        int sum = 0;
+        for (Map.Entry<String, TenantConnectionFactory> entry : connectionFactories.entrySet()) {
+            if (tag.equals(tenantMeterTags.tag(entry.getKey()))) {
+                sum += entry.getValue().pool().getMetrics().map(metric::applyAsInt).orElse(0);
+            }
+        }
+        return sum;
+    }
+
+    private Mono<Optional<DatabaseVendor>> findVendor(Tenant tenant) {
+        if (tenant.getDatabaseVendorCode() == null) {
+            return Mono.just(Optional.empty());
+        }
+        return databaseVendorRepository.findByVendorCodeAndActiveTrue(tenant.getDatabaseVendorCode()).map(Optional::of).defaultIfEmpty(Optional.empty());
+    }
+
+    private Mono<Optional<DriverJar>> findR2dbcDriver(Tenant tenant) {
+        if (tenant.getDriverJarId() == null) {
+            return Mono.just(Optional.empty());
+        }
+        return databaseDriverService
+            .findById(tenant.getDriverJarId())
+            .filter(driver -> "R2DBC".equalsIgnoreCase(driver.getDriverType()) && !Boolean.FALSE.equals(driver.getActive()))
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty());
+    }
+
+    private TenantConnectionFactory create(Tenant tenant, DatabaseVendor vendor, DriverJar driver) {
+        ConnectionFactoryOptions options = getOptions(tenant, vendor);
+        DynamicDriverLoaderService.DriverLease lease = null;
+        try {
+            ConnectionFactory connectionFactory;
+            if (driver != null) {
+                lease = dynamicDriverLoaderService.acquire(driver);
+                connectionFactory = createFromDriver(lease.runtime(), options);
+                log.info("Created connection factory of tenant: {} using driver: {}", tenant.getTenantId(), driver.getFileName());
+            } else {
+                connectionFactory = ConnectionFactories.get(options);
+                log.info("Created connection factory of tenant: {} for driver: {}", tenant.getTenantId(), options.getValue(ConnectionFactoryOptions.DRIVER));
+            }
+            ConnectionPool pool = new ConnectionPool(
+                ConnectionPoolConfiguration.builder(connectionFactory)
+                    .name("tenant-" + tenant.getTenantId())
+                    .initialSize(poolProperties.getInitialSize())
+                    .maxSize(poolProperties.getMaxSize())
+                    .maxIdleTime(poolProperties.getMaxIdleTime())
+                    .maxAcquireTime(poolProperties.getMaxAcquireTime())
+                    .maxCreateConnectionTime(poolProperties.getMaxCreateConnectionTime())
+                    .build()
+            );
+            return new TenantConnectionFactory(pool, lease);
+        } catch (Exception e) {
+            if (lease != null) {
+                lease.close();
+            }
+            throw new RuntimeException("Failed to create connection factory for tenant " + tenant.getTenantId() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static ConnectionFactory createFromDriver(DynamicDriverLoaderService.DriverRuntime runtime, ConnectionFactoryOptions options)
+        throws ReflectiveOperationException {
+        for (String providerClassName : runtime.getConnectionFactoryProviders()) {
+            Class<?> providerClass = runtime.loadClass(providerClassName);
+            if (!ConnectionFactoryProvider.class.isAssignableFrom(providerClass)) {
+                continue;
+            }
+            ConnectionFactoryProvider provider = (ConnectionFactoryProvider) providerClass.getDeclaredConstructor().newInstance();
+            if (provider.supports(options)) {
+                // Drivers may look up their own resources through the context classloader
+                Thread thread = Thread.currentThread();
+                ClassLoader contextClassLoader = thread.getContextClassLoader();
+                thread.setContextClassLoader(runtime.getClassLoader());
+                try {
+                    return provider.create(options);
+                } finally {
+                    thread.setContextClassLoader(contextClassLoader);
+                }
+            }
+        }
+        throw new IllegalStateException(
+            "No R2DBC provider of " + runtime.getFilePath() + " supports driver " + options.getValue(ConnectionFactoryOptions.DRIVER)
+        );
+    }
+
+    static ConnectionFactoryOptions buildOptions(Tenant tenant, DatabaseVendor vendor) {
+        String url = buildUrl(tenant, vendor);
+        ConnectionFactoryOptions parsed;
+        try {
+            parsed = ConnectionFactoryOptions.parse(url);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid R2DBC URL for tenant " + tenant.getTenantId() + ": " + e.getMessage(), e);
+        }
+        ConnectionFactoryOptions.Builder builder = parsed.mutate();
+        if (tenant.getDatabaseUsername() != null) {
+            builder.option(ConnectionFactoryOptions.USER, tenant.getDatabaseUsername());
+        }
+        if (tenant.getDatabasePassword() != null) {
+            builder.option(ConnectionFactoryOptions.PASSWORD, tenant.getDatabasePassword());
+        }
+        // Only the PostgreSQL driver has a schema option, the other drivers use the database or user instead
+        if (tenant.getSchemaName() != null && !tenant.getSchemaName().isEmpty() && "postgresql".equals(parsed.getValue(ConnectionFactoryOptions.DRIVER))) {
+            builder.option(SCHEMA, tenant.getSchemaName());
+        }
+        return builder.build();
+    }
+
+    static String buildUrl(Tenant tenant, DatabaseVendor vendor) {
+        if (
+            vendor != null &&
+            vendor.getR2dbcUrlTemplate() != null &&
+            !vendor.getR2dbcUrlTemplate().isEmpty() &&
+            tenant.getDatabaseHost() != null &&
+            tenant.getDatabaseName() != null
+        ) {
+            Integer port = tenant.getDatabasePort() != null ? tenant.getDatabasePort() : vendor.getDefaultPort();
+            return vendor
+                .getR2dbcUrlTemplate()
+                .replace("{host}", tenant.getDatabaseHost())
+                .replace("{port}", String.valueOf(port))
+                .replace("{database}", tenant.getDatabaseName());
+        }
+
+        String databaseUrl = tenant.getDatabaseUrl();
+        if (databaseUrl == null || databaseUrl.isEmpty()) {
+            throw new IllegalArgumentException("No database URL or connection details for tenant " + tenant.getTenantId());
+        }
+        if (databaseUrl.startsWith("r2dbc:")) {
+            return databaseUrl;
+        }
+        if (databaseUrl.startsWith("jdbc:")) {
+            return "r2dbc:" + databaseUrl.substring("jdbc:".length());
+        }
+        // If no protocol, assume PostgreSQL
+        return "r2dbc:postgresql://" + databaseUrl;
+    }
+
+    /**
+     * A tenant connection pool, with the lease on its driver JAR if it uses an uploaded driver.
+     */
+    private record TenantConnectionFactory(ConnectionPool pool, DynamicDriverLoaderService.DriverLease lease) {
+        void dispose() {
+            pool
+                .disposeLater()
+                .doFinally(signal -> {
+                    if (lease != null) {
+                        lease.close();
+                    }
+                })
+                .subscribe(null, e -> log.warn("Failed to dispose tenant connection pool {}", pool, e));
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.atparui.rms.service;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.config.TenantMeterTags;
+import com.atparui.rms.domain.Tenant;
+import com.atparui.rms.repository.TenantRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ValidationDepth;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Monitors the databases of the active tenants.
+ * <p>
+ * Each database is probed over the pooled connection factory of its tenant: healthy ones every
+ * {@code interval}, failing ones with an exponential backoff up to {@code max-backoff}, both randomized so that probes
+ * spread over time, and at most {@code max-concurrency} at a time. A tenant whose database failed repeatedly is
+ * reported as unavailable, for connections to it to fail fast, but only for an {@code interval} after its last probe:
+ * while the probes back off, requests are let through again, for a recovered database not to stay unused until its
+ * next probe.
+ * <p>
+ * The IDs of the monitored tenants are reloaded every {@code tenants-refresh}, not on every tick.
+ */
+@Service
+public class TenantDatabaseHealthMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(TenantDatabaseHealthMonitor.class);
+
+    static final String PROBE_METRIC = "tenant.database.probe";
+
+    private final TenantRepository tenantRepository;
+    private final TenantConnectionFactoryService tenantConnectionFactoryService;
+    private final TenantMeterTags tenantMeterTags;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationProperties.TenantDatabase.Health properties;
+
+    // Keyed by tenant ID
+    private final Map<String, TenantDatabaseHealth> states = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean checking = new AtomicBoolean();
+
+    private final Mono<List<String>> tenantIds;
+
+    public TenantDatabaseHealthMonitor(
+        TenantRepository tenantRepository,
+        TenantConnectionFactoryService tenantConnectionFactoryService,
+        TenantMeterTags tenantMeterTags,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        this.tenantRepository = tenantRepository;
+        this.tenantConnectionFactoryService = tenantConnectionFactoryService;
+        this.tenantMeterTags = tenantMeterTags;
+        this.meterRegistry = meterRegistry;
+        this.properties = applicationProperties.getTenantDatabase().getHealth();
+        for (Status status : Status.values()) {
+            Gauge.builder("tenant.database.status", this, monitor -> monitor.count(status))
+                .description("Tenant databases by health status")
+                .tag("status", status.name().toLowerCase())
+                .register(meterRegistry);
+        }
+        Duration refresh = properties.getTenantsRefresh();
+        this.tenantIds = Mono.defer(() -> tenantRepository.findActiveTenantIdsWithDatabase().collectList()).cache(
+            ids -> refresh,
+            e -> Duration.ZERO,
+            () -> Duration.ZERO
+        );
+    }
+
+    @Scheduled(fixedDelayString = "${application.tenant-database.health.tick:PT5S}")
+    public void tick() {
+        // A slow round is not overlapped by the next one
+        if (!properties.isEnabled() || !checking.compareAndSet(false, true)) {
+            return;
+        }
+        checkDue(Instant.now())
+            .doFinally(signal -> checking.set(false))
+            .subscribe(null, e -> log.warn("Failed to check tenant databases: {}", e.getMessage()));
+    }
+
+    /**
+     * Probe the databases due for a check.
+     *
+     * @param now the current time
+     * @return completes when the probes are done
+     */
+    Mono<Void> checkDue(Instant now) {
+        return tenantIds
+            .flatMapMany(ids -> {
+                // Forget the tenants deleted or deactivated since the previous reload
+                states.keySet().retainAll(new HashSet<>(ids));
+                return Flux.fromIterable(ids);
+            })
+            .filter(tenantId -> isDue(tenantId, now))
+            .flatMap(
+                tenantId -> tenantRepository.findByTenantIdAndActiveTrue(tenantId).flatMap(this::check),
+                Math.max(1, properties.getMaxConcurrency())
+            )
+            .then();
+    }
+
+    /**
+     * Probe the database of a tenant.
+     *
+     * @param tenant the tenant
+     * @return the new health of the tenant database
+     */
+    Mono<TenantDatabaseHealth> check(Tenant tenant) {
+        long start = System.nanoTime();
+        return tenantConnectionFactoryService
+            .getConnectionFactory(tenant)
+            .flatMap(connectionFactory ->
+                Mono.usingWhen(
+                    Mono.from(connectionFactory.create()),
+                    connection -> Mono.from(connection.validate(ValidationDepth.REMOTE)),
+                    Connection::close
+                )
+            )
+            .timeout(properties.getTimeout())
+            .map(valid -> valid ? "" : "Connection is not valid")
+            .onErrorResume(e -> Mono.just(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()))
+            .map(error -> record(tenant.getTenantId(), error.isEmpty() ? null : error, System.nanoTime() - start, Instant.now()));
+    }
+
+    /**
+     * Whether the database of a tenant is known to be down, connections to it failing fast instead of timing out.
+     *
+     * @param tenantId the tenant ID
+     * @return true if the last probes of the tenant database failed
+     */
+    public boolean isUnavailable(String tenantId) {
+        return isUnavailable(tenantId, Instant.now());
+    }
+
+    boolean isUnavailable(String tenantId, Instant now) {
+        TenantDatabaseHealth health = states.get(tenantId);
+        return (
+            health != null &&
+            health.status() == Status.DOWN &&
+            health.consecutiveFailures() >= properties.getFailFastThreshold() &&
+            // Only the probes back off: past an interval, requests are let through until the next probe
+            now.isBefore(health.lastCheck().plus(properties.getInterval()))
+        );
+    }
+
+    /**
+     * @param tenantId the tenant ID
+     * @return the health of the tenant database, or {@code null} if the tenant is not monitored.
+     */
+    public TenantDatabaseHealth getHealth(String tenantId) {
+        return states.get(tenantId);
+    }
+
+    /**
+     * @return the health of the monitored tenant databases, by tenant ID.
+     */
+    public Map<String, TenantDatabaseHealth> getHealth() {
+        return Map.copyOf(states);
+    }
+
+    private TenantDatabaseHealth record(String tenantId, String error, long durationNanos, Instant now) {
+        Timer.builder(PROBE_METRIC)
+            .description("Probes of the tenant databases")
+            .tag(TenantMeterTags.TAG, tenantMeterTags.tag(tenantId))
+            .tag("outcome", error == null ? "up" : "down")
+            .register(meterRegistry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+        TenantDatabaseHealth health = states.compute(tenantId, (key, previous) -> {
+            Duration latency = Duration.ofNanos(durationNanos);
+            if (error == null) {
+                return new TenantDatabaseHealth(Status.UP, 0, now, now.plus(jittered(properties.getInterval())), latency, null);
+            }
+            int failures = previous != null && previous.status() == Status.DOWN ? previous.consecutiveFailures() + 1 : 1;
+            return new TenantDatabaseHealth(Status.DOWN, failures, now, now.plus(jittered(backoff(failures))), latency, error);
+        });
+        if (error != null) {
+            log.warn("Database of tenant {} is down ({} consecutive failures): {}", tenantId, health.consecutiveFailures(), error);
+        }
+        return health;
+    }
+
+    private boolean isDue(String tenantId, Instant now) {
+        TenantDatabaseHealth health = states.get(tenantId);
+        if (health == null) {
+            // First seen: the first probe is spread over an interval, not to probe all the tenants at once on startup
+            states.putIfAbsent(tenantId, TenantDatabaseHealth.unknown(now.plus(random(properties.getInterval()))));
+            return false;
+        }
+        return !now.isBefore(health.nextCheck());
+    }
+
+    Duration backoff(int failures) {
+        long maxMillis = properties.getMaxBackoff().toMillis();
+        long millis = properties.getInterval().toMillis() << Math.min(failures - 1, 30);
+        return Duration.ofMillis(millis <= 0 ? maxMillis : Math.min(millis, maxMillis));
+    }
+
+    private Duration jittered(Duration delay) {
+        double jitter = properties.getJitter();
+        double factor = 1 - jitter + 2 * jitter * ThreadLocalRandom.current().nextDouble();
+        return Duration.ofMillis((long) (delay.toMillis() * factor));
+    }
+
+    private static Duration random(Duration bound) {
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(Math.max(1, bound.toMillis())));
+    }
+
+    private int count(Status status) {
+        return (int) states.values().stream().filter(health -> health.status() == status).count();
+    }
+
+    public enum Status {
+        UNKNOWN,
+        UP,
+        DOWN,
+    }
+
+    /**
+     * Health of a tenant database.
+     *
+     * @param status the status of the database.
+     * @param consecutiveFailures the number of probes failed in a row.
+     * @param lastCheck the time of the last probe, or {@code null}.
+     * @param nextCheck the time of the next probe.
+     * @param latency the duration of the last probe, or {@code null}.
+     * @param error the error of the last probe, or {@code null}.
+     */
+    public record TenantDatabaseHealth(
+        Status status,
+        int consecutiveFailures,
+        Instant lastCheck,
+        Instant nextCheck,
+        Duration latency,
+        String error
+    ) {
+        static TenantDatabaseHealth unknown(Instant nextCheck) {
+            return new TenantDatabaseHealth(Status.UNKNOWN, 0, null, nextCheck, null, null);
+        }
+    }
+}
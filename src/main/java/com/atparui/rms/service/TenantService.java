@@ -1,5 +1,6 @@
 package com.atparui.rms.service;
 
+import com.atparui.rms.aop.tracing.Traced;
 import com.atparui.rms.domain.DatabaseVendor;
 import com.atparui.rms.domain.Platform;
 import com.atparui.rms.domain.Tenant;
@@ -9,14 +10,13 @@ import com.atparui.rms.repository.TenantRepository;
 import com.atparui.rms.service.DatabaseDriverService;
 import com.atparui.rms.service.dto.TenantCreationContext;
 import com.atparui.rms.service.dto.TenantDatabaseConfigDTO;
-import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
-import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import com.atparui.rms.service.dto.TenantSummaryDTO;
 import io.r2dbc.spi.ConnectionFactory;
-import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.ReactiveTransactionManager;
 import org.springframework.transaction.reactive.TransactionalOperator;
@@ -24,6 +24,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Service
+@Traced
 public class TenantService {
 
     private static final Logger log = LoggerFactory.getLogger(TenantService.class);
@@ -36,8 +37,9 @@ public class TenantService {
     private final KeycloakRealmService keycloakRealmService;
     private final DatabaseProvisioningService databaseProvisioningService;
     private final TenantLiquibaseService tenantLiquibaseService;
+    private final TenantConnectionFactoryService tenantConnectionFactoryService;
     private final TransactionalOperator transactionalOperator;
-    private final ConcurrentHashMap<String, ConnectionFactory> connectionFactoryCache = new ConcurrentHashMap<>();
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${multitenancy.keycloak.base-url:https://auth.atparui.com}")
     private String keycloakBaseUrl;
@@ -51,7 +53,9 @@ public class TenantService {
         KeycloakRealmService keycloakRealmService,
         DatabaseProvisioningService databaseProvisioningService,
         TenantLiquibaseService tenantLiquibaseService,
-        @Qualifier("masterTransactionManager") ReactiveTransactionManager masterTransactionManager
+        TenantConnectionFactoryService tenantConnectionFactoryService,
+        @Qualifier("masterTransactionManager") ReactiveTransactionManager masterTransactionManager,
+        ApplicationEventPublisher eventPublisher
     ) {
         this.tenantRepository = tenantRepository;
         this.tenantClientRepository = tenantClientRepository;
@@ -61,7 +65,9 @@ public class TenantService {
         this.keycloakRealmService = keycloakRealmService;
         this.databaseProvisioningService = databaseProvisioningService;
         this.tenantLiquibaseService = tenantLiquibaseService;
+        this.tenantConnectionFactoryService = tenantConnectionFactoryService;
         this.transactionalOperator = TransactionalOperator.create(masterTransactionManager);
+        this.eventPublisher = eventPublisher;
     }
 
     public Mono<Tenant> findTenant(String tenantId) {
@@ -80,6 +86,17 @@ public class TenantService {
         return tenantRepository.findAll().filter(tenant -> !"gateway".equals(tenant.getTenantId())); // Filter out default tenant
     }
 
+    /**
+     * @param afterId the ID after which to start, or {@code null} to start with the first tenant
+     * @param active the active status of the tenants, or {@code null} for all tenants
+     * @param search text contained in the name, ID or subdomain of the tenants, or {@code null} for all tenants
+     * @param limit the maximum number of tenants, or {@code 0} for all tenants
+     * @return the tenants other than the gateway ordered by ID, without their database and client credentials
+     */
+    public Flux<TenantSummaryDTO> findSummaries(Long afterId, Boolean active, String search, int limit) {
+        return tenantRepository.findSummaries(afterId, active, search, limit).map(TenantSummaryDTO::new);
+    }
+
     public Mono<Tenant> findById(Long id) {
         return tenantRepository.findById(id);
     }
@@ -104,7 +121,9 @@ public class TenantService {
                 if (tenantKeyExists) {
                     return Mono.error(new RuntimeException("Tenant Key already exists: " + tenant.getTenantKey()));
                 }
-                return createTenantWithKeycloak(tenant, applyLiquibaseImmediately);
+                return createTenantWithKeycloak(tenant, applyLiquibaseImmediately).doOnSuccess(savedTenant ->
+                    clearCache(savedTenant.getTenantId())
+                );
             });
         } else {
             return tenantRepository.save(tenant).doOnSuccess(savedTenant -> clearCache(savedTenant.getTenantId()));
@@ -756,46 +775,15 @@ public class TenantService {
     }
 
     public Mono<ConnectionFactory> getConnectionFactory(String tenantId) {
-        return findTenant(tenantId).map(tenant -> connectionFactoryCache.computeIfAbsent(tenantId, key -> createConnectionFactory(tenant)));
-    }
-
-    private ConnectionFactory createConnectionFactory(Tenant tenant) {
-        String driverType = tenant.getDriverType() != null ? tenant.getDriverType().toUpperCase() : "JDBC";
-        String databaseUrl = tenant.getDatabaseUrl();
-
-        // Ensure URL is in R2DBC format for ConnectionFactory (R2DBC is used for reactive connections)
-        if (databaseUrl != null && databaseUrl.startsWith("jdbc:")) {
-            databaseUrl = databaseUrl.replace("jdbc:", "r2dbc:");
-        } else if (databaseUrl != null && !databaseUrl.startsWith("r2dbc:")) {
-            // If no protocol, assume R2DBC PostgreSQL
-            databaseUrl = "r2dbc:postgresql://" + databaseUrl;
+        ConnectionFactory cached = tenantConnectionFactoryService.getCachedConnectionFactory(tenantId);
+        if (cached != null) {
+            return Mono.just(cached);
         }
-
-        // Parse URL to extract connection details
-        // Remove r2dbc:postgresql:// prefix
-        String urlWithoutPrefix = databaseUrl.replace("r2dbc:postgresql://", "").replace("jdbc:postgresql://", "");
-        String[] urlParts = urlWithoutPrefix.split("/");
-        String[] hostPort = urlParts[0].split(":");
-        String host = hostPort[0];
-        int port = hostPort.length > 1 ? Integer.parseInt(hostPort[1]) : 5432;
-        String database = urlParts.length > 1 ? urlParts[1].split("\\?")[0] : "rms"; // Remove query parameters
-
-        // Note: Currently only PostgreSQL R2DBC is supported
-        // For other databases or JDBC, this would need to be enhanced
-        return new PostgresqlConnectionFactory(
-            PostgresqlConnectionConfiguration.builder()
-                .host(host)
-                .port(port)
-                .database(database)
-                .username(tenant.getDatabaseUsername())
-                .password(tenant.getDatabasePassword())
-                .schema(tenant.getSchemaName())
-                .build()
-        );
+        return findTenant(tenantId).flatMap(tenantConnectionFactoryService::getConnectionFactory);
     }
 
     public void clearCache(String tenantId) {
-        connectionFactoryCache.remove(tenantId);
+        eventPublisher.publishEvent(new TenantChangedEvent(tenantId));
     }
 
     /**
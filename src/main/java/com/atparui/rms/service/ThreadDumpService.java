@@ -0,0 +1,301 @@
+package com.atparui.rms.service;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Thread dumps and hot threads of the gateway, served by {@code /management/threaddump}.
+ * <p>
+ * Dumps are read a batch of threads at a time, so they can be streamed as they are produced, and with a limited
+ * stack depth. Thread contention monitoring is left as configured: blocked times are only reported when it is
+ * enabled. Hot threads are the threads using the most CPU time over an interval, with their stacks sampled
+ * right after it and aggregated by stack trace.
+ */
+@Service
+public class ThreadDumpService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ThreadDumpService.class);
+
+    private static final int BATCH_SIZE = 64;
+
+    static final Duration MAX_INTERVAL = Duration.ofMinutes(1);
+
+    static final int MAX_THREADS = 50;
+
+    static final int MAX_SNAPSHOTS = 100;
+
+    private static final Duration SNAPSHOT_INTERVAL = Duration.ofMillis(10);
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    private final AtomicBoolean hotThreadsRunning = new AtomicBoolean();
+
+    /**
+     * Dump the threads whose name contains {@code name}, ignoring case.
+     *
+     * @param name text contained in the thread names, or {@code null} for all threads.
+     * @param maxDepth the maximum number of frames of each stack trace.
+     * @return the threads, read and emitted a batch at a time.
+     */
+    public Flux<ThreadEntry> dump(String name, int maxDepth) {
+        boolean lockedMonitors = threadBean.isObjectMonitorUsageSupported();
+        boolean lockedSynchronizers = threadBean.isSynchronizerUsageSupported();
+        Predicate<ThreadInfo> filter = nameFilter(name);
+        return Flux.defer(() -> Flux.fromArray(boxed(threadBean.getAllThreadIds())))
+            .buffer(BATCH_SIZE)
+            .concatMapIterable(ids -> {
+                ThreadInfo[] threadInfos = threadBean.getThreadInfo(unboxed(ids), lockedMonitors, lockedSynchronizers, maxDepth);
+                List<ThreadEntry> threads = new ArrayList<>(threadInfos.length);
+                for (ThreadInfo threadInfo : threadInfos) {
+                    // Null for the threads that ended since their ID was read
+                    if (threadInfo != null && filter.test(threadInfo)) {
+                        threads.add(ThreadEntry.of(threadInfo));
+                    }
+                }
+                return threads;
+            })
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * @return whether hot threads can be computed, which needs thread CPU time measurement.
+     */
+    public boolean isHotThreadsSupported() {
+        return threadBean.isThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+    }
+
+    /**
+     * Find the threads using the most CPU time over an interval. Only one computation runs at a time.
+     *
+     * @param name text contained in the thread names, or {@code null} for all threads.
+     * @param interval the interval over which CPU time is measured.
+     * @param threads the maximum number of threads.
+     * @param snapshots the number of stack samples of the threads, taken every 10 ms after the interval.
+     * @param maxDepth the maximum number of frames of each stack trace.
+     * @return the threads by decreasing CPU time, or empty if another computation is running.
+     */
+    public Mono<List<HotThread>> hotThreads(String name, Duration interval, int threads, int snapshots, int maxDepth) {
+        // Claimed on subscription only, once the arguments are checked, so that the doFinally below always releases it
+        return Mono.defer(() -> {
+            Duration window = interval.compareTo(MAX_INTERVAL) > 0 ? MAX_INTERVAL : interval;
+            int top = Math.min(Math.max(threads, 1), MAX_THREADS);
+            int samples = Math.min(Math.max(snapshots, 1), MAX_SNAPSHOTS);
+            int depth = Math.max(maxDepth, 0);
+            Predicate<ThreadInfo> filter = nameFilter(name);
+            if (!hotThreadsRunning.compareAndSet(false, true)) {
+                return Mono.empty();
+            }
+            return Mono.fromCallable(this::cpuTimes)
+                .delayUntil(start -> Mono.delay(window))
+                .map(start -> busiest(start, cpuTimes(), top, filter))
+                .flatMap(busiest -> {
+                    long[] ids = busiest.keySet().stream().mapToLong(Long::longValue).toArray();
+                    return Flux.interval(Duration.ZERO, SNAPSHOT_INTERVAL)
+                        .take(samples)
+                        .map(i -> threadBean.getThreadInfo(ids, depth))
+                        .collectList()
+                        .map(samplesOfThreads -> aggregate(busiest, samplesOfThreads, window));
+                })
+                .doFinally(signal -> hotThreadsRunning.set(false));
+        });
+    }
+
+    private Map<Long, Long> cpuTimes() {
+        long[] ids = threadBean.getAllThreadIds();
+        Map<Long, Long> cpuTimes = new HashMap<>(ids.length * 2);
+        for (long id : ids) {
+            long cpuTime = threadBean.getThreadCpuTime(id);
+            // -1 for the threads that ended since their ID was read
+            if (cpuTime >= 0) {
+                cpuTimes.put(id, cpuTime);
+            }
+        }
+        return cpuTimes;
+    }
+
+    /**
+     * @return the CPU time used by the busiest threads between the two measures, by decreasing CPU time.
+     */
+    private Map<Long, Long> busiest(Map<Long, Long> start, Map<Long, Long> end, int top, Predicate<ThreadInfo> filter) {
+        return end
+            .entrySet()
+            .stream()
+            .map(cpuTime -> Map.entry(cpuTime.getKey(), cpuTime.getValue() - start.getOrDefault(cpuTime.getKey(), 0L)))
+            .filter(cpuTime -> cpuTime.getValue() > 0)
+            .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+            .filter(cpuTime -> {
+                ThreadInfo threadInfo = threadBean.getThreadInfo(cpuTime.getKey(), 0);
+                return threadInfo != null && filter.test(threadInfo);
+            })
+            .limit(top)
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (first, second) -> first, LinkedHashMap::new));
+    }
+
+    private static List<HotThread> aggregate(Map<Long, Long> busiest, List<ThreadInfo[]> samplesOfThreads, Duration window) {
+        List<HotThread> hotThreads = new ArrayList<>();
+        int index = 0;
+        for (Map.Entry<Long, Long> cpuTime : busiest.entrySet()) {
+            int thread = index++;
+            ThreadInfo last = null;
+            Map<List<StackFrame>, Integer> stacks = new LinkedHashMap<>();
+            for (ThreadInfo[] samples : samplesOfThreads) {
+                ThreadInfo sample = samples[thread];
+                if (sample != null) {
+                    last = sample;
+                    stacks.merge(StackFrame.of(sample.getStackTrace()), 1, Integer::sum);
+                }
+            }
+            if (last == null) {
+                // Ended during the sampling
+                continue;
+            }
+            List<StackSample> stackSamples = stacks
+                .entrySet()
+                .stream()
+                .map(stack -> new StackSample(stack.getValue(), stack.getKey()))
+                .sorted(Comparator.comparingInt(StackSample::count).reversed())
+                .toList();
+            hotThreads.add(
+                new HotThread(
+                    last.getThreadId(),
+                    last.getThreadName(),
+                    last.getThreadState().toString(),
+                    cpuTime.getValue(),
+                    (cpuTime.getValue() * 100.0) / window.toNanos(),
+                    stackSamples
+                )
+            );
+        }
+        LOG.debug("Found {} hot threads over {}", hotThreads.size(), window);
+        return hotThreads;
+    }
+
+    private static Predicate<ThreadInfo> nameFilter(String name) {
+        if (name == null || name.isBlank()) {
+            return threadInfo -> true;
+        }
+        String lowerCaseName = name.toLowerCase();
+        return threadInfo -> threadInfo.getThreadName().toLowerCase().contains(lowerCaseName);
+    }
+
+    private static Long[] boxed(long[] ids) {
+        return Arrays.stream(ids).boxed().toArray(Long[]::new);
+    }
+
+    private static long[] unboxed(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    public record ThreadEntry(
+        String threadName,
+        long threadId,
+        String threadState,
+        long blockedTime,
+        long blockedCount,
+        long waitedTime,
+        long waitedCount,
+        String lockName,
+        long lockOwnerId,
+        String lockOwnerName,
+        boolean daemon,
+        int priority,
+        boolean inNative,
+        boolean suspended,
+        List<StackFrame> stackTrace,
+        List<LockedMonitor> lockedMonitors,
+        List<LockedSynchronizer> lockedSynchronizers
+    ) {
+        static ThreadEntry of(ThreadInfo threadInfo) {
+            return new ThreadEntry(
+                threadInfo.getThreadName(),
+                threadInfo.getThreadId(),
+                threadInfo.getThreadState().toString(),
+                threadInfo.getBlockedTime(),
+                threadInfo.getBlockedCount(),
+                threadInfo.getWaitedTime(),
+                threadInfo.getWaitedCount(),
+                threadInfo.getLockName(),
+                threadInfo.getLockOwnerId(),
+                threadInfo.getLockOwnerName(),
+                threadInfo.isDaemon(),
+                threadInfo.getPriority(),
+                threadInfo.isInNative(),
+                threadInfo.isSuspended(),
+                StackFrame.of(threadInfo.getStackTrace()),
+                Arrays.stream(threadInfo.getLockedMonitors()).map(LockedMonitor::of).toList(),
+                Arrays.stream(threadInfo.getLockedSynchronizers()).map(LockedSynchronizer::of).toList()
+            );
+        }
+    }
+
+    public record StackFrame(String className, String methodName, String fileName, int lineNumber, boolean nativeMethod) {
+        static StackFrame of(StackTraceElement element) {
+            return new StackFrame(
+                element.getClassName(),
+                element.getMethodName(),
+                element.getFileName(),
+                element.getLineNumber(),
+                element.isNativeMethod()
+            );
+        }
+
+        static List<StackFrame> of(StackTraceElement[] stackTrace) {
+            return Arrays.stream(stackTrace).map(StackFrame::of).toList();
+        }
+    }
+
+    public record LockedMonitor(String className, int identityHashCode, int lockedStackDepth, StackFrame lockedStackFrame) {
+        static LockedMonitor of(MonitorInfo monitor) {
+            StackTraceElement lockedFrame = monitor.getLockedStackFrame();
+            return new LockedMonitor(
+                monitor.getClassName(),
+                monitor.getIdentityHashCode(),
+                monitor.getLockedStackDepth(),
+                lockedFrame != null ? StackFrame.of(lockedFrame) : null
+            );
+        }
+    }
+
+    public record LockedSynchronizer(String className, int identityHashCode) {
+        static LockedSynchronizer of(LockInfo synchronizer) {
+            return new LockedSynchronizer(synchronizer.getClassName(), synchronizer.getIdentityHashCode());
+        }
+    }
+
+    /**
+     * A thread using CPU time, with the share of one CPU it used over the interval.
+     */
+    public record HotThread(
+        long threadId,
+        String threadName,
+        String threadState,
+        long cpuTimeNanos,
+        double cpuPercent,
+        List<StackSample> stacks
+    ) {}
+
+    /**
+     * A stack trace of a thread, with the number of samples in which it was seen.
+     */
+    public record StackSample(int count, List<StackFrame> stackTrace) {}
+}
@@ -0,0 +1,13 @@
+package com.atparui.rms.service;
+
+/**
+ * Published when the information of a user is updated, for the cached user details to be reloaded.
+ *
+ * @param userId the user ID, the subject of its tokens.
+ * @param remote whether the user was changed through another gateway node.
+ */
+public record UserChangedEvent(String userId, boolean remote) {
+    public UserChangedEvent(String userId) {
+        this(userId, false);
+    }
+}
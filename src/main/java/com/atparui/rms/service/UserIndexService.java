@@ -0,0 +1,311 @@
+package com.atparui.rms.service;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.domain.User;
+import com.atparui.rms.repository.UserRepository;
+import com.atparui.rms.repository.search.UserSearchRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+/**
+ * Keeps the Elasticsearch {@code user} index in sync with {@code jhi_user}.
+ * <p>
+ * The users changed on this node are collected and written with bulk requests of up to
+ * {@code application.user-index.batch-size} users, at least every {@code flush-interval}. A batch reads the current
+ * rows, so repeated changes are indexed once and deleted users are removed from the index. Failed batches are retried
+ * with a backoff, then kept as dead letters until they are retried. If the indexing itself fails, it is restarted. A
+ * full reindex streams {@code jhi_user} by ID and can be resumed after the last indexed user when it failed or was
+ * stopped.
+ */
+@Service
+public class UserIndexService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserIndexService.class);
+
+    static final String LAG_METRIC = "users.index.lag";
+
+    private final UserRepository userRepository;
+    private final UserSearchRepository userSearchRepository;
+    private final ApplicationProperties.UserIndex properties;
+    private final int batchSize;
+    private final Timer lag;
+
+    // Guards the emissions to the changes, which may come from concurrent requests
+    private final Object emitting = new Object();
+    private volatile Sinks.Many<Change> changes;
+    private final AtomicInteger pending = new AtomicInteger();
+    // Guarded by itself
+    private final Set<String> deadLetters = new LinkedHashSet<>();
+    private final AtomicReference<ReindexStatus> reindex = new AtomicReference<>(
+        new ReindexStatus(ReindexState.IDLE, null, 0, null, null, null)
+    );
+
+    private Disposable reindexing;
+
+    public UserIndexService(
+        UserRepository userRepository,
+        UserSearchRepository userSearchRepository,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        this.userRepository = userRepository;
+        this.userSearchRepository = userSearchRepository;
+        this.properties = applicationProperties.getUserIndex();
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.lag = Timer.builder(LAG_METRIC).description("Time from a user change to its indexing").publishPercentiles(0.99).register(meterRegistry);
+        Gauge.builder("users.index.pending", pending, AtomicInteger::get).description("User changes waiting to be indexed").register(meterRegistry);
+        Gauge.builder("users.index.dead-letters", this, service -> service.getDeadLetters().size())
+            .description("Users whose indexing failed after the retries")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        Sinks.Many<Change> sink = Sinks.many().unicast().onBackpressureBuffer();
+        synchronized (emitting) {
+            changes = sink;
+            pending.set(0);
+        }
+        sink
+            .asFlux()
+            // Fair backpressure: the batches wait while a slow bulk request is running, instead of overflowing
+            .bufferTimeout(batchSize, properties.getFlushInterval(), true)
+            .concatMap(this::index)
+            .subscribe(null, error -> restart(sink, error));
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Index the last changes
+        synchronized (emitting) {
+            changes.tryEmitComplete();
+        }
+        if (reindexing != null) {
+            reindexing.dispose();
+        }
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        // Indexed by the node where it changed
+        if (!event.remote()) {
+            enqueue(event.userId());
+        }
+    }
+
+    /**
+     * Index a user, or remove it from the index if it no longer exists.
+     *
+     * @param userId the ID of the user.
+     */
+    public void enqueue(String userId) {
+        synchronized (emitting) {
+            pending.incrementAndGet();
+            if (changes.tryEmitNext(new Change(userId, System.nanoTime())).isFailure()) {
+                pending.decrementAndGet();
+                LOG.debug("User index is stopped, not indexing user {}", userId);
+            }
+        }
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public List<String> getDeadLetters() {
+        synchronized (deadLetters) {
+            return List.copyOf(deadLetters);
+        }
+    }
+
+    /**
+     * Index the dead letters again.
+     *
+     * @return the number of users enqueued.
+     */
+    public int retryDeadLetters() {
+        List<String> userIds;
+        synchronized (deadLetters) {
+            userIds = new ArrayList<>(deadLetters);
+            deadLetters.clear();
+        }
+        userIds.forEach(this::enqueue);
+        return userIds.size();
+    }
+
+    public ReindexStatus getReindexStatus() {
+        return reindex.get();
+    }
+
+    /**
+     * Start a full reindex of the users.
+     *
+     * @param resume whether to continue after the last user indexed by a failed or stopped reindex.
+     * @return the status of the started reindex.
+     * @throws IllegalStateException if a reindex is running.
+     */
+    public synchronized ReindexStatus startReindex(boolean resume) {
+        ReindexStatus current = reindex.get();
+        if (current.state() == ReindexState.RUNNING) {
+            throw new IllegalStateException("A reindex of the users is already running");
+        }
+        boolean resumed = resume && (current.state() == ReindexState.FAILED || current.state() == ReindexState.STOPPED);
+        ReindexStatus started = new ReindexStatus(
+            ReindexState.RUNNING,
+            resumed ? current.lastId() : null,
+            resumed ? current.indexed() : 0,
+            Instant.now(),
+            null,
+            null
+        );
+        reindex.set(started);
+        LOG.info("Reindexing the users after {}", started.lastId());
+        reindexing = page(started.lastId())
+            .expand(page -> page.size() < batchSize ? Mono.empty() : page(page.get(page.size() - 1).getId()))
+            .filter(page -> !page.isEmpty())
+            .concatMap(page -> write(page).retryWhen(retry()).thenReturn(page))
+            .subscribe(
+                page -> reindex.updateAndGet(status -> status.progress(page.get(page.size() - 1).getId(), page.size())),
+                error -> {
+                    LOG.warn("Failed to reindex the users: {}", error.getMessage());
+                    reindex.updateAndGet(status -> status.finish(ReindexState.FAILED, error.getMessage()));
+                },
+                () -> {
+                    ReindexStatus completed = reindex.updateAndGet(status -> status.finish(ReindexState.COMPLETED, null));
+                    LOG.info("Reindexed {} users", completed.indexed());
+                }
+            );
+        return started;
+    }
+
+    /**
+     * Stop the running reindex, which can then be resumed.
+     *
+     * @return whether a reindex was running.
+     */
+    public synchronized boolean stopReindex() {
+        if (reindex.get().state() != ReindexState.RUNNING) {
+            return false;
+        }
+        reindexing.dispose();
+        reindex.updateAndGet(status -> status.finish(ReindexState.STOPPED, null));
+        return true;
+    }
+
+    private void restart(Sinks.Many<Change> failed, Throwable error) {
+        // The changes not indexed yet are lost with the failed subscription, for a full reindex to recover them
+        LOG.error("User indexing failed, restarting it, a full reindex is needed: {}", error.toString());
+        synchronized (emitting) {
+            if (changes != failed) {
+                return;
+            }
+        }
+        start();
+    }
+
+    private Mono<List<User>> page(String afterId) {
+        return userRepository
+            .findAllByIdGreaterThan(afterId != null ? afterId : "", PageRequest.of(0, batchSize, Sort.by("id")))
+            .collectList();
+    }
+
+    private Mono<Void> index(List<Change> batch) {
+        Set<String> userIds = new LinkedHashSet<>();
+        batch.forEach(change -> userIds.add(change.userId()));
+        return userRepository
+            .findAllById(userIds)
+            .collectList()
+            .flatMap(users -> {
+                Set<String> deleted = new HashSet<>(userIds);
+                users.forEach(user -> deleted.remove(user.getId()));
+                Mono<Void> delete = deleted.isEmpty() ? Mono.empty() : userSearchRepository.deleteAllById(deleted);
+                return write(users).then(delete);
+            })
+            .retryWhen(retry())
+            .doOnSuccess(done -> {
+                long now = System.nanoTime();
+                batch.forEach(change -> lag.record(now - change.changedNanos(), TimeUnit.NANOSECONDS));
+            })
+            .onErrorResume(error -> {
+                deadLetter(userIds, error);
+                return Mono.empty();
+            })
+            .doFinally(signal -> pending.addAndGet(-batch.size()));
+    }
+
+    private Mono<Void> write(List<User> users) {
+        if (users.isEmpty()) {
+            return Mono.empty();
+        }
+        // Sent as bulk requests
+        return userSearchRepository.saveAll(users).then();
+    }
+
+    private Retry retry() {
+        return Retry.backoff(properties.getMaxRetries(), properties.getRetryBackoff());
+    }
+
+    private void deadLetter(Collection<String> userIds, Throwable error) {
+        LOG.warn("Failed to index {} users, keeping them as dead letters: {}", userIds.size(), error.getMessage());
+        synchronized (deadLetters) {
+            for (String userId : userIds) {
+                if (deadLetters.size() >= properties.getDeadLetterSize()) {
+                    LOG.error("Too many users failed to be indexed, a full reindex is needed");
+                    return;
+                }
+                deadLetters.add(userId);
+            }
+        }
+    }
+
+    private record Change(String userId, long changedNanos) {}
+
+    public enum ReindexState {
+        IDLE,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        STOPPED,
+    }
+
+    /**
+     * @param state the state of the last reindex.
+     * @param lastId the ID of the last user indexed, to resume from.
+     * @param indexed the number of users indexed.
+     * @param startedAt when the reindex started.
+     * @param finishedAt when the reindex completed, failed or was stopped.
+     * @param error why the reindex failed.
+     */
+    public record ReindexStatus(ReindexState state, String lastId, long indexed, Instant startedAt, Instant finishedAt, String error) {
+        ReindexStatus progress(String lastId, int count) {
+            return new ReindexStatus(state, lastId, indexed + count, startedAt, finishedAt, error);
+        }
+
+        ReindexStatus finish(ReindexState state, String error) {
+            return new ReindexStatus(state, lastId, indexed, startedAt, Instant.now(), error);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.atparui.rms.service;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.repository.search.UserSearchRepository;
+import com.atparui.rms.service.dto.UserDTO;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Searches the users by login, with only their public information.
+ * <p>
+ * The results are cached for {@code application.user-search.cache-ttl}, so that the popular type-ahead prefixes are
+ * answered without Elasticsearch, and concurrent identical searches share one request.
+ */
+@Service
+public class UserSearchService {
+
+    private final ApplicationProperties.UserSearch properties;
+    private final AsyncLoadingCache<SearchKey, List<UserDTO>> results;
+
+    public UserSearchService(UserSearchRepository userSearchRepository, MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
+        this.properties = applicationProperties.getUserSearch();
+        this.results = Caffeine.newBuilder()
+            .maximumSize(properties.getCacheSize())
+            .expireAfterWrite(properties.getCacheTtl())
+            .recordStats()
+            .buildAsync((key, executor) ->
+                userSearchRepository.searchLogins(key.query(), key.prefix(), key.afterLogin(), key.limit()).map(UserDTO::new).collectList().toFuture()
+            );
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "userSearch");
+    }
+
+    /**
+     * @param size the requested page size, or {@code null}.
+     * @return the page size to use.
+     */
+    public int pageSize(Integer size) {
+        return size == null ? properties.getDefaultSize() : Math.min(Math.max(size, 1), properties.getMaxSize());
+    }
+
+    /**
+     * Search the users by login.
+     *
+     * @param query the words of the logins, or the start of the logins with {@code prefix}.
+     * @param prefix whether to match the start of the logins, for type-ahead.
+     * @param afterLogin the last login of the previous page, or {@code null} for the first page.
+     * @param limit the maximum number of users.
+     * @return the users, ordered by login.
+     */
+    public Flux<UserDTO> search(String query, boolean prefix, String afterLogin, int limit) {
+        String normalized = query == null ? "" : query.strip();
+        if (normalized.isEmpty()) {
+            return Flux.empty();
+        }
+        // Logins are stored in lower case
+        SearchKey key = new SearchKey(prefix ? normalized.toLowerCase(Locale.ROOT) : normalized, prefix, afterLogin, limit);
+        return Mono.fromFuture(results.get(key), true).flatMapIterable(Function.identity());
+    }
+
+    private record SearchKey(String query, boolean prefix, String afterLogin, int limit) {}
+}
@@ -5,7 +5,6 @@ import com.atparui.rms.domain.Authority;
 import com.atparui.rms.domain.User;
 import com.atparui.rms.repository.AuthorityRepository;
 import com.atparui.rms.repository.UserRepository;
-import com.atparui.rms.repository.search.UserSearchRepository;
 import com.atparui.rms.security.SecurityUtils;
 import com.atparui.rms.service.dto.AdminUserDTO;
 import com.atparui.rms.service.dto.UserDTO;
@@ -14,6 +13,7 @@ import java.util.*;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
@@ -34,14 +34,18 @@ public class UserService {
 
     private final UserRepository userRepository;
 
-    private final UserSearchRepository userSearchRepository;
-
     private final AuthorityRepository authorityRepository;
 
-    public UserService(UserRepository userRepository, UserSearchRepository userSearchRepository, AuthorityRepository authorityRepository) {
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UserService(
+        UserRepository userRepository,
+        AuthorityRepository authorityRepository,
+        ApplicationEventPublisher eventPublisher
+    ) {
         this.userRepository = userRepository;
-        this.userSearchRepository = userSearchRepository;
         this.authorityRepository = authorityRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -52,23 +56,31 @@ public class UserService {
      * @param email     email id of user.
      * @param langKey   language key.
      * @param imageUrl  image URL of user.
-     * @return a completed {@link Mono}.
+     * @return a completed {@link Mono}, without saving the user nor publishing a {@link UserChangedEvent} when the
+     * information is unchanged, as on most IdP syncs of {@code /api/account}.
      */
     @Transactional
     public Mono<Void> updateUser(String firstName, String lastName, String email, String langKey, String imageUrl) {
         return SecurityUtils.getCurrentUserLogin()
             .flatMap(userRepository::findOneByLogin)
             .flatMap(user -> {
+                String newEmail = email != null ? email.toLowerCase() : user.getEmail();
+                if (
+                    Objects.equals(user.getFirstName(), firstName) &&
+                    Objects.equals(user.getLastName(), lastName) &&
+                    Objects.equals(user.getEmail(), newEmail) &&
+                    Objects.equals(user.getLangKey(), langKey) &&
+                    Objects.equals(user.getImageUrl(), imageUrl)
+                ) {
+                    return Mono.empty();
+                }
                 user.setFirstName(firstName);
                 user.setLastName(lastName);
-                if (email != null) {
-                    user.setEmail(email.toLowerCase());
-                }
+                user.setEmail(newEmail);
                 user.setLangKey(langKey);
                 user.setImageUrl(imageUrl);
                 return saveUser(user);
             })
-            .flatMap(user -> userSearchRepository.save(user).thenReturn(user))
             .doOnNext(user -> LOG.debug("Changed Information for User: {}", user))
             .then();
     }
@@ -99,6 +111,8 @@ public class UserService {
                     Flux.fromIterable(user.getAuthorities())
                         .flatMap(authority -> userRepository.saveUserAuthority(savedUser.getId(), authority.getName()))
                         .then(Mono.just(savedUser))
+                        // Reindexed and reloaded by the caches
+                        .doOnNext(changedUser -> eventPublisher.publishEvent(new UserChangedEvent(changedUser.getId())))
                 );
             });
     }
@@ -31,6 +31,8 @@ public class DatabaseConnectionTestDTO {
     @NotNull
     private String password;
 
+    private String tenantId; // Optional: tenant being validated, echoed in the result
+
     public DatabaseConnectionTestDTO() {}
 
     public DatabaseConnectionTestDTO(
@@ -122,4 +124,12 @@ public class DatabaseConnectionTestDTO {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
 }
@@ -10,6 +10,16 @@ public class DatabaseConnectionTestResult {
     private String errorDetails;
     private Long connectionTimeMs;
 
+    private String tenantId;
+
+    private String target; // host:port/database
+
+    private Long connectTimeMs; // TCP connection to the host
+
+    private Long authTimeMs; // Driver handshake and authentication
+
+    private Long queryTimeMs; // First query on the connection
+
     public DatabaseConnectionTestResult() {}
 
     public DatabaseConnectionTestResult(boolean success, String message) {
@@ -54,4 +64,44 @@ public class DatabaseConnectionTestResult {
     public void setConnectionTimeMs(Long connectionTimeMs) {
         this.connectionTimeMs = connectionTimeMs;
     }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public void setTarget(String target) {
+        this.target = target;
+    }
+
+    public Long getConnectTimeMs() {
+        return connectTimeMs;
+    }
+
+    public void setConnectTimeMs(Long connectTimeMs) {
+        this.connectTimeMs = connectTimeMs;
+    }
+
+    public Long getAuthTimeMs() {
+        return authTimeMs;
+    }
+
+    public void setAuthTimeMs(Long authTimeMs) {
+        this.authTimeMs = authTimeMs;
+    }
+
+    public Long getQueryTimeMs() {
+        return queryTimeMs;
+    }
+
+    public void setQueryTimeMs(Long queryTimeMs) {
+        this.queryTimeMs = queryTimeMs;
+    }
 }
@@ -1,5 +1,6 @@
 package com.atparui.rms.service.dto;
 
+import com.atparui.rms.domain.Platform;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.Serializable;
 import java.time.Instant;
@@ -45,6 +46,21 @@ public class PlatformDTO implements Serializable {
         // Empty constructor needed for Jackson
     }
 
+    public PlatformDTO(Platform platform) {
+        this(
+            platform.getId(),
+            platform.getName(),
+            platform.getPrefix(),
+            platform.getDescription(),
+            platform.getSubdomain(),
+            platform.getWebappGithubRepo(),
+            platform.getMobileGithubRepo(),
+            platform.getActive(),
+            platform.getCreatedDate(),
+            platform.getLastModifiedDate()
+        );
+    }
+
     public PlatformDTO(
         Long id,
         String name,
@@ -0,0 +1,179 @@
+package com.atparui.rms.service.dto;
+
+import com.atparui.rms.domain.Tenant;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Summary of a {@link Tenant} for listings, without its database connection details and client secrets.
+ */
+public class TenantSummaryDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    private String tenantKey;
+
+    private String tenantId;
+
+    private String name;
+
+    private String subdomain;
+
+    private String realmName;
+
+    private Long platformId;
+
+    private String databaseVendorCode;
+
+    private String databaseOwnershipType;
+
+    private String driverType;
+
+    private Boolean isTemplate;
+
+    private Boolean active;
+
+    private Instant createdDate;
+
+    private Instant lastModifiedDate;
+
+    public TenantSummaryDTO() {
+        // Empty constructor needed for Jackson
+    }
+
+    public TenantSummaryDTO(Tenant tenant) {
+        this.id = tenant.getId();
+        this.tenantKey = tenant.getTenantKey();
+        this.tenantId = tenant.getTenantId();
+        this.name = tenant.getName();
+        this.subdomain = tenant.getSubdomain();
+        this.realmName = tenant.getRealmName();
+        this.platformId = tenant.getPlatformId();
+        this.databaseVendorCode = tenant.getDatabaseVendorCode();
+        this.databaseOwnershipType = tenant.getDatabaseOwnershipType();
+        this.driverType = tenant.getDriverType();
+        this.isTemplate = tenant.getIsTemplate();
+        this.active = tenant.getActive();
+        this.createdDate = tenant.getCreatedDate();
+        this.lastModifiedDate = tenant.getLastModifiedDate();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTenantKey() {
+        return tenantKey;
+    }
+
+    public void setTenantKey(String tenantKey) {
+        this.tenantKey = tenantKey;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getSubdomain() {
+        return subdomain;
+    }
+
+    public void setSubdomain(String subdomain) {
+        this.subdomain = subdomain;
+    }
+
+    public String getRealmName() {
+        return realmName;
+    }
+
+    public void setRealmName(String realmName) {
+        this.realmName = realmName;
+    }
+
+    public Long getPlatformId() {
+        return platformId;
+    }
+
+    public void setPlatformId(Long platformId) {
+        this.platformId = platformId;
+    }
+
+    public String getDatabaseVendorCode() {
+        return databaseVendorCode;
+    }
+
+    public void setDatabaseVendorCode(String databaseVendorCode) {
+        this.databaseVendorCode = databaseVendorCode;
+    }
+
+    public String getDatabaseOwnershipType() {
+        return databaseOwnershipType;
+    }
+
+    public void setDatabaseOwnershipType(String databaseOwnershipType) {
+        this.databaseOwnershipType = databaseOwnershipType;
+    }
+
+    public String getDriverType() {
+        return driverType;
+    }
+
+    public void setDriverType(String driverType) {
+        this.driverType = driverType;
+    }
+
+    public Boolean getIsTemplate() {
+        return isTemplate;
+    }
+
+    public void setIsTemplate(Boolean isTemplate) {
+        this.isTemplate = isTemplate;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(Instant lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
+    @Override
+    public String toString() {
+        return "TenantSummaryDTO{" + "id=" + id + ", tenantId='" + tenantId + '\'' + ", name='" + name + '\'' + ", active=" + active + "}";
+    }
+}
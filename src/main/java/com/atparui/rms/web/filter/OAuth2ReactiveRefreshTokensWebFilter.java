@@ -1,9 +1,28 @@
 package com.atparui.rms.web.filter;
 
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.config.TenantMeterTags;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
 import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientProviderBuilder;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ReactiveClientRegistrationRepository;
+import org.springframework.security.oauth2.client.web.DefaultReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.web.server.ServerOAuth2AuthorizedClientRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
@@ -12,14 +31,67 @@ import reactor.core.publisher.Mono;
 
 /**
  * Refresh oauth2 tokens based on TokenRelayGatewayFilterFactory.
+ * <p>
+ * Requests whose access token is far from expiring go through without authorizing. An access token expiring within
+ * {@code application.token-refresh.clock-skew} is refreshed before the request, one within the following
+ * {@code refresh-ahead} in the background. Concurrent requests of a session share a single refresh.
  */
 @Component
 public class OAuth2ReactiveRefreshTokensWebFilter implements WebFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(OAuth2ReactiveRefreshTokensWebFilter.class);
+
+    static final String REFRESH_METRIC = "oauth2.token.refresh";
+
     private final ReactiveOAuth2AuthorizedClientManager clientManager;
+    private final ReactiveOAuth2AuthorizedClientManager refreshManager;
+    private final ServerOAuth2AuthorizedClientRepository authorizedClientRepository;
+    private final TenantMeterTags tenantMeterTags;
+    private final MeterRegistry meterRegistry;
+    private final Duration clockSkew;
+    private final Duration refreshAhead;
+    private final Clock clock;
 
-    public OAuth2ReactiveRefreshTokensWebFilter(ReactiveOAuth2AuthorizedClientManager clientManager) {
+    // Keyed by session ID and client registration ID
+    private final Map<String, Mono<OAuth2AuthorizedClient>> refreshes = new ConcurrentHashMap<>();
+
+    @Autowired
+    public OAuth2ReactiveRefreshTokensWebFilter(
+        ReactiveOAuth2AuthorizedClientManager clientManager,
+        ReactiveClientRegistrationRepository clientRegistrationRepository,
+        ServerOAuth2AuthorizedClientRepository authorizedClientRepository,
+        TenantMeterTags tenantMeterTags,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        this(
+            clientManager,
+            refreshManager(clientRegistrationRepository, authorizedClientRepository, applicationProperties.getTokenRefresh()),
+            authorizedClientRepository,
+            tenantMeterTags,
+            meterRegistry,
+            applicationProperties,
+            Clock.systemUTC()
+        );
+    }
+
+    OAuth2ReactiveRefreshTokensWebFilter(
+        ReactiveOAuth2AuthorizedClientManager clientManager,
+        ReactiveOAuth2AuthorizedClientManager refreshManager,
+        ServerOAuth2AuthorizedClientRepository authorizedClientRepository,
+        TenantMeterTags tenantMeterTags,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties,
+        Clock clock
+    ) {
         this.clientManager = clientManager;
+        this.refreshManager = refreshManager;
+        this.authorizedClientRepository = authorizedClientRepository;
+        this.tenantMeterTags = tenantMeterTags;
+        this.meterRegistry = meterRegistry;
+        this.clockSkew = applicationProperties.getTokenRefresh().getClockSkew();
+        this.refreshAhead = applicationProperties.getTokenRefresh().getRefreshAhead();
+        this.clock = clock;
     }
 
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
@@ -33,11 +105,6 @@ public class OAuth2ReactiveRefreshTokensWebFilter implements WebFilter {
     }
 
     private Mono<OAuth2AuthorizedClient> authorizedClient(ServerWebExchange exchange, OAuth2AuthenticationToken oauth2Authentication) {
-        String clientRegistrationId = oauth2Authentication.getAuthorizedClientRegistrationId();
-        OAuth2AuthorizeRequest request = OAuth2AuthorizeRequest.withClientRegistrationId(clientRegistrationId)
-            .principal(oauth2Authentication)
-            .attribute(ServerWebExchange.class.getName(), exchange)
-            .build();
         if (clientManager == null) {
             return Mono.error(
                 new IllegalStateException(
@@ -46,6 +113,117 @@ public class OAuth2ReactiveRefreshTokensWebFilter implements WebFilter {
                 )
             );
         }
-        return clientManager.authorize(request);
+        String clientRegistrationId = oauth2Authentication.getAuthorizedClientRegistrationId();
+        return authorizedClientRepository
+            .<OAuth2AuthorizedClient>loadAuthorizedClient(clientRegistrationId, oauth2Authentication, exchange)
+            .flatMap(client -> {
+                Instant expiresAt = client.getAccessToken().getExpiresAt();
+                Instant now = clock.instant();
+                if (expiresAt == null || client.getRefreshToken() == null || now.isBefore(expiresAt.minus(clockSkew).minus(refreshAhead))) {
+                    return Mono.just(client);
+                }
+                if (now.isBefore(expiresAt.minus(clockSkew))) {
+                    // Still valid for this request
+                    refresh(exchange, oauth2Authentication, client, true).subscribe(
+                        null,
+                        e -> log.debug("Failed to refresh the access token of {} ahead of its expiry: {}", oauth2Authentication.getName(), e.getMessage())
+                    );
+                    return Mono.just(client);
+                }
+                return refresh(exchange, oauth2Authentication, client, false);
+            })
+            // Without authorized client, the authorization code flow is started
+            .switchIfEmpty(Mono.defer(() -> clientManager.authorize(authorizeRequest(exchange, oauth2Authentication))));
+    }
+
+    /**
+     * Refresh the access token of a session, or wait for the refresh in progress for another request of the session.
+     */
+    private Mono<OAuth2AuthorizedClient> refresh(
+        ServerWebExchange exchange,
+        OAuth2AuthenticationToken oauth2Authentication,
+        OAuth2AuthorizedClient client,
+        boolean ahead
+    ) {
+        String realm = realm(client.getClientRegistration());
+        return exchange
+            .getSession()
+            .flatMap(session -> {
+                String key = session.getId() + ':' + client.getClientRegistration().getRegistrationId();
+                Mono<OAuth2AuthorizedClient> refresh = timed(
+                    Mono.defer(() -> refreshManager.authorize(authorizeRequest(exchange, oauth2Authentication))),
+                    realm,
+                    ahead
+                )
+                    .doFinally(signal -> refreshes.remove(key))
+                    .cache();
+                Mono<OAuth2AuthorizedClient> inProgress = refreshes.putIfAbsent(key, refresh);
+                if (inProgress == null) {
+                    // The response of the request may be committed by the end of a refresh ahead of expiry
+                    return ahead ? refresh.flatMap(refreshed -> session.save().thenReturn(refreshed)) : refresh;
+                }
+                Counter.builder(REFRESH_METRIC + ".joined")
+                    .description("Requests that waited for the token refresh of another request of their session")
+                    .tag("realm", realm)
+                    .register(meterRegistry)
+                    .increment();
+                return inProgress.flatMap(refreshed ->
+                    authorizedClientRepository.saveAuthorizedClient(refreshed, oauth2Authentication, exchange).thenReturn(refreshed)
+                );
+            });
+    }
+
+    private Mono<OAuth2AuthorizedClient> timed(Mono<OAuth2AuthorizedClient> refresh, String realm, boolean ahead) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return refresh
+                .doOnSuccess(refreshed -> record(realm, ahead, "success", start))
+                .doOnError(e -> record(realm, ahead, "failure", start));
+        });
+    }
+
+    private void record(String realm, boolean ahead, String outcome, long start) {
+        Timer.builder(REFRESH_METRIC)
+            .description("Refreshes of the access tokens of the OAuth2 sessions")
+            .tag("realm", realm)
+            .tag("mode", ahead ? "ahead" : "inline")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private String realm(ClientRegistration clientRegistration) {
+        String issuerUri = clientRegistration.getProviderDetails().getIssuerUri();
+        int index = issuerUri != null ? issuerUri.lastIndexOf("/realms/") : -1;
+        String realm = index >= 0 ? issuerUri.substring(index + "/realms/".length()) : clientRegistration.getRegistrationId();
+        return tenantMeterTags.tag(realm);
+    }
+
+    private static OAuth2AuthorizeRequest authorizeRequest(ServerWebExchange exchange, OAuth2AuthenticationToken oauth2Authentication) {
+        return OAuth2AuthorizeRequest.withClientRegistrationId(oauth2Authentication.getAuthorizedClientRegistrationId())
+            .principal(oauth2Authentication)
+            .attribute(ServerWebExchange.class.getName(), exchange)
+            .build();
+    }
+
+    /**
+     * Manager refreshing the access tokens expiring within the clock skew and refresh-ahead windows, that the
+     * manager of the token relay does not refresh yet.
+     */
+    private static ReactiveOAuth2AuthorizedClientManager refreshManager(
+        ReactiveClientRegistrationRepository clientRegistrationRepository,
+        ServerOAuth2AuthorizedClientRepository authorizedClientRepository,
+        ApplicationProperties.TokenRefresh properties
+    ) {
+        DefaultReactiveOAuth2AuthorizedClientManager refreshManager = new DefaultReactiveOAuth2AuthorizedClientManager(
+            clientRegistrationRepository,
+            authorizedClientRepository
+        );
+        refreshManager.setAuthorizedClientProvider(
+            ReactiveOAuth2AuthorizedClientProviderBuilder.builder()
+                .refreshToken(refreshToken -> refreshToken.clockSkew(properties.getClockSkew().plus(properties.getRefreshAhead())))
+                .build()
+        );
+        return refreshManager;
     }
 }
@@ -1,33 +1,194 @@
 package com.atparui.rms.web.filter;
 
 import com.atparui.rms.config.TenantContext;
+import com.atparui.rms.config.TenantMeterTags;
 import com.atparui.rms.config.TenantResolver;
+import io.micrometer.common.KeyValue;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.reactivestreams.Publisher;
 import org.springframework.core.Ordered;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.http.server.reactive.observation.ServerRequestObservationContext;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 @Component
 public class TenantFilter implements WebFilter, Ordered {
 
     private final TenantResolver tenantResolver;
 
-    public TenantFilter(TenantResolver tenantResolver) {
+    private final MeterRegistry meterRegistry;
+
+    private final TenantMeterTags tenantMeterTags;
+
+    // Registered once per tenant tag value, not on every request
+    private final Map<String, ExchangeMeters> meters;
+
+    public TenantFilter(TenantResolver tenantResolver, MeterRegistry meterRegistry, TenantMeterTags tenantMeterTags) {
         this.tenantResolver = tenantResolver;
+        this.meterRegistry = meterRegistry;
+        this.tenantMeterTags = tenantMeterTags;
+        this.meters = tenantMeterTags.meterCache();
     }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        // This filter is both a global WebFilter and part of the security filter chain:
+        // resolve (and measure) only once per exchange, the outer invocation already populated the Reactor context
+        if (exchange.getAttribute(TenantContext.TENANT_KEY) != null) {
+            return chain.filter(exchange);
+        }
+        long start = System.nanoTime();
         return tenantResolver
             .resolveTenant(exchange)
-            .flatMap(tenantKey -> chain.filter(exchange).contextWrite(context -> context.put("tenantKey", tenantKey)))
+            .flatMap(tenantKey -> {
+                // Also exposed as an exchange attribute so that non-reactive consumers (e.g. the load balancer) can see it
+                exchange.getAttributes().put(TenantContext.TENANT_KEY, tenantKey);
+                tenantMeterTags.recordActivity(tenantKey);
+                tagObservation(exchange, tenantKey);
+                AtomicLong responseBytes = new AtomicLong();
+                ServerWebExchange measuredExchange = exchange.mutate().response(new CountingResponse(exchange.getResponse(), responseBytes)).build();
+                return chain
+                    .filter(measuredExchange)
+                    .contextWrite(context -> context.put(TenantContext.TENANT_KEY, tenantKey))
+                    .doFinally(signal -> record(exchange, tenantKey, signal, System.nanoTime() - start, responseBytes.get()));
+            })
             .doOnTerminate(TenantContext::clear);
     }
 
+    /**
+     * Add the tenant to the HTTP server observation, so it ends up on the request span.
+     * It is a high cardinality key value: the {@code http.server.requests} meters only get the bounded {@code tenant} tag.
+     */
+    private void tagObservation(ServerWebExchange exchange, String tenantKey) {
+        ServerRequestObservationContext.findCurrent(exchange.getAttributes()).ifPresent(context ->
+            context.addHighCardinalityKeyValue(KeyValue.of("tenant.key", tenantKey))
+        );
+    }
+
+    private void record(ServerWebExchange exchange, String tenantKey, SignalType signal, long durationNanos, long responseBytes) {
+        ExchangeMeters exchangeMeters = meters.computeIfAbsent(tenantMeterTags.tag(tenantKey), this::exchangeMeters);
+        String outcome = signal == SignalType.CANCEL ? "CANCELLED" : outcome(exchange.getResponse().getStatusCode());
+        exchangeMeters
+            .requests()
+            .computeIfAbsent(outcome, key -> requestTimer(exchangeMeters.tenant(), key))
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+        exchangeMeters.requestSize().record(Math.max(0, exchange.getRequest().getHeaders().getContentLength()));
+        exchangeMeters.responseSize().record(responseBytes);
+    }
+
+    private Timer requestTimer(String tenant, String outcome) {
+        return Timer.builder("tenant.http.requests")
+            .description("Duration of the whole exchange per tenant")
+            .tag(TenantMeterTags.TAG, tenant)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private ExchangeMeters exchangeMeters(String tenant) {
+        return new ExchangeMeters(
+            tenant,
+            new ConcurrentHashMap<>(),
+            DistributionSummary.builder("tenant.http.request.size")
+                .description("Request body size per tenant")
+                .baseUnit("bytes")
+                .tag(TenantMeterTags.TAG, tenant)
+                .register(meterRegistry),
+            DistributionSummary.builder("tenant.http.response.size")
+                .description("Response body size per tenant")
+                .baseUnit("bytes")
+                .tag(TenantMeterTags.TAG, tenant)
+                .register(meterRegistry)
+        );
+    }
+
+    private static String outcome(HttpStatusCode status) {
+        if (status == null) {
+            return "UNKNOWN";
+        }
+        if (status.is2xxSuccessful()) {
+            return "SUCCESS";
+        }
+        if (status.is3xxRedirection()) {
+            return "REDIRECTION";
+        }
+        if (status.is4xxClientError()) {
+            return "CLIENT_ERROR";
+        }
+        if (status.is5xxServerError()) {
+            return "SERVER_ERROR";
+        }
+        return "UNKNOWN";
+    }
+
     @Override
     public int getOrder() {
         return Ordered.HIGHEST_PRECEDENCE + 1;
     }
+
+    /**
+     * Meters of the exchanges of a tenant tag value, with the durations by outcome.
+     */
+    private record ExchangeMeters(
+        String tenant,
+        Map<String, Timer> requests,
+        DistributionSummary requestSize,
+        DistributionSummary responseSize
+    ) {}
+
+    /**
+     * Counts the bytes written to the response body, keeping the zero-copy file transfers of the server.
+     */
+    private static class CountingResponse extends ServerHttpResponseDecorator implements ZeroCopyHttpOutputMessage {
+
+        private static final int BUFFER_SIZE = 8192;
+
+        private final AtomicLong bytes;
+
+        CountingResponse(ServerHttpResponse delegate, AtomicLong bytes) {
+            super(delegate);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return super.writeWith(Flux.from(body).doOnNext(buffer -> bytes.addAndGet(buffer.readableByteCount())));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return super.writeAndFlushWith(
+                Flux.from(body).map(inner -> Flux.from(inner).doOnNext(buffer -> bytes.addAndGet(buffer.readableByteCount())))
+            );
+        }
+
+        @Override
+        public Mono<Void> writeWith(Path file, long position, long count) {
+            if (getDelegate() instanceof ZeroCopyHttpOutputMessage zeroCopy) {
+                return zeroCopy.writeWith(file, position, count).doOnSuccess(done -> bytes.addAndGet(count));
+            }
+            // Counted by writeWith(Publisher)
+            return writeWith(
+                DataBufferUtils.takeUntilByteCount(DataBufferUtils.read(new FileSystemResource(file), position, bufferFactory(), BUFFER_SIZE), count)
+            );
+        }
+    }
 }
@@ -3,14 +3,20 @@ package com.atparui.rms.web.rest;
 import com.atparui.rms.domain.DriverJar;
 import com.atparui.rms.service.DatabaseDriverService;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import tech.jhipster.web.util.HeaderUtil;
@@ -22,28 +28,40 @@ public class DatabaseDriverResource {
 
     private static final Logger log = LoggerFactory.getLogger(DatabaseDriverResource.class);
     private static final String ENTITY_NAME = "databaseDriver";
+    private static final MediaType JAVA_ARCHIVE = MediaType.parseMediaType("application/java-archive");
     private final DatabaseDriverService driverService;
 
     public DatabaseDriverResource(DatabaseDriverService driverService) {
         this.driverService = driverService;
     }
 
-    @PostMapping("/upload")
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     public Mono<ResponseEntity<DriverJar>> uploadDriver(
-        @RequestParam("versionId") Long versionId,
-        @RequestParam("driverType") String driverType,
-        @RequestParam("driverClassName") String driverClassName,
-        @RequestParam("file") MultipartFile file,
-        @RequestParam(value = "description", required = false) String description
+        @RequestPart("versionId") String versionId,
+        @RequestPart("driverType") String driverType,
+        @RequestPart("driverClassName") String driverClassName,
+        @RequestPart("file") FilePart file,
+        @RequestPart(value = "description", required = false) String description
     ) throws URISyntaxException {
-        log.debug("REST request to upload driver: versionId={}, type={}, file={}", versionId, driverType, file.getOriginalFilename());
+        log.debug("REST request to upload driver: versionId={}, type={}, file={}", versionId, driverType, file.filename());
+
+        Long version;
+        try {
+            version = Long.valueOf(versionId.trim());
+        } catch (NumberFormatException e) {
+            return Mono.just(
+                ResponseEntity.badRequest()
+                    .headers(HeaderUtil.createFailureAlert("rmsApp", false, ENTITY_NAME, "invalidversion", "Invalid version ID: " + versionId))
+                    .build()
+            );
+        }
 
         // Get current user (you may need to inject SecurityContext or similar)
         String uploadedBy = "admin"; // TODO: Get from security context
 
         return driverService
-            .uploadDriver(versionId, driverType, driverClassName, file, uploadedBy)
+            .uploadDriver(version, driverType, driverClassName, description, file, uploadedBy)
             .map(result -> {
                 try {
                     return ResponseEntity.created(new URI("/api/database-drivers/" + result.getId()))
@@ -81,6 +99,46 @@ public class DatabaseDriverResource {
         return ResponseUtil.wrapOrNotFound(driverService.findById(id));
     }
 
+    /**
+     * {@code GET  /database-drivers/:id/download} : download the JAR file of a driver.
+     * <p>
+     * The file is sent with zero-copy transfers, and {@code Range} requests are answered with partial content.
+     * The strong ETag is the hash of the content, so {@code If-None-Match} requests get a {@code 304 (Not Modified)}
+     * without the file being read, once the driver and its stored file are found.
+     *
+     * @param id the id of the driver.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the JAR file in body, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/{id}/download")
+    public Mono<ResponseEntity<Resource>> downloadDriver(@PathVariable Long id) {
+        return driverService
+            .findById(id)
+            .flatMap(driver ->
+                driverService
+                    .loadDriverFile(driver)
+                    .map(file -> {
+                        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                            .contentType(JAVA_ARCHIVE)
+                            .cacheControl(CacheControl.noCache())
+                            .header(
+                                HttpHeaders.CONTENT_DISPOSITION,
+                                ContentDisposition.attachment().filename(driver.getFileName()).build().toString()
+                            );
+                        String hash = driver.getSha256Hash() != null ? driver.getSha256Hash() : driver.getMd5Hash();
+                        if (hash != null) {
+                            // Checked against If-None-Match by the response entity handler
+                            response.eTag(hash);
+                        }
+                        return response.body(file);
+                    })
+                    .onErrorResume(IOException.class, e -> {
+                        log.warn("Driver file not available for driver {}: {}", id, e.getMessage());
+                        return Mono.just(ResponseEntity.notFound().build());
+                    })
+            )
+            .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
+    }
+
     @GetMapping("/default")
     public Mono<ResponseEntity<DriverJar>> getDefaultDriver(@RequestParam Long versionId, @RequestParam String driverType) {
         return ResponseUtil.wrapOrNotFound(driverService.findDefaultDriver(versionId, driverType));
@@ -0,0 +1,74 @@
+package com.atparui.rms.web.rest;
+
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.util.ForwardedHeaderUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Pages of listings ordered by ID, requested with the {@code afterId} and {@code size} parameters.
+ * <p>
+ * A page is read with one more row than its size: when that row exists, the response has a {@code Link} header to
+ * the next page, starting after the last ID of the page. Listings ordered by another unique key use their own
+ * parameter in place of {@code afterId}.
+ */
+final class KeysetPagination {
+
+    static final int MAX_SIZE = 1000;
+
+    private KeysetPagination() {}
+
+    /**
+     * @param size the requested page size
+     * @return the number of rows to read for a page of that size
+     */
+    static int limit(int size) {
+        return Math.min(Math.max(size, 1), MAX_SIZE) + 1;
+    }
+
+    /**
+     * @param request the request of the page
+     * @param rows the rows read with {@link #limit(int)}
+     * @param size the requested page size
+     * @param id the ID of a row
+     * @return the page, with a link to the next page if there is one
+     */
+    static <T> Mono<ResponseEntity<List<T>>> page(ServerHttpRequest request, Flux<T> rows, int size, Function<T, Long> id) {
+        return page(request, rows, size, "afterId", id);
+    }
+
+    /**
+     * @param request the request of the page
+     * @param rows the rows read with {@link #limit(int)}
+     * @param size the requested page size
+     * @param afterParam the parameter of the last key of the previous page
+     * @param key the key of a row
+     * @return the page, with a link to the next page if there is one
+     */
+    static <T> Mono<ResponseEntity<List<T>>> page(
+        ServerHttpRequest request,
+        Flux<T> rows,
+        int size,
+        String afterParam,
+        Function<T, ?> key
+    ) {
+        int pageSize = limit(size) - 1;
+        return rows
+            .collectList()
+            .map(list -> {
+                if (list.size() <= pageSize) {
+                    return ResponseEntity.ok(list);
+                }
+                List<T> page = list.subList(0, pageSize);
+                String next = ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders())
+                    .replaceQueryParam(afterParam, key.apply(page.get(pageSize - 1)))
+                    .replaceQueryParam("size", pageSize)
+                    .toUriString();
+                return ResponseEntity.ok().header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"").body(page);
+            });
+    }
+}
@@ -2,12 +2,16 @@ package com.atparui.rms.web.rest;
 
 import com.atparui.rms.domain.Platform;
 import com.atparui.rms.service.PlatformService;
+import com.atparui.rms.service.dto.PlatformDTO;
 import jakarta.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
@@ -73,15 +77,61 @@ public class PlatformResource {
             .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
     }
 
+    /**
+     * {@code GET /api/platforms} : get the platforms, ordered by ID.
+     * <p>
+     * Without {@code size}, all the platforms are returned. With it, a page of at most {@code size} platforms after
+     * {@code afterId} is returned, with a {@code Link} header to the next page.
+     *
+     * @param request the request.
+     * @param afterId the ID after which to start.
+     * @param size the page size.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of platforms in body.
+     */
     @GetMapping
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
-    public Flux<Platform> getAllPlatforms() {
-        return platformService.findAll();
+    public Mono<ResponseEntity<List<PlatformDTO>>> getAllPlatforms(
+        ServerHttpRequest request,
+        @RequestParam(value = "afterId", required = false) Long afterId,
+        @RequestParam(value = "size", required = false) Integer size
+    ) {
+        return platforms(request, afterId, size, null);
     }
 
+    /**
+     * {@code GET /api/platforms} : stream the platforms as newline delimited JSON, ordered by ID.
+     *
+     * @param afterId the ID after which to start.
+     * @return the platforms, one per line.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public Flux<PlatformDTO> streamPlatforms(@RequestParam(value = "afterId", required = false) Long afterId) {
+        return platformService.findSummaries(afterId, null, 0);
+    }
+
+    /**
+     * {@code GET /api/platforms/active} : get the active platforms, ordered by ID, paged like {@code GET /api/platforms}.
+     */
     @GetMapping("/active")
-    public Flux<Platform> getAllActivePlatforms() {
-        return platformService.findAllActive();
+    public Mono<ResponseEntity<List<PlatformDTO>>> getAllActivePlatforms(
+        ServerHttpRequest request,
+        @RequestParam(value = "afterId", required = false) Long afterId,
+        @RequestParam(value = "size", required = false) Integer size
+    ) {
+        return platforms(request, afterId, size, true);
+    }
+
+    private Mono<ResponseEntity<List<PlatformDTO>>> platforms(ServerHttpRequest request, Long afterId, Integer size, Boolean active) {
+        if (size == null) {
+            return platformService.findSummaries(afterId, active, 0).collectList().map(ResponseEntity::ok);
+        }
+        return KeysetPagination.page(
+            request,
+            platformService.findSummaries(afterId, active, KeysetPagination.limit(size)),
+            size,
+            PlatformDTO::getId
+        );
     }
 
     @GetMapping("/{id}")
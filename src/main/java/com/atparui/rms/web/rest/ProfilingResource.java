@@ -0,0 +1,181 @@
+package com.atparui.rms.web.rest;
+
+import com.atparui.rms.service.FlightRecorderService;
+import com.atparui.rms.service.FlightRecorderService.Kind;
+import com.atparui.rms.service.FlightRecorderService.RecordingInfo;
+import com.atparui.rms.service.FlightRecorderService.Summary;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import tech.jhipster.web.util.HeaderUtil;
+import tech.jhipster.web.util.reactive.ResponseUtil;
+
+/**
+ * REST controller for the JDK Flight Recorder recordings of the gateway.
+ */
+@RestController
+@RequestMapping("/management/profiling")
+@PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
+public class ProfilingResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProfilingResource.class);
+
+    private static final String ENTITY_NAME = "profiling";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FlightRecorderService flightRecorderService;
+
+    public ProfilingResource(FlightRecorderService flightRecorderService) {
+        this.flightRecorderService = flightRecorderService;
+    }
+
+    /**
+     * {@code GET  /profiling/continuous} : download the last minutes of the continuous recording.
+     *
+     * @param minutes the number of minutes to download.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the recording in body, in JFR format, or with
+     * status {@code 400 (Bad Request)} if the number of minutes is not positive.
+     */
+    @GetMapping(value = "/continuous", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Mono<ResponseEntity<Flux<DataBuffer>>> downloadContinuous(@RequestParam(value = "minutes", defaultValue = "5") long minutes) {
+        LOG.debug("REST request to download the last {} minutes of the continuous recording", minutes);
+        if (minutes <= 0) {
+            return Mono.just(invalidMinutes(minutes));
+        }
+        return flightRecorderService
+            .dumpLast(Duration.ofMinutes(minutes))
+            .map(file -> download(file, "gateway-" + Instant.now() + ".jfr"));
+    }
+
+    /**
+     * {@code GET  /profiling/continuous/summary} : summarize the last minutes of the continuous recording.
+     *
+     * @param minutes the number of minutes to summarize.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the summary in body, or with status
+     * {@code 400 (Bad Request)} if the number of minutes is not positive.
+     */
+    @GetMapping("/continuous/summary")
+    public Mono<ResponseEntity<Summary>> summarizeContinuous(@RequestParam(value = "minutes", defaultValue = "5") long minutes) {
+        LOG.debug("REST request to summarize the last {} minutes of the continuous recording", minutes);
+        if (minutes <= 0) {
+            return Mono.just(invalidMinutes(minutes));
+        }
+        return summarize(flightRecorderService.dumpLast(Duration.ofMinutes(minutes))).map(ResponseEntity::ok);
+    }
+
+    /**
+     * {@code POST  /profiling/recordings} : start a targeted recording.
+     *
+     * @param kind the kind of events to record.
+     * @param seconds the duration of the recording.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and the recording in body, or with
+     * status {@code 409 (Conflict)} if a recording of that kind is running.
+     */
+    @PostMapping("/recordings")
+    public Mono<ResponseEntity<RecordingInfo>> startRecording(
+        @RequestParam("kind") Kind kind,
+        @RequestParam(value = "seconds", defaultValue = "60") long seconds
+    ) {
+        LOG.debug("REST request to start a {} recording for {} seconds", kind, seconds);
+        // Starting a recording is synchronized and writes to disk: kept off the event loop
+        return Mono.fromCallable(() -> flightRecorderService.start(kind, Duration.ofSeconds(Math.max(seconds, 1))))
+            .subscribeOn(Schedulers.boundedElastic())
+            .map(recording -> ResponseEntity.created(URI.create("/management/profiling/recordings/" + kind)).body(recording))
+            .onErrorResume(IllegalStateException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).build()));
+    }
+
+    /**
+     * {@code GET  /profiling/recordings} : get the targeted recordings.
+     *
+     * @return the recordings, running or stopped.
+     */
+    @GetMapping("/recordings")
+    public List<RecordingInfo> getRecordings() {
+        return flightRecorderService.recordings();
+    }
+
+    @GetMapping("/recordings/{kind}")
+    public Mono<ResponseEntity<RecordingInfo>> getRecording(@PathVariable("kind") Kind kind) {
+        return ResponseUtil.wrapOrNotFound(Mono.justOrEmpty(flightRecorderService.recording(kind)));
+    }
+
+    /**
+     * {@code GET  /profiling/recordings/:kind/summary} : summarize a targeted recording, running or stopped.
+     *
+     * @param kind the kind of the recording.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the summary in body, or with status
+     * {@code 404 (Not Found)}.
+     */
+    @GetMapping("/recordings/{kind}/summary")
+    public Mono<ResponseEntity<Summary>> summarizeRecording(@PathVariable("kind") Kind kind) {
+        return ResponseUtil.wrapOrNotFound(summarize(flightRecorderService.dump(kind)));
+    }
+
+    @GetMapping(value = "/recordings/{kind}/file", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Mono<ResponseEntity<Flux<DataBuffer>>> downloadRecording(@PathVariable("kind") Kind kind) {
+        return flightRecorderService
+            .dump(kind)
+            .map(file -> download(file, "gateway-" + kind.name().toLowerCase(Locale.ROOT) + "-" + Instant.now() + ".jfr"))
+            .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/recordings/{kind}")
+    public ResponseEntity<Void> closeRecording(@PathVariable("kind") Kind kind) {
+        LOG.debug("REST request to close the {} recording", kind);
+        return flightRecorderService.close(kind) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    private static <T> ResponseEntity<T> invalidMinutes(long minutes) {
+        return ResponseEntity.badRequest()
+            .headers(HeaderUtil.createFailureAlert("rmsApp", false, ENTITY_NAME, "invalidminutes", "Invalid number of minutes: " + minutes))
+            .build();
+    }
+
+    private Mono<Summary> summarize(Mono<Path> dump) {
+        return dump.flatMap(file -> flightRecorderService.summarize(file).doFinally(signal -> delete(file)));
+    }
+
+    private static ResponseEntity<Flux<DataBuffer>> download(Path file, String fileName) {
+        Flux<DataBuffer> body = DataBufferUtils.read(file, DefaultDataBufferFactory.sharedInstance, BUFFER_SIZE).doFinally(signal ->
+            delete(file)
+        );
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .body(body);
+    }
+
+    // Deleted on a worker: the response may complete on the event loop
+    private static void delete(Path file) {
+        Schedulers.boundedElastic().schedule(() -> deleteNow(file));
+    }
+
+    private static void deleteNow(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.warn("Failed to delete recording file {}: {}", file, e.getMessage());
+        }
+    }
+}
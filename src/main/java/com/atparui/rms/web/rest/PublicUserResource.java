@@ -1,6 +1,6 @@
 package com.atparui.rms.web.rest;
 
-import com.atparui.rms.repository.search.UserSearchRepository;
+import com.atparui.rms.service.UserSearchService;
 import com.atparui.rms.service.UserService;
 import com.atparui.rms.service.dto.UserDTO;
 import java.util.ArrayList;
@@ -24,11 +24,11 @@ public class PublicUserResource {
     private static final Logger LOG = LoggerFactory.getLogger(PublicUserResource.class);
 
     private final UserService userService;
-    private final UserSearchRepository userSearchRepository;
+    private final UserSearchService userSearchService;
 
-    public PublicUserResource(UserSearchRepository userSearchRepository, UserService userService) {
+    public PublicUserResource(UserSearchService userSearchService, UserService userService) {
         this.userService = userService;
-        this.userSearchRepository = userSearchRepository;
+        this.userSearchService = userSearchService;
     }
 
     /**
@@ -61,10 +61,39 @@ public class PublicUserResource {
      * {@code SEARCH /users/_search/:query} : search for the User corresponding to the query.
      *
      * @param query the query to search.
-     * @return the result of the search.
+     * @return the first page of the result of the search.
      */
     @GetMapping("/users/_search/{query}")
     public Mono<List<UserDTO>> search(@PathVariable("query") String query) {
-        return userSearchRepository.search(query).map(UserDTO::new).collectList();
+        return userSearchService.search(query, false, null, userSearchService.pageSize(null)).collectList();
+    }
+
+    /**
+     * {@code SEARCH /users/_search?query=:query} : search for the users by login, a page at a time.
+     *
+     * @param request a {@link ServerHttpRequest} request.
+     * @param query the words of the logins, or the start of the logins with {@code prefix}.
+     * @param prefix whether to match the start of the logins, for type-ahead.
+     * @param afterLogin the last login of the previous page.
+     * @param size the page size.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the users ordered by login in body.
+     */
+    @GetMapping(value = "/users/_search", params = "query")
+    public Mono<ResponseEntity<List<UserDTO>>> searchPage(
+        ServerHttpRequest request,
+        @RequestParam("query") String query,
+        @RequestParam(value = "prefix", defaultValue = "false") boolean prefix,
+        @RequestParam(value = "afterLogin", required = false) String afterLogin,
+        @RequestParam(value = "size", required = false) Integer size
+    ) {
+        LOG.debug("REST request to search a page of Users for query {}", query);
+        int pageSize = userSearchService.pageSize(size);
+        return KeysetPagination.page(
+            request,
+            userSearchService.search(query, prefix, afterLogin, KeysetPagination.limit(pageSize)),
+            pageSize,
+            "afterLogin",
+            UserDTO::getLogin
+        );
     }
 }
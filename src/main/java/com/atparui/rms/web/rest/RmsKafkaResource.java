@@ -1,11 +1,24 @@
 package com.atparui.rms.web.rest;
 
 import com.atparui.rms.broker.KafkaConsumer;
+import com.atparui.rms.broker.KafkaConsumer.SubscriptionInfo;
+import com.atparui.rms.broker.KafkaPublisher;
+import com.atparui.rms.broker.KafkaPublisher.BufferFullException;
+import com.atparui.rms.config.ApplicationProperties.KafkaSse.Overflow;
+import com.atparui.rms.config.TenantContext;
+import com.atparui.rms.security.AuthoritiesConstants;
+import com.atparui.rms.security.SecurityUtils;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -13,27 +26,101 @@ import reactor.core.publisher.Mono;
 @RequestMapping("/api/rms-kafka")
 public class RmsKafkaResource {
 
-    private static final String PRODUCER_BINDING_NAME = "binding-out-0";
-
     private static final Logger LOG = LoggerFactory.getLogger(RmsKafkaResource.class);
     private final KafkaConsumer kafkaConsumer;
-    private final StreamBridge streamBridge;
+    private final KafkaPublisher kafkaPublisher;
 
-    public RmsKafkaResource(StreamBridge streamBridge, KafkaConsumer kafkaConsumer) {
-        this.streamBridge = streamBridge;
+    public RmsKafkaResource(KafkaPublisher kafkaPublisher, KafkaConsumer kafkaConsumer) {
+        this.kafkaPublisher = kafkaPublisher;
         this.kafkaConsumer = kafkaConsumer;
     }
 
+    /**
+     * {@code POST  /publish} : publish a message to Kafka.
+     *
+     * @param message the message.
+     * @param key the key of the message, if any.
+     * @param tenant the tenant of the message, if any.
+     * @return the {@link ResponseEntity} with status {@code 204 (No Content)} once the message is acked, or with status
+     * {@code 429 (Too Many Requests)} if too many messages are waiting to be sent.
+     */
     @PostMapping("/publish")
-    public Mono<ResponseEntity<Void>> publish(@RequestParam("message") String message) {
+    public Mono<ResponseEntity<Void>> publish(
+        @RequestParam("message") String message,
+        @RequestParam(value = "key", required = false) String key,
+        @RequestHeader(value = KafkaConsumer.TENANT_HEADER, required = false) String tenant
+    ) {
         LOG.debug("REST request the message : {} to send to Kafka topic", message);
-        streamBridge.send(PRODUCER_BINDING_NAME, message);
-        return Mono.just(ResponseEntity.noContent().build());
+        return published(kafkaPublisher.publish(tenant, key, List.of(message)));
+    }
+
+    /**
+     * {@code POST  /publish/bulk} : publish the messages of a NDJSON body to Kafka, one per line.
+     *
+     * @param messages the messages.
+     * @param key the key of the messages, if any.
+     * @param tenant the tenant of the messages, if any.
+     * @return the {@link ResponseEntity} with status {@code 204 (No Content)} once all the messages are acked, or with
+     * status {@code 429 (Too Many Requests)} if too many messages are waiting to be sent, the earlier lines may then
+     * have been published.
+     */
+    @PostMapping(value = "/publish/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Void>> publishBulk(
+        @RequestBody Flux<String> messages,
+        @RequestParam(value = "key", required = false) String key,
+        @RequestHeader(value = KafkaConsumer.TENANT_HEADER, required = false) String tenant
+    ) {
+        LOG.debug("REST request to send messages to Kafka topic");
+        return published(kafkaPublisher.publishAll(tenant, key, messages).doOnNext(count -> LOG.debug("Published {} messages", count)));
     }
 
-    @GetMapping("/consume")
-    public Flux<String> consume() {
+    private static Mono<ResponseEntity<Void>> published(Mono<?> acked) {
+        return acked
+            .then(Mono.just(ResponseEntity.noContent().<Void>build()))
+            .onErrorResume(BufferFullException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build()));
+    }
+
+    /**
+     * {@code GET  /consume} : stream the Kafka records as server-sent events.
+     *
+     * @param exchange the exchange, with the tenant resolved by the {@link com.atparui.rms.web.filter.TenantFilter}.
+     * @param tenant the tenant of the records, defaults to the resolved tenant, admins only for another tenant.
+     * @param topic the topic of the records, or all topics.
+     * @param overflow what to do when the client does not keep up, defaults to {@code application.kafka-sse.overflow}.
+     * @param lastEventId the id of the last record received before reconnecting.
+     * @return the records, with heartbeat comments in between, or status {@code 403 (Forbidden)} for the records of
+     * another tenant without being an admin.
+     */
+    @GetMapping(value = "/consume", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> consume(
+        ServerWebExchange exchange,
+        @RequestParam(value = "tenant", required = false) String tenant,
+        @RequestParam(value = "topic", required = false) String topic,
+        @RequestParam(value = "overflow", required = false) Overflow overflow,
+        @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId
+    ) {
         LOG.debug("REST request to consume records from Kafka topics");
-        return this.kafkaConsumer.getFlux();
+        String resolvedTenant = exchange.getAttribute(TenantContext.TENANT_KEY);
+        if (tenant == null || tenant.equals(resolvedTenant)) {
+            return this.kafkaConsumer.subscribe(resolvedTenant, topic, lastEventId, overflow);
+        }
+        return SecurityUtils.hasCurrentUserThisAuthority(AuthoritiesConstants.ADMIN)
+            .defaultIfEmpty(false)
+            .flatMapMany(admin ->
+                admin
+                    ? this.kafkaConsumer.subscribe(tenant, topic, lastEventId, overflow)
+                    : Flux.error(new AccessDeniedException("Only admins can consume the records of another tenant"))
+            );
+    }
+
+    /**
+     * {@code GET  /subscriptions} : get the clients streaming the Kafka records, with their lag and dropped records.
+     *
+     * @return the subscriptions.
+     */
+    @GetMapping("/subscriptions")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
+    public List<SubscriptionInfo> getSubscriptions() {
+        return this.kafkaConsumer.getSubscriptions();
     }
 }
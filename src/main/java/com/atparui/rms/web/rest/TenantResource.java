@@ -6,12 +6,16 @@ import com.atparui.rms.service.TenantService;
 import com.atparui.rms.service.dto.DatabaseConnectionTestDTO;
 import com.atparui.rms.service.dto.DatabaseConnectionTestResult;
 import com.atparui.rms.service.dto.TenantDatabaseConfigDTO;
+import com.atparui.rms.service.dto.TenantSummaryDTO;
 import jakarta.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
@@ -102,10 +106,57 @@ public class TenantResource {
             .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
     }
 
+    /**
+     * {@code GET /api/tenants} : get the tenants, ordered by ID.
+     * <p>
+     * Without {@code size}, all the tenants are returned. With it, a page of at most {@code size} tenants after
+     * {@code afterId} is returned, with a {@code Link} header to the next page.
+     *
+     * @param request the request.
+     * @param afterId the ID after which to start.
+     * @param size the page size.
+     * @param active the active status of the tenants.
+     * @param search text contained in the name, ID or subdomain of the tenants.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of tenants in body.
+     */
     @GetMapping
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
-    public Flux<Tenant> getAllTenants() {
-        return tenantService.findAll();
+    public Mono<ResponseEntity<List<TenantSummaryDTO>>> getAllTenants(
+        ServerHttpRequest request,
+        @RequestParam(value = "afterId", required = false) Long afterId,
+        @RequestParam(value = "size", required = false) Integer size,
+        @RequestParam(value = "active", required = false) Boolean active,
+        @RequestParam(value = "search", required = false) String search
+    ) {
+        log.debug("REST request to get the tenants after {}", afterId);
+        if (size == null) {
+            return tenantService.findSummaries(afterId, active, search, 0).collectList().map(ResponseEntity::ok);
+        }
+        return KeysetPagination.page(
+            request,
+            tenantService.findSummaries(afterId, active, search, KeysetPagination.limit(size)),
+            size,
+            TenantSummaryDTO::getId
+        );
+    }
+
+    /**
+     * {@code GET /api/tenants} : stream the tenants as newline delimited JSON, ordered by ID.
+     *
+     * @param afterId the ID after which to start.
+     * @param active the active status of the tenants.
+     * @param search text contained in the name, ID or subdomain of the tenants.
+     * @return the tenants, one per line.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public Flux<TenantSummaryDTO> streamTenants(
+        @RequestParam(value = "afterId", required = false) Long afterId,
+        @RequestParam(value = "active", required = false) Boolean active,
+        @RequestParam(value = "search", required = false) String search
+    ) {
+        log.debug("REST request to stream the tenants after {}", afterId);
+        return tenantService.findSummaries(afterId, active, search, 0);
     }
 
     @GetMapping("/{id}")
@@ -209,4 +260,56 @@ public class TenantResource {
                 return Mono.just(ResponseEntity.ok().body(errorResult));
             });
     }
+
+    /**
+     * {@code POST /api/tenants/test-database-connections} : Test many database connections.
+     * The connections are tested concurrently and each result is streamed as soon as available.
+     *
+     * @param testDTOs the database connection test DTOs
+     * @return the test results, as newline-delimited JSON.
+     */
+    @PostMapping(value = "/test-database-connections", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public Flux<DatabaseConnectionTestResult> testDatabaseConnections(@Valid @RequestBody Flux<DatabaseConnectionTestDTO> testDTOs) {
+        log.debug("REST request to test database connections");
+        return databaseConnectionTestService.testConnections(testDTOs);
+    }
+
+    /**
+     * {@code GET /api/tenants/test-database-connections} : Test the database connections of all the tenants.
+     * Only the tenants with connection details (vendor, host, port and database) are tested.
+     *
+     * @return the test results, with their tenant ID, as newline-delimited JSON.
+     */
+    @GetMapping(value = "/test-database-connections", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public Flux<DatabaseConnectionTestResult> testTenantDatabaseConnections() {
+        log.debug("REST request to test the database connections of all tenants");
+        return databaseConnectionTestService.testConnections(
+            tenantService
+                .findAll()
+                .filter(
+                    tenant ->
+                        Boolean.TRUE.equals(tenant.getActive()) &&
+                        tenant.getDatabaseVendorCode() != null &&
+                        tenant.getDatabaseHost() != null &&
+                        tenant.getDatabasePort() != null &&
+                        tenant.getDatabaseName() != null
+                )
+                .map(tenant -> {
+                    DatabaseConnectionTestDTO testDTO = new DatabaseConnectionTestDTO(
+                        tenant.getDatabaseVendorCode(),
+                        tenant.getDatabaseHost(),
+                        tenant.getDatabasePort(),
+                        tenant.getDatabaseName(),
+                        tenant.getSchemaName(),
+                        tenant.getDatabaseUsername(),
+                        tenant.getDatabasePassword()
+                    );
+                    testDTO.setDriverId(tenant.getDriverJarId());
+                    testDTO.setTenantId(tenant.getTenantId());
+                    return testDTO;
+                })
+        );
+    }
 }
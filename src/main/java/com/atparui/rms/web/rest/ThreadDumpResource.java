@@ -1,18 +1,18 @@
 package com.atparui.rms.web.rest;
 
-import java.lang.management.ManagementFactory;
-import java.lang.management.MonitorInfo;
-import java.lang.management.ThreadInfo;
-import java.lang.management.ThreadMXBean;
-import java.util.ArrayList;
-import java.util.HashMap;
+import com.atparui.rms.service.ThreadDumpService;
+import com.atparui.rms.service.ThreadDumpService.HotThread;
+import com.atparui.rms.service.ThreadDumpService.ThreadEntry;
+import java.time.Duration;
 import java.util.List;
-import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -25,107 +25,83 @@ public class ThreadDumpResource {
 
     private static final Logger LOG = LoggerFactory.getLogger(ThreadDumpResource.class);
 
+    private final ThreadDumpService threadDumpService;
+
+    public ThreadDumpResource(ThreadDumpService threadDumpService) {
+        this.threadDumpService = threadDumpService;
+    }
+
     /**
      * {@code GET  /threaddump} : get the thread dump.
      *
+     * @param name text contained in the names of the threads to dump.
+     * @param maxDepth the maximum number of frames of each stack trace.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the thread dump in body.
      */
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public Mono<List<Map<String, Object>>> getThreadDump() {
-        try {
-            LOG.info("ThreadDump endpoint called");
-            ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
-
-            // Check if thread contention monitoring is supported
-            boolean contentionSupported = threadBean.isThreadContentionMonitoringSupported();
-            if (!contentionSupported) {
-                LOG.warn("Thread contention monitoring not supported, using basic thread dump");
-            }
-
-            // Enable contention monitoring if supported
-            if (contentionSupported && !threadBean.isThreadContentionMonitoringEnabled()) {
-                threadBean.setThreadContentionMonitoringEnabled(true);
-            }
-
-            ThreadInfo[] threadInfos = threadBean.dumpAllThreads(true, true);
-            LOG.info("Retrieved {} threads for thread dump", threadInfos.length);
-
-            List<Map<String, Object>> threads = new ArrayList<>();
-
-            for (ThreadInfo threadInfo : threadInfos) {
-                Map<String, Object> thread = new HashMap<>();
-                thread.put("threadName", threadInfo.getThreadName());
-                thread.put("threadId", threadInfo.getThreadId());
-                thread.put("blockedTime", threadInfo.getBlockedTime());
-                thread.put("blockedCount", threadInfo.getBlockedCount());
-                thread.put("waitedTime", threadInfo.getWaitedTime());
-                thread.put("waitedCount", threadInfo.getWaitedCount());
-                thread.put("lockName", threadInfo.getLockName());
-                thread.put("lockOwnerId", threadInfo.getLockOwnerId());
-                thread.put("lockOwnerName", threadInfo.getLockOwnerName());
-                thread.put("inNative", threadInfo.isInNative());
-                thread.put("suspended", threadInfo.isSuspended());
-                thread.put("threadState", threadInfo.getThreadState().toString());
-
-                // Stack trace
-                StackTraceElement[] stackTrace = threadInfo.getStackTrace();
-                List<Map<String, Object>> stackTraceList = new ArrayList<>();
-                for (StackTraceElement element : stackTrace) {
-                    Map<String, Object> stackElement = new HashMap<>();
-                    stackElement.put("className", element.getClassName());
-                    stackElement.put("fileName", element.getFileName());
-                    stackElement.put("lineNumber", element.getLineNumber());
-                    stackElement.put("methodName", element.getMethodName());
-                    stackElement.put("nativeMethod", element.isNativeMethod());
-                    stackTraceList.add(stackElement);
-                }
-                thread.put("stackTrace", stackTraceList);
-
-                // Locked monitors
-                MonitorInfo[] lockedMonitors = threadInfo.getLockedMonitors();
-                if (lockedMonitors != null && lockedMonitors.length > 0) {
-                    List<Map<String, Object>> lockedMonitorsList = new ArrayList<>();
-                    for (MonitorInfo monitor : lockedMonitors) {
-                        Map<String, Object> monitorInfo = new HashMap<>();
-                        monitorInfo.put("className", monitor.getClassName());
-                        monitorInfo.put("identityHashCode", monitor.getIdentityHashCode());
-                        monitorInfo.put("lockedStackDepth", monitor.getLockedStackDepth());
-                        StackTraceElement lockedFrame = monitor.getLockedStackFrame();
-                        if (lockedFrame != null) {
-                            Map<String, Object> frame = new HashMap<>();
-                            frame.put("className", lockedFrame.getClassName());
-                            frame.put("fileName", lockedFrame.getFileName());
-                            frame.put("lineNumber", lockedFrame.getLineNumber());
-                            frame.put("methodName", lockedFrame.getMethodName());
-                            monitorInfo.put("lockedStackFrame", frame);
-                        }
-                        lockedMonitorsList.add(monitorInfo);
-                    }
-                    thread.put("lockedMonitors", lockedMonitorsList);
-                }
-
-                // Locked synchronizers
-                java.lang.management.LockInfo[] lockedSynchronizers = threadInfo.getLockedSynchronizers();
-                if (lockedSynchronizers != null && lockedSynchronizers.length > 0) {
-                    List<Map<String, Object>> lockedSynchronizersList = new ArrayList<>();
-                    for (java.lang.management.LockInfo synchronizer : lockedSynchronizers) {
-                        Map<String, Object> syncInfo = new HashMap<>();
-                        syncInfo.put("className", synchronizer.getClassName());
-                        syncInfo.put("identityHashCode", synchronizer.getIdentityHashCode());
-                        lockedSynchronizersList.add(syncInfo);
-                    }
-                    thread.put("lockedSynchronizers", lockedSynchronizersList);
-                }
+    public Mono<List<ThreadEntry>> getThreadDump(
+        @RequestParam(value = "name", required = false) String name,
+        @RequestParam(value = "maxDepth", defaultValue = "" + Integer.MAX_VALUE) int maxDepth
+    ) {
+        LOG.debug("REST request to get the thread dump");
+        return threadDumpService
+            .dump(name, depth(maxDepth))
+            .collectList()
+            .onErrorResume(e -> {
+                LOG.error("Error getting thread dump", e);
+                // Return empty list to prevent frontend errors
+                return Mono.just(List.of());
+            });
+    }
 
-                threads.add(thread);
-            }
+    /**
+     * {@code GET  /threaddump} : stream the thread dump as newline delimited JSON, as the threads are read.
+     *
+     * @param name text contained in the names of the threads to dump.
+     * @param maxDepth the maximum number of frames of each stack trace.
+     * @return the threads, one per line.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ThreadEntry> streamThreadDump(
+        @RequestParam(value = "name", required = false) String name,
+        @RequestParam(value = "maxDepth", defaultValue = "" + Integer.MAX_VALUE) int maxDepth
+    ) {
+        LOG.debug("REST request to stream the thread dump");
+        return threadDumpService.dump(name, depth(maxDepth));
+    }
 
-            LOG.debug("Returning thread dump with {} threads", threads.size());
-            return Mono.just(threads);
-        } catch (Exception e) {
-            LOG.error("Error getting thread dump", e);
-            // Return empty list to prevent frontend errors
-            return Mono.just(new ArrayList<>());
+    /**
+     * {@code GET  /threaddump/hot} : get the threads using the most CPU time over an interval.
+     *
+     * @param name text contained in the names of the threads.
+     * @param intervalMs the interval over which CPU time is measured, in milliseconds.
+     * @param threads the maximum number of threads.
+     * @param snapshots the number of stack samples of each thread.
+     * @param maxDepth the maximum number of frames of each stack trace.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the hot threads in body, status
+     * {@code 429 (Too Many Requests)} if hot threads are already being computed, or status
+     * {@code 501 (Not Implemented)} if thread CPU time is not measured by the JVM.
+     */
+    @GetMapping(value = "/hot", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<HotThread>>> getHotThreads(
+        @RequestParam(value = "name", required = false) String name,
+        @RequestParam(value = "intervalMs", defaultValue = "500") long intervalMs,
+        @RequestParam(value = "threads", defaultValue = "3") int threads,
+        @RequestParam(value = "snapshots", defaultValue = "10") int snapshots,
+        @RequestParam(value = "maxDepth", defaultValue = "32") int maxDepth
+    ) {
+        LOG.debug("REST request to get the hot threads over {} ms", intervalMs);
+        if (!threadDumpService.isHotThreadsSupported()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build());
         }
+        return threadDumpService
+            .hotThreads(name, Duration.ofMillis(Math.max(intervalMs, 1)), threads, snapshots, depth(maxDepth))
+            .map(ResponseEntity::ok)
+            .defaultIfEmpty(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build());
+    }
+
+    // A negative depth makes the thread MXBean throw: no frames instead
+    private static int depth(int maxDepth) {
+        return Math.max(maxDepth, 0);
     }
 }
@@ -0,0 +1,91 @@
+package com.atparui.rms.web.rest;
+
+import com.atparui.rms.service.UserIndexService;
+import com.atparui.rms.service.UserIndexService.ReindexStatus;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller for the Elasticsearch index of the users.
+ */
+@RestController
+@RequestMapping("/management/user-index")
+@PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
+public class UserIndexResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserIndexResource.class);
+
+    private final UserIndexService userIndexService;
+
+    public UserIndexResource(UserIndexService userIndexService) {
+        this.userIndexService = userIndexService;
+    }
+
+    /**
+     * {@code GET  /user-index} : get the state of the user index.
+     *
+     * @return the pending changes, the dead letters and the status of the last reindex.
+     */
+    @GetMapping
+    public Map<String, Object> getStatus() {
+        return Map.of(
+            "pending",
+            userIndexService.getPending(),
+            "deadLetters",
+            userIndexService.getDeadLetters().size(),
+            "reindex",
+            userIndexService.getReindexStatus()
+        );
+    }
+
+    @GetMapping("/dead-letters")
+    public List<String> getDeadLetters() {
+        return userIndexService.getDeadLetters();
+    }
+
+    /**
+     * {@code POST  /user-index/dead-letters/retry} : index the dead letters again.
+     *
+     * @return the number of users enqueued.
+     */
+    @PostMapping("/dead-letters/retry")
+    public Map<String, Integer> retryDeadLetters() {
+        LOG.debug("REST request to retry the user index dead letters");
+        return Map.of("enqueued", userIndexService.retryDeadLetters());
+    }
+
+    /**
+     * {@code POST  /user-index/reindex} : start a full reindex of the users.
+     *
+     * @param resume whether to continue after the last user indexed by a failed or stopped reindex.
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} and the status of the reindex in body, or
+     * with status {@code 409 (Conflict)} if a reindex is running.
+     */
+    @PostMapping("/reindex")
+    public ResponseEntity<ReindexStatus> startReindex(@RequestParam(value = "resume", defaultValue = "false") boolean resume) {
+        LOG.debug("REST request to reindex the users, resuming: {}", resume);
+        try {
+            return ResponseEntity.accepted().location(URI.create("/management/user-index/reindex")).body(userIndexService.startReindex(resume));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @GetMapping("/reindex")
+    public ReindexStatus getReindexStatus() {
+        return userIndexService.getReindexStatus();
+    }
+
+    @DeleteMapping("/reindex")
+    public ResponseEntity<Void> stopReindex() {
+        LOG.debug("REST request to stop the reindex of the users");
+        return userIndexService.stopReindex() ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,135 @@
+package com.atparui.rms.web.session;
+
+import io.r2dbc.spi.Row;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sessions kept in the {@code gateway_sessions} table of the master database, shared by the gateway instances: any of
+ * them serves any user.
+ * <p>
+ * Requests that do not change the session attributes only update its last access time, at most once per
+ * {@code touch-interval} (see {@link SerializedWebSessionStore}). Expired sessions are deleted every
+ * {@code cleanup-interval}.
+ */
+public class DatabaseSessionBackend implements SessionBackend {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseSessionBackend.class);
+
+    private static final String SELECT =
+        "SELECT session_id, principal_name, creation_time, last_access_time, max_idle_seconds, attributes " +
+        "FROM gateway_sessions WHERE session_id = :id";
+
+    private static final String UPSERT =
+        "INSERT INTO gateway_sessions " +
+        "(session_id, principal_name, creation_time, last_access_time, max_idle_seconds, expiry_time, attributes) " +
+        "VALUES (:id, :principalName, :creationTime, :lastAccessTime, :maxIdleSeconds, :expiryTime, :attributes) " +
+        "ON CONFLICT (session_id) DO UPDATE SET principal_name = EXCLUDED.principal_name, " +
+        "last_access_time = EXCLUDED.last_access_time, max_idle_seconds = EXCLUDED.max_idle_seconds, " +
+        "expiry_time = EXCLUDED.expiry_time, attributes = EXCLUDED.attributes";
+
+    private static final String TOUCH =
+        "UPDATE gateway_sessions SET last_access_time = :lastAccessTime, expiry_time = :expiryTime WHERE session_id = :id";
+
+    private static final String DELETE = "DELETE FROM gateway_sessions WHERE session_id = :id";
+
+    // Keeps the most recently used sessions of the principal
+    private static final String DELETE_EXCESS =
+        "DELETE FROM gateway_sessions WHERE session_id IN (" +
+        "SELECT session_id FROM gateway_sessions WHERE principal_name = :principalName " +
+        "ORDER BY last_access_time DESC OFFSET :maxSessions)";
+
+    private static final String DELETE_EXPIRED = "DELETE FROM gateway_sessions WHERE expiry_time <= :now";
+
+    private final DatabaseClient databaseClient;
+
+    private final int maxSessionsPerPrincipal;
+
+    public DatabaseSessionBackend(DatabaseClient databaseClient, int maxSessionsPerPrincipal) {
+        this.databaseClient = databaseClient;
+        this.maxSessionsPerPrincipal = maxSessionsPerPrincipal;
+    }
+
+    @Override
+    public Mono<StoredSession> load(String id) {
+        return databaseClient.sql(SELECT).bind("id", id).map((row, metadata) -> toSession(row)).one();
+    }
+
+    @Override
+    public Mono<Void> save(StoredSession session) {
+        DatabaseClient.GenericExecuteSpec upsert = databaseClient
+            .sql(UPSERT)
+            .bind("id", session.id())
+            .bind("creationTime", session.creationTime().toEpochMilli())
+            .bind("lastAccessTime", session.lastAccessTime().toEpochMilli())
+            .bind("maxIdleSeconds", session.maxIdleTime().toSeconds())
+            .bind("expiryTime", expiryTime(session.lastAccessTime(), session.maxIdleTime()))
+            .bind("attributes", ByteBuffer.wrap(session.attributes()));
+        upsert = session.principalName() != null
+            ? upsert.bind("principalName", session.principalName())
+            : upsert.bindNull("principalName", String.class);
+        Mono<Void> saved = upsert.then();
+        if (session.principalName() == null) {
+            return saved;
+        }
+        return saved.then(
+            databaseClient.sql(DELETE_EXCESS).bind("principalName", session.principalName()).bind("maxSessions", maxSessionsPerPrincipal).then()
+        );
+    }
+
+    @Override
+    public Mono<Void> touch(String id, Instant lastAccessTime, Duration maxIdleTime) {
+        return databaseClient
+            .sql(TOUCH)
+            .bind("id", id)
+            .bind("lastAccessTime", lastAccessTime.toEpochMilli())
+            .bind("expiryTime", expiryTime(lastAccessTime, maxIdleTime))
+            .then();
+    }
+
+    @Override
+    public Mono<Void> delete(String id) {
+        return databaseClient.sql(DELETE).bind("id", id).then();
+    }
+
+    @Scheduled(fixedDelayString = "${application.session.cleanup-interval:PT5M}")
+    public void deleteExpired() {
+        databaseClient
+            .sql(DELETE_EXPIRED)
+            .bind("now", Instant.now().toEpochMilli())
+            .fetch()
+            .rowsUpdated()
+            .subscribe(
+                deleted -> {
+                    if (deleted > 0) {
+                        log.debug("Deleted {} expired sessions", deleted);
+                    }
+                },
+                e -> log.warn("Failed to delete the expired sessions: {}", e.getMessage())
+            );
+    }
+
+    private static long expiryTime(Instant lastAccessTime, Duration maxIdleTime) {
+        return maxIdleTime.isNegative() ? Long.MAX_VALUE : lastAccessTime.plus(maxIdleTime).toEpochMilli();
+    }
+
+    private static StoredSession toSession(Row row) {
+        ByteBuffer attributes = row.get("attributes", ByteBuffer.class);
+        byte[] bytes = new byte[attributes.remaining()];
+        attributes.get(bytes);
+        return new StoredSession(
+            row.get("session_id", String.class),
+            row.get("principal_name", String.class),
+            Instant.ofEpochMilli(row.get("creation_time", Long.class)),
+            Instant.ofEpochMilli(row.get("last_access_time", Long.class)),
+            Duration.ofSeconds(row.get("max_idle_seconds", Long.class)),
+            bytes
+        );
+    }
+}
@@ -0,0 +1,169 @@
+package com.atparui.rms.web.session;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sessions kept in the gateway memory, as bytes.
+ * <p>
+ * The store is bounded by the size of the serialized sessions, the least recently used ones being evicted beyond
+ * {@code max-memory}, and idle sessions expire. The sessions are local to the gateway instance: the load balancer in
+ * front of the gateways must be sticky.
+ */
+public class LocalSessionBackend implements SessionBackend {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalSessionBackend.class);
+
+    // Estimated size of a session besides its attributes
+    private static final int SESSION_OVERHEAD = 160;
+
+    private final Cache<String, StoredSession> sessions;
+
+    // Session IDs by principal name
+    private final Map<String, Set<String>> principalSessions = new ConcurrentHashMap<>();
+
+    private final int maxSessionsPerPrincipal;
+
+    public LocalSessionBackend(long maxMemory, int maxSessionsPerPrincipal) {
+        this.maxSessionsPerPrincipal = maxSessionsPerPrincipal;
+        this.sessions = Caffeine.newBuilder()
+            .maximumWeight(maxMemory)
+            .weigher((String id, StoredSession session) -> weight(session))
+            .expireAfter(new IdleExpiry())
+            .evictionListener((String id, StoredSession session, RemovalCause cause) -> {
+                if (session != null) {
+                    unindex(session);
+                }
+            })
+            .build();
+    }
+
+    @Override
+    public Mono<StoredSession> load(String id) {
+        return Mono.fromSupplier(() -> sessions.getIfPresent(id));
+    }
+
+    @Override
+    public Mono<Void> save(StoredSession session) {
+        return Mono.fromRunnable(() -> {
+            StoredSession previous = sessions.asMap().put(session.id(), session);
+            if (previous != null && previous.principalName() != null && !previous.principalName().equals(session.principalName())) {
+                unindex(previous);
+            }
+            if (session.principalName() != null) {
+                index(session);
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> touch(String id, Instant lastAccessTime, Duration maxIdleTime) {
+        return Mono.fromRunnable(() -> sessions.asMap().computeIfPresent(id, (key, session) -> session.touched(lastAccessTime)));
+    }
+
+    @Override
+    public Mono<Void> delete(String id) {
+        return Mono.fromRunnable(() -> remove(id));
+    }
+
+    /**
+     * @return the number of stored sessions.
+     */
+    public long size() {
+        return sessions.estimatedSize();
+    }
+
+    /**
+     * @return the estimated memory used by the stored sessions, in bytes.
+     */
+    public long memory() {
+        return sessions.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    void cleanUp() {
+        sessions.cleanUp();
+    }
+
+    private void remove(String id) {
+        StoredSession session = sessions.asMap().remove(id);
+        if (session != null) {
+            unindex(session);
+        }
+    }
+
+    private void index(StoredSession session) {
+        Set<String> ids = principalSessions.compute(session.principalName(), (name, current) -> {
+            Set<String> indexed = current != null ? current : ConcurrentHashMap.newKeySet();
+            indexed.add(session.id());
+            return indexed;
+        });
+        if (ids.size() <= maxSessionsPerPrincipal) {
+            return;
+        }
+        synchronized (ids) {
+            List<StoredSession> others = ids
+                .stream()
+                .filter(id -> !id.equals(session.id()))
+                .map(sessions::getIfPresent)
+                .filter(other -> other != null)
+                .sorted(Comparator.comparing(StoredSession::lastAccessTime))
+                .toList();
+            int excess = others.size() + 1 - maxSessionsPerPrincipal;
+            for (int i = 0; i < excess; i++) {
+                log.debug("Removing session {} of {}, beyond {} sessions", others.get(i).id(), session.principalName(), maxSessionsPerPrincipal);
+                remove(others.get(i).id());
+            }
+            // Sessions evicted meanwhile
+            ids.removeIf(id -> sessions.getIfPresent(id) == null);
+        }
+    }
+
+    private void unindex(StoredSession session) {
+        if (session.principalName() == null) {
+            return;
+        }
+        principalSessions.computeIfPresent(session.principalName(), (name, ids) -> {
+            ids.remove(session.id());
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static int weight(StoredSession session) {
+        int principal = session.principalName() != null ? session.principalName().length() : 0;
+        return SESSION_OVERHEAD + session.attributes().length + 2 * (session.id().length() + principal);
+    }
+
+    /**
+     * Sessions expire after their maximum idle time since they were last saved or touched.
+     */
+    private static final class IdleExpiry implements Expiry<String, StoredSession> {
+
+        @Override
+        public long expireAfterCreate(String id, StoredSession session, long currentTime) {
+            // A negative maximum idle time means that the session does not expire
+            return session.maxIdleTime().isNegative() ? Long.MAX_VALUE : session.maxIdleTime().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, StoredSession session, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, session, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String id, StoredSession session, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.atparui.rms.web.session;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.server.context.WebSessionServerSecurityContextRepository;
+import org.springframework.web.server.WebSession;
+import org.springframework.web.server.session.WebSessionStore;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link WebSessionStore} keeping the session attributes serialized in a {@link SessionBackend}, instead of as objects
+ * on the gateway heap.
+ * <p>
+ * Sessions are deserialized for the requests that use them only. A request that does not change the attributes of its
+ * session does not write them back: only the last access time is recorded, at most once per {@code touch-interval}.
+ */
+public class SerializedWebSessionStore implements WebSessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SerializedWebSessionStore.class);
+
+    private final SessionBackend backend;
+
+    private final Duration maxIdleTime;
+
+    private final Duration touchInterval;
+
+    private final SerializingConverter serializer = new SerializingConverter();
+
+    private final DeserializingConverter deserializer = new DeserializingConverter(SerializedWebSessionStore.class.getClassLoader());
+
+    private Clock clock = Clock.systemUTC();
+
+    public SerializedWebSessionStore(SessionBackend backend, Duration maxIdleTime, Duration touchInterval) {
+        this.backend = backend;
+        this.maxIdleTime = maxIdleTime;
+        this.touchInterval = touchInterval;
+    }
+
+    /**
+     * Configure the clock used for the session times, for tests.
+     *
+     * @param clock the clock
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<WebSession> createWebSession() {
+        return Mono.fromSupplier(() -> new SerializedWebSession(UUID.randomUUID().toString(), clock.instant(), maxIdleTime));
+    }
+
+    @Override
+    public Mono<WebSession> retrieveSession(String sessionId) {
+        return backend
+            .load(sessionId)
+            .flatMap(stored -> {
+                if (stored.isExpired(clock.instant())) {
+                    return backend.delete(sessionId).then(Mono.empty());
+                }
+                Map<String, Object> attributes;
+                try {
+                    attributes = deserialize(stored.attributes());
+                } catch (RuntimeException e) {
+                    // Typically classes changed by an upgrade: the user logs in again
+                    log.debug("Discarding session {} that cannot be deserialized: {}", sessionId, e.getMessage());
+                    return backend.delete(sessionId).then(Mono.empty());
+                }
+                return Mono.just(new SerializedWebSession(stored, attributes));
+            });
+    }
+
+    @Override
+    public Mono<Void> removeSession(String sessionId) {
+        return backend.delete(sessionId);
+    }
+
+    @Override
+    public Mono<WebSession> updateLastAccessTime(WebSession webSession) {
+        return Mono.fromSupplier(() -> {
+            ((SerializedWebSession) webSession).lastAccessTime = clock.instant();
+            return webSession;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> deserialize(byte[] attributes) {
+        return (Map<String, Object>) deserializer.convert(attributes);
+    }
+
+    private static String principalName(Map<String, Object> attributes) {
+        Object context = attributes.get(WebSessionServerSecurityContextRepository.DEFAULT_SPRING_SECURITY_CONTEXT_ATTR_NAME);
+        if (context instanceof SecurityContext securityContext) {
+            Authentication authentication = securityContext.getAuthentication();
+            return authentication != null ? authentication.getName() : null;
+        }
+        return null;
+    }
+
+    private class SerializedWebSession implements WebSession {
+
+        private final AtomicReference<String> id;
+
+        private final Map<String, Object> attributes;
+
+        private final Instant creationTime;
+
+        private volatile Instant lastAccessTime;
+
+        private volatile Duration maxIdleTime;
+
+        private final AtomicBoolean started;
+
+        private final AtomicBoolean invalidated = new AtomicBoolean();
+
+        // The attributes and access time as stored, null if the session is not stored
+        private volatile byte[] storedAttributes;
+
+        private volatile Instant storedAccessTime;
+
+        SerializedWebSession(String id, Instant creationTime, Duration maxIdleTime) {
+            this.id = new AtomicReference<>(id);
+            this.attributes = new ConcurrentHashMap<>();
+            this.creationTime = creationTime;
+            this.lastAccessTime = creationTime;
+            this.maxIdleTime = maxIdleTime;
+            this.started = new AtomicBoolean();
+        }
+
+        SerializedWebSession(StoredSession stored, Map<String, Object> attributes) {
+            this.id = new AtomicReference<>(stored.id());
+            this.attributes = new ConcurrentHashMap<>(attributes);
+            this.creationTime = stored.creationTime();
+            this.lastAccessTime = stored.lastAccessTime();
+            this.maxIdleTime = stored.maxIdleTime();
+            this.started = new AtomicBoolean(true);
+            this.storedAttributes = stored.attributes();
+            this.storedAccessTime = stored.lastAccessTime();
+        }
+
+        @Override
+        public String getId() {
+            return id.get();
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        public Instant getLastAccessTime() {
+            return lastAccessTime;
+        }
+
+        @Override
+        public void setMaxIdleTime(Duration maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+        }
+
+        @Override
+        public Duration getMaxIdleTime() {
+            return maxIdleTime;
+        }
+
+        @Override
+        public void start() {
+            started.set(true);
+        }
+
+        @Override
+        public boolean isStarted() {
+            return started.get() || !attributes.isEmpty();
+        }
+
+        @Override
+        public Mono<Void> changeSessionId() {
+            String previousId = id.getAndSet(UUID.randomUUID().toString());
+            boolean stored = storedAttributes != null;
+            storedAttributes = null;
+            return stored ? backend.delete(previousId).then(save()) : Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> invalidate() {
+            invalidated.set(true);
+            attributes.clear();
+            storedAttributes = null;
+            return backend.delete(getId());
+        }
+
+        @Override
+        public Mono<Void> save() {
+            if (!isStarted()) {
+                return Mono.empty();
+            }
+            if (isExpired()) {
+                return backend.delete(getId()).then(Mono.error(new IllegalStateException("Session was invalidated")));
+            }
+            return Mono.defer(() -> {
+                byte[] serialized = serializer.convert(new HashMap<>(attributes));
+                Instant accessTime = lastAccessTime;
+                if (storedAttributes != null && Arrays.equals(serialized, storedAttributes)) {
+                    if (storedAccessTime != null && Duration.between(storedAccessTime, accessTime).compareTo(touchInterval) < 0) {
+                        return Mono.empty();
+                    }
+                    return backend.touch(getId(), accessTime, maxIdleTime).doOnSuccess(done -> storedAccessTime = accessTime);
+                }
+                StoredSession stored = new StoredSession(
+                    getId(),
+                    principalName(attributes),
+                    creationTime,
+                    accessTime,
+                    maxIdleTime,
+                    serialized
+                );
+                return backend
+                    .save(stored)
+                    .doOnSuccess(done -> {
+                        storedAttributes = serialized;
+                        storedAccessTime = accessTime;
+                    });
+            });
+        }
+
+        @Override
+        public boolean isExpired() {
+            return invalidated.get() || (!maxIdleTime.isNegative() && !clock.instant().isBefore(lastAccessTime.plus(maxIdleTime)));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.atparui.rms.web.session;
+
+import java.time.Duration;
+import java.time.Instant;
+import reactor.core.publisher.Mono;
+
+/**
+ * Storage of the serialized web sessions, see {@link SerializedWebSessionStore}.
+ * <p>
+ * Backends bound the number of sessions of a principal, the least recently used ones being removed beyond that.
+ */
+public interface SessionBackend {
+    /**
+     * @param id the session ID
+     * @return the session, empty if there is none with that ID.
+     */
+    Mono<StoredSession> load(String id);
+
+    /**
+     * Store a session, replacing the one with the same ID.
+     *
+     * @param session the session
+     * @return completes when stored
+     */
+    Mono<Void> save(StoredSession session);
+
+    /**
+     * Record a request of a session whose attributes did not change.
+     *
+     * @param id the session ID
+     * @param lastAccessTime the time of the request
+     * @param maxIdleTime the time the session is kept without requests
+     * @return completes when recorded
+     */
+    Mono<Void> touch(String id, Instant lastAccessTime, Duration maxIdleTime);
+
+    /**
+     * @param id the session ID
+     * @return completes when the session is removed
+     */
+    Mono<Void> delete(String id);
+}
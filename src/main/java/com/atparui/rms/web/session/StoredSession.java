@@ -0,0 +1,35 @@
+package com.atparui.rms.web.session;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A web session as kept by a {@link SessionBackend}: its attributes are serialized.
+ *
+ * @param id the session ID.
+ * @param principalName the name of the authenticated user, or {@code null}.
+ * @param creationTime the time the session was created.
+ * @param lastAccessTime the time of the last request of the session.
+ * @param maxIdleTime the time the session is kept without requests.
+ * @param attributes the serialized session attributes.
+ */
+public record StoredSession(
+    String id,
+    String principalName,
+    Instant creationTime,
+    Instant lastAccessTime,
+    Duration maxIdleTime,
+    byte[] attributes
+) {
+    public Instant expiryTime() {
+        return lastAccessTime.plus(maxIdleTime);
+    }
+
+    public boolean isExpired(Instant now) {
+        return !maxIdleTime.isNegative() && !now.isBefore(expiryTime());
+    }
+
+    StoredSession touched(Instant lastAccessTime) {
+        return new StoredSession(id, principalName, creationTime, lastAccessTime, maxIdleTime, attributes);
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Web session storage, off the gateway heap.
+ */
+package com.atparui.rms.web.session;
@@ -0,0 +1,91 @@
+package com.atparui.rms.aop.tracing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for {@link TracingInterceptor}.
+ */
+class TracingInterceptorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void shouldTimeMonoOnSubscriptionOnly() {
+        Sample sample = proxy(1.0);
+
+        Mono<String> mono = sample.find();
+        assertThat(meterRegistry.find(TracingInterceptor.METRIC_NAME).timer()).isNull();
+
+        assertThat(mono.block()).isEqualTo("value");
+        assertThat(
+            meterRegistry.get(TracingInterceptor.METRIC_NAME).tag("method", "Sample.find").tag("outcome", "success").timer().count()
+        ).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRecordMonoCancelledAfterItsValueOnce() {
+        Sample sample = proxy(1.0);
+
+        assertThat(Flux.from(sample.find()).take(1).blockLast()).isEqualTo("value");
+
+        assertThat(meterRegistry.get(TracingInterceptor.METRIC_NAME).tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find(TracingInterceptor.METRIC_NAME).tag("outcome", "cancel").timer()).isNull();
+    }
+
+    @Test
+    void shouldRecordErrorsWithCustomName() {
+        Sample sample = proxy(1.0);
+
+        assertThatThrownBy(sample::fail).isInstanceOf(IllegalStateException.class);
+        assertThat(meterRegistry.get(TracingInterceptor.METRIC_NAME).tag("method", "sample-fail").tag("outcome", "error").timer().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotTraceUnsampledCalls() {
+        Sample sample = proxy(0.0);
+
+        assertThat(sample.find().block()).isEqualTo("value");
+        assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+
+    private Sample proxy(double sampleRate) {
+        ProxyFactory proxyFactory = new ProxyFactory(new Sample());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(
+            new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forClassAnnotation(Traced.class),
+                new TracingInterceptor(() -> meterRegistry, sampleRate)
+            )
+        );
+        return (Sample) proxyFactory.getProxy();
+    }
+
+    @Traced
+    static class Sample {
+
+        public Mono<String> find() {
+            return Mono.just("value");
+        }
+
+        @Traced("sample-fail")
+        public String fail() {
+            throw new IllegalStateException("failure");
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.atparui.rms.broker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.broker.CacheInvalidationChannel.CacheInvalidation;
+import com.atparui.rms.broker.CacheInvalidationChannel.Type;
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.service.DriverChangedEvent;
+import com.atparui.rms.service.TenantChangedEvent;
+import com.atparui.rms.service.UserChangedEvent;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Unit tests for {@link CacheInvalidationChannel}.
+ */
+class CacheInvalidationChannelTest {
+
+    private StreamBridge streamBridge;
+    private ApplicationEventPublisher eventPublisher;
+    private CacheInvalidationChannel channel;
+
+    @BeforeEach
+    void init() {
+        streamBridge = mock(StreamBridge.class);
+        when(streamBridge.send(eq(CacheInvalidationChannel.BINDING_NAME), any(Message.class))).thenReturn(true);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getCacheInvalidation().setWindow(Duration.ofMillis(50));
+        channel = new CacheInvalidationChannel(streamBridge, eventPublisher, applicationProperties);
+    }
+
+    @Test
+    void shouldBroadcastLocalChangesOncePerWindow() {
+        channel.onTenantChanged(new TenantChangedEvent("tenant-1"));
+        channel.onTenantChanged(new TenantChangedEvent("tenant-1"));
+        channel.onUserChanged(new UserChangedEvent("user-1"));
+        channel.onDriverChanged(new DriverChangedEvent("drivers/postgresql.jar", true));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<CacheInvalidation>> messages = ArgumentCaptor.forClass(Message.class);
+        verify(streamBridge, timeout(5000).times(2)).send(eq(CacheInvalidationChannel.BINDING_NAME), messages.capture());
+        assertThat(messages.getAllValues())
+            .extracting(Message::getPayload)
+            .containsExactly(new CacheInvalidation(Type.TENANT, "tenant-1"), new CacheInvalidation(Type.USER, "user-1"));
+        assertThat(messages.getAllValues().get(0).getHeaders().get(KafkaHeaders.KEY, byte[].class))
+            .asString(StandardCharsets.UTF_8)
+            .isEqualTo("tenant-1");
+    }
+
+    @Test
+    void shouldApplyChangesOfOtherNodesAsRemoteEvents() {
+        channel.accept(message(new CacheInvalidation(Type.TENANT, "tenant-1"), "other-node"));
+        channel.accept(message(new CacheInvalidation(Type.TENANT, "tenant-1"), "other-node"));
+        channel.accept(message(new CacheInvalidation(Type.DRIVER, "drivers/postgresql.jar"), "other-node"));
+
+        verify(eventPublisher, timeout(5000)).publishEvent(new DriverChangedEvent("drivers/postgresql.jar", true));
+        verify(eventPublisher, times(1)).publishEvent(new TenantChangedEvent("tenant-1", true));
+    }
+
+    @Test
+    void shouldIgnoreItsOwnChanges() throws InterruptedException {
+        channel.onTenantChanged(new TenantChangedEvent("tenant-1"));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<CacheInvalidation>> messages = ArgumentCaptor.forClass(Message.class);
+        verify(streamBridge, timeout(5000)).send(eq(CacheInvalidationChannel.BINDING_NAME), messages.capture());
+
+        channel.accept(messages.getValue());
+        Thread.sleep(100);
+
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private static Message<CacheInvalidation> message(CacheInvalidation change, String origin) {
+        return MessageBuilder.withPayload(change).setHeader(CacheInvalidationChannel.ORIGIN_HEADER, origin.getBytes(StandardCharsets.UTF_8)).build();
+    }
+}
@@ -0,0 +1,132 @@
+package com.atparui.rms.broker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.config.ApplicationProperties.KafkaSse.Overflow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+/**
+ * Unit tests for {@link KafkaConsumer}.
+ */
+class KafkaConsumerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private KafkaConsumer kafkaConsumer;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getKafkaSse().setBufferSize(2);
+        applicationProperties.getKafkaSse().setHeartbeatInterval(Duration.ofHours(1));
+        kafkaConsumer = new KafkaConsumer(applicationProperties, meterRegistry);
+    }
+
+    @Test
+    void shouldStreamRecordsToEverySubscriberOfTheirTenant() {
+        send("order-1", "tenant-1");
+        send("order-2", "tenant-2");
+        send("announcement", null);
+
+        assertThat(payloads(kafkaConsumer.subscribe("tenant-1", null, null, null).take(2))).containsExactly("order-1", "announcement");
+        assertThat(payloads(kafkaConsumer.subscribe("tenant-2", null, null, null).take(2))).containsExactly("order-2", "announcement");
+        assertThat(payloads(kafkaConsumer.subscribe(null, null, null, null).take(1))).containsExactly("announcement");
+    }
+
+    @Test
+    void shouldDropOldestRecordsOfSlowSubscriber() {
+        SlowSubscriber slow = new SlowSubscriber();
+        kafkaConsumer.subscribe(null, null, null, Overflow.DROP_OLDEST).subscribe(slow);
+        List<String> fast = new CopyOnWriteArrayList<>();
+        kafkaConsumer.subscribe(null, null, null, null).subscribe(event -> fast.add(event.data()));
+
+        for (int i = 1; i <= 5; i++) {
+            send("record-" + i, null);
+        }
+
+        assertThat(fast).containsExactly("record-1", "record-2", "record-3", "record-4", "record-5");
+        assertThat(kafkaConsumer.getSubscriptions()).first().satisfies(subscription -> {
+            assertThat(subscription.received()).isEqualTo(5);
+            assertThat(subscription.dropped()).isEqualTo(2);
+            assertThat(subscription.lag()).isEqualTo(2);
+        });
+        slow.request(10);
+        // The first record was already handed over when the subscriber connected
+        assertThat(slow.payloads).containsExactly("record-1", "record-4", "record-5");
+        assertThat(meterRegistry.get(KafkaConsumer.DROPPED_METRIC).counter().count()).isEqualTo(2);
+        slow.dispose();
+    }
+
+    @Test
+    void shouldDisconnectSlowSubscriber() {
+        SlowSubscriber slow = new SlowSubscriber();
+        kafkaConsumer.subscribe(null, null, null, Overflow.DISCONNECT).subscribe(slow);
+
+        for (int i = 1; i <= 5; i++) {
+            send("record-" + i, null);
+        }
+        slow.request(10);
+
+        assertThat(slow.completed).isTrue();
+        assertThat(kafkaConsumer.getSubscriptions()).isEmpty();
+    }
+
+    @Test
+    void shouldResumeAfterLastEventId() {
+        send("record-1", null);
+        send("record-2", null);
+        send("record-3", null);
+
+        List<ServerSentEvent<String>> events = kafkaConsumer.subscribe(null, null, 1L, null).take(2).collectList().block(Duration.ofSeconds(5));
+
+        assertThat(events).extracting(ServerSentEvent::id).containsExactly("2", "3");
+        // Ids from before a restart are ignored
+        assertThat(payloads(kafkaConsumer.subscribe(null, null, 42L, null).take(3))).hasSize(3);
+    }
+
+    private void send(String payload, String tenant) {
+        MessageBuilder<String> message = MessageBuilder.withPayload(payload);
+        if (tenant != null) {
+            message.setHeader(KafkaConsumer.TENANT_HEADER, tenant.getBytes(StandardCharsets.UTF_8));
+        }
+        kafkaConsumer.accept(message.build());
+    }
+
+    private static List<String> payloads(Flux<ServerSentEvent<String>> events) {
+        return events.map(ServerSentEvent::data).collectList().block(Duration.ofSeconds(5));
+    }
+
+    private static final class SlowSubscriber extends BaseSubscriber<ServerSentEvent<String>> {
+
+        private final List<String> payloads = new CopyOnWriteArrayList<>();
+
+        private volatile boolean completed;
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            // Request nothing until told to
+        }
+
+        @Override
+        protected void hookOnNext(ServerSentEvent<String> event) {
+            payloads.add(event.data());
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.atparui.rms.broker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.atparui.rms.IntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.MessagingException;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Integration tests for the acks of the {@link KafkaPublisher} against the Kafka broker of the tests, which the other
+ * integration tests do not wait for.
+ */
+@IntegrationTest
+@TestPropertySource(
+    properties = {
+        "application.kafka-publish.await-acks=true",
+        // Larger records are rejected by the producer, and reported on the error channel of the binding
+        "spring.cloud.stream.kafka.bindings.binding-out-0.producer.configuration.max.request.size=" + KafkaPublisherIT.MAX_REQUEST_SIZE,
+    }
+)
+class KafkaPublisherIT {
+
+    static final int MAX_REQUEST_SIZE = 4096;
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Autowired
+    private KafkaPublisher kafkaPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void shouldCompleteOnceTheBrokerAcks() {
+        long acked = meterRegistry.get(KafkaPublisher.LATENCY_METRIC).timer().count();
+
+        kafkaPublisher.publish("acme", "key", List.of("value-acked")).block(TIMEOUT);
+
+        assertThat(meterRegistry.get(KafkaPublisher.LATENCY_METRIC).timer().count()).isEqualTo(acked + 1);
+    }
+
+    @Test
+    void shouldFailWhenTheSendFails() {
+        String tooLarge = "x".repeat(MAX_REQUEST_SIZE * 2);
+
+        assertThatThrownBy(() -> kafkaPublisher.publish("acme", "key", List.of(tooLarge)).block(TIMEOUT)).isInstanceOf(
+            MessagingException.class
+        );
+    }
+}
@@ -0,0 +1,135 @@
+package com.atparui.rms.broker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.broker.KafkaPublisher.BufferFullException;
+import com.atparui.rms.config.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Unit tests for {@link KafkaPublisher}.
+ */
+class KafkaPublisherTest {
+
+    private StreamBridge streamBridge;
+    private SimpleMeterRegistry meterRegistry;
+    private ApplicationProperties applicationProperties;
+    private KafkaPublisher kafkaPublisher;
+
+    @BeforeEach
+    void init() {
+        streamBridge = mock(StreamBridge.class);
+        // Acked by the broker as soon as sent
+        when(streamBridge.send(eq(KafkaPublisher.BINDING_NAME), any(Message.class))).thenAnswer(invocation -> {
+            kafkaPublisher.onAck(invocation.getArgument(1));
+            return true;
+        });
+        meterRegistry = new SimpleMeterRegistry();
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getKafkaPublish().setBatchSize(3);
+    }
+
+    @AfterEach
+    void stop() {
+        kafkaPublisher.stop();
+    }
+
+    @Test
+    void shouldSendFullBatchesAndLingeringOnesInOrder() {
+        kafkaPublisher = new KafkaPublisher(streamBridge, meterRegistry, applicationProperties);
+
+        Long count = kafkaPublisher
+            .publishAll("tenant-1", "order-1", Flux.just("a", "b", "", "c", "d"))
+            .block(Duration.ofSeconds(5));
+
+        assertThat(count).isEqualTo(4);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<String>> messages = ArgumentCaptor.forClass(Message.class);
+        verify(streamBridge, times(4)).send(eq(KafkaPublisher.BINDING_NAME), messages.capture());
+        assertThat(messages.getAllValues()).extracting(Message::getPayload).containsExactly("a", "b", "c", "d");
+        assertThat(messages.getAllValues()).extracting(message -> message.getHeaders().get(KafkaPublisher.PUBLISH_ID_HEADER)).doesNotHaveDuplicates();
+        assertThat(messages.getAllValues()).allSatisfy(message -> {
+            assertThat(message.getHeaders()).containsEntry(KafkaConsumer.TENANT_HEADER, "tenant-1");
+            assertThat(message.getHeaders().get(KafkaHeaders.KEY, byte[].class)).asString(StandardCharsets.UTF_8).isEqualTo("order-1");
+        });
+        assertThat(meterRegistry.get(KafkaPublisher.BATCH_SIZE_METRIC).summary().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(KafkaPublisher.BATCH_SIZE_METRIC).summary().max()).isEqualTo(3);
+        assertThat(meterRegistry.get(KafkaPublisher.LATENCY_METRIC).timer().count()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldRejectMessagesWhenBufferIsFull() {
+        applicationProperties.getKafkaPublish().setBufferSize(2);
+        applicationProperties.getKafkaPublish().setLinger(Duration.ofHours(1));
+        kafkaPublisher = new KafkaPublisher(streamBridge, meterRegistry, applicationProperties);
+
+        Disposable waiting = kafkaPublisher.publish(null, null, List.of("a", "b")).subscribe();
+
+        assertThatExceptionOfType(BufferFullException.class).isThrownBy(() -> kafkaPublisher.publish(null, null, List.of("c")).block());
+        assertThat(meterRegistry.get(KafkaPublisher.REJECTED_METRIC).counter().count()).isEqualTo(1);
+        waiting.dispose();
+    }
+
+    @Test
+    void shouldFailWhenMessageIsNotAccepted() {
+        when(streamBridge.send(eq(KafkaPublisher.BINDING_NAME), any(Message.class))).thenReturn(false);
+        applicationProperties.getKafkaPublish().setBufferSize(1);
+        kafkaPublisher = new KafkaPublisher(streamBridge, meterRegistry, applicationProperties);
+
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() ->
+            kafkaPublisher.publish("tenant-1", null, List.of("a")).block(Duration.ofSeconds(5))
+        );
+        // The failed message no longer holds the buffer
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() ->
+            kafkaPublisher.publish("tenant-1", null, List.of("b")).block(Duration.ofSeconds(5))
+        );
+    }
+
+    @Test
+    void shouldFailWhenSendFailsAfterwards() {
+        when(streamBridge.send(eq(KafkaPublisher.BINDING_NAME), any(Message.class))).thenAnswer(invocation -> {
+            Message<?> message = invocation.getArgument(1);
+            // Reported on the error channel once the producer gives up
+            kafkaPublisher.onSendFailure(new ErrorMessage(new MessagingException(message, "Broker not available")));
+            return true;
+        });
+        kafkaPublisher = new KafkaPublisher(streamBridge, meterRegistry, applicationProperties);
+
+        assertThatExceptionOfType(MessagingException.class).isThrownBy(() ->
+            kafkaPublisher.publish("tenant-1", null, List.of("a")).block(Duration.ofSeconds(5))
+        );
+    }
+
+    @Test
+    void shouldFailWhenMessageIsNotAckedInTime() {
+        when(streamBridge.send(eq(KafkaPublisher.BINDING_NAME), any(Message.class))).thenReturn(true);
+        applicationProperties.getKafkaPublish().setAckTimeout(Duration.ofMillis(100));
+        kafkaPublisher = new KafkaPublisher(streamBridge, meterRegistry, applicationProperties);
+
+        assertThatExceptionOfType(RuntimeException.class)
+            .isThrownBy(() -> kafkaPublisher.publish("tenant-1", null, List.of("a")).block(Duration.ofSeconds(5)))
+            .withCauseInstanceOf(TimeoutException.class);
+    }
+}
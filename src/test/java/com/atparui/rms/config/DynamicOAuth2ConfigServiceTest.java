@@ -0,0 +1,149 @@
+package com.atparui.rms.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.service.TenantChangedEvent;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for {@link DynamicOAuth2ConfigService}.
+ */
+class DynamicOAuth2ConfigServiceTest {
+
+    private static final String REALM_URL = "https://auth.example.com/realms/acme";
+
+    private TenantResolver tenantResolver;
+    private AtomicInteger discoveries;
+    private HttpStatus discoveryStatus;
+    private DynamicOAuth2ConfigService dynamicOAuth2ConfigService;
+
+    @BeforeEach
+    void init() {
+        tenantResolver = mock(TenantResolver.class);
+        when(tenantResolver.getClientId("acme", "web")).thenReturn(Mono.just("acme-web"));
+        when(tenantResolver.getClientId("acme", "mobile")).thenReturn(Mono.just("acme-mobile-app"));
+        when(tenantResolver.getClientSecret("acme")).thenReturn(Mono.just("secret"));
+        when(tenantResolver.isKnownTenant("acme")).thenReturn(Mono.just(true));
+        when(tenantResolver.isKnownTenant("forged")).thenReturn(Mono.just(false));
+        discoveries = new AtomicInteger();
+        discoveryStatus = HttpStatus.OK;
+        WebClient.Builder webClientBuilder = WebClient.builder()
+            .exchangeFunction(request -> {
+                discoveries.incrementAndGet();
+                assertThat(request.url()).hasToString(REALM_URL + "/.well-known/openid-configuration");
+                return Mono.just(
+                    ClientResponse.create(discoveryStatus)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(
+                            "{\"issuer\":\"" +
+                            REALM_URL +
+                            "\",\"authorization_endpoint\":\"https://login.example.com/acme/auth\"," +
+                            "\"token_endpoint\":\"https://login.example.com/acme/token\"," +
+                            "\"end_session_endpoint\":\"https://login.example.com/acme/logout\"}"
+                        )
+                        .build()
+                );
+            });
+        dynamicOAuth2ConfigService = new DynamicOAuth2ConfigService(
+            tenantResolver,
+            webClientBuilder,
+            new ApplicationProperties(),
+            "https://auth.example.com"
+        );
+    }
+
+    @Test
+    void shouldBuildRegistrationOnceFromDiscoveredEndpoints() {
+        ClientRegistration first = dynamicOAuth2ConfigService.getClientRegistration("acme", "web").block();
+        ClientRegistration second = dynamicOAuth2ConfigService.getClientRegistration("acme", "web").block();
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.getClientId()).isEqualTo("acme-web");
+        assertThat(first.getClientSecret()).isEqualTo("secret");
+        assertThat(first.getProviderDetails().getAuthorizationUri()).isEqualTo("https://login.example.com/acme/auth");
+        assertThat(first.getProviderDetails().getTokenUri()).isEqualTo("https://login.example.com/acme/token");
+        assertThat(first.getProviderDetails().getJwkSetUri()).isEqualTo(REALM_URL + "/protocol/openid-connect/certs");
+        assertThat(first.getProviderDetails().getConfigurationMetadata()).containsKey("end_session_endpoint");
+        verify(tenantResolver, times(1)).getClientId("acme", "web");
+        assertThat(discoveries).hasValue(1);
+    }
+
+    @Test
+    void shouldDiscoverRealmOnceForAllClientTypes() {
+        ClientRegistration web = dynamicOAuth2ConfigService.getClientRegistration("acme", "web").block();
+        ClientRegistration mobile = dynamicOAuth2ConfigService.getClientRegistration("acme", "mobile").block();
+
+        assertThat(web.getClientId()).isEqualTo("acme-web");
+        assertThat(mobile.getClientId()).isEqualTo("acme-mobile-app");
+        assertThat(mobile.getClientSecret()).isEmpty();
+        assertThat(discoveries).hasValue(1);
+    }
+
+    @Test
+    void shouldRebuildRegistrationsOfChangedTenant() {
+        ClientRegistration before = dynamicOAuth2ConfigService.getClientRegistration("acme", "web").block();
+        when(tenantResolver.getClientId("acme", "web")).thenReturn(Mono.just("acme-web-v2"));
+
+        dynamicOAuth2ConfigService.onTenantChanged(new TenantChangedEvent("globex"));
+
+        assertThat(dynamicOAuth2ConfigService.getClientRegistration("acme", "web").block()).isSameAs(before);
+
+        dynamicOAuth2ConfigService.onTenantChanged(new TenantChangedEvent("acme"));
+
+        assertThat(dynamicOAuth2ConfigService.getClientRegistration("acme", "web").block().getClientId()).isEqualTo("acme-web-v2");
+    }
+
+    @Test
+    void shouldFallBackToDefaultEndpointsWhenDiscoveryFails() {
+        discoveryStatus = HttpStatus.SERVICE_UNAVAILABLE;
+
+        ClientRegistration registration = dynamicOAuth2ConfigService.getClientRegistration("acme", "web").block();
+
+        assertThat(registration.getProviderDetails().getTokenUri()).isEqualTo(REALM_URL + "/protocol/openid-connect/token");
+        assertThat(registration.getProviderDetails().getIssuerUri()).isEqualTo(REALM_URL);
+    }
+
+    @Test
+    void shouldRememberFailedDiscoveriesBriefly() {
+        discoveryStatus = HttpStatus.SERVICE_UNAVAILABLE;
+
+        dynamicOAuth2ConfigService.getClientRegistration("acme", "web").block();
+        dynamicOAuth2ConfigService.onTenantChanged(new TenantChangedEvent("acme"));
+        discoveryStatus = HttpStatus.OK;
+        ClientRegistration rebuilt = dynamicOAuth2ConfigService.getClientRegistration("acme", "web").block();
+
+        assertThat(rebuilt.getProviderDetails().getTokenUri()).isEqualTo(REALM_URL + "/protocol/openid-connect/token");
+        assertThat(discoveries).hasValue(1);
+    }
+
+    @Test
+    void shouldNotBuildRegistrationsOfUnknownTenants() {
+        assertThat(dynamicOAuth2ConfigService.getClientRegistration("forged", "web").block()).isNull();
+        assertThat(dynamicOAuth2ConfigService.getClientRegistration("forged", "mobile").block()).isNull();
+        assertThat(dynamicOAuth2ConfigService.getClientRegistration("forged", "web").block()).isNull();
+
+        verify(tenantResolver, times(1)).isKnownTenant("forged");
+        verify(tenantResolver, never()).getClientId("forged", "web");
+        assertThat(discoveries).hasValue(0);
+
+        // A tenant created with that ID is looked up again
+        dynamicOAuth2ConfigService.onTenantChanged(new TenantChangedEvent("forged"));
+        dynamicOAuth2ConfigService.getClientRegistration("forged", "web").block();
+
+        verify(tenantResolver, times(2)).isKnownTenant("forged");
+    }
+}
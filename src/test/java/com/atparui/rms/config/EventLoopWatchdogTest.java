@@ -0,0 +1,82 @@
+package com.atparui.rms.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.nio.NioEventLoopGroup;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link EventLoopWatchdog}.
+ */
+class EventLoopWatchdogTest {
+
+    private NioEventLoopGroup eventLoopGroup;
+    private SimpleMeterRegistry meterRegistry;
+    private EventLoopWatchdog watchdog;
+
+    @BeforeEach
+    void init() {
+        eventLoopGroup = new NioEventLoopGroup(1);
+        meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getEventLoopWatchdog().setThreshold(Duration.ofMillis(50));
+        watchdog = new EventLoopWatchdog(() -> eventLoopGroup, meterRegistry, applicationProperties);
+    }
+
+    @AfterEach
+    void shutdown() {
+        eventLoopGroup.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void shouldRecordDelayOfIdleEventLoop() throws InterruptedException {
+        watchdog.check();
+        awaitProbes(1);
+
+        assertThat(meterRegistry.get(EventLoopWatchdog.BLOCKED_METRIC).counter().count()).isZero();
+    }
+
+    @Test
+    void shouldCountBlockedEventLoopOncePerBlockingTask() throws InterruptedException {
+        watchdog.check();
+        awaitProbes(1);
+
+        block(Duration.ofMillis(100));
+        block(Duration.ofMillis(100));
+
+        assertThat(meterRegistry.get(EventLoopWatchdog.BLOCKED_METRIC).counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(EventLoopWatchdog.DELAY_METRIC).timer().max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50);
+    }
+
+    private void block(Duration duration) throws InterruptedException {
+        AtomicBoolean release = new AtomicBoolean();
+        eventLoopGroup.execute(() -> {
+            // Busy, as BlockHound rejects blocking calls on event loops
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!release.get() && System.nanoTime() < deadline) {
+                // Spin
+            }
+        });
+        long probes = meterRegistry.get(EventLoopWatchdog.DELAY_METRIC).timer().count();
+        watchdog.check();
+        Thread.sleep(duration.toMillis());
+        watchdog.check();
+        watchdog.check();
+        release.set(true);
+        awaitProbes(probes + 1);
+    }
+
+    private void awaitProbes(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get(EventLoopWatchdog.DELAY_METRIC).timer().count() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(meterRegistry.get(EventLoopWatchdog.DELAY_METRIC).timer().count()).isEqualTo(count);
+    }
+}
@@ -0,0 +1,129 @@
+package com.atparui.rms.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+/**
+ * Unit tests for {@link LatencyAwareLoadBalancer}.
+ */
+class LatencyAwareLoadBalancerTest {
+
+    private static final String SERVICE_ID = "rmsservice";
+
+    private SimpleMeterRegistry meterRegistry;
+    private ApplicationProperties applicationProperties;
+    private LoadBalancerInstanceStats stats;
+
+    private ServiceInstance fast;
+    private ServiceInstance slow;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        applicationProperties = new ApplicationProperties();
+        // Disable slow-start unless a test needs it, so that instance age does not influence the outcome
+        applicationProperties.getGateway().getLoadBalancer().setSlowStart(Duration.ZERO);
+        stats = new LoadBalancerInstanceStats(meterRegistry, applicationProperties);
+
+        fast = instance("fast", 8081, Map.of());
+        slow = instance("slow", 8082, Map.of());
+    }
+
+    @Test
+    void shouldPreferLowerLatencyInstance() {
+        record(fast, 10);
+        record(slow, 200);
+        LatencyAwareLoadBalancer loadBalancer = loadBalancer(fast, slow);
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(loadBalancer.getInstanceResponse(List.of(fast, slow), null).getServer()).isSameAs(fast);
+        }
+        assertThat(meterRegistry.get("gateway.loadbalancer.decisions").tag("decision", "p2c").counter().count()).isEqualTo(20);
+    }
+
+    @Test
+    void shouldAvoidInstanceWithManyRequestsInFlight() {
+        record(fast, 10);
+        record(slow, 15);
+        for (int i = 0; i < 5; i++) {
+            stats.onStartRequest(new DefaultRequest<>(new RequestDataContext()), new DefaultResponse(fast));
+        }
+        LatencyAwareLoadBalancer loadBalancer = loadBalancer(fast, slow);
+
+        assertThat(loadBalancer.getInstanceResponse(List.of(fast, slow), null).getServer()).isSameAs(slow);
+    }
+
+    @Test
+    void shouldHonorMetadataWeight() {
+        ServiceInstance big = instance("big", 8083, Map.of(LatencyAwareLoadBalancer.WEIGHT_METADATA_KEY, "4"));
+        record(fast, 20);
+        record(big, 40);
+        LatencyAwareLoadBalancer loadBalancer = loadBalancer(fast, big);
+
+        assertThat(loadBalancer.getInstanceResponse(List.of(fast, big), null).getServer()).isSameAs(big);
+    }
+
+    @Test
+    void shouldRampUpNewInstancesDuringSlowStart() {
+        applicationProperties.getGateway().getLoadBalancer().setSlowStart(Duration.ofHours(1));
+        record(fast, 50);
+        record(slow, 50);
+        LatencyAwareLoadBalancer loadBalancer = loadBalancer(fast, slow);
+        long now = System.nanoTime();
+
+        // Both are brand new and equally fast: their cost is inflated by the minimum slow-start weight
+        assertThat(loadBalancer.cost(fast, now, 0)).isGreaterThan(50_000_000.0 * 5);
+    }
+
+    @Test
+    void shouldStickToTenantInstanceWithinTolerance() {
+        applicationProperties.getGateway().getLoadBalancer().setTenantStickiness(true);
+        applicationProperties.getGateway().getLoadBalancer().setStickinessTolerance(10);
+        record(fast, 10);
+        record(slow, 12);
+        LatencyAwareLoadBalancer loadBalancer = loadBalancer(fast, slow);
+
+        Response<ServiceInstance> first = loadBalancer.getInstanceResponse(List.of(fast, slow), "pizzahut");
+        for (int i = 0; i < 20; i++) {
+            assertThat(loadBalancer.getInstanceResponse(List.of(slow, fast), "pizzahut").getServer()).isSameAs(first.getServer());
+        }
+    }
+
+    @Test
+    void shouldReturnEmptyResponseWithoutInstances() {
+        LatencyAwareLoadBalancer loadBalancer = loadBalancer();
+
+        assertThat(loadBalancer.getInstanceResponse(List.of(), null).hasServer()).isFalse();
+    }
+
+    private void record(ServiceInstance instance, long latencyMillis) {
+        stats.get(instance).record(Duration.ofMillis(latencyMillis).toNanos(), System.nanoTime(), Duration.ofSeconds(10).toNanos());
+    }
+
+    private LatencyAwareLoadBalancer loadBalancer(ServiceInstance... instances) {
+        return new LatencyAwareLoadBalancer(
+            ServiceInstanceListSuppliers.toProvider(SERVICE_ID, instances),
+            SERVICE_ID,
+            stats,
+            applicationProperties.getGateway().getLoadBalancer()
+        );
+    }
+
+    private static ServiceInstance instance(String host, int port, Map<String, String> metadata) {
+        return new DefaultServiceInstance(SERVICE_ID + "-" + host, SERVICE_ID, host, port, false, new HashMap<>(metadata));
+    }
+}
@@ -0,0 +1,37 @@
+package com.atparui.rms.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClientSpecification;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+
+/**
+ * Unit tests for {@link LoadBalancerConfiguration}.
+ */
+class LoadBalancerConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner().withUserConfiguration(
+        LoadBalancerConfiguration.class
+    );
+
+    @Test
+    void shouldRegisterTheLoadBalancerInTheChildContextsOnly() {
+        contextRunner.run(context -> {
+            assertThat(context).hasNotFailed().doesNotHaveBean(ReactorLoadBalancer.class);
+            assertThat(context.getBeansOfType(LoadBalancerClientSpecification.class).values())
+                .singleElement()
+                .satisfies(specification ->
+                    assertThat(specification.getConfiguration()).containsExactly(LatencyAwareLoadBalancerClientConfiguration.class)
+                );
+        });
+    }
+
+    @Test
+    void shouldKeepTheDefaultLoadBalancerWhenDisabled() {
+        contextRunner
+            .withPropertyValues("application.gateway.load-balancer.enabled=false")
+            .run(context -> assertThat(context).doesNotHaveBean(LoadBalancerClientSpecification.class));
+    }
+}
@@ -0,0 +1,114 @@
+package com.atparui.rms.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Unit tests for {@link TenantMeterTags} and {@link TenantMeterFilter}.
+ */
+class TenantMeterTagsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private TenantMeterTags tenantMeterTags;
+
+    @BeforeEach
+    void init() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getMetrics().getTenant().setMaxTaggedTenants(2);
+        meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        tenantMeterTags = new TenantMeterTags(applicationProperties, beanFactory.getBeanProvider(MeterRegistry.class));
+        meterRegistry
+            .config()
+            .meterFilter(
+                new TenantMeterFilter(tenantMeterTags, applicationProperties.getMetrics().getTenant().getServiceLevelObjectives())
+            );
+    }
+
+    @Test
+    void shouldAdmitFirstTenantsBeforeRanking() {
+        assertThat(tenantMeterTags.tag("a")).isEqualTo("a");
+        assertThat(tenantMeterTags.tag("b")).isEqualTo("b");
+        assertThat(tenantMeterTags.tag("c")).isEqualTo(TenantMeterTags.OTHER);
+        assertThat(tenantMeterTags.tag(null)).isEqualTo(TenantMeterTags.NONE);
+    }
+
+    @Test
+    void shouldKeepBusiestTenantsAndRemoveMetersOfDemotedOnes() {
+        Counter.builder("test").tag(TenantMeterTags.TAG, tenantMeterTags.tag("a")).register(meterRegistry).increment();
+        activity("a", 1);
+        activity("b", 5);
+        activity("c", 10);
+
+        tenantMeterTags.rank();
+
+        assertThat(tenantMeterTags.tag("c")).isEqualTo("c");
+        assertThat(tenantMeterTags.tag("b")).isEqualTo("b");
+        assertThat(tenantMeterTags.tag("a")).isEqualTo(TenantMeterTags.OTHER);
+        assertThat(meterRegistry.find("test").tag(TenantMeterTags.TAG, "a").counter()).isNull();
+    }
+
+    @Test
+    void shouldRewriteUnknownTenantTagsToOther() {
+        activity("a", 1);
+        tenantMeterTags.rank();
+
+        Counter.builder("test").tag(TenantMeterTags.TAG, "unknown").register(meterRegistry).increment();
+
+        assertThat(meterRegistry.get("test").tag(TenantMeterTags.TAG, TenantMeterTags.OTHER).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReplacePercentileHistogramWithServiceLevelObjectives() {
+        Timer timer = Timer.builder("test")
+            .tag(TenantMeterTags.TAG, tenantMeterTags.tag("a"))
+            .publishPercentileHistogram()
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        timer.record(Duration.ofMillis(75));
+
+        assertThat(timer.takeSnapshot().histogramCounts()).hasSize(8);
+        assertThat(timer.takeSnapshot().percentileValues()).isEmpty();
+    }
+
+    @Test
+    void shouldDropCachedMetersOfDemotedTenants() {
+        Map<String, Counter> counters = tenantMeterTags.meterCache();
+        counters.put("a", Counter.builder("test").tag(TenantMeterTags.TAG, tenantMeterTags.tag("a")).register(meterRegistry));
+        counters.put("b", Counter.builder("test").tag(TenantMeterTags.TAG, tenantMeterTags.tag("b")).register(meterRegistry));
+        activity("b", 5);
+        activity("c", 10);
+
+        tenantMeterTags.rank();
+
+        assertThat(counters).containsOnlyKeys("b");
+    }
+
+    @Test
+    void shouldScheduleRankingEveryRankingInterval() {
+        ScheduledTaskRegistrar taskRegistrar = new ScheduledTaskRegistrar();
+
+        tenantMeterTags.configureTasks(taskRegistrar);
+
+        assertThat(taskRegistrar.getFixedDelayTaskList()).singleElement().satisfies(task ->
+            assertThat(task.getIntervalDuration()).isEqualTo(Duration.ofMinutes(1))
+        );
+    }
+
+    private void activity(String tenant, int count) {
+        for (int i = 0; i < count; i++) {
+            tenantMeterTags.recordActivity(tenant);
+        }
+    }
+}
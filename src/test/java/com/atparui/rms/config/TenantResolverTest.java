@@ -0,0 +1,134 @@
+package com.atparui.rms.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.domain.Tenant;
+import com.atparui.rms.service.TenantService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for {@link TenantResolver}.
+ */
+class TenantResolverTest {
+
+    private TenantService tenantService;
+    private SimpleMeterRegistry meterRegistry;
+    private TenantResolver tenantResolver;
+
+    @BeforeEach
+    void init() {
+        tenantService = mock(TenantService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        tenantResolver = new TenantResolver();
+        ReflectionTestUtils.setField(tenantResolver, "tenantConfigProperties", new TenantConfigProperties());
+        ReflectionTestUtils.setField(tenantResolver, "tenantService", tenantService);
+        ReflectionTestUtils.setField(tenantResolver, "gatewayAdminConfig", new GatewayAdminConfig());
+        ReflectionTestUtils.setField(tenantResolver, "defaultTenant", "gateway");
+        ReflectionTestUtils.setField(tenantResolver, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(
+            tenantResolver,
+            "tenantMeterTags",
+            new TenantMeterTags(new ApplicationProperties(), beanFactory.getBeanProvider(MeterRegistry.class))
+        );
+        tenantResolver.registerCacheMetrics();
+    }
+
+    @Test
+    void shouldRecordSubdomainResolutionsByCacheOutcome() {
+        Tenant tenant = new Tenant();
+        tenant.setTenantId("acme");
+        when(tenantService.findBySubdomain("acme")).thenReturn(Mono.just(tenant));
+
+        assertThat(resolve("acme.atparui.com", null)).isEqualTo("acme");
+        assertThat(resolve("acme.atparui.com", null)).isEqualTo("acme");
+        assertThat(resolve("acme.atparui.com", null)).isEqualTo("acme");
+
+        verify(tenantService, times(1)).findBySubdomain("acme");
+        assertThat(resolutionCount(TenantResolver.SOURCE_SUBDOMAIN, TenantResolver.CACHE_MISS, false)).isEqualTo(1);
+        assertThat(resolutionCount(TenantResolver.SOURCE_SUBDOMAIN, TenantResolver.CACHE_HIT, false)).isEqualTo(2);
+        assertThat(
+            meterRegistry
+                .get("tenant.resolutions")
+                .tag("source", TenantResolver.SOURCE_SUBDOMAIN)
+                .tag(TenantMeterTags.TAG, "acme")
+                .counter()
+                .count()
+        ).isEqualTo(3);
+    }
+
+    @Test
+    void shouldRecordFallbacksAndHeaderResolutions() {
+        when(tenantService.findBySubdomain("unknown")).thenReturn(Mono.empty());
+
+        assertThat(resolve("unknown.atparui.com", null)).isEqualTo("gateway");
+        assertThat(resolve("localhost", "acme")).isEqualTo("acme");
+        assertThat(resolve("localhost", null)).isEqualTo("gateway");
+
+        assertThat(resolutionCount(TenantResolver.SOURCE_SUBDOMAIN, TenantResolver.CACHE_MISS, true)).isEqualTo(1);
+        assertThat(resolutionCount(TenantResolver.SOURCE_HEADER, TenantResolver.CACHE_NONE, false)).isEqualTo(1);
+        assertThat(resolutionCount(TenantResolver.SOURCE_DEFAULT, TenantResolver.CACHE_NONE, true)).isEqualTo(1);
+        assertThat(
+            meterRegistry
+                .get("tenant.resolutions")
+                .tag("source", TenantResolver.SOURCE_HEADER)
+                .tag(TenantMeterTags.TAG, "acme")
+                .counter()
+                .count()
+        ).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRegisterMetersOncePerTagValue() {
+        resolve("localhost", "acme");
+        int meters = meterRegistry.getMeters().size();
+
+        for (int i = 0; i < 10; i++) {
+            resolve("localhost", "acme");
+        }
+
+        assertThat(meterRegistry.getMeters()).hasSize(meters);
+        assertThat(resolutionCount(TenantResolver.SOURCE_HEADER, TenantResolver.CACHE_NONE, false)).isEqualTo(11);
+    }
+
+    @Test
+    void shouldKnowOnlyTheGatewayAndActiveTenants() {
+        when(tenantService.findTenant("acme")).thenReturn(Mono.just(new Tenant()));
+        when(tenantService.findTenant("forged")).thenReturn(Mono.empty());
+
+        assertThat(tenantResolver.isKnownTenant("gateway").block()).isTrue();
+        assertThat(tenantResolver.isKnownTenant("acme").block()).isTrue();
+        assertThat(tenantResolver.isKnownTenant("forged").block()).isFalse();
+    }
+
+    private String resolve(String host, String tenantHeader) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/account").header("Host", host);
+        if (tenantHeader != null) {
+            request.header("X-Tenant-ID", tenantHeader);
+        }
+        return tenantResolver.resolveTenant(MockServerWebExchange.from(request)).block();
+    }
+
+    private long resolutionCount(String source, String cache, boolean fallback) {
+        return meterRegistry
+            .get("tenant.resolution")
+            .tag("source", source)
+            .tag("cache", cache)
+            .tag("fallback", String.valueOf(fallback))
+            .timer()
+            .count();
+    }
+}
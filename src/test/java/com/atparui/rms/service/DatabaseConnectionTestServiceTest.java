@@ -0,0 +1,150 @@
+package com.atparui.rms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.domain.DatabaseVendor;
+import com.atparui.rms.repository.DatabaseDriverRepository;
+import com.atparui.rms.repository.DatabaseVendorRepository;
+import com.atparui.rms.service.dto.DatabaseConnectionTestDTO;
+import com.atparui.rms.service.dto.DatabaseConnectionTestResult;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Unit tests for {@link DatabaseConnectionTestService}.
+ */
+class DatabaseConnectionTestServiceTest {
+
+    private DatabaseVendorRepository databaseVendorRepository;
+    private DatabaseConnectionTestService databaseConnectionTestService;
+    private int closedPort;
+
+    @BeforeEach
+    void init() throws IOException {
+        databaseVendorRepository = mock(DatabaseVendorRepository.class);
+        DatabaseVendor vendor = new DatabaseVendor();
+        vendor.setVendorCode("POSTGRESQL");
+        vendor.setDisplayName("PostgreSQL");
+        vendor.setJdbcUrlTemplate("jdbc:postgresql://{host}:{port}/{database}");
+        when(databaseVendorRepository.findByVendorCodeAndActiveTrue("POSTGRESQL")).thenReturn(Mono.just(vendor));
+        when(databaseVendorRepository.findByVendorCodeAndActiveTrue("UNKNOWN")).thenReturn(Mono.empty());
+        databaseConnectionTestService = new DatabaseConnectionTestService(
+            databaseVendorRepository,
+            mock(DatabaseDriverRepository.class),
+            mock(DynamicDriverLoaderService.class),
+            new ApplicationProperties()
+        );
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+    }
+
+    @AfterEach
+    void shutdown() {
+        databaseConnectionTestService.shutdown();
+    }
+
+    @Test
+    void shouldReportUnreachableHostWithoutConnecting() {
+        DatabaseConnectionTestResult result = databaseConnectionTestService.testConnection(testDTO("POSTGRESQL", "secret")).block();
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.getTarget()).isEqualTo("localhost:" + closedPort + "/rms");
+        assertThat(result.getMessage()).contains("unreachable");
+        assertThat(result.getConnectTimeMs()).isNull();
+        assertThat(result.getAuthTimeMs()).isNull();
+    }
+
+    @Test
+    void shouldReuseRecentResultOfIdenticalProbe() {
+        DatabaseConnectionTestResult first = databaseConnectionTestService.testConnection(testDTO("POSTGRESQL", "secret")).block();
+        DatabaseConnectionTestResult second = databaseConnectionTestService.testConnection(testDTO("POSTGRESQL", "secret")).block();
+        databaseConnectionTestService.testConnection(testDTO("POSTGRESQL", "other")).block();
+
+        assertThat(second).isSameAs(first);
+        verify(databaseVendorRepository, times(2)).findByVendorCodeAndActiveTrue("POSTGRESQL");
+    }
+
+    @Test
+    void shouldStreamResultsOfBatchWithTheirTenant() {
+        DatabaseConnectionTestDTO acme = testDTO("POSTGRESQL", "secret");
+        acme.setTenantId("acme");
+        DatabaseConnectionTestDTO unknown = testDTO("UNKNOWN", "secret");
+        unknown.setTenantId("globex");
+
+        List<DatabaseConnectionTestResult> results = databaseConnectionTestService.testConnections(Flux.just(acme, unknown)).collectList().block();
+
+        assertThat(results).extracting(DatabaseConnectionTestResult::getTenantId).containsExactlyInAnyOrder("acme", "globex");
+        assertThat(results).allMatch(result -> !result.isSuccess());
+    }
+
+    @Test
+    void shouldLimitConcurrentProbesOfHost() {
+        DatabaseConnectionTestService.HostLane lane = new DatabaseConnectionTestService.HostLane(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<Integer> results = Flux.range(0, 6)
+            .flatMap(i ->
+                lane.submit(
+                    Mono.defer(() -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        return Mono.delay(Duration.ofMillis(20)).thenReturn(i).doOnNext(value -> running.decrementAndGet());
+                    })
+                )
+            )
+            .collectList()
+            .block();
+
+        assertThat(results).containsExactlyInAnyOrder(0, 1, 2, 3, 4, 5);
+        assertThat(maxRunning.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldAcceptConcurrentSubmissionsToHost() {
+        DatabaseConnectionTestService.HostLane lane = new DatabaseConnectionTestService.HostLane(2);
+
+        List<Integer> results = Flux.range(0, 400)
+            .parallel(8)
+            .runOn(Schedulers.parallel())
+            .flatMap(i -> lane.submit(Mono.just(i)))
+            .sequential()
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        assertThat(results).hasSize(400).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void shouldRejectProbesOfClosedLaneAndRunSubmittedOnes() {
+        DatabaseConnectionTestService.HostLane lane = new DatabaseConnectionTestService.HostLane(1);
+        Mono<Integer> submitted = lane.submit(Mono.delay(Duration.ofMillis(20)).thenReturn(1)).cache();
+        submitted.subscribe();
+
+        lane.close();
+
+        assertThat(submitted.block(Duration.ofSeconds(5))).isEqualTo(1);
+        assertThatThrownBy(() -> lane.submit(Mono.just(2)).block(Duration.ofSeconds(5))).isInstanceOf(
+            DatabaseConnectionTestService.LaneClosedException.class
+        );
+    }
+
+    private DatabaseConnectionTestDTO testDTO(String vendorCode, String password) {
+        return new DatabaseConnectionTestDTO(vendorCode, "localhost", closedPort, "rms", null, "rms", password);
+    }
+}
@@ -0,0 +1,175 @@
+package com.atparui.rms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Unit tests for {@link DriverStorageService}.
+ */
+class DriverStorageServiceTest {
+
+    private static final String CONTENT = "driver-content";
+
+    @TempDir
+    Path storage;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DriverStorageService driverStorageService;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        driverStorageService = new DriverStorageService(meterRegistry);
+        ReflectionTestUtils.setField(driverStorageService, "storageBasePath", storage.toString());
+    }
+
+    @Test
+    void shouldStoreUploadAtItsContentAddress() throws Exception {
+        DriverStorageService.StoredDriver stored = driverStorageService.storeDriver(filePart("driver.jar", "driver-", "content")).block();
+
+        assertThat(stored.sha256()).isEqualTo(sha256(CONTENT));
+        assertThat(stored.size()).isEqualTo(CONTENT.length());
+        assertThat(stored.deduplicated()).isFalse();
+        assertThat(stored.filePath()).isEqualTo("blobs/sha256/" + stored.sha256().substring(0, 2) + "/" + stored.sha256() + ".jar");
+        assertThat(Files.readString(storage.resolve(stored.filePath()))).isEqualTo(CONTENT);
+        assertThat(meterRegistry.get("driver.upload").tag("result", "stored").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDeduplicateIdenticalUploads() throws Exception {
+        DriverStorageService.StoredDriver first = driverStorageService.storeDriver(filePart("a.jar", CONTENT)).block();
+        DriverStorageService.StoredDriver second = driverStorageService.storeDriver(filePart("b.jar", CONTENT)).block();
+
+        assertThat(second.filePath()).isEqualTo(first.filePath());
+        assertThat(second.deduplicated()).isTrue();
+        try (var files = Files.list(storage.resolve("tmp"))) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldNotDeleteStoredFileBeforeItIsReferenced() throws Exception {
+        DriverStorageService.StoredDriver first = driverStorageService.storeDriver(filePart("a.jar", CONTENT)).block();
+        Sinks.Empty<Void> referenced = Sinks.empty();
+        AtomicBoolean referencing = new AtomicBoolean();
+        Mono<DriverStorageService.StoredDriver> upload = driverStorageService
+            .storeDriver(filePart("b.jar", CONTENT), stored -> {
+                referencing.set(true);
+                return referenced.asMono().thenReturn(stored);
+            })
+            .cache();
+        upload.subscribe();
+        await(referencing::get);
+
+        // The last driver referencing the file is deleted meanwhile
+        AtomicBoolean deleted = new AtomicBoolean();
+        driverStorageService
+            .withFileLock(
+                first.filePath(),
+                Mono.fromCallable(() -> {
+                    driverStorageService.deleteDriver(first.filePath());
+                    return deleted.getAndSet(true);
+                })
+            )
+            .subscribe();
+        Thread.sleep(100);
+
+        assertThat(deleted).isFalse();
+        assertThat(storage.resolve(first.filePath())).exists();
+
+        referenced.tryEmitEmpty();
+        assertThat(upload.block(Duration.ofSeconds(5)).filePath()).isEqualTo(first.filePath());
+        await(deleted::get);
+    }
+
+    @Test
+    void shouldStoreFileAgainAfterItWasDeleted() throws Exception {
+        DriverStorageService.StoredDriver first = driverStorageService.storeDriver(filePart("a.jar", CONTENT)).block();
+        driverStorageService.withFileLock(first.filePath(), Mono.fromRunnable(() -> deleteStoredFile(first.filePath()))).block();
+
+        DriverStorageService.StoredDriver second = driverStorageService.storeDriver(filePart("b.jar", CONTENT)).block();
+
+        assertThat(second.deduplicated()).isFalse();
+        assertThat(Files.readString(storage.resolve(second.filePath()))).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void shouldDeleteNewlyStoredFileWhenItsReferenceFails() throws Exception {
+        Mono<Object> upload = driverStorageService.storeDriver(filePart("a.jar", CONTENT), stored ->
+            Mono.error(new IllegalStateException("save failed"))
+        );
+
+        assertThatThrownBy(upload::block).hasMessage("save failed");
+        try (var files = Files.walk(storage)) {
+            assertThat(files.filter(Files::isRegularFile)).isEmpty();
+        }
+        assertThat(meterRegistry.get("driver.upload").tag("result", "error").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("driver.upload").tag("result", "stored").timer()).isNull();
+    }
+
+    @Test
+    void shouldKeepDeduplicatedFileWhenItsReferenceFails() throws Exception {
+        DriverStorageService.StoredDriver first = driverStorageService.storeDriver(filePart("a.jar", CONTENT)).block();
+
+        Mono<Object> upload = driverStorageService.storeDriver(filePart("b.jar", CONTENT), stored ->
+            Mono.error(new IllegalStateException("save failed"))
+        );
+
+        assertThatThrownBy(upload::block).hasMessage("save failed");
+        assertThat(Files.readString(storage.resolve(first.filePath()))).isEqualTo(CONTENT);
+    }
+
+    private void deleteStoredFile(String filePath) {
+        try {
+            driverStorageService.deleteDriver(filePath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private static FilePart filePart(String filename, String... chunks) {
+        FilePart filePart = mock(FilePart.class);
+        when(filePart.filename()).thenReturn(filename);
+        when(filePart.content()).thenAnswer(invocation ->
+            Flux.fromArray(chunks).map(chunk -> (DataBuffer) DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.UTF_8)))
+        );
+        return filePart;
+    }
+
+    private static String sha256(String content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
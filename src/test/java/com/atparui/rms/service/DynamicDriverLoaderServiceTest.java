@@ -0,0 +1,156 @@
+package com.atparui.rms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.domain.DriverJar;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Opcodes;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for {@link DynamicDriverLoaderService}.
+ */
+class DynamicDriverLoaderServiceTest {
+
+    private static final String DRIVER_CLASS = "com.example.jdbc.Driver";
+
+    private static final String PROVIDER_CLASS = "com.example.r2dbc.Provider";
+
+    @TempDir
+    Path storage;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DynamicDriverLoaderService dynamicDriverLoaderService;
+
+    @BeforeEach
+    void init() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        DriverStorageService driverStorageService = new DriverStorageService(meterRegistry);
+        ReflectionTestUtils.setField(driverStorageService, "storageBasePath", storage.toString());
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getDrivers().setMaxLoaded(1);
+        dynamicDriverLoaderService = new DynamicDriverLoaderService(driverStorageService, meterRegistry, applicationProperties);
+        writeJar("a.jar");
+        writeJar("b.jar");
+    }
+
+    @Test
+    void shouldIndexServiceEntriesAndAccountForDefinedClasses() throws Exception {
+        try (DynamicDriverLoaderService.DriverLease lease = dynamicDriverLoaderService.acquire(driver("a.jar"))) {
+            DynamicDriverLoaderService.DriverRuntime runtime = lease.runtime();
+            assertThat(runtime.getJdbcDrivers()).containsExactly(DRIVER_CLASS);
+            assertThat(runtime.getConnectionFactoryProviders()).containsExactly(PROVIDER_CLASS);
+
+            Class<?> driverClass = runtime.loadClass(DRIVER_CLASS);
+
+            assertThat(driverClass.getClassLoader()).isSameAs(runtime.getClassLoader());
+            assertThat(runtime.getLoadedClasses()).isEqualTo(1);
+            assertThat(runtime.getEstimatedMetaspace()).isPositive();
+            assertThat(meterRegistry.get("driver.classloader.classes").tag("jar", "a.jar").gauge().value()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void shouldShareRuntimeOfSameJar() throws Exception {
+        try (
+            DynamicDriverLoaderService.DriverLease first = dynamicDriverLoaderService.acquire(driver("a.jar"));
+            DynamicDriverLoaderService.DriverLease second = dynamicDriverLoaderService.acquire(driver("a.jar"))
+        ) {
+            assertThat(second.runtime()).isSameAs(first.runtime());
+            assertThat(first.runtime().getLeases()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void shouldCloseEvictedRuntimeOnceLastLeaseIsReleased() throws Exception {
+        DynamicDriverLoaderService.DriverLease lease = dynamicDriverLoaderService.acquire(driver("a.jar"));
+        DynamicDriverLoaderService.DriverRuntime evicted = lease.runtime();
+
+        dynamicDriverLoaderService.acquire(driver("b.jar")).close();
+
+        assertThat(evicted.isClosed()).isFalse();
+        assertThat(meterRegistry.get("driver.classloader.loaded").gauge().value()).isEqualTo(1);
+        lease.close();
+        lease.close();
+        assertThat(evicted.isClosed()).isTrue();
+        assertThat(evicted.getLeases()).isZero();
+        assertThat(meterRegistry.find("driver.classloader.classes").tag("jar", "a.jar").gauge()).isNull();
+    }
+
+    @Test
+    void shouldReloadClearedDriver() throws Exception {
+        DynamicDriverLoaderService.DriverRuntime cleared;
+        try (DynamicDriverLoaderService.DriverLease lease = dynamicDriverLoaderService.acquire(driver("a.jar"))) {
+            cleared = lease.runtime();
+        }
+
+        dynamicDriverLoaderService.clearDriverCache("a.jar");
+
+        assertThat(cleared.isClosed()).isTrue();
+        try (DynamicDriverLoaderService.DriverLease lease = dynamicDriverLoaderService.acquire(driver("a.jar"))) {
+            assertThat(lease.runtime()).isNotSameAs(cleared);
+        }
+    }
+
+    @Test
+    void shouldKeepMetersOfReloadedDriverWhenClearedRuntimeIsReleased() throws Exception {
+        DynamicDriverLoaderService.DriverLease cleared = dynamicDriverLoaderService.acquire(driver("a.jar"));
+        dynamicDriverLoaderService.clearDriverCache("a.jar");
+
+        try (DynamicDriverLoaderService.DriverLease reloaded = dynamicDriverLoaderService.acquire(driver("a.jar"))) {
+            reloaded.runtime().loadClass(DRIVER_CLASS);
+            assertThat(meterRegistry.find("driver.classloader.leases").tag("jar", "a.jar").gauges()).hasSize(2);
+
+            cleared.close();
+
+            assertThat(cleared.runtime().isClosed()).isTrue();
+            assertThat(meterRegistry.get("driver.classloader.leases").tag("jar", "a.jar").gauge().value()).isEqualTo(1);
+            assertThat(meterRegistry.get("driver.classloader.classes").tag("jar", "a.jar").gauge().value()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void shouldRejectMissingJar() {
+        assertThatThrownBy(() -> dynamicDriverLoaderService.acquire(driver("missing.jar"))).isInstanceOf(IOException.class);
+    }
+
+    private static DriverJar driver(String filePath) {
+        DriverJar driver = new DriverJar();
+        driver.setFilePath(filePath);
+        driver.setFileName(filePath);
+        return driver;
+    }
+
+    private void writeJar(String name) throws IOException {
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(storage.resolve(name)))) {
+            putEntry(jar, DynamicDriverLoaderService.JDBC_DRIVER_SERVICE, ("# JDBC driver\n" + DRIVER_CLASS + "\n").getBytes(StandardCharsets.UTF_8));
+            putEntry(jar, DynamicDriverLoaderService.R2DBC_PROVIDER_SERVICE, (PROVIDER_CLASS + " # R2DBC\n").getBytes(StandardCharsets.UTF_8));
+            putEntry(jar, DRIVER_CLASS.replace('.', '/') + ".class", emptyClass(DRIVER_CLASS));
+        }
+    }
+
+    private static void putEntry(JarOutputStream jar, String name, byte[] content) throws IOException {
+        jar.putNextEntry(new JarEntry(name));
+        jar.write(content);
+        jar.closeEntry();
+    }
+
+    private static byte[] emptyClass(String name) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name.replace('.', '/'), null, "java/lang/Object", null);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
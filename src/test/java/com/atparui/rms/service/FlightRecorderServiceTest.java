@@ -0,0 +1,86 @@
+package com.atparui.rms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.service.FlightRecorderService.Kind;
+import com.atparui.rms.service.FlightRecorderService.Summary;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link FlightRecorderService}.
+ */
+class FlightRecorderServiceTest {
+
+    private final FlightRecorderService flightRecorderService = new FlightRecorderService(new ApplicationProperties());
+
+    @AfterEach
+    void closeRecordings() {
+        flightRecorderService.closeRecordings();
+    }
+
+    @Test
+    void shouldSummarizeBlockingStacksOfLocksRecording() throws Exception {
+        flightRecorderService.start(Kind.LOCKS, Duration.ofMinutes(1));
+        Thread parked = Thread.ofPlatform().name("parked-worker").start(() -> LockSupport.parkNanos(Duration.ofMillis(50).toNanos()));
+        parked.join();
+
+        Summary summary = summarize(Kind.LOCKS);
+
+        assertThat(summary.blockingStacks()).anySatisfy(site -> {
+            assertThat(site.event()).isEqualTo("jdk.ThreadPark");
+            assertThat(site.threads()).isEqualTo("other");
+            assertThat(site.provisioning()).isFalse();
+            assertThat(site.total()).isGreaterThanOrEqualTo(Duration.ofMillis(10).toNanos());
+            assertThat(site.stackTrace()).isNotEmpty().hasSizeLessThanOrEqualTo(8);
+        });
+        assertThat(summary.allocationSites()).isEmpty();
+    }
+
+    @Test
+    void shouldSummarizeAllocationSitesOfAllocationRecording() throws Exception {
+        flightRecorderService.start(Kind.ALLOCATION, Duration.ofMinutes(1));
+        List<byte[]> allocated = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            allocated.add(new byte[64 * 1024]);
+            if (allocated.size() > 16) {
+                allocated.clear();
+            }
+        }
+
+        Summary summary = summarize(Kind.ALLOCATION);
+
+        assertThat(summary.allocationSites()).isNotEmpty().allSatisfy(site -> assertThat(site.event()).isEqualTo("jdk.ObjectAllocationSample"));
+        assertThat(summary.allocationSites().get(0).total()).isPositive();
+    }
+
+    @Test
+    void shouldRunOneRecordingOfEachKindAtATime() {
+        flightRecorderService.start(Kind.SOCKET_IO, Duration.ofMinutes(1));
+
+        assertThatIllegalStateException().isThrownBy(() -> flightRecorderService.start(Kind.SOCKET_IO, Duration.ofMinutes(1)));
+        assertThat(flightRecorderService.recordings()).singleElement().satisfies(recording -> {
+            assertThat(recording.kind()).isEqualTo(Kind.SOCKET_IO);
+            assertThat(recording.state()).isEqualTo("RUNNING");
+        });
+        assertThat(flightRecorderService.close(Kind.SOCKET_IO)).isTrue();
+        assertThat(flightRecorderService.recordings()).isEmpty();
+    }
+
+    private Summary summarize(Kind kind) throws Exception {
+        Path file = flightRecorderService.dump(kind).block();
+        try {
+            return flightRecorderService.summarize(file).block();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.atparui.rms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.atparui.rms.config.ApplicationProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+/**
+ * Unit tests for {@link MetricsSnapshotService}.
+ */
+class MetricsSnapshotServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MetricsSnapshotService metricsSnapshotService;
+    private AtomicLong heapUsed;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        heapUsed = new AtomicLong(100);
+        Gauge.builder("jvm.memory.used", heapUsed, AtomicLong::get).tag("area", "heap").register(meterRegistry);
+        metricsSnapshotService = new MetricsSnapshotService(meterRegistry, new ApplicationProperties());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldIncludeMetersRegisteredAfterStartup() {
+        Timer.builder("http.server.requests").tag("status", "200").tag("uri", "/api/tenants").register(meterRegistry).record(Duration.ofMillis(5));
+
+        Map<String, Object> snapshot = metricsSnapshotService.getSnapshot();
+
+        Map<String, Object> http = (Map<String, Object>) snapshot.get("http.server.requests");
+        assertThat((Map<String, Object>) http.get("200")).containsEntry("count", 1.0);
+        Map<String, Object> endpoints = (Map<String, Object>) ((Map<String, Object>) snapshot.get("services")).get("endpoints");
+        assertThat(endpoints).containsKey("/api/tenants");
+    }
+
+    @Test
+    void shouldServeCachedSnapshotBetweenRefreshes() {
+        Map<String, Object> first = metricsSnapshotService.getSnapshot();
+        heapUsed.set(200);
+
+        assertThat(metricsSnapshotService.getSnapshot()).isSameAs(first);
+    }
+
+    @Test
+    void shouldStreamSnapshotThenDeltas() {
+        metricsSnapshotService.refresh();
+
+        List<MetricsSnapshotService.Update> updates = new ArrayList<>();
+        Disposable subscription = metricsSnapshotService.stream().subscribe(updates::add);
+        heapUsed.set(200);
+        metricsSnapshotService.refresh();
+        subscription.dispose();
+
+        assertThat(updates).hasSize(2);
+        assertThat(updates.get(0).full()).isTrue();
+        assertThat(updates.get(1).full()).isFalse();
+        assertThat(updates.get(1).values()).containsOnlyKeys("jvm");
+    }
+
+    @Test
+    void shouldDiffNestedMapsAndReportRemovedEntries() {
+        Map<String, Object> previous = new HashMap<>();
+        previous.put("a", Map.of("x", 1.0, "y", 2.0));
+        previous.put("b", 1.0);
+        Map<String, Object> next = new HashMap<>();
+        next.put("a", Map.of("x", 1.0, "y", 3.0));
+
+        Map<String, Object> delta = MetricsSnapshotService.diff(previous, next);
+
+        assertThat(delta).containsEntry("a", Map.of("y", 3.0)).containsEntry("b", null).hasSize(2);
+    }
+}
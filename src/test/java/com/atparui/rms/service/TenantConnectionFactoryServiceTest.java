@@ -0,0 +1,138 @@
+package com.atparui.rms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.config.TenantMeterTags;
+import com.atparui.rms.domain.DatabaseVendor;
+import com.atparui.rms.domain.Tenant;
+import com.atparui.rms.repository.DatabaseVendorRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for {@link TenantConnectionFactoryService}.
+ */
+class TenantConnectionFactoryServiceTest {
+
+    private DatabaseVendorRepository databaseVendorRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private TenantConnectionFactoryService tenantConnectionFactoryService;
+
+    @BeforeEach
+    void init() {
+        databaseVendorRepository = mock(DatabaseVendorRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        tenantConnectionFactoryService = new TenantConnectionFactoryService(
+            databaseVendorRepository,
+            mock(DatabaseDriverService.class),
+            mock(DynamicDriverLoaderService.class),
+            new TenantMeterTags(applicationProperties, beanFactory.getBeanProvider(MeterRegistry.class)),
+            meterRegistry,
+            applicationProperties
+        );
+    }
+
+    @Test
+    void shouldRenderVendorTemplate() {
+        Tenant tenant = tenant("acme");
+        tenant.setDatabaseHost("db.example.com");
+        tenant.setDatabaseName("acme");
+
+        ConnectionFactoryOptions options = TenantConnectionFactoryService.buildOptions(tenant, vendor("MYSQL", "r2dbc:mysql://{host}:{port}/{database}?useSSL=false", 3306));
+
+        assertThat(options.getValue(ConnectionFactoryOptions.DRIVER)).isEqualTo("mysql");
+        assertThat(options.getValue(ConnectionFactoryOptions.HOST)).isEqualTo("db.example.com");
+        assertThat(options.getValue(ConnectionFactoryOptions.PORT)).isEqualTo(3306);
+        assertThat(options.getValue(ConnectionFactoryOptions.DATABASE)).isEqualTo("acme");
+        assertThat(options.getValue(ConnectionFactoryOptions.USER)).isEqualTo("acme_user");
+        assertThat(options.hasOption(TenantConnectionFactoryService.SCHEMA)).isFalse();
+    }
+
+    @Test
+    void shouldConvertJdbcDatabaseUrl() {
+        Tenant tenant = tenant("acme");
+        tenant.setDatabaseUrl("jdbc:postgresql://localhost:5433/acme");
+
+        ConnectionFactoryOptions options = TenantConnectionFactoryService.buildOptions(tenant, null);
+
+        assertThat(options.getValue(ConnectionFactoryOptions.DRIVER)).isEqualTo("postgresql");
+        assertThat(options.getValue(ConnectionFactoryOptions.PORT)).isEqualTo(5433);
+        assertThat(options.getValue(TenantConnectionFactoryService.SCHEMA)).isEqualTo("acme_schema");
+    }
+
+    @Test
+    void shouldCreatePooledFactoryOnceAndDisposeItOnEviction() {
+        Tenant tenant = tenant("acme");
+        tenant.setDatabaseVendorCode("POSTGRESQL");
+        tenant.setDatabaseHost("localhost");
+        tenant.setDatabaseName("acme");
+        when(databaseVendorRepository.findByVendorCodeAndActiveTrue("POSTGRESQL")).thenReturn(
+            Mono.just(vendor("POSTGRESQL", "r2dbc:postgresql://{host}:{port}/{database}", 5432))
+        );
+
+        ConnectionFactory first = tenantConnectionFactoryService.getConnectionFactory(tenant).block();
+        ConnectionFactory second = tenantConnectionFactoryService.getConnectionFactory(tenant).block();
+
+        assertThat(first).isInstanceOf(ConnectionPool.class).isSameAs(second);
+        assertThat(first.getMetadata().getName()).isEqualTo("PostgreSQL");
+        verify(databaseVendorRepository, times(1)).findByVendorCodeAndActiveTrue("POSTGRESQL");
+
+        tenantConnectionFactoryService.evict("acme");
+
+        assertThat(((ConnectionPool) first).isDisposed()).isTrue();
+        assertThat(tenantConnectionFactoryService.getCachedConnectionFactory("acme")).isNull();
+    }
+
+    @Test
+    void shouldMeasurePoolsPerTenantTag() {
+        when(databaseVendorRepository.findByVendorCodeAndActiveTrue("POSTGRESQL")).thenReturn(
+            Mono.just(vendor("POSTGRESQL", "r2dbc:postgresql://{host}:{port}/{database}", 5432))
+        );
+        Tenant tenant = tenant("acme");
+        tenant.setDatabaseVendorCode("POSTGRESQL");
+        tenant.setDatabaseHost("localhost");
+        tenant.setDatabaseName("acme");
+
+        tenantConnectionFactoryService.getConnectionFactory(tenant).block();
+
+        assertThat(meterRegistry.get("tenant.r2dbc.pool.acquired").tag(TenantMeterTags.TAG, "acme").gauge().value()).isZero();
+        assertThat(meterRegistry.get("tenant.r2dbc.pool.idle").gauges()).hasSize(1);
+        assertThat(meterRegistry.find("tenant.r2dbc.pool.acquired").tagKeys("name").gauge()).isNull();
+
+        tenantConnectionFactoryService.evict("acme");
+
+        assertThat(meterRegistry.get("tenant.r2dbc.pool.allocated").tag(TenantMeterTags.TAG, "acme").gauge().value()).isZero();
+    }
+
+    private static Tenant tenant(String tenantId) {
+        Tenant tenant = new Tenant();
+        tenant.setTenantId(tenantId);
+        tenant.setDatabaseUsername(tenantId + "_user");
+        tenant.setDatabasePassword("secret");
+        tenant.setSchemaName(tenantId + "_schema");
+        return tenant;
+    }
+
+    private static DatabaseVendor vendor(String vendorCode, String r2dbcUrlTemplate, int defaultPort) {
+        DatabaseVendor vendor = new DatabaseVendor();
+        vendor.setVendorCode(vendorCode);
+        vendor.setR2dbcUrlTemplate(r2dbcUrlTemplate);
+        vendor.setDefaultPort(defaultPort);
+        return vendor;
+    }
+}
@@ -0,0 +1,156 @@
+package com.atparui.rms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.config.TenantMeterTags;
+import com.atparui.rms.domain.Tenant;
+import com.atparui.rms.repository.TenantRepository;
+import com.atparui.rms.service.TenantDatabaseHealthMonitor.Status;
+import com.atparui.rms.service.TenantDatabaseHealthMonitor.TenantDatabaseHealth;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ValidationDepth;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for {@link TenantDatabaseHealthMonitor}.
+ */
+class TenantDatabaseHealthMonitorTest {
+
+    private TenantRepository tenantRepository;
+    private TenantConnectionFactoryService tenantConnectionFactoryService;
+    private SimpleMeterRegistry meterRegistry;
+    private ApplicationProperties applicationProperties;
+    private TenantDatabaseHealthMonitor monitor;
+    private Tenant tenant;
+
+    @BeforeEach
+    void init() {
+        tenantRepository = mock(TenantRepository.class);
+        tenantConnectionFactoryService = mock(TenantConnectionFactoryService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getTenantDatabase().getHealth().setJitter(0);
+        applicationProperties.getTenantDatabase().getHealth().setTenantsRefresh(Duration.ZERO);
+        monitor = monitor();
+        tenant = new Tenant();
+        tenant.setTenantId("acme");
+        tenant.setDatabaseUrl("r2dbc:postgresql://localhost:5432/acme");
+        tenant.setActive(true);
+    }
+
+    @Test
+    void shouldBackOffExponentiallyUpToTheMaximum() {
+        assertThat(monitor.backoff(1)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(monitor.backoff(3)).isEqualTo(Duration.ofMinutes(2));
+        assertThat(monitor.backoff(10)).isEqualTo(Duration.ofMinutes(10));
+        assertThat(monitor.backoff(100)).isEqualTo(Duration.ofMinutes(10));
+    }
+
+    @Test
+    void shouldFailFastAfterConsecutiveFailuresAndRecover() {
+        when(tenantConnectionFactoryService.getConnectionFactory(tenant)).thenReturn(Mono.error(new IllegalStateException("refused")));
+
+        TenantDatabaseHealth first = monitor.check(tenant).block();
+
+        assertThat(first.status()).isEqualTo(Status.DOWN);
+        assertThat(first.error()).isEqualTo("refused");
+        assertThat(monitor.isUnavailable("acme")).isFalse();
+
+        TenantDatabaseHealth second = monitor.check(tenant).block();
+
+        assertThat(second.consecutiveFailures()).isEqualTo(2);
+        assertThat(Duration.between(second.lastCheck(), second.nextCheck())).isEqualTo(Duration.ofMinutes(1));
+        assertThat(monitor.isUnavailable("acme")).isTrue();
+        // Only the probes back off: requests are let through again an interval after the last probe
+        assertThat(monitor.isUnavailable("acme", second.lastCheck().plus(Duration.ofSeconds(29)))).isTrue();
+        assertThat(monitor.isUnavailable("acme", second.lastCheck().plus(Duration.ofSeconds(30)))).isFalse();
+        assertThat(meterRegistry.get("tenant.database.status").tag("status", "down").gauge().value()).isEqualTo(1);
+
+        ConnectionFactory connectionFactory = connectionFactory(true);
+        when(tenantConnectionFactoryService.getConnectionFactory(tenant)).thenReturn(Mono.just(connectionFactory));
+
+        TenantDatabaseHealth recovered = monitor.check(tenant).block();
+
+        assertThat(recovered.status()).isEqualTo(Status.UP);
+        assertThat(recovered.consecutiveFailures()).isZero();
+        assertThat(monitor.isUnavailable("acme")).isFalse();
+        assertThat(meterRegistry.get(TenantDatabaseHealthMonitor.PROBE_METRIC).tag("outcome", "down").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldSpreadFirstProbeAndForgetRemovedTenants() {
+        ConnectionFactory connectionFactory = connectionFactory(true);
+        when(tenantRepository.findActiveTenantIdsWithDatabase()).thenReturn(Flux.just("acme"));
+        when(tenantRepository.findByTenantIdAndActiveTrue("acme")).thenReturn(Mono.just(tenant));
+        when(tenantConnectionFactoryService.getConnectionFactory(tenant)).thenReturn(Mono.just(connectionFactory));
+        Instant now = Instant.now();
+
+        monitor.checkDue(now).block();
+
+        assertThat(monitor.getHealth("acme").status()).isEqualTo(Status.UNKNOWN);
+        verify(tenantConnectionFactoryService, never()).getConnectionFactory(any());
+
+        monitor.checkDue(now.plus(Duration.ofSeconds(30))).block();
+
+        assertThat(monitor.getHealth("acme").status()).isEqualTo(Status.UP);
+
+        when(tenantRepository.findActiveTenantIdsWithDatabase()).thenReturn(Flux.empty());
+        monitor.checkDue(now.plus(Duration.ofMinutes(5))).block();
+
+        assertThat(monitor.getHealth()).isEmpty();
+    }
+
+    @Test
+    void shouldReloadTenantIdsOnlyOnRefresh() {
+        applicationProperties.getTenantDatabase().getHealth().setTenantsRefresh(Duration.ofMinutes(1));
+        monitor = monitor();
+        when(tenantRepository.findActiveTenantIdsWithDatabase()).thenReturn(Flux.just("acme"));
+        // The first probe may be due on the second tick
+        when(tenantRepository.findByTenantIdAndActiveTrue("acme")).thenReturn(Mono.empty());
+        Instant now = Instant.now();
+
+        monitor.checkDue(now).block();
+        monitor.checkDue(now.plus(Duration.ofSeconds(5))).block();
+
+        verify(tenantRepository, times(1)).findActiveTenantIdsWithDatabase();
+        verify(tenantRepository, never()).findAll();
+    }
+
+    private TenantDatabaseHealthMonitor monitor() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        TenantMeterTags tenantMeterTags = new TenantMeterTags(applicationProperties, beanFactory.getBeanProvider(MeterRegistry.class));
+        return new TenantDatabaseHealthMonitor(
+            tenantRepository,
+            tenantConnectionFactoryService,
+            tenantMeterTags,
+            meterRegistry,
+            applicationProperties
+        );
+    }
+
+    private static ConnectionFactory connectionFactory(boolean valid) {
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        when(connection.validate(ValidationDepth.REMOTE)).thenReturn(Mono.just(valid));
+        when(connection.close()).thenReturn(Mono.empty());
+        when(connectionFactory.create()).thenAnswer(invocation -> Mono.just(connection));
+        return connectionFactory;
+    }
+}
@@ -0,0 +1,94 @@
+package com.atparui.rms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assumptions.assumeThat;
+
+import com.atparui.rms.service.ThreadDumpService.HotThread;
+import com.atparui.rms.service.ThreadDumpService.ThreadEntry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link ThreadDumpService}.
+ */
+class ThreadDumpServiceTest {
+
+    private final ThreadDumpService threadDumpService = new ThreadDumpService();
+
+    @Test
+    void shouldDumpThreadsMatchingNameWithLimitedDepth() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Thread waiting = Thread.ofPlatform().name("Dump-Target-1").start(() -> await(done));
+        try {
+            List<ThreadEntry> threads = threadDumpService.dump("dump-target", 2).collectList().block();
+
+            assertThat(threads).singleElement().satisfies(thread -> {
+                assertThat(thread.threadName()).isEqualTo("Dump-Target-1");
+                assertThat(thread.threadId()).isEqualTo(waiting.threadId());
+                assertThat(thread.stackTrace()).hasSizeLessThanOrEqualTo(2).isNotEmpty();
+            });
+        } finally {
+            done.countDown();
+            waiting.join();
+        }
+    }
+
+    @Test
+    void shouldReportBusyThreadWithAggregatedStacks() throws InterruptedException {
+        assumeThat(threadDumpService.isHotThreadsSupported()).isTrue();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread busy = Thread.ofPlatform()
+            .name("hot-spinner")
+            .start(() -> {
+                long value = 0;
+                while (running.get()) {
+                    value += System.nanoTime() % 7;
+                }
+                assertThat(value).isNotNegative();
+            });
+        try {
+            List<HotThread> hotThreads = threadDumpService.hotThreads("spinner", Duration.ofMillis(200), 3, 5, 8).block();
+
+            assertThat(hotThreads).singleElement().satisfies(hotThread -> {
+                assertThat(hotThread.threadId()).isEqualTo(busy.threadId());
+                assertThat(hotThread.cpuTimeNanos()).isPositive();
+                assertThat(hotThread.stacks()).isNotEmpty();
+                assertThat(hotThread.stacks().stream().mapToInt(ThreadDumpService.StackSample::count).sum()).isEqualTo(5);
+            });
+        } finally {
+            running.set(false);
+            busy.join();
+        }
+    }
+
+    @Test
+    void shouldComputeHotThreadsOneAtATime() {
+        assumeThat(threadDumpService.isHotThreadsSupported()).isTrue();
+        var first = threadDumpService.hotThreads(null, Duration.ofMillis(100), 1, 1, 1).toFuture();
+
+        assertThat(threadDumpService.hotThreads(null, Duration.ofMillis(100), 1, 1, 1).blockOptional()).isEmpty();
+        assertThat(first.join()).isNotNull();
+    }
+
+    @Test
+    void shouldNotHoldHotThreadsUntilSubscribed() {
+        assumeThat(threadDumpService.isHotThreadsSupported()).isTrue();
+        threadDumpService.hotThreads(null, Duration.ofMillis(10), 1, 1, 1);
+        assertThatThrownBy(() -> threadDumpService.hotThreads(null, null, 1, 1, 1).block()).isInstanceOf(NullPointerException.class);
+
+        assertThat(threadDumpService.hotThreads(null, Duration.ofMillis(10), 1, 1, -1).blockOptional()).isPresent();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
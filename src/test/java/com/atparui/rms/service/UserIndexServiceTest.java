@@ -0,0 +1,185 @@
+package com.atparui.rms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.domain.User;
+import com.atparui.rms.repository.UserRepository;
+import com.atparui.rms.repository.search.UserSearchRepository;
+import com.atparui.rms.service.UserIndexService.ReindexState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Unit tests for {@link UserIndexService}.
+ */
+class UserIndexServiceTest {
+
+    private UserRepository userRepository;
+    private UserSearchRepository userSearchRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private UserIndexService userIndexService;
+
+    @BeforeEach
+    void init() {
+        userRepository = mock(UserRepository.class);
+        userSearchRepository = mock(UserSearchRepository.class);
+        when(userSearchRepository.saveAll(anyIterable())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+        when(userSearchRepository.deleteAllById(anyIterable())).thenReturn(Mono.empty());
+        meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getUserIndex().setBatchSize(2);
+        applicationProperties.getUserIndex().setFlushInterval(Duration.ofMillis(50));
+        applicationProperties.getUserIndex().setMaxRetries(1);
+        applicationProperties.getUserIndex().setRetryBackoff(Duration.ofMillis(1));
+        userIndexService = new UserIndexService(userRepository, userSearchRepository, meterRegistry, applicationProperties);
+        userIndexService.start();
+    }
+
+    @AfterEach
+    void stop() {
+        userIndexService.stop();
+    }
+
+    @Test
+    void shouldIndexChangedUsersOnceAndDeleteMissingOnes() throws InterruptedException {
+        when(userRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            Iterable<String> userIds = invocation.getArgument(0);
+            return Flux.fromIterable(userIds).filter(userId -> !userId.equals("carol")).map(UserIndexServiceTest::user);
+        });
+
+        userIndexService.onUserChanged(new UserChangedEvent("alice"));
+        userIndexService.onUserChanged(new UserChangedEvent("alice"));
+        userIndexService.onUserChanged(new UserChangedEvent("bob", true));
+        userIndexService.onUserChanged(new UserChangedEvent("carol"));
+        await(() -> userIndexService.getPending() == 0);
+
+        verify(userRepository).findAllById(Set.of("alice"));
+        verify(userSearchRepository).saveAll(List.of(user("alice")));
+        verify(userSearchRepository).deleteAllById(Set.of("carol"));
+        assertThat(meterRegistry.get(UserIndexService.LAG_METRIC).timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldKeepFailedUsersAsDeadLetters() throws InterruptedException {
+        when(userRepository.findAllById(anyIterable())).thenReturn(Flux.just(user("alice")));
+        when(userSearchRepository.saveAll(anyIterable())).thenReturn(Flux.error(new IllegalStateException("Index unavailable")));
+
+        userIndexService.enqueue("alice");
+        await(() -> !userIndexService.getDeadLetters().isEmpty());
+
+        assertThat(userIndexService.getDeadLetters()).containsExactly("alice");
+        assertThat(userIndexService.retryDeadLetters()).isEqualTo(1);
+        await(() -> userIndexService.getPending() == 0);
+        assertThat(userIndexService.getDeadLetters()).containsExactly("alice");
+    }
+
+    @Test
+    void shouldWaitForStalledBulkRequestsWithoutOverflowing() throws InterruptedException {
+        when(userRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            Iterable<String> userIds = invocation.getArgument(0);
+            return Flux.fromIterable(userIds).map(UserIndexServiceTest::user);
+        });
+        Sinks.Empty<Void> stalled = Sinks.empty();
+        when(userSearchRepository.saveAll(anyIterable())).thenAnswer(invocation ->
+            stalled.asMono().thenMany(Flux.fromIterable(invocation.<Iterable<User>>getArgument(0)))
+        );
+
+        // More batches flushed on the interval than requested by the indexing while the first bulk request is stalled
+        for (int i = 0; i < 40; i++) {
+            userIndexService.enqueue("user-" + i);
+            Thread.sleep(60);
+        }
+        stalled.tryEmitEmpty();
+        await(() -> userIndexService.getPending() == 0);
+
+        assertThat(meterRegistry.get(UserIndexService.LAG_METRIC).timer().count()).isEqualTo(40);
+        assertThat(userIndexService.getDeadLetters()).isEmpty();
+
+        userIndexService.enqueue("alice");
+        await(() -> userIndexService.getPending() == 0);
+
+        verify(userSearchRepository).saveAll(List.of(user("alice")));
+    }
+
+    @Test
+    void shouldResumeReindexAfterLastIndexedUser() throws InterruptedException {
+        when(userRepository.findAllByIdGreaterThan(eq(""), any(Pageable.class))).thenReturn(Flux.just(user("a"), user("b")));
+        when(userRepository.findAllByIdGreaterThan(eq("b"), any(Pageable.class))).thenReturn(Flux.error(new IllegalStateException("Database unavailable")));
+
+        userIndexService.startReindex(false);
+        await(() -> userIndexService.getReindexStatus().state() == ReindexState.FAILED);
+
+        assertThat(userIndexService.getReindexStatus().lastId()).isEqualTo("b");
+        assertThat(userIndexService.getReindexStatus().indexed()).isEqualTo(2);
+
+        when(userRepository.findAllByIdGreaterThan(eq("b"), any(Pageable.class))).thenReturn(Flux.just(user("c")));
+        userIndexService.startReindex(true);
+        await(() -> userIndexService.getReindexStatus().state() == ReindexState.COMPLETED);
+
+        assertThat(userIndexService.getReindexStatus().lastId()).isEqualTo("c");
+        assertThat(userIndexService.getReindexStatus().indexed()).isEqualTo(3);
+        verify(userSearchRepository).saveAll(List.of(user("c")));
+    }
+
+    @Test
+    void shouldRunOneReindexAtATime() {
+        when(userRepository.findAllByIdGreaterThan(eq(""), any(Pageable.class))).thenReturn(Flux.never());
+
+        userIndexService.startReindex(false);
+
+        assertThatIllegalStateException().isThrownBy(() -> userIndexService.startReindex(false));
+        assertThat(userIndexService.stopReindex()).isTrue();
+        assertThat(userIndexService.getReindexStatus().state()).isEqualTo(ReindexState.STOPPED);
+    }
+
+    @Test
+    void shouldIndexOneUserPerBatchWithNonPositiveBatchSize() throws InterruptedException {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getUserIndex().setBatchSize(0);
+        UserIndexService unbatched = new UserIndexService(userRepository, userSearchRepository, meterRegistry, applicationProperties);
+        when(userRepository.findAllByIdGreaterThan(eq(""), any(Pageable.class))).thenReturn(Flux.just(user("a")));
+        when(userRepository.findAllByIdGreaterThan(eq("a"), any(Pageable.class))).thenReturn(Flux.empty());
+
+        unbatched.startReindex(false);
+        await(() -> unbatched.getReindexStatus().state() == ReindexState.COMPLETED);
+
+        assertThat(unbatched.getReindexStatus().indexed()).isEqualTo(1);
+        verify(userRepository).findAllByIdGreaterThan("", PageRequest.of(0, 1, Sort.by("id")));
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setLogin(id);
+        return user;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
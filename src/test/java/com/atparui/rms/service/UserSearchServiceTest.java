@@ -0,0 +1,86 @@
+package com.atparui.rms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.domain.User;
+import com.atparui.rms.repository.search.UserSearchRepository;
+import com.atparui.rms.service.dto.UserDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+/**
+ * Unit tests for {@link UserSearchService}.
+ */
+class UserSearchServiceTest {
+
+    private UserSearchRepository userSearchRepository;
+    private UserSearchService userSearchService;
+
+    @BeforeEach
+    void init() {
+        userSearchRepository = mock(UserSearchRepository.class);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getUserSearch().setDefaultSize(20);
+        applicationProperties.getUserSearch().setMaxSize(50);
+        userSearchService = new UserSearchService(userSearchRepository, new SimpleMeterRegistry(), applicationProperties);
+    }
+
+    @Test
+    void shouldReuseResultsOfSameSearch() {
+        when(userSearchRepository.searchLogins("jo", true, null, 21)).thenReturn(Flux.just(user("1", "joe"), user("2", "john")));
+
+        assertThat(logins(userSearchService.search("jo", true, null, 21))).containsExactly("joe", "john");
+        assertThat(logins(userSearchService.search(" JO ", true, null, 21))).containsExactly("joe", "john");
+
+        verify(userSearchRepository, times(1)).searchLogins("jo", true, null, 21);
+    }
+
+    @Test
+    void shouldSearchEachPageSeparately() {
+        when(userSearchRepository.searchLogins("jo", true, null, 2)).thenReturn(Flux.just(user("1", "joe")));
+        when(userSearchRepository.searchLogins("jo", true, "joe", 2)).thenReturn(Flux.just(user("2", "john")));
+
+        assertThat(logins(userSearchService.search("jo", true, null, 2))).containsExactly("joe");
+        assertThat(logins(userSearchService.search("jo", true, "joe", 2))).containsExactly("john");
+    }
+
+    @Test
+    void shouldNotSearchBlankQuery() {
+        assertThat(logins(userSearchService.search("  ", false, null, 21))).isEmpty();
+
+        verify(userSearchRepository, never()).searchLogins(anyString(), anyBoolean(), isNull(), anyInt());
+    }
+
+    @Test
+    void shouldBoundPageSize() {
+        assertThat(userSearchService.pageSize(null)).isEqualTo(20);
+        assertThat(userSearchService.pageSize(0)).isEqualTo(1);
+        assertThat(userSearchService.pageSize(10)).isEqualTo(10);
+        assertThat(userSearchService.pageSize(10_000)).isEqualTo(50);
+    }
+
+    private static User user(String id, String login) {
+        User user = new User();
+        user.setId(id);
+        user.setLogin(login);
+        return user;
+    }
+
+    private static List<String> logins(Flux<UserDTO> users) {
+        return users.map(UserDTO::getLogin).collectList().block(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,76 @@
+package com.atparui.rms.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.domain.User;
+import com.atparui.rms.repository.AuthorityRepository;
+import com.atparui.rms.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for the updates of the current user by {@link UserService}.
+ */
+class UserServiceTest {
+
+    private UserRepository userRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private UserService userService;
+
+    private User user;
+
+    @BeforeEach
+    void init() {
+        user = new User();
+        user.setId("user-1");
+        user.setLogin("alice");
+        user.setFirstName("Alice");
+        user.setLastName("Liddell");
+        user.setEmail("alice@example.com");
+        user.setLangKey("en");
+
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findOneByLogin("alice")).thenReturn(Mono.just(user));
+        when(userRepository.save(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        userService = new UserService(userRepository, mock(AuthorityRepository.class), eventPublisher);
+    }
+
+    @Test
+    void shouldNotSaveNorPublishUnchangedUsers() {
+        update("Alice", "Liddell", "Alice@Example.com", "en", null);
+
+        verify(userRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void shouldSaveAndPublishChangedUsers() {
+        update("Alice", "Kingsleigh", "alice@example.com", "en", null);
+
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue()).isEqualTo(new UserChangedEvent("user-1"));
+        assertThat(user.getLastName()).isEqualTo("Kingsleigh");
+        verify(userRepository).save(user);
+    }
+
+    private void update(String firstName, String lastName, String email, String langKey, String imageUrl) {
+        userService
+            .updateUser(firstName, lastName, email, langKey, imageUrl)
+            .contextWrite(ReactiveSecurityContextHolder.withAuthentication(new UsernamePasswordAuthenticationToken("alice", "alice")))
+            .block();
+    }
+}
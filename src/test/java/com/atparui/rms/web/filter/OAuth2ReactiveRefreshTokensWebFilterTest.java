@@ -0,0 +1,152 @@
+package com.atparui.rms.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.config.TenantMeterTags;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.web.server.ServerOAuth2AuthorizedClientRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.server.WebSession;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for {@link OAuth2ReactiveRefreshTokensWebFilter}.
+ */
+class OAuth2ReactiveRefreshTokensWebFilterTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-11T10:00:00Z");
+
+    private ReactiveOAuth2AuthorizedClientManager clientManager;
+    private ReactiveOAuth2AuthorizedClientManager refreshManager;
+    private ServerOAuth2AuthorizedClientRepository authorizedClientRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private OAuth2ReactiveRefreshTokensWebFilter filter;
+    private OAuth2AuthenticationToken authentication;
+    private WebSession session;
+    private WebFilterChain chain;
+
+    @BeforeEach
+    void init() {
+        clientManager = mock(ReactiveOAuth2AuthorizedClientManager.class);
+        refreshManager = mock(ReactiveOAuth2AuthorizedClientManager.class);
+        authorizedClientRepository = mock(ServerOAuth2AuthorizedClientRepository.class);
+        when(authorizedClientRepository.saveAuthorizedClient(any(), any(), any())).thenReturn(Mono.empty());
+        meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        TenantMeterTags tenantMeterTags = new TenantMeterTags(applicationProperties, beanFactory.getBeanProvider(MeterRegistry.class));
+        filter = new OAuth2ReactiveRefreshTokensWebFilter(
+            clientManager,
+            refreshManager,
+            authorizedClientRepository,
+            tenantMeterTags,
+            meterRegistry,
+            applicationProperties,
+            Clock.fixed(NOW, ZoneOffset.UTC)
+        );
+        List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_USER");
+        authentication = new OAuth2AuthenticationToken(new DefaultOAuth2User(authorities, Map.of("sub", "alice"), "sub"), authorities, "oidc");
+        session = mock(WebSession.class);
+        when(session.getId()).thenReturn("session-1");
+        when(session.save()).thenReturn(Mono.empty());
+        chain = mock(WebFilterChain.class);
+        when(chain.filter(any())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void shouldSkipAuthorizationOfTokenFarFromExpiry() {
+        doReturn(Mono.just(authorizedClient("token", Duration.ofMinutes(10))))
+            .when(authorizedClientRepository)
+            .loadAuthorizedClient(any(), any(), any());
+
+        filter.filter(exchange(), chain).block();
+
+        verify(chain).filter(any());
+        verify(clientManager, never()).authorize(any());
+        verify(refreshManager, never()).authorize(any());
+    }
+
+    @Test
+    void shouldRefreshExpiringTokenOnceForConcurrentRequestsOfSession() {
+        doReturn(Mono.just(authorizedClient("token", Duration.ofSeconds(30))))
+            .when(authorizedClientRepository)
+            .loadAuthorizedClient(any(), any(), any());
+        OAuth2AuthorizedClient refreshed = authorizedClient("refreshed", Duration.ofMinutes(5));
+        when(refreshManager.authorize(any())).thenReturn(Mono.delay(Duration.ofMillis(50)).thenReturn(refreshed));
+
+        Mono.when(filter.filter(exchange(), chain), filter.filter(exchange(), chain), filter.filter(exchange(), chain)).block();
+
+        verify(refreshManager, times(1)).authorize(any());
+        verify(authorizedClientRepository, times(2)).saveAuthorizedClient(any(), any(), any());
+        verify(chain, times(3)).filter(any());
+        assertThat(meterRegistry.get(OAuth2ReactiveRefreshTokensWebFilter.REFRESH_METRIC).tag("mode", "inline").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(OAuth2ReactiveRefreshTokensWebFilter.REFRESH_METRIC + ".joined").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRefreshTokenAheadOfExpiryWithoutDelayingRequest() {
+        doReturn(Mono.just(authorizedClient("token", Duration.ofSeconds(90))))
+            .when(authorizedClientRepository)
+            .loadAuthorizedClient(any(), any(), any());
+        when(refreshManager.authorize(any())).thenReturn(Mono.never());
+
+        filter.filter(exchange(), chain).block(Duration.ofSeconds(5));
+
+        verify(chain).filter(any());
+        verify(refreshManager).authorize(any());
+    }
+
+    private ServerWebExchange exchange() {
+        return MockServerWebExchange.builder(MockServerHttpRequest.get("/api/account"))
+            .session(session)
+            .build()
+            .mutate()
+            .principal(Mono.just(authentication))
+            .build();
+    }
+
+    private static OAuth2AuthorizedClient authorizedClient(String token, Duration validity) {
+        ClientRegistration clientRegistration = ClientRegistration.withRegistrationId("oidc")
+            .clientId("web_app")
+            .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+            .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+            .authorizationUri("https://auth.example.com/realms/acme/protocol/openid-connect/auth")
+            .tokenUri("https://auth.example.com/realms/acme/protocol/openid-connect/token")
+            .issuerUri("https://auth.example.com/realms/acme")
+            .build();
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, token, NOW.minusSeconds(60), NOW.plus(validity));
+        return new OAuth2AuthorizedClient(clientRegistration, "alice", accessToken, new OAuth2RefreshToken("refresh", NOW.minusSeconds(60)));
+    }
+}
@@ -0,0 +1,119 @@
+package com.atparui.rms.web.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.config.TenantMeterTags;
+import com.atparui.rms.config.TenantResolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for {@link TenantFilter}.
+ */
+class TenantFilterTest {
+
+    @TempDir
+    Path storage;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TenantFilter tenantFilter;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        TenantResolver tenantResolver = mock(TenantResolver.class);
+        when(tenantResolver.resolveTenant(any())).thenReturn(Mono.just("acme"));
+        tenantFilter = new TenantFilter(
+            tenantResolver,
+            meterRegistry,
+            new TenantMeterTags(new ApplicationProperties(), beanFactory.getBeanProvider(MeterRegistry.class))
+        );
+    }
+
+    @Test
+    void shouldKeepZeroCopyTransfersOfTheServer() throws Exception {
+        Path file = Files.writeString(storage.resolve("driver.jar"), "0123456789");
+        ZeroCopyResponse response = new ZeroCopyResponse();
+        ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/database-drivers/1/download"))
+            .mutate()
+            .response(response)
+            .build();
+
+        tenantFilter
+            .filter(exchange, filtered -> {
+                assertThat(filtered.getResponse()).isInstanceOf(ZeroCopyHttpOutputMessage.class);
+                return ((ZeroCopyHttpOutputMessage) filtered.getResponse()).writeWith(file, 2, 4);
+            })
+            .block(Duration.ofSeconds(5));
+
+        assertThat(response.transferred).isEqualTo(4);
+        assertThat(meterRegistry.get("tenant.http.response.size").summary().totalAmount()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldRecordExchangeSizesAndOutcomePerTenant() {
+        for (int i = 0; i < 2; i++) {
+            MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.post("/api/tenants").contentLength(3).body("abc")
+            );
+            tenantFilter
+                .filter(exchange, filtered -> {
+                    filtered.getResponse().setStatusCode(HttpStatus.CREATED);
+                    DataBuffer body = filtered.getResponse().bufferFactory().wrap("created".getBytes(StandardCharsets.UTF_8));
+                    return filtered.getResponse().writeWith(Flux.just(body));
+                })
+                .block(Duration.ofSeconds(5));
+            assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("created");
+        }
+
+        assertThat(
+            meterRegistry.get("tenant.http.requests").tag(TenantMeterTags.TAG, "acme").tag("outcome", "SUCCESS").timer().count()
+        ).isEqualTo(2);
+        assertThat(meterRegistry.get("tenant.http.request.size").tag(TenantMeterTags.TAG, "acme").summary().totalAmount()).isEqualTo(6);
+        assertThat(meterRegistry.get("tenant.http.response.size").tag(TenantMeterTags.TAG, "acme").summary().totalAmount()).isEqualTo(14);
+        assertThat(meterRegistry.get("tenant.http.response.size").summary().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRecordCancelledExchanges() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/account"));
+
+        tenantFilter.filter(exchange, filtered -> Mono.never()).subscribe().dispose();
+
+        assertThat(meterRegistry.get("tenant.http.requests").tag("outcome", "CANCELLED").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("tenant.http.response.size").summary().totalAmount()).isZero();
+    }
+
+    private static final class ZeroCopyResponse extends MockServerHttpResponse implements ZeroCopyHttpOutputMessage {
+
+        private long transferred;
+
+        @Override
+        public Mono<Void> writeWith(Path file, long position, long count) {
+            return Mono.fromRunnable(() -> transferred += count);
+        }
+    }
+}
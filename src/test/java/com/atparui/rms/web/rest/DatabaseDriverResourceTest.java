@@ -0,0 +1,147 @@
+package com.atparui.rms.web.rest;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+
+import com.atparui.rms.config.ApplicationProperties;
+import com.atparui.rms.config.TenantMeterTags;
+import com.atparui.rms.config.TenantResolver;
+import com.atparui.rms.domain.DriverJar;
+import com.atparui.rms.service.DatabaseDriverService;
+import com.atparui.rms.web.filter.TenantFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+import reactor.core.publisher.Mono;
+
+/**
+ * Unit tests for the download and upload endpoints of {@link DatabaseDriverResource}.
+ */
+class DatabaseDriverResourceTest {
+
+    private static final String SHA256 = "0f1e2d3c4b5a69788796a5b4c3d2e1f00f1e2d3c4b5a69788796a5b4c3d2e1f0";
+
+    @TempDir
+    Path storage;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private DatabaseDriverService driverService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void init() throws Exception {
+        Path jar = Files.writeString(storage.resolve("driver.jar"), "0123456789");
+        DriverJar driver = new DriverJar();
+        driver.setId(1L);
+        driver.setFileName("postgresql.jar");
+        driver.setFilePath("driver.jar");
+        driver.setSha256Hash(SHA256);
+
+        driverService = mock(DatabaseDriverService.class);
+        when(driverService.findById(1L)).thenReturn(Mono.just(driver));
+        when(driverService.findById(2L)).thenReturn(Mono.empty());
+        when(driverService.loadDriverFile(driver)).thenReturn(Mono.just(new FileSystemResource(jar)));
+        // Through the tenant filter, which wraps the response of every request
+        meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        TenantResolver tenantResolver = mock(TenantResolver.class);
+        when(tenantResolver.resolveTenant(any())).thenReturn(Mono.just("acme"));
+        TenantFilter tenantFilter = new TenantFilter(
+            tenantResolver,
+            meterRegistry,
+            new TenantMeterTags(new ApplicationProperties(), beanFactory.getBeanProvider(MeterRegistry.class))
+        );
+        webTestClient = WebTestClient.bindToController(new DatabaseDriverResource(driverService)).webFilter(tenantFilter).build();
+    }
+
+    @Test
+    void shouldDownloadWithStrongETag() {
+        webTestClient
+            .get()
+            .uri("/api/database-drivers/1/download")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("ETag", "\"" + SHA256 + "\"")
+            .expectHeader()
+            .contentType("application/java-archive")
+            .expectBody(String.class)
+            .isEqualTo("0123456789");
+        assertThat(meterRegistry.get("tenant.http.response.size").summary().totalAmount()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldAnswerNotModifiedForMatchingETag() {
+        webTestClient
+            .get()
+            .uri("/api/database-drivers/1/download")
+            .header("If-None-Match", "\"" + SHA256 + "\"")
+            .exchange()
+            .expectStatus()
+            .isNotModified()
+            .expectBody()
+            .isEmpty();
+    }
+
+    @Test
+    void shouldServeRangeRequests() {
+        webTestClient
+            .get()
+            .uri("/api/database-drivers/1/download")
+            .header("Range", "bytes=2-5")
+            .exchange()
+            .expectStatus()
+            .isEqualTo(HttpStatus.PARTIAL_CONTENT)
+            .expectHeader()
+            .valueEquals("Content-Range", "bytes 2-5/10")
+            .expectBody(String.class)
+            .isEqualTo("2345");
+        assertThat(meterRegistry.get("tenant.http.response.size").summary().totalAmount()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownDriver() {
+        webTestClient.get().uri("/api/database-drivers/2/download").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldRejectNonNumericVersionId() {
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("versionId", "latest");
+        body.part("driverType", "JDBC");
+        body.part("driverClassName", "org.postgresql.Driver");
+        body.part("file", new ByteArrayResource("jar".getBytes(StandardCharsets.UTF_8))).filename("postgresql.jar");
+
+        webTestClient
+            .post()
+            .uri("/api/database-drivers/upload")
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .body(BodyInserters.fromMultipartData(body.build()))
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+        verify(driverService, never()).uploadDriver(any(), any(), any(), any(), any(), any());
+    }
+}
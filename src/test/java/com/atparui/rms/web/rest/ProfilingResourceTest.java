@@ -0,0 +1,71 @@
+package com.atparui.rms.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.service.FlightRecorderService;
+import com.atparui.rms.service.FlightRecorderService.Kind;
+import com.atparui.rms.service.FlightRecorderService.RecordingInfo;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * Unit tests for {@link ProfilingResource}.
+ */
+class ProfilingResourceTest {
+
+    private FlightRecorderService flightRecorderService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void init() {
+        flightRecorderService = mock(FlightRecorderService.class);
+        webTestClient = WebTestClient.bindToController(new ProfilingResource(flightRecorderService)).build();
+    }
+
+    @Test
+    void shouldRejectNonPositiveMinutes() {
+        webTestClient.get().uri("/management/profiling/continuous?minutes=0").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri("/management/profiling/continuous/summary?minutes=-5").exchange().expectStatus().isBadRequest();
+
+        verifyNoInteractions(flightRecorderService);
+    }
+
+    @Test
+    void shouldStartRecordingOffTheEventLoop() {
+        AtomicReference<String> thread = new AtomicReference<>();
+        when(flightRecorderService.start(Kind.LOCKS, Duration.ofSeconds(30))).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            return new RecordingInfo(1, Kind.LOCKS, "gateway-locks", "RUNNING", Instant.now(), Duration.ofSeconds(30), 0);
+        });
+
+        webTestClient
+            .post()
+            .uri("/management/profiling/recordings?kind=LOCKS&seconds=30")
+            .exchange()
+            .expectStatus()
+            .isCreated()
+            .expectBody()
+            .jsonPath("$.name")
+            .isEqualTo("gateway-locks");
+        assertThat(thread.get()).startsWith("boundedElastic");
+    }
+
+    @Test
+    void shouldAnswerConflictForRunningRecording() {
+        when(flightRecorderService.start(any(), any())).thenThrow(new IllegalStateException("A LOCKS recording is already running"));
+
+        webTestClient.post().uri("/management/profiling/recordings?kind=LOCKS").exchange().expectStatus().isEqualTo(409);
+
+        verify(flightRecorderService).start(Kind.LOCKS, Duration.ofSeconds(60));
+    }
+}
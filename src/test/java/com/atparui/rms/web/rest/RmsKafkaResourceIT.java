@@ -58,6 +58,20 @@ class RmsKafkaResourceIT {
         assertThat(output.receive(1000, "binding-out-0").getPayload()).isEqualTo("value-produce".getBytes());
     }
 
+    @Test
+    void producesBulkMessages() {
+        client
+            .post()
+            .uri(KAFKA_API, "publish/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .bodyValue("value-bulk-1\nvalue-bulk-2\n")
+            .exchange()
+            .expectStatus()
+            .isNoContent();
+        assertThat(output.receive(1000, "binding-out-0").getPayload()).isEqualTo("value-bulk-1".getBytes());
+        assertThat(output.receive(1000, "binding-out-0").getPayload()).isEqualTo("value-bulk-2".getBytes());
+    }
+
     @Test
     void producesPooledMessages() throws Exception {
         assertThat(output.receive(1500, "kafkaProducer-out-0").getPayload()).isEqualTo("kafka_producer".getBytes());
@@ -0,0 +1,83 @@
+package com.atparui.rms.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.broker.KafkaConsumer;
+import com.atparui.rms.broker.KafkaPublisher;
+import com.atparui.rms.config.TenantContext;
+import com.atparui.rms.security.AuthoritiesConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import reactor.core.publisher.Flux;
+
+/**
+ * Unit tests for the tenant of the records streamed by {@link RmsKafkaResource}.
+ */
+class RmsKafkaResourceTest {
+
+    private KafkaConsumer kafkaConsumer;
+
+    private RmsKafkaResource resource;
+
+    private MockServerWebExchange exchange;
+
+    @BeforeEach
+    void init() {
+        kafkaConsumer = mock(KafkaConsumer.class);
+        when(kafkaConsumer.subscribe(any(), any(), any(), any())).thenReturn(Flux.empty());
+        resource = new RmsKafkaResource(mock(KafkaPublisher.class), kafkaConsumer);
+        // A forged X-Tenant-ID header that the tenant resolution did not accept
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/rms-kafka/consume").header("X-Tenant-ID", "globex"));
+        exchange.getAttributes().put(TenantContext.TENANT_KEY, "acme");
+    }
+
+    @Test
+    void shouldStreamTheRecordsOfTheResolvedTenant() {
+        resource.consume(exchange, null, "orders", null, null).as(this::asUser).blockLast();
+
+        verify(kafkaConsumer).subscribe("acme", "orders", null, null);
+    }
+
+    @Test
+    void shouldForbidOtherTenantsToUsers() {
+        assertThatThrownBy(() -> resource.consume(exchange, "globex", null, null, null).as(this::asUser).blockLast()).isInstanceOf(
+            AccessDeniedException.class
+        );
+
+        verify(kafkaConsumer, never()).subscribe(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldStreamOtherTenantsToAdmins() {
+        resource.consume(exchange, "globex", null, null, null).as(this::asAdmin).blockLast();
+
+        verify(kafkaConsumer).subscribe("globex", null, null, null);
+    }
+
+    private <T> Flux<T> asUser(Flux<T> flux) {
+        return as(flux, AuthoritiesConstants.USER);
+    }
+
+    private <T> Flux<T> asAdmin(Flux<T> flux) {
+        return as(flux, AuthoritiesConstants.ADMIN);
+    }
+
+    private static <T> Flux<T> as(Flux<T> flux, String authority) {
+        return flux.contextWrite(
+            ReactiveSecurityContextHolder.withAuthentication(
+                new UsernamePasswordAuthenticationToken("user", "user", AuthorityUtils.createAuthorityList(authority))
+            )
+        );
+    }
+}
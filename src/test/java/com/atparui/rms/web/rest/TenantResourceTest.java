@@ -0,0 +1,113 @@
+package com.atparui.rms.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.atparui.rms.domain.Tenant;
+import com.atparui.rms.service.DatabaseConnectionTestService;
+import com.atparui.rms.service.TenantService;
+import com.atparui.rms.service.dto.TenantSummaryDTO;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+/**
+ * Unit tests for the listing endpoints of {@link TenantResource}.
+ */
+class TenantResourceTest {
+
+    private TenantService tenantService;
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void init() {
+        tenantService = mock(TenantService.class);
+        webTestClient = WebTestClient.bindToController(
+            new TenantResource(tenantService, mock(DatabaseConnectionTestService.class))
+        ).build();
+    }
+
+    @Test
+    void shouldLinkToNextPageWhenMoreTenantsExist() {
+        when(tenantService.findSummaries(null, true, null, 3)).thenReturn(Flux.just(tenant(1L), tenant(4L), tenant(7L)));
+
+        webTestClient
+            .get()
+            .uri("/api/tenants?size=2&active=true")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals(HttpHeaders.LINK, "</api/tenants?active=true&afterId=4&size=2>; rel=\"next\"")
+            .expectBodyList(TenantSummaryDTO.class)
+            .value(tenants -> assertThat(tenants).extracting(TenantSummaryDTO::getId).containsExactly(1L, 4L));
+    }
+
+    @Test
+    void shouldReturnLastPageWithoutLink() {
+        when(tenantService.findSummaries(4L, null, "acme", 3)).thenReturn(Flux.just(tenant(7L)));
+
+        webTestClient
+            .get()
+            .uri("/api/tenants?afterId=4&size=2&search=acme")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .doesNotExist(HttpHeaders.LINK)
+            .expectBodyList(TenantSummaryDTO.class)
+            .hasSize(1);
+    }
+
+    @Test
+    void shouldReturnAllTenantsAsJsonByDefault() {
+        when(tenantService.findSummaries(null, null, null, 0)).thenReturn(Flux.just(tenant(1L), tenant(4L)));
+
+        webTestClient
+            .get()
+            .uri("/api/tenants")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+            .expectBody(String.class)
+            .value(body -> assertThat(body).startsWith("[").doesNotContain("databasePassword").doesNotContain("clientSecret"));
+    }
+
+    @Test
+    void shouldStreamTenantsAsNdjson() {
+        when(tenantService.findSummaries(null, null, null, 0)).thenReturn(Flux.just(tenant(1L), tenant(4L)));
+
+        List<String> lines = webTestClient
+            .get()
+            .uri("/api/tenants")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .returnResult(String.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+        assertThat(lines).hasSize(2).allSatisfy(line -> assertThat(line).startsWith("{\"id\":"));
+    }
+
+    private static TenantSummaryDTO tenant(Long id) {
+        Tenant tenant = new Tenant();
+        tenant.setId(id);
+        tenant.setTenantId("tenant" + id);
+        tenant.setName("Tenant " + id);
+        tenant.setDatabasePassword("secret");
+        tenant.setClientSecret("secret");
+        return new TenantSummaryDTO(tenant);
+    }
+}
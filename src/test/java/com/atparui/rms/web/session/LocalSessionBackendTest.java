@@ -0,0 +1,47 @@
+package com.atparui.rms.web.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link LocalSessionBackend}.
+ */
+class LocalSessionBackendTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-11T10:00:00Z");
+
+    @Test
+    void shouldKeepMostRecentSessionsOfPrincipal() {
+        LocalSessionBackend backend = new LocalSessionBackend(1024 * 1024, 2);
+
+        backend.save(session("s1", "alice", NOW.plusSeconds(1))).block();
+        backend.save(session("s2", "alice", NOW.plusSeconds(3))).block();
+        backend.save(session("s3", "bob", NOW)).block();
+        backend.save(session("s4", "alice", NOW.plusSeconds(2))).block();
+
+        assertThat(backend.load("s1").blockOptional()).isEmpty();
+        assertThat(backend.load("s2").blockOptional()).isPresent();
+        assertThat(backend.load("s3").blockOptional()).isPresent();
+        assertThat(backend.load("s4").blockOptional()).isPresent();
+    }
+
+    @Test
+    void shouldBoundMemoryOfSessions() {
+        LocalSessionBackend backend = new LocalSessionBackend(64 * 1024, 5);
+
+        for (int i = 0; i < 100; i++) {
+            backend.save(new StoredSession("s" + i, null, NOW, NOW, Duration.ofMinutes(30), new byte[4096])).block();
+        }
+        backend.cleanUp();
+
+        assertThat(backend.memory()).isLessThanOrEqualTo(64 * 1024);
+        assertThat(backend.size()).isLessThan(16);
+    }
+
+    private static StoredSession session(String id, String principalName, Instant lastAccessTime) {
+        return new StoredSession(id, principalName, NOW, lastAccessTime, Duration.ofMinutes(30), new byte[] { 1, 2, 3 });
+    }
+}
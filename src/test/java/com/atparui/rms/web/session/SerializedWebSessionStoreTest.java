@@ -0,0 +1,125 @@
+package com.atparui.rms.web.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.server.context.WebSessionServerSecurityContextRepository;
+import org.springframework.web.server.WebSession;
+
+/**
+ * Unit tests for {@link SerializedWebSessionStore}.
+ */
+class SerializedWebSessionStoreTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-11T10:00:00Z");
+
+    // Stands for the shared store of two gateway instances
+    private SessionBackend backend;
+    private SerializedWebSessionStore gateway1;
+    private SerializedWebSessionStore gateway2;
+
+    @BeforeEach
+    void init() {
+        backend = spy(new LocalSessionBackend(1024 * 1024, 5));
+        gateway1 = store(NOW);
+        gateway2 = store(NOW);
+    }
+
+    @Test
+    void shouldServeSessionFromAnyGateway() {
+        WebSession session = gateway1.createWebSession().block();
+        session.getAttributes().put("OAUTH2_ORIGINAL_FRONTEND_URL", "https://rms.example.com/");
+        session.getAttributes().put(WebSessionServerSecurityContextRepository.DEFAULT_SPRING_SECURITY_CONTEXT_ATTR_NAME, securityContext("alice"));
+        session.save().block();
+
+        WebSession retrieved = gateway2.retrieveSession(session.getId()).block();
+
+        assertThat(retrieved).isNotSameAs(session);
+        assertThat(retrieved.getAttributes()).containsEntry("OAUTH2_ORIGINAL_FRONTEND_URL", "https://rms.example.com/");
+        assertThat(retrieved.getCreationTime()).isEqualTo(NOW);
+        assertThat(backend.load(session.getId()).block().principalName()).isEqualTo("alice");
+    }
+
+    @Test
+    void shouldNotRewriteUnchangedSessionWithinTouchInterval() {
+        WebSession session = gateway1.createWebSession().block();
+        session.getAttributes().put("key", "value");
+        session.save().block();
+
+        WebSession retrieved = gateway1.retrieveSession(session.getId()).block();
+        gateway1.updateLastAccessTime(retrieved).block();
+        retrieved.save().block();
+
+        verify(backend, times(1)).save(any());
+        verify(backend, never()).touch(any(), any(), any());
+
+        gateway1.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(2)), ZoneOffset.UTC));
+        gateway1.updateLastAccessTime(retrieved).block();
+        retrieved.save().block();
+
+        verify(backend, times(1)).save(any());
+        verify(backend).touch(session.getId(), NOW.plus(Duration.ofMinutes(2)), Duration.ofMinutes(30));
+
+        retrieved.getAttributes().put("key", "other");
+        retrieved.save().block();
+
+        verify(backend, times(2)).save(any());
+    }
+
+    @Test
+    void shouldExpireIdleSessionAndNotStoreEmptyOne() {
+        WebSession empty = gateway1.createWebSession().block();
+        empty.save().block();
+        WebSession session = gateway1.createWebSession().block();
+        session.getAttributes().put("key", "value");
+        session.save().block();
+
+        assertThat(gateway1.retrieveSession(empty.getId()).blockOptional()).isEmpty();
+
+        gateway2.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(31)), ZoneOffset.UTC));
+
+        assertThat(gateway2.retrieveSession(session.getId()).blockOptional()).isEmpty();
+        verify(backend).delete(session.getId());
+    }
+
+    @Test
+    void shouldMoveSessionOnIdChangeAndRemoveItOnInvalidation() {
+        WebSession session = gateway1.createWebSession().block();
+        session.getAttributes().put("key", "value");
+        session.save().block();
+        String previousId = session.getId();
+
+        session.changeSessionId().block();
+
+        assertThat(session.getId()).isNotEqualTo(previousId);
+        assertThat(gateway2.retrieveSession(previousId).blockOptional()).isEmpty();
+        assertThat(gateway2.retrieveSession(session.getId()).block().getAttributes()).containsEntry("key", "value");
+
+        session.invalidate().block();
+
+        assertThat(session.isExpired()).isTrue();
+        assertThat(gateway2.retrieveSession(session.getId()).blockOptional()).isEmpty();
+    }
+
+    private SerializedWebSessionStore store(Instant now) {
+        SerializedWebSessionStore store = new SerializedWebSessionStore(backend, Duration.ofMinutes(30), Duration.ofMinutes(1));
+        store.setClock(Clock.fixed(now, ZoneOffset.UTC));
+        return store;
+    }
+
+    static SecurityContextImpl securityContext(String principal) {
+        return new SecurityContextImpl(new TestingAuthenticationToken(principal, null, "ROLE_USER"));
+    }
+}
@@ -0,0 +1,119 @@
+package gatling.simulations;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Bearer tokens of the virtual users, issued by the IdP with the password grant and renewed before they expire.
+ * <p>
+ * Configured with the system properties {@code tokenUrl}, {@code tokenClientId}, {@code tokenClientSecret} and
+ * {@code username}/{@code password}, or {@code adminUsername}/{@code adminPassword} for the admin token. A token can
+ * also be given as is with {@code userToken} or {@code adminToken}, e.g. when the IdP does not allow the password grant.
+ */
+final class AccessTokens {
+
+    // Renewed that long before they expire
+    private static final long MARGIN_SECONDS = 30;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String tokenUrl;
+    private final String clientId;
+    private final String clientSecret;
+    private final String username;
+    private final String password;
+
+    private String token;
+    private Instant expiresAt = Instant.MIN;
+
+    private AccessTokens(String token, String tokenUrl, String clientId, String clientSecret, String username, String password) {
+        this.token = token;
+        this.tokenUrl = tokenUrl;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.username = username;
+        this.password = password;
+        if (token != null) {
+            expiresAt = Instant.MAX;
+        }
+    }
+
+    static AccessTokens user() {
+        return fromSystemProperties("userToken", "username", "user", "password", "user");
+    }
+
+    static AccessTokens admin() {
+        return fromSystemProperties("adminToken", "adminUsername", "admin", "adminPassword", "admin");
+    }
+
+    private static AccessTokens fromSystemProperties(
+        String tokenProperty,
+        String usernameProperty,
+        String defaultUsername,
+        String passwordProperty,
+        String defaultPassword
+    ) {
+        return new AccessTokens(
+            System.getProperty(tokenProperty),
+            System.getProperty("tokenUrl", "http://localhost:9080/realms/jhipster/protocol/openid-connect/token"),
+            System.getProperty("tokenClientId", "admin-cli"),
+            System.getProperty("tokenClientSecret"),
+            System.getProperty(usernameProperty, defaultUsername),
+            System.getProperty(passwordProperty, defaultPassword)
+        );
+    }
+
+    /**
+     * @return a token valid for at least {@value #MARGIN_SECONDS} seconds.
+     */
+    synchronized String get() {
+        if (Instant.now().plusSeconds(MARGIN_SECONDS).isAfter(expiresAt)) {
+            renew();
+        }
+        return token;
+    }
+
+    private void renew() {
+        StringBuilder form = new StringBuilder("grant_type=password")
+            .append("&client_id=")
+            .append(encode(clientId))
+            .append("&username=")
+            .append(encode(username))
+            .append("&password=")
+            .append(encode(password));
+        if (clientSecret != null) {
+            form.append("&client_secret=").append(encode(clientSecret));
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(tokenUrl))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(form.toString()))
+            .build();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Failed to get a token for " + username + " from " + tokenUrl + ": " + response.body());
+            }
+            JsonNode body = objectMapper.readTree(response.body());
+            token = body.get("access_token").asText();
+            expiresAt = Instant.now().plusSeconds(body.path("expires_in").asLong(60));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
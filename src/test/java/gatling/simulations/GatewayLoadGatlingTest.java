@@ -0,0 +1,176 @@
+package gatling.simulations;
+
+import static io.gatling.javaapi.core.CoreDsl.*;
+import static io.gatling.javaapi.http.HttpDsl.*;
+
+import io.gatling.javaapi.core.ChainBuilder;
+import io.gatling.javaapi.core.PopulationBuilder;
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Simulation;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Load test of the gateway with the traffic mix of production: bearer calls to {@code /api/account} and routed calls to
+ * {@code /services/**} from many tenants, resolved by subdomain or {@code X-Tenant-ID}, and a few admins listing the
+ * tenants and the platforms.
+ * <p>
+ * Run it against the local stand-ins of PostgreSQL, Keycloak and Consul, with the gateway issuing tokens from the
+ * {@code jhipster} realm:
+ * <pre>
+ * docker compose -f src/main/docker/services.yml up -d
+ * KEYCLOAK_ISSUER_URI=http://localhost:9080/realms/jhipster ./mvnw -Dspring-boot.run.profiles=dev,local
+ * ./mvnw gatling:test -Dgatling.simulationClass=gatling.simulations.GatewayLoadGatlingTest -Dtenants=1000 -DtenantSkew=1.2
+ * </pre>
+ * The virtual users are spread over the active tenants of the gateway, which must be provisioned beforehand and are
+ * listed before the run, see {@link TenantFeeder}. The tokens are described in {@link AccessTokens} and the routed
+ * service in {@link StubService}. The arrival rates are set per scenario in users per second with {@code accountRate},
+ * {@code routedRate} and {@code adminRate}, reached after {@code ramp} seconds and held for {@code duration} seconds.
+ * The run fails when the 99th percentile exceeds {@code p99} milliseconds or more than {@code maxFailedPercent} of the
+ * requests fail, and its report under {@code target/gatling} keeps the throughput and percentiles of each request in
+ * {@code js/stats.json}, to compare builds.
+ *
+ * @see <a href="https://github.com/jhipster/generator-jhipster/tree/v8.x/generators/gatling#logging-tips">Logging tips</a>
+ */
+public class GatewayLoadGatlingTest extends Simulation {
+
+    String baseURL = Optional.ofNullable(System.getProperty("baseURL")).orElse("http://localhost:8080");
+
+    TenantFeeder tenants = TenantFeeder.fromSystemProperties();
+
+    AccessTokens userTokens = AccessTokens.user();
+
+    AccessTokens adminTokens = AccessTokens.admin();
+
+    StubService stubService = StubService.fromSystemProperties();
+
+    HttpProtocolBuilder httpConf = http
+        .baseUrl(baseURL)
+        .acceptHeader("application/json")
+        .acceptEncodingHeader("gzip, deflate")
+        .connectionHeader("keep-alive")
+        .userAgentHeader("Mozilla/5.0 (X11; Linux x86_64; rv:128.0) Gecko/20100101 Firefox/128.0");
+
+    ChainBuilder account = tenantRequest("Get account", "/api/account", userTokens::get);
+
+    ChainBuilder routed = tenantRequest("Get routed service", "/services/" + stubService.getName() + "/api/orders", userTokens::get);
+
+    ChainBuilder adminListings = exec(
+        adminRequest("Get all tenants", "/api/tenants?size=20"),
+        adminRequest("Get all platforms", "/api/platforms"),
+        adminRequest("Get all database vendors", "/api/database-vendors"),
+        adminRequest("Get all authorities", "/api/authorities")
+    );
+
+    ScenarioBuilder accountUsers = scenario("Account").feed(tenants).exec(account);
+
+    ScenarioBuilder routedUsers = scenario("Routed service").feed(tenants).exec(routed);
+
+    ScenarioBuilder admins = scenario("Admin listings").exec(adminListings);
+
+    {
+        List<PopulationBuilder> populations = new ArrayList<>();
+        inject(populations, accountUsers, Double.parseDouble(System.getProperty("accountRate", "50")));
+        inject(populations, routedUsers, Double.parseDouble(System.getProperty("routedRate", "50")));
+        inject(populations, admins, Double.parseDouble(System.getProperty("adminRate", "1")));
+        setUp(populations)
+            .protocols(httpConf)
+            .assertions(
+                global().responseTime().percentile(99.0).lt(Integer.getInteger("p99", 500)),
+                global().failedRequests().percent().lt(Double.parseDouble(System.getProperty("maxFailedPercent", "1")))
+            );
+    }
+
+    @Override
+    public void before() {
+        // Fail fast when the IdP is unreachable
+        userTokens.get();
+        adminTokens.get();
+        tenants.load(baseURL, adminTokens.get());
+        try {
+            stubService.start();
+            awaitRoute();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to start the stub service", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void after() {
+        try {
+            stubService.stop();
+        } catch (IOException e) {
+            System.err.println("Failed to stop the stub service: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ChainBuilder tenantRequest(String name, String path, Supplier<String> token) {
+        return doIfOrElse(session -> session.getBoolean("bySubdomain"))
+            .then(
+                exec(
+                    http(name + " by subdomain")
+                        .get(path)
+                        .header("Authorization", session -> "Bearer " + token.get())
+                        .header("Host", "#{tenantHost}")
+                        .check(status().is(200))
+                )
+            )
+            .orElse(
+                exec(
+                    http(name + " by header")
+                        .get(path)
+                        .header("Authorization", session -> "Bearer " + token.get())
+                        .header("X-Tenant-ID", "#{tenantId}")
+                        .check(status().is(200))
+                )
+            );
+    }
+
+    private ChainBuilder adminRequest(String name, String path) {
+        return exec(
+            http(name).get(path).header("Authorization", session -> "Bearer " + adminTokens.get()).check(status().is(200))
+        ).pause(Duration.ofMillis(200), Duration.ofSeconds(1));
+    }
+
+    private void inject(List<PopulationBuilder> populations, ScenarioBuilder scenario, double rate) {
+        // A rate of 0 leaves the scenario out
+        if (rate > 0) {
+            populations.add(
+                scenario.injectOpen(
+                    rampUsersPerSec(0).to(rate).during(Duration.ofSeconds(Integer.getInteger("ramp", 30))),
+                    constantUsersPerSec(rate).during(Duration.ofSeconds(Integer.getInteger("duration", 120)))
+                )
+            );
+        }
+    }
+
+    // The gateway discovers the stub service through Consul a few seconds after its registration
+    private void awaitRoute() throws IOException, InterruptedException {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseURL + "/services/" + stubService.getName() + "/api/orders"))
+            .header("Authorization", "Bearer " + userTokens.get())
+            .build();
+        Instant deadline = Instant.now().plusSeconds(Integer.getInteger("routeTimeout", 60));
+        while (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 404) {
+            if (Instant.now().isAfter(deadline)) {
+                throw new IllegalStateException("The gateway does not route to " + stubService.getName());
+            }
+            Thread.sleep(1000);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package gatling.simulations;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Service answering the routed {@code /services/<name>/**} traffic, so that the gateway is measured without a real
+ * service behind it.
+ * <p>
+ * Every request gets a small JSON body after {@code stubLatency} milliseconds. The service listens on
+ * {@code stubPort} and registers in Consul at {@code consulUrl} as {@code stubName}, with the address
+ * {@code stubHost} at which the gateway reaches it, so that the gateway routes to it like to the other services.
+ */
+final class StubService {
+
+    private final String name;
+    private final String host;
+    private final int port;
+    private final long latencyMillis;
+    private final String consulUrl;
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private HttpServer server;
+
+    private StubService(String name, String host, int port, long latencyMillis, String consulUrl) {
+        this.name = name;
+        this.host = host;
+        this.port = port;
+        this.latencyMillis = latencyMillis;
+        this.consulUrl = consulUrl;
+    }
+
+    static StubService fromSystemProperties() {
+        return new StubService(
+            System.getProperty("stubName", "gatling-stub"),
+            System.getProperty("stubHost", "localhost"),
+            Integer.getInteger("stubPort", 8089),
+            Long.getLong("stubLatency", 5),
+            System.getProperty("consulUrl", "http://localhost:8500")
+        );
+    }
+
+    String getName() {
+        return name;
+    }
+
+    void start() throws IOException, InterruptedException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        if (!consulUrl.isBlank()) {
+            consul(
+                "/v1/agent/service/register",
+                "{\"ID\":\"" + serviceId() + "\",\"Name\":\"" + name + "\",\"Address\":\"" + host + "\",\"Port\":" + port + "}"
+            );
+        }
+    }
+
+    void stop() throws IOException, InterruptedException {
+        if (!consulUrl.isBlank()) {
+            consul("/v1/agent/service/deregister/" + serviceId(), "");
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String tenant = exchange.getRequestHeaders().getFirst("X-Tenant-ID");
+        byte[] body = ("{\"service\":\"" + name + "\",\"tenant\":" + (tenant != null ? "\"" + tenant + "\"" : "null") + "}").getBytes(
+            StandardCharsets.UTF_8
+        );
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void consul(String path, String body) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(
+            HttpRequest.newBuilder(URI.create(consulUrl + path)).PUT(HttpRequest.BodyPublishers.ofString(body)).build(),
+            HttpResponse.BodyHandlers.ofString()
+        );
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Consul refused " + path + ": " + response.body());
+        }
+    }
+
+    private String serviceId() {
+        return name + "-" + port;
+    }
+}
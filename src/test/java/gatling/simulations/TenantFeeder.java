@@ -0,0 +1,134 @@
+package gatling.simulations;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Endless feeder of the tenants of the virtual users, picked with a Zipf distribution so that a few tenants make most
+ * of the traffic, as in production.
+ * <p>
+ * The tenants are the active tenants of the gateway under test, streamed from {@code GET /api/tenants} by
+ * {@link #load(String, String)} before the run, so that the requests go through the real tenant resolution: a lookup by
+ * subdomain or a check of {@code X-Tenant-ID} against the master database, and the tenant's connection pool. Made up
+ * tenant IDs would only exercise the fallback to the default tenant. Provision the tenants beforehand, e.g. with
+ * {@code POST /api/tenants}; the run fails fast when there are none.
+ * <p>
+ * Configured with the system properties:
+ * <ul>
+ *     <li>{@code tenants}: the maximum number of tenants, the first ones by ID, all of them by default.</li>
+ *     <li>{@code tenantSkew}: the Zipf exponent, {@code 0} for uniform traffic.</li>
+ *     <li>{@code tenantDomain}: the domain of the tenant subdomains.</li>
+ *     <li>{@code subdomainRatio}: the share of the requests resolving their tenant by subdomain, the others send
+ *     {@code X-Tenant-ID}. Tenants without a subdomain always send {@code X-Tenant-ID}.</li>
+ * </ul>
+ */
+final class TenantFeeder implements Iterator<Map<String, Object>> {
+
+    private final int maxTenants;
+    private final double skew;
+    private final String domain;
+    private final double subdomainRatio;
+
+    private volatile Tenant[] tenants;
+    private volatile double[] cumulativeWeights;
+
+    TenantFeeder(int maxTenants, double skew, String domain, double subdomainRatio) {
+        this.maxTenants = maxTenants;
+        this.skew = skew;
+        this.domain = domain;
+        this.subdomainRatio = subdomainRatio;
+    }
+
+    static TenantFeeder fromSystemProperties() {
+        return new TenantFeeder(
+            Integer.getInteger("tenants", Integer.MAX_VALUE),
+            Double.parseDouble(System.getProperty("tenantSkew", "1.0")),
+            System.getProperty("tenantDomain", "atparui.com"),
+            Double.parseDouble(System.getProperty("subdomainRatio", "0.5"))
+        );
+    }
+
+    /**
+     * Load the active tenants of the gateway, to be called before the virtual users start.
+     *
+     * @param baseURL the URL of the gateway.
+     * @param adminToken a bearer token of an admin.
+     */
+    void load(String baseURL, String adminToken) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseURL + "/api/tenants?active=true"))
+            .header("Accept", "application/x-ndjson")
+            .header("Authorization", "Bearer " + adminToken)
+            .build();
+        try {
+            HttpResponse<Stream<String>> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofLines());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Failed to list the tenants of " + baseURL + ": " + response.statusCode());
+            }
+            ObjectMapper objectMapper = new ObjectMapper();
+            List<Tenant> loaded = new ArrayList<>();
+            Iterator<String> lines = response.body().iterator();
+            while (lines.hasNext() && loaded.size() < maxTenants) {
+                String line = lines.next();
+                if (!line.isBlank()) {
+                    JsonNode tenant = objectMapper.readTree(line);
+                    String subdomain = tenant.path("subdomain").asText(null);
+                    loaded.add(new Tenant(tenant.get("tenantId").asText(), subdomain == null ? null : subdomain + "." + domain));
+                }
+            }
+            if (loaded.isEmpty()) {
+                throw new IllegalStateException("No active tenant on " + baseURL + ", provision some with POST /api/tenants");
+            }
+            setTenants(loaded);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void setTenants(List<Tenant> loaded) {
+        double[] weights = new double[loaded.size()];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += 1 / Math.pow(i + 1, skew);
+            weights[i] = total;
+        }
+        cumulativeWeights = weights;
+        tenants = loaded.toArray(Tenant[]::new);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return true;
+    }
+
+    @Override
+    public Map<String, Object> next() {
+        Tenant[] tenants = this.tenants;
+        double[] weights = cumulativeWeights;
+        if (tenants == null) {
+            throw new IllegalStateException("The tenants are not loaded");
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = Arrays.binarySearch(weights, random.nextDouble(weights[weights.length - 1]));
+        Tenant tenant = tenants[index < 0 ? -index - 1 : index];
+        boolean bySubdomain = tenant.host() != null && random.nextDouble() < subdomainRatio;
+        return Map.of("tenantId", tenant.id(), "tenantHost", bySubdomain ? tenant.host() : "", "bySubdomain", bySubdomain);
+    }
+
+    private record Tenant(String id, String host) {}
+}